@@ -3,6 +3,7 @@ package de.bastiankrol.startexplorer;
 import de.bastiankrol.startexplorer.crossplatform.CustomDesktopEnvironmentContainer;
 import de.bastiankrol.startexplorer.crossplatform.DesktopEnvironment;
 import de.bastiankrol.startexplorer.crossplatform.WorkingDirectoryMode;
+import de.bastiankrol.startexplorer.preferences.PreferenceModel;
 
 public class ActivatorForDesktopEnvironmentLayoutTests extends Activator
 {
@@ -12,7 +13,7 @@ public class ActivatorForDesktopEnvironmentLayoutTests extends Activator
     this.pluginContext = new PluginContext()
     {
       @Override
-      void loadPreferencesFromEclipseStore()
+      void loadPreferencesFromEclipseStore(PreferenceModel preferenceModel)
       {
         // This values will be overwritten by initializeDefaults()
         // but there need to be some values there during createContents ->
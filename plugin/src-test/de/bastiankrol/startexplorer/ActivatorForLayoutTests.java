@@ -25,7 +25,7 @@ public class ActivatorForLayoutTests extends Activator
       }
 
       @Override
-      void loadPreferencesFromEclipseStore()
+      void loadPreferencesFromEclipseStore(PreferenceModel preferenceModel)
       {
         // Do nothing
       }
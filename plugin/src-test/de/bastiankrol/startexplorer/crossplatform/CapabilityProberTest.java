@@ -0,0 +1,179 @@
+package de.bastiankrol.startexplorer.crossplatform;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import de.bastiankrol.startexplorer.Activator;
+import de.bastiankrol.startexplorer.ActivatorInstanceInjector;
+import de.bastiankrol.startexplorer.LogFacility;
+import de.bastiankrol.startexplorer.PluginContext;
+
+/**
+ * Test class for {@link CapabilityProber}.
+ *
+ * @author Bastian Krol
+ */
+public class CapabilityProberTest
+{
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Mock
+  private Activator activatorMock;
+
+  @Mock
+  private PluginContext pluginContextMock;
+
+  @Mock
+  private LogFacility logFacilityMock;
+
+  private File bin;
+  private final AtomicInteger searches = new AtomicInteger();
+  private volatile String slowExecutable;
+
+  private final ExecutableResolver executableResolver = new ExecutableResolver()
+  {
+    @Override
+    String getPathVariable()
+    {
+      return CapabilityProberTest.this.bin.getAbsolutePath();
+    }
+
+    @Override
+    File search(String path, String name)
+    {
+      CapabilityProberTest.this.searches.incrementAndGet();
+      if (name.equals(CapabilityProberTest.this.slowExecutable))
+      {
+        try
+        {
+          Thread.sleep(5000);
+        }
+        catch (InterruptedException e)
+        {
+          return null;
+        }
+      }
+      return super.search(path, name);
+    }
+  };
+
+  /**
+   * JUnit before
+   *
+   * @throws IOException if the test directory can not be created
+   */
+  @Before
+  public void setUp() throws IOException
+  {
+    assumeTrue(File.separatorChar == '/');
+    MockitoAnnotations.initMocks(this);
+    ActivatorInstanceInjector.injectDefaultInstanceForTest(this.activatorMock);
+    ActivatorInstanceInjector.stubGetContextCall(this.activatorMock,
+        this.pluginContextMock);
+    when(this.pluginContextMock.getLogFacility()).thenReturn(
+        this.logFacilityMock);
+    this.bin = this.temporaryFolder.newFolder("bin");
+    this.createExecutables("nautilus", "nemo", "gnome-terminal", "xterm",
+        "xdg-open");
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testPrefersProgramsOfTheDesktop()
+  {
+    CustomDesktopEnvironmentContainer cinnamon = this.createProber().probe(
+        "X-Cinnamon");
+    assertEquals("nemo ${resource_path}",
+        cinnamon.getCommandForStartFileManager());
+    assertFalse(cinnamon.isFileSelectionSupportedByFileManager());
+    assertEquals("gnome-terminal", cinnamon.getCommandForStartShell());
+    assertEquals("xdg-open ${resource_path}",
+        cinnamon.getCommandForStartSystemApplication());
+
+    CustomDesktopEnvironmentContainer gnome = this.createProber().probe(
+        "GNOME");
+    assertEquals("nautilus ${resource_path}",
+        gnome.getCommandForStartFileManager());
+    assertEquals("nautilus --select ${resource_path}",
+        gnome.getCommandForStartFileManagerAndSelectFile());
+    assertTrue(gnome.isFileSelectionSupportedByFileManager());
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testReturnsNullIfARoleCanNotBeFilled()
+  {
+    new File(this.bin, "xdg-open").delete();
+    assertNull(this.createProber().probe(null));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testCachesResult()
+  {
+    CapabilityProber capabilityProber = this.createProber();
+    CustomDesktopEnvironmentContainer first = capabilityProber.probe("GNOME");
+    int searches = this.searches.get();
+    assertSame(first, capabilityProber.probe("GNOME"));
+    assertEquals(searches, this.searches.get());
+    assertNotSame(first, capabilityProber.probe("MATE"));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testHonorsTimeBudget()
+  {
+    this.slowExecutable = "nautilus";
+    CapabilityProber capabilityProber = new CapabilityProber(
+        this.executableResolver, 200);
+
+    long start = System.currentTimeMillis();
+    CustomDesktopEnvironmentContainer container = capabilityProber
+        .probe("GNOME");
+    assertTrue(System.currentTimeMillis() - start < 2000);
+
+    assertEquals("nemo ${resource_path}",
+        container.getCommandForStartFileManager());
+    // incomplete results are not cached
+    int searches = this.searches.get();
+    capabilityProber.probe("GNOME");
+    assertTrue(this.searches.get() > searches);
+  }
+
+  private CapabilityProber createProber()
+  {
+    return new CapabilityProber(this.executableResolver,
+        CapabilityProber.DEFAULT_TIME_BUDGET_MILLIS);
+  }
+
+  private void createExecutables(String... names) throws IOException
+  {
+    for (String name : names)
+    {
+      File file = new File(this.bin, name);
+      file.createNewFile();
+      file.setExecutable(true);
+    }
+  }
+}
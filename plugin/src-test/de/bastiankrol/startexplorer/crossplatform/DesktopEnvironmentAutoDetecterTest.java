@@ -0,0 +1,138 @@
+package de.bastiankrol.startexplorer.crossplatform;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test class for {@link DesktopEnvironmentAutoDetecter}.
+ *
+ * @author Bastian Krol
+ */
+public class DesktopEnvironmentAutoDetecterTest
+{
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Map<String, String> environment;
+  private File proc;
+
+  /**
+   * JUnit before
+   *
+   * @throws IOException if the fake proc directory can not be created
+   */
+  @Before
+  public void setUp() throws IOException
+  {
+    this.environment = new HashMap<String, String>();
+    this.proc = this.temporaryFolder.newFolder("proc");
+    this.addProcess("1", "systemd");
+    this.addProcess("self", "java");
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testXdgCurrentDesktop() throws Exception
+  {
+    this.environment.put("XDG_CURRENT_DESKTOP", "ubuntu:GNOME");
+    assertEquals(DesktopEnvironment.LINUX_GNOME, this.detect());
+    this.environment.put("XDG_CURRENT_DESKTOP", "KDE");
+    assertEquals(DesktopEnvironment.LINUX_KDE, this.detect());
+    this.environment.put("XDG_CURRENT_DESKTOP", "X-Cinnamon");
+    assertEquals(DesktopEnvironment.LINUX_GNOME, this.detect());
+    this.environment.put("XDG_CURRENT_DESKTOP", "XFCE");
+    assertEquals(DesktopEnvironment.LINUX_XFCE, this.detect());
+    this.environment.put("XDG_CURRENT_DESKTOP", "MATE");
+    assertEquals(DesktopEnvironment.LINUX_MATE, this.detect());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testXdgCurrentDesktopTakesPrecedence() throws Exception
+  {
+    this.environment.put("XDG_CURRENT_DESKTOP", "LXDE");
+    this.environment.put("DESKTOP_SESSION", "plasma");
+    this.addProcess("100", "ksmserver");
+    assertEquals(DesktopEnvironment.LINUX_LXDE, this.detect());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testDesktopSession() throws Exception
+  {
+    this.environment.put("XDG_CURRENT_DESKTOP", "SomethingElse");
+    this.environment.put("DESKTOP_SESSION", "/usr/share/xsessions/plasma");
+    assertEquals(DesktopEnvironment.LINUX_KDE, this.detect());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testSessionProcesses() throws Exception
+  {
+    this.addProcess("200", "xfce4-session");
+    this.addProcess("300", "gnome-session-b");
+    // the order of the candidates counts, not the order of the processes
+    assertEquals(DesktopEnvironment.LINUX_GNOME, this.detect());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testUnknown() throws Exception
+  {
+    this.addProcess("200", "bash");
+    // a process that has terminated while scanning
+    new File(this.proc, "300").mkdir();
+    assertEquals(DesktopEnvironment.LINUX_UNKNOWN, this.detect());
+  }
+
+  private DesktopEnvironment detect() throws Exception
+  {
+    return DesktopEnvironmentAutoDetecter.detectLinuxDesktopEnvironment(
+        this.environment, this.proc);
+  }
+
+  private void addProcess(String pid, String name) throws IOException
+  {
+    File processDirectory = new File(this.proc, pid);
+    processDirectory.mkdir();
+    FileWriter writer = new FileWriter(new File(processDirectory, "comm"));
+    try
+    {
+      writer.write(name + "\n");
+    }
+    finally
+    {
+      writer.close();
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package de.bastiankrol.startexplorer.crossplatform;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test class for {@link DesktopEnvironmentCache}.
+ *
+ * @author Bastian Krol
+ */
+public class DesktopEnvironmentCacheTest
+{
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Map<String, String> environment;
+  private File stateFile;
+  private File bin;
+  private String path;
+
+  /**
+   * JUnit before
+   *
+   * @throws IOException if the test directories can not be created
+   */
+  @Before
+  public void setUp() throws IOException
+  {
+    assumeTrue(File.separatorChar == '/');
+    this.environment = new HashMap<String, String>();
+    this.environment.put("XDG_SESSION_TYPE", "x11");
+    this.environment.put("XDG_CURRENT_DESKTOP", "GNOME");
+    this.environment.put("PATH", "/usr/bin:/bin");
+    this.stateFile = new File(this.temporaryFolder.getRoot(),
+        DesktopEnvironmentCache.FILE_NAME);
+    this.bin = this.temporaryFolder.newFolder("bin");
+    this.path = this.bin.getAbsolutePath();
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws IOException if the state file can not be written
+   */
+  @Test
+  public void testRestoresStoredValue() throws IOException
+  {
+    assertNull(this.createCache().restore());
+    this.createCache().store(DesktopEnvironment.LINUX_KDE, null);
+    assertEquals(DesktopEnvironment.LINUX_KDE, this.createCache().restore());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws IOException if the state file can not be written
+   */
+  @Test
+  public void testIgnoresStoredValueFromOtherSession() throws IOException
+  {
+    this.createCache().store(DesktopEnvironment.LINUX_GNOME, null);
+    this.environment.put("XDG_SESSION_TYPE", "wayland");
+    assertNull(this.createCache().restore());
+    this.environment.put("XDG_SESSION_TYPE", "x11");
+    this.environment.put("PATH", "/opt/bin:/usr/bin:/bin");
+    assertNull(this.createCache().restore());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws IOException if the test files can not be created
+   */
+  @Test
+  public void testRestoresExecutables() throws IOException
+  {
+    File nautilus = new File(this.bin, "nautilus");
+    nautilus.createNewFile();
+    nautilus.setExecutable(true);
+    Capabilities capabilities = Capabilities.create()
+        .withExecutables("nautilus", "gnome-terminal").build();
+    this.createCache().store(DesktopEnvironment.LINUX_GNOME, capabilities);
+
+    // the stored results are used without looking at the directory again
+    long modified = this.bin.lastModified();
+    nautilus.delete();
+    this.bin.setLastModified(modified);
+    ExecutableResolver executableResolver = this.createExecutableResolver();
+    this.createCache(executableResolver).restore();
+    assertEquals(nautilus.getAbsoluteFile(),
+        executableResolver.resolve("nautilus"));
+    assertNull(executableResolver.resolve("gnome-terminal"));
+
+    // but not if PATH has changed in the meantime
+    this.bin.setLastModified(modified + 2000);
+    executableResolver = this.createExecutableResolver();
+    this.createCache(executableResolver).restore();
+    assertNull(executableResolver.resolve("nautilus"));
+  }
+
+  private DesktopEnvironmentCache createCache()
+  {
+    return this.createCache(this.createExecutableResolver());
+  }
+
+  private DesktopEnvironmentCache createCache(
+      ExecutableResolver executableResolver)
+  {
+    return new DesktopEnvironmentCache(this.stateFile, this.environment,
+        executableResolver);
+  }
+
+  private ExecutableResolver createExecutableResolver()
+  {
+    return new ExecutableResolver()
+    {
+      @Override
+      String getPathVariable()
+      {
+        return DesktopEnvironmentCacheTest.this.path;
+      }
+    };
+  }
+}
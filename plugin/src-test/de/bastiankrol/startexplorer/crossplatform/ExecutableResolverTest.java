@@ -0,0 +1,212 @@
+package de.bastiankrol.startexplorer.crossplatform;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import de.bastiankrol.startexplorer.Activator;
+import de.bastiankrol.startexplorer.ActivatorInstanceInjector;
+import de.bastiankrol.startexplorer.PluginContext;
+import de.bastiankrol.startexplorer.util.MessageDialogHelper;
+
+/**
+ * Test class for {@link ExecutableResolver}.
+ *
+ * @author Bastian Krol
+ */
+public class ExecutableResolverTest
+{
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Mock
+  private Activator activatorMock;
+
+  @Mock
+  private PluginContext pluginContextMock;
+
+  @Mock
+  private MessageDialogHelper messageDialogHelperMock;
+
+  @Mock
+  private IRuntimeExecDelegate runtimeExecDelegateMock;
+
+  private File bin1;
+  private File bin2;
+  private String path;
+
+  private ExecutableResolver executableResolver = new ExecutableResolver()
+  {
+    @Override
+    String getPathVariable()
+    {
+      return ExecutableResolverTest.this.path;
+    }
+  };
+
+  /**
+   * JUnit before
+   *
+   * @throws IOException if the test directories can not be created
+   */
+  @Before
+  public void setUp() throws IOException
+  {
+    assumeTrue(File.separatorChar == '/');
+    MockitoAnnotations.initMocks(this);
+    ActivatorInstanceInjector.injectDefaultInstanceForTest(this.activatorMock);
+    ActivatorInstanceInjector.stubGetContextCall(this.activatorMock,
+        this.pluginContextMock);
+    when(this.pluginContextMock.getMessageDialogHelper()).thenReturn(
+        this.messageDialogHelperMock);
+    this.bin1 = this.temporaryFolder.newFolder("bin1");
+    this.bin2 = this.temporaryFolder.newFolder("bin2");
+    this.path = this.bin1.getAbsolutePath() + File.pathSeparator
+        + this.bin2.getAbsolutePath();
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws IOException if the test files can not be created
+   */
+  @Test
+  public void testResolvesFirstExecutableOnPath() throws IOException
+  {
+    File second = this.createExecutable(this.bin2, "tool");
+    assertEquals(second, this.executableResolver.resolve("tool"));
+    this.createExecutable(this.bin1, "other");
+    // files that are not executable are ignored
+    new File(this.bin1, "tool").createNewFile();
+    this.touch(this.bin1);
+    assertEquals(second, this.executableResolver.resolve("tool"));
+    assertNull(this.executableResolver.resolve("missing"));
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws IOException if the test files can not be created
+   */
+  @Test
+  public void testCachesUntilPathDirectoryChanges() throws IOException
+  {
+    File tool = this.createExecutable(this.bin1, "tool");
+    assertEquals(tool, this.executableResolver.resolve("tool"));
+    long modified = this.bin1.lastModified();
+
+    // not noticed as long as the directory looks unchanged
+    tool.setExecutable(false);
+    this.bin1.setLastModified(modified);
+    assertEquals(tool, this.executableResolver.resolve("tool"));
+
+    this.touch(this.bin1);
+    assertNull(this.executableResolver.resolve("tool"));
+
+    // a newly installed program is found as soon as the directory changes
+    File installed = this.createExecutable(this.bin2, "tool");
+    this.touch(this.bin2);
+    assertEquals(installed, this.executableResolver.resolve("tool"));
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws IOException if the test files can not be created
+   */
+  @Test
+  public void testCacheIsKeyedByPath() throws IOException
+  {
+    File tool = this.createExecutable(this.bin2, "tool");
+    this.path = this.bin1.getAbsolutePath();
+    assertNull(this.executableResolver.resolve("tool"));
+    this.path = this.bin2.getAbsolutePath();
+    assertEquals(tool, this.executableResolver.resolve("tool"));
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws IOException if the test files can not be created
+   */
+  @Test
+  public void testLaunchesResolvedExecutable() throws IOException
+  {
+    File nautilus = this.createExecutable(this.bin1, "nautilus");
+    RuntimeExecCallsGnome runtimeExecCalls = this.createGnome();
+
+    runtimeExecCalls.startFileManagerForFile(this.bin2, false);
+
+    verify(this.runtimeExecDelegateMock).exec(
+        new String[] { nautilus.getPath(), this.bin2.getAbsolutePath() },
+        null, false);
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testMissingExecutableIsReportedWithoutFork()
+  {
+    RuntimeExecCallsGnome runtimeExecCalls = this.createGnome();
+
+    runtimeExecCalls.startShellForFile(this.bin2);
+
+    verify(this.messageDialogHelperMock).displayErrorMessage(anyString(),
+        contains("gnome-terminal"));
+    verifyZeroInteractions(this.runtimeExecDelegateMock);
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws IOException if the test files can not be created
+   */
+  @Test
+  public void testCurrentGnomeIsComplete() throws IOException
+  {
+    // current Gnome versions come without gnome-open
+    this.createExecutable(this.bin1, "nautilus");
+    this.createExecutable(this.bin1, "gnome-terminal");
+    this.createExecutable(this.bin1, "xdg-open");
+    RuntimeExecCallsGnome runtimeExecCalls = this.createGnome();
+
+    assertTrue(runtimeExecCalls.getMissingExecutables().isEmpty());
+    assertSame(runtimeExecCalls, RuntimeExecCallsFactory.withInstalledPrograms(
+        DesktopEnvironment.LINUX_GNOME, runtimeExecCalls));
+  }
+
+  private RuntimeExecCallsGnome createGnome()
+  {
+    RuntimeExecCallsGnome runtimeExecCalls = new RuntimeExecCallsGnome();
+    runtimeExecCalls.setRuntimeExecDelegate(this.runtimeExecDelegateMock);
+    runtimeExecCalls.setFreedesktopFileManager(null);
+    runtimeExecCalls.setExecutableResolver(this.executableResolver);
+    return runtimeExecCalls;
+  }
+
+  private File createExecutable(File directory, String name)
+      throws IOException
+  {
+    File file = new File(directory, name);
+    file.createNewFile();
+    file.setExecutable(true);
+    return file;
+  }
+
+  private void touch(File directory)
+  {
+    directory.setLastModified(directory.lastModified() + 2000);
+  }
+}
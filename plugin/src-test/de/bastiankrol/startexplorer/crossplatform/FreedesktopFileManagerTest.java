@@ -0,0 +1,240 @@
+package de.bastiankrol.startexplorer.crossplatform;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+import static org.mockito.Mockito.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import de.bastiankrol.startexplorer.Activator;
+import de.bastiankrol.startexplorer.ActivatorInstanceInjector;
+import de.bastiankrol.startexplorer.LogFacility;
+import de.bastiankrol.startexplorer.PluginContext;
+
+/**
+ * Test class for {@link FreedesktopFileManager}.
+ *
+ * @author Bastian Krol
+ */
+public class FreedesktopFileManagerTest
+{
+  private static final String FILE_MANAGER_STUB =
+      "test-resources/dbus/file-manager-stub.py";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Mock
+  private Activator activatorMock;
+
+  @Mock
+  private PluginContext pluginContextMock;
+
+  @Mock
+  private LogFacility logFacilityMock;
+
+  /**
+   * JUnit before
+   */
+  @Before
+  public void setUp()
+  {
+    MockitoAnnotations.initMocks(this);
+    ActivatorInstanceInjector.injectDefaultInstanceForTest(this.activatorMock);
+    ActivatorInstanceInjector.stubGetContextCall(this.activatorMock,
+        this.pluginContextMock);
+    when(this.pluginContextMock.getLogFacility()).thenReturn(
+        this.logFacilityMock);
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testToUri()
+  {
+    assertEquals("file:///tmp/a%20b", FreedesktopFileManager.toUri(new File(
+        "/tmp/a b")));
+    assertEquals("file:///tmp/a%2Cb", FreedesktopFileManager.toUri(new File(
+        "/tmp/a,b")));
+    assertEquals("file:///tmp/%C3%A4", FreedesktopFileManager.toUri(new File(
+        "/tmp/\u00e4")));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testGetCommand()
+  {
+    List<File> files = new ArrayList<File>();
+    files.add(new File("/tmp/a"));
+    files.add(new File("/tmp/b"));
+    assertArrayEquals(new String[] { "dbus-send", "--session",
+        "--print-reply", "--reply-timeout=5000",
+        "--dest=org.freedesktop.FileManager1", "--type=method_call",
+        "/org/freedesktop/FileManager1",
+        "org.freedesktop.FileManager1.ShowItems",
+        "array:string:file:///tmp/a,file:///tmp/b", "string:" },
+        new FreedesktopFileManager().getCommand(
+            FreedesktopFileManager.METHOD_SHOW_ITEMS, files));
+    assertEquals("--bus=unix:path=/tmp/bus", new FreedesktopFileManager(
+        "unix:path=/tmp/bus").getCommand(
+        FreedesktopFileManager.METHOD_SHOW_FOLDERS, files)[1]);
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testIsUnavailableIfNobodyOwnsTheBusName() throws Exception
+  {
+    assumeTrue(new File("/usr/bin/dbus-daemon").canExecute()
+        && new File("/usr/bin/dbus-send").canExecute());
+    Process dbusDaemon = Runtime.getRuntime().exec(
+        new String[] { "dbus-daemon", "--session", "--nofork",
+            "--print-address" });
+    try
+    {
+      String address = new BufferedReader(new InputStreamReader(
+          dbusDaemon.getInputStream())).readLine();
+      assumeNotNull(address);
+      FreedesktopFileManager freedesktopFileManager = new FreedesktopFileManager(
+          address);
+      File file = this.temporaryFolder.newFile("file.txt");
+      List<File> targets = new ArrayList<File>();
+      targets.add(file);
+
+      assertEquals(targets, freedesktopFileManager.show(targets));
+      assertFalse(freedesktopFileManager.isAvailable());
+    }
+    finally
+    {
+      dbusDaemon.destroy();
+    }
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testShowsAllFilesAndFoldersInOneCallEach() throws Exception
+  {
+    assumeTrue(new File("/usr/bin/dbus-daemon").canExecute()
+        && new File("/usr/bin/dbus-send").canExecute()
+        && new File("/usr/bin/python3").canExecute());
+    Process dbusDaemon = Runtime.getRuntime().exec(
+        new String[] { "dbus-daemon", "--session", "--nofork",
+            "--print-address" });
+    Process fileManagerStub = null;
+    try
+    {
+      String address = new BufferedReader(new InputStreamReader(
+          dbusDaemon.getInputStream())).readLine();
+      assumeNotNull(address);
+      File record = new File(this.temporaryFolder.getRoot(), "calls.txt");
+      fileManagerStub = Runtime.getRuntime().exec(
+          new String[] { "python3", FILE_MANAGER_STUB, address,
+              record.getAbsolutePath() });
+      // the stub announces that it owns the bus name, it does not start at
+      // all without the Python GObject bindings
+      assumeTrue("ready".equals(new BufferedReader(new InputStreamReader(
+          fileManagerStub.getInputStream())).readLine()));
+      File file1 = this.temporaryFolder.newFile("file1.txt");
+      File file2 = this.temporaryFolder.newFile("file,2.txt");
+      File folder1 = this.temporaryFolder.newFolder("folder1");
+      File folder2 = this.temporaryFolder.newFolder("folder 2");
+      List<File> targets = new ArrayList<File>();
+      targets.add(file1);
+      targets.add(folder1);
+      targets.add(file2);
+      targets.add(folder2);
+      FreedesktopFileManager freedesktopFileManager = new FreedesktopFileManager(
+          address);
+
+      assertTrue(freedesktopFileManager.show(targets).isEmpty());
+
+      String root = "file://"
+          + this.temporaryFolder.getRoot().getAbsolutePath();
+      List<String> calls = new ArrayList<String>();
+      BufferedReader reader = new BufferedReader(new FileReader(record));
+      try
+      {
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+          calls.add(line);
+        }
+      }
+      finally
+      {
+        reader.close();
+      }
+      assertEquals(2, calls.size());
+      assertEquals("ShowItems\t" + root + "/file1.txt\t" + root
+          + "/file%2C2.txt", calls.get(0));
+      assertEquals("ShowFolders\t" + root + "/folder1\t" + root
+          + "/folder%202", calls.get(1));
+      assertTrue(freedesktopFileManager.isAvailable());
+    }
+    finally
+    {
+      if (fileManagerStub != null)
+      {
+        fileManagerStub.destroy();
+      }
+      dbusDaemon.destroy();
+    }
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws IOException if the test files can not be created
+   */
+  @Test
+  public void testSplitsFilesAndFolders() throws IOException
+  {
+    final List<String[]> calls = new ArrayList<String[]>();
+    FreedesktopFileManager freedesktopFileManager = new FreedesktopFileManager()
+    {
+      @Override
+      CallResult run(String[] command)
+      {
+        calls.add(command);
+        return new CallResult(
+            command[7].equals(METHOD_SHOW_ITEMS) ? 0 : 1, "timeout");
+      }
+    };
+    File file = this.temporaryFolder.newFile("file.txt");
+    File folder = this.temporaryFolder.newFolder("folder");
+    List<File> targets = new ArrayList<File>();
+    targets.add(file);
+    targets.add(folder);
+
+    List<File> notShown = freedesktopFileManager.show(targets);
+
+    assertEquals(2, calls.size());
+    assertEquals(1, notShown.size());
+    assertEquals(folder, notShown.get(0));
+    // other errors than a missing bus name do not disable the interface
+    assertTrue(freedesktopFileManager.isAvailable());
+  }
+}
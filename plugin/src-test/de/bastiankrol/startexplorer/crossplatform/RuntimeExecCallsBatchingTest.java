@@ -0,0 +1,313 @@
+package de.bastiankrol.startexplorer.crossplatform;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import de.bastiankrol.startexplorer.Activator;
+import de.bastiankrol.startexplorer.ActivatorInstanceInjector;
+import de.bastiankrol.startexplorer.LogFacility;
+import de.bastiankrol.startexplorer.PluginContext;
+
+/**
+ * Test class for batching file manager calls.
+ *
+ * @author Bastian Krol
+ */
+public class RuntimeExecCallsBatchingTest
+{
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Mock
+  private IRuntimeExecDelegate runtimeExecDelegateMock;
+
+  @Mock
+  private Activator activatorMock;
+
+  @Mock
+  private PluginContext pluginContextMock;
+
+  @Mock
+  private LogFacility logFacilityMock;
+
+  private File directory1;
+  private File directory2;
+  private File file1;
+  private File file2;
+
+  /**
+   * JUnit before
+   *
+   * @throws IOException if the test files can not be created
+   */
+  @Before
+  public void setUp() throws IOException
+  {
+    MockitoAnnotations.initMocks(this);
+    ActivatorInstanceInjector.injectDefaultInstanceForTest(this.activatorMock);
+    ActivatorInstanceInjector.stubGetContextCall(this.activatorMock,
+        this.pluginContextMock);
+    when(this.pluginContextMock.getLogFacility()).thenReturn(
+        this.logFacilityMock);
+
+    this.directory1 = this.temporaryFolder.newFolder("directory1");
+    this.directory2 = this.temporaryFolder.newFolder("directory2");
+    this.file1 = new File(this.directory1, "file1.txt");
+    this.file1.createNewFile();
+    this.file2 = new File(this.directory1, "file2.txt");
+    this.file2.createNewFile();
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testGnomeCombinesDirectoriesIntoOneCall()
+  {
+    RuntimeExecCallsGnome runtimeExecCalls = this.createGnome();
+    runtimeExecCalls.setFreedesktopFileManager(null);
+
+    runtimeExecCalls.startFileManagerForFileList(this.list(this.file1,
+        this.file2, this.directory1, this.directory2), false);
+
+    verify(this.runtimeExecDelegateMock).exec(
+        new String[] { "/usr/bin/nautilus",
+            this.directory1.getAbsolutePath(),
+            this.directory2.getAbsolutePath() }, null, false);
+    verifyNoMoreInteractions(this.runtimeExecDelegateMock);
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testGnomeStartsSingleDirectoryAsBefore()
+  {
+    RuntimeExecCallsGnome runtimeExecCalls = this.createGnome();
+    runtimeExecCalls.setFreedesktopFileManager(null);
+
+    runtimeExecCalls.startFileManagerForFileList(
+        this.list(this.file1, this.file2), false);
+
+    verify(this.runtimeExecDelegateMock).exec(
+        new String[] { "/usr/bin/nautilus",
+            this.directory1.getAbsolutePath() }, null, false);
+    verifyNoMoreInteractions(this.runtimeExecDelegateMock);
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testWindowsSelectsEachFileOnce()
+  {
+    RuntimeExecCallsWindows runtimeExecCalls = new RuntimeExecCallsWindows();
+    runtimeExecCalls.setRuntimeExecDelegate(this.runtimeExecDelegateMock);
+
+    List<List<File>> batches = runtimeExecCalls.batchFilesForFileManager(
+        this.list(this.file1, this.file2, this.file1), true);
+
+    assertEquals(2, batches.size());
+    assertEquals(this.list(this.file1), batches.get(0));
+    assertEquals(this.list(this.file2), batches.get(1));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testWindowsOpensParentDirectoryOnceWithoutSelection()
+  {
+    RuntimeExecCallsWindows runtimeExecCalls = new RuntimeExecCallsWindows();
+    runtimeExecCalls.setRuntimeExecDelegate(this.runtimeExecDelegateMock);
+
+    List<List<File>> batches = runtimeExecCalls.batchFilesForFileManager(
+        this.list(this.file1, this.file2), false);
+
+    assertEquals(1, batches.size());
+    assertEquals(this.list(this.directory1), batches.get(0));
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws IOException if the test directories can not be created
+   */
+  @Test
+  public void testNumberOfWindowsIsCapped() throws IOException
+  {
+    RuntimeExecCallsWindows runtimeExecCalls = new RuntimeExecCallsWindows();
+    runtimeExecCalls.setRuntimeExecDelegate(this.runtimeExecDelegateMock);
+    List<File> directories = new ArrayList<File>();
+    for (int i = 0; i < Capabilities.DEFAULT_MAX_FILE_MANAGER_WINDOWS + 5; i++)
+    {
+      directories.add(this.temporaryFolder.newFolder("many" + i));
+    }
+
+    runtimeExecCalls.startFileManagerForFileList(directories, false);
+
+    verify(this.runtimeExecDelegateMock,
+        times(Capabilities.DEFAULT_MAX_FILE_MANAGER_WINDOWS)).exec(
+        any(String[].class), any(File.class), eq(true));
+    verify(this.logFacilityMock).logWarning(anyString());
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testGnomeShowsEverythingWithOneDBusCallPerMethod()
+  {
+    RuntimeExecCallsGnome runtimeExecCalls = this.createGnome();
+    FakeFreedesktopFileManager freedesktopFileManager = new FakeFreedesktopFileManager(
+        0);
+    runtimeExecCalls.setFreedesktopFileManager(freedesktopFileManager);
+
+    runtimeExecCalls.startFileManagerForFileList(this.list(this.file1,
+        this.file2, this.directory2), true);
+
+    assertEquals(2, freedesktopFileManager.calls.size());
+    assertEquals(FreedesktopFileManager.METHOD_SHOW_ITEMS,
+        freedesktopFileManager.calls.get(0)[7]);
+    assertEquals("array:string:" + FreedesktopFileManager.toUri(this.file1)
+        + "," + FreedesktopFileManager.toUri(this.file2),
+        freedesktopFileManager.calls.get(0)[8]);
+    assertEquals(FreedesktopFileManager.METHOD_SHOW_FOLDERS,
+        freedesktopFileManager.calls.get(1)[7]);
+    verifyZeroInteractions(this.runtimeExecDelegateMock);
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testGnomeFallsBackToExecIfDBusNameIsAbsent()
+  {
+    RuntimeExecCallsGnome runtimeExecCalls = this.createGnome();
+    FakeFreedesktopFileManager freedesktopFileManager = new FakeFreedesktopFileManager(
+        1);
+    runtimeExecCalls.setFreedesktopFileManager(freedesktopFileManager);
+
+    runtimeExecCalls.startFileManagerForFileList(
+        this.list(this.file1, this.file2), true);
+    runtimeExecCalls.startFileManagerForFileList(
+        this.list(this.file1, this.file2), true);
+
+    // the first D-Bus call failed, the second selection does not try again
+    assertEquals(1, freedesktopFileManager.calls.size());
+    assertFalse(freedesktopFileManager.isAvailable());
+    verify(this.runtimeExecDelegateMock, times(2)).exec(
+        new String[] { "/usr/bin/nautilus",
+            this.directory1.getAbsolutePath() }, null, false);
+    verifyNoMoreInteractions(this.runtimeExecDelegateMock);
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws IOException if the test files can not be created
+   */
+  @Test
+  public void testDBusShowsManyFilesInOneDirectory() throws IOException
+  {
+    RuntimeExecCallsGnome runtimeExecCalls = this.createGnome();
+    runtimeExecCalls.setFreedesktopFileManager(new FakeFreedesktopFileManager(
+        0));
+    List<File> files = new ArrayList<File>();
+    for (int i = 0; i < Capabilities.DEFAULT_MAX_FILE_MANAGER_WINDOWS + 5; i++)
+    {
+      File file = new File(this.directory2, "file" + i + ".txt");
+      file.createNewFile();
+      files.add(file);
+    }
+
+    List<List<File>> batches = runtimeExecCalls.batchFilesForFileManager(
+        files, true);
+
+    assertEquals(1, batches.size());
+    assertEquals(files, batches.get(0));
+    verifyZeroInteractions(this.logFacilityMock);
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testDBusIsProbedAgain()
+  {
+    RuntimeExecCallsGnome runtimeExecCalls = this.createGnome();
+    FakeFreedesktopFileManager freedesktopFileManager = new FakeFreedesktopFileManager(
+        1);
+    runtimeExecCalls.setFreedesktopFileManager(freedesktopFileManager);
+    assertTrue(RuntimeExecCallsFactory
+        .isFileManagerReachableViaDBus(runtimeExecCalls));
+
+    runtimeExecCalls.startFileManagerForFileList(this.list(this.directory1),
+        false);
+    assertFalse(RuntimeExecCallsFactory
+        .isFileManagerReachableViaDBus(runtimeExecCalls));
+
+    RuntimeExecCallsFactory.reprobeFileManagerDBusInterface(runtimeExecCalls);
+    assertTrue(RuntimeExecCallsFactory
+        .isFileManagerReachableViaDBus(runtimeExecCalls));
+  }
+
+  private RuntimeExecCallsGnome createGnome()
+  {
+    RuntimeExecCallsGnome runtimeExecCalls = new RuntimeExecCallsGnome();
+    runtimeExecCalls.setRuntimeExecDelegate(this.runtimeExecDelegateMock);
+    runtimeExecCalls.setExecutableResolver(new ExecutableResolver()
+    {
+      @Override
+      File resolve(String name)
+      {
+        return new File("/usr/bin", name);
+      }
+    });
+    return runtimeExecCalls;
+  }
+
+  private List<File> list(File... files)
+  {
+    List<File> list = new ArrayList<File>();
+    for (File file : files)
+    {
+      list.add(file);
+    }
+    return list;
+  }
+
+  private static class FakeFreedesktopFileManager extends
+      FreedesktopFileManager
+  {
+    private final int exitCode;
+    private final List<String[]> calls = new ArrayList<String[]>();
+
+    FakeFreedesktopFileManager(int exitCode)
+    {
+      this.exitCode = exitCode;
+    }
+
+    @Override
+    CallResult run(String[] command)
+    {
+      this.calls.add(command);
+      return new CallResult(this.exitCode, this.exitCode == 0 ? ""
+          : "Error org.freedesktop.DBus.Error.ServiceUnknown: The name "
+              + BUS_NAME + " was not provided by any .service files");
+    }
+  }
+}
@@ -4,6 +4,9 @@ import static de.bastiankrol.startexplorer.customcommands.CommandConfigObjectMot
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.eclipse.core.commands.Command;
 import org.eclipse.core.commands.IHandler;
 import org.eclipse.ui.commands.ICommandService;
@@ -96,4 +99,25 @@ abstract class AbstractCustomCommandFactoryTest
     verify(this.handlerServiceMock).deactivateHandler(handlerActivationMock);
   }
 
+  void commonTestReusesRegisteredCommands()
+  {
+    List<CommandConfig> commandConfigs = new ArrayList<CommandConfig>(
+        oneForBoth());
+    when(this.preferenceModelMock.getCommandConfigList()).thenReturn(
+        commandConfigs);
+    this.customCommandFactory.getContributionItems();
+    this.customCommandFactory.getContributionItems();
+    verify(this.commandServiceMock, times(1)).getCommand(anyString());
+    verify(this.handlerServiceMock, times(1)).activateHandler(anyString(),
+        (IHandler) anyObject());
+    verify(this.commandMock, never()).undefine();
+    verify(this.customCommandFactory, times(2)).createContributionItem(
+        (CommandContributionItemParameter) anyObject());
+
+    commandConfigs.clear();
+    this.customCommandFactory.getContributionItems();
+    verify(this.commandMock).undefine();
+    verify(this.handlerServiceMock).deactivateHandler(handlerActivationMock);
+  }
+
 }
@@ -1,12 +1,116 @@
 package de.bastiankrol.startexplorer.customcommands;
 
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.bastiankrol.startexplorer.ResourceType;
 
 public class CommandConfigTest
 {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Test
   public void coverCommandConfig()
   {
     new CommandConfig().toString();
   }
+
+  @Test
+  public void shouldBeDirtyWhenNew()
+  {
+    assertTrue(new CommandConfig().isDirty());
+  }
+
+  @Test
+  public void shouldOnlyBeDirtyAfterActualChanges()
+  {
+    CommandConfig commandConfig = sharedCommandConfig("cmd",
+        "/p/a.startexplorer");
+    commandConfig.markClean();
+    commandConfig.setCommand("cmd");
+    commandConfig.setResourceType(ResourceType.BOTH);
+    commandConfig.setNameForResourcesMenu("cmd");
+    commandConfig.setStoreAsSharedFile("/p/a.startexplorer");
+    assertFalse(commandConfig.isDirty());
+
+    commandConfig.setPassSelectedText(true);
+    assertTrue(commandConfig.isDirty());
+  }
+
+  @Test
+  public void shouldWriteChangedFilesOnly()
+  {
+    CommandConfig unchanged = sharedCommandConfig("a", "/p/a.startexplorer");
+    unchanged.markClean();
+    CommandConfig changed = sharedCommandConfig("b", "/p/b.startexplorer");
+    changed.markClean();
+    changed.setCommand("b2");
+    CommandConfig inPreferences = new CommandConfig();
+    Set<String> dirtyPaths = SharedFileManager.getDirtySharedFilePaths(Arrays
+        .asList(unchanged, changed, inPreferences));
+    assertEquals(1, dirtyPaths.size());
+    assertTrue(dirtyPaths.contains("/p/b.startexplorer"));
+  }
+
+  @Test
+  public void shouldWritePreviousFileOfMovedCommand()
+  {
+    CommandConfig moved = sharedCommandConfig("a", "/p/a.startexplorer");
+    moved.markClean();
+    moved.setStoreAsSharedFile("/p/b.startexplorer");
+    Set<String> dirtyPaths = SharedFileManager.getDirtySharedFilePaths(Arrays
+        .asList(moved));
+    assertEquals(2, dirtyPaths.size());
+    assertTrue(dirtyPaths.contains("/p/a.startexplorer"));
+    assertTrue(dirtyPaths.contains("/p/b.startexplorer"));
+  }
+
+  @Test
+  public void shouldBeCleanAfterImport() throws Exception
+  {
+    CommandConfig commandConfig = new SharedFileManager()
+        .convertToCommandConfigs(
+            "{\"command\":\"a\",\"store as\":\"SHARED_FILE\","
+                + "\"shared file\":\"/p/a.startexplorer\"}").get(0);
+    assertFalse(commandConfig.isDirty());
+    assertEquals("/p/a.startexplorer", commandConfig.getWrittenSharedFilePath());
+  }
+
+  @Test
+  public void shouldWriteSharedFileOfCommandImportedFromFileSystem()
+      throws Exception
+  {
+    File exported = this.temporaryFolder.newFile("exported.startexplorer");
+    FileWriter writer = new FileWriter(exported);
+    writer.write("{\"command\":\"a\",\"store as\":\"SHARED_FILE\","
+        + "\"shared file\":\"/p/a.startexplorer\"}");
+    writer.close();
+    List<CommandConfig> imported = new SharedFileManager()
+        .importCommandConfigsFromFile(exported);
+    assertTrue(imported.get(0).isDirty());
+    Set<String> dirtyPaths = SharedFileManager
+        .getDirtySharedFilePaths(imported);
+    assertEquals(1, dirtyPaths.size());
+    assertTrue(dirtyPaths.contains("/p/a.startexplorer"));
+    assertEquals(1, SharedFileManager.groupBySharedFile(imported)
+        .get("/p/a.startexplorer").size());
+  }
+
+  private static CommandConfig sharedCommandConfig(String command, String path)
+  {
+    CommandConfig commandConfig = new CommandConfig(command, ResourceType.BOTH,
+        true, command, true, command, false);
+    commandConfig.setStoreAsSharedFile(path);
+    return commandConfig;
+  }
 }
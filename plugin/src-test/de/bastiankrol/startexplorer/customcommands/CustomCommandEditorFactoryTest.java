@@ -78,4 +78,10 @@ public class CustomCommandEditorFactoryTest extends
   {
     commonTestCleanUp();
   }
+
+  @Test
+  public void testReusesRegisteredCommands() throws Exception
+  {
+    commonTestReusesRegisteredCommands();
+  }
 }
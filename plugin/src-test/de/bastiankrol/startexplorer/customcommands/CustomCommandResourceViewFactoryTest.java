@@ -78,4 +78,10 @@ public class CustomCommandResourceViewFactoryTest extends
     commonTestCleanUp();
   }
 
+  @Test
+  public void testReusesRegisteredCommands() throws Exception
+  {
+    commonTestReusesRegisteredCommands();
+  }
+
 }
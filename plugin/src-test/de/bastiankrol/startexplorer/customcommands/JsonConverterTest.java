@@ -4,6 +4,9 @@ import static de.bastiankrol.startexplorer.customcommands.SharedFileManager.*;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.json.simple.parser.ParseException;
 import org.junit.Before;
 import org.junit.Test;
@@ -37,6 +40,7 @@ public class JsonConverterTest
         + "\"" + KEY_ENABLED_FOR_EDITOR + "\":true," //
         + "\"" + KEY_NAME_FOR_EDITOR + "\":\"open nautilus from editor\"," //
         + "\"" + KEY_PASS_SELECTED_TEXT + "\":false," //
+        + "\"" + KEY_SHOW_OUTPUT_IN_CONSOLE + "\":false," //
         + "\"" + KEY_STORAGE_OPTION + "\":" + "\"PREFERENCES\","//
         + "\"" + KEY_SHARED_FILE + "\":null}";
     String actual = this.converter.convertToJsonString(this.commandConfig);
@@ -58,6 +62,7 @@ public class JsonConverterTest
         + "\"" + KEY_ENABLED_FOR_EDITOR + "\":true," //
         + "\"" + KEY_NAME_FOR_EDITOR + "\":\"\"," //
         + "\"" + KEY_PASS_SELECTED_TEXT + "\":false," //
+        + "\"" + KEY_SHOW_OUTPUT_IN_CONSOLE + "\":false," //
         + "\"" + KEY_STORAGE_OPTION + "\":" + "\"PREFERENCES\","//
         + "\"" + KEY_SHARED_FILE + "\":null}";
     String actual = this.converter.convertToJsonString(this.commandConfig);
@@ -80,6 +85,7 @@ public class JsonConverterTest
         + "\"" + KEY_ENABLED_FOR_EDITOR + "\":true," //
         + "\"" + KEY_NAME_FOR_EDITOR + "\":null," //
         + "\"" + KEY_PASS_SELECTED_TEXT + "\":false," //
+        + "\"" + KEY_SHOW_OUTPUT_IN_CONSOLE + "\":false," //
         + "\"" + KEY_STORAGE_OPTION + "\":" + "\"PREFERENCES\","//
         + "\"" + KEY_SHARED_FILE + "\":null}";
     String actual = this.converter.convertToJsonString(this.commandConfig);
@@ -99,6 +105,7 @@ public class JsonConverterTest
         + "\"" + KEY_ENABLED_FOR_EDITOR + "\":true," //
         + "\"" + KEY_NAME_FOR_EDITOR + "\":\"\"," //
         + "\"" + KEY_PASS_SELECTED_TEXT + "\":false," //
+        + "\"" + KEY_SHOW_OUTPUT_IN_CONSOLE + "\":false," //
         + "\"" + KEY_STORAGE_OPTION + "\":" + "\"PREFERENCES\","//
         + "\"" + KEY_SHARED_FILE + "\":null}";
     String actual = this.converter.convertToJsonString(this.commandConfig);
@@ -121,6 +128,7 @@ public class JsonConverterTest
         + "\"" + KEY_ENABLED_FOR_EDITOR + "\":true," //
         + "\"" + KEY_NAME_FOR_EDITOR + "\":\"open nautilus from editor\"," //
         + "\"" + KEY_PASS_SELECTED_TEXT + "\":false," //
+        + "\"" + KEY_SHOW_OUTPUT_IN_CONSOLE + "\":false," //
         + "\"" + KEY_STORAGE_OPTION + "\":" + "\"PREFERENCES\","//
         + "\"" + KEY_SHARED_FILE + "\":null}";
     String actual = this.converter.convertToJsonString(this.commandConfig);
@@ -148,6 +156,8 @@ public class JsonConverterTest
         + "\":\"open nautilus from editor\"," //
         + "\"" + KEY_PASS_SELECTED_TEXT
         + "\":false," //
+        + "\"" + KEY_SHOW_OUTPUT_IN_CONSOLE
+        + "\":false," //
         + "\"" + KEY_STORAGE_OPTION + "\":"
         + "\"SHARED_FILE\"," //
         + "\"" + KEY_SHARED_FILE + "\":"
@@ -168,6 +178,7 @@ public class JsonConverterTest
         + "\"" + KEY_ENABLED_FOR_EDITOR + "\":true," //
         + "\"" + KEY_NAME_FOR_EDITOR + "\":\"open nautilus from editor\"," //
         + "\"" + KEY_PASS_SELECTED_TEXT + "\":false," //
+        + "\"" + KEY_SHOW_OUTPUT_IN_CONSOLE + "\":false," //
         + "\"" + KEY_STORAGE_OPTION + "\":" + "\"PREFERENCES\","//
         + "\"" + KEY_SHARED_FILE + "\":null}";
     this.commandConfig = this.converter.convertToCommandConfig(json);
@@ -198,6 +209,27 @@ public class JsonConverterTest
     assertTrue(this.commandConfig.isEnabledForTextSelectionMenu());
     assertThat(this.commandConfig.getNameForTextSelectionMenu(), equalTo(""));
     assertFalse(this.commandConfig.isPassSelectedText());
+    assertFalse(this.commandConfig.isShowOutputInConsole());
+  }
+
+  @Test
+  public void shouldExportShowOutputInConsole()
+  {
+    this.commandConfig.setShowOutputInConsole(true);
+    String actual = this.converter.convertToJsonString(this.commandConfig);
+    assertThat(actual, containsString("\"" + KEY_SHOW_OUTPUT_IN_CONSOLE
+        + "\":true"));
+  }
+
+  @Test
+  public void shouldImportShowOutputInConsole() throws Exception
+  {
+    String json = "{"//
+        + "\"" + KEY_VERSION + "\":\"" + VERSION + "\"," //
+        + "\"" + KEY_COMMAND + "\":\"make ${resource_name}\"," //
+        + "\"" + KEY_SHOW_OUTPUT_IN_CONSOLE + "\":true}";
+    this.commandConfig = this.converter.convertToCommandConfig(json);
+    assertTrue(this.commandConfig.isShowOutputInConsole());
   }
 
   @Test
@@ -212,6 +244,7 @@ public class JsonConverterTest
         + "\"" + KEY_ENABLED_FOR_EDITOR + "\":true," //
         + "\"" + KEY_NAME_FOR_EDITOR + "\":\"\"," //
         + "\"" + KEY_PASS_SELECTED_TEXT + "\":false," //
+        + "\"" + KEY_SHOW_OUTPUT_IN_CONSOLE + "\":false," //
         + "\"" + KEY_STORAGE_OPTION + "\":" + "\"PREFERENCES\","//
         + "\"" + KEY_SHARED_FILE + "\":\"\"}";
     this.commandConfig = this.converter.convertToCommandConfig(json);
@@ -341,4 +374,79 @@ public class JsonConverterTest
         equalTo("open nautilus from editor"));
     assertFalse(this.commandConfig.isPassSelectedText());
   }
+
+  @Test
+  public void shouldExportSingleCommandWithoutBundle()
+  {
+    assertEquals(this.converter.convertToJsonString(this.commandConfig),
+        this.converter.convertToJsonString(Arrays.asList(this.commandConfig)));
+  }
+
+  @Test
+  public void shouldExportAndImportBundle() throws Exception
+  {
+    CommandConfig second = new CommandConfig("xterm", ResourceType.DIRECTORY,
+        false, "terminal", true, "terminal from editor", true);
+    String json = this.converter.convertToJsonString(Arrays.asList(
+        this.commandConfig, second));
+    assertThat(json, containsString("\"" + KEY_VERSION + "\":\""
+        + BUNDLE_VERSION + "\""));
+    assertThat(json, containsString("\"" + KEY_COMMANDS + "\":["));
+
+    List<CommandConfig> imported = this.converter.convertToCommandConfigs(json);
+    assertEquals(2, imported.size());
+    assertThat(imported.get(0).getCommand(),
+        equalTo("nautilus ${resource_path}"));
+    assertThat(imported.get(1).getCommand(), equalTo("xterm"));
+    assertThat(imported.get(1).getResourceType(),
+        equalTo(ResourceType.DIRECTORY));
+    assertFalse(imported.get(1).isEnabledForResourcesMenu());
+    assertTrue(imported.get(1).isPassSelectedText());
+  }
+
+  @Test
+  public void shouldImportSingleCommandAsList() throws Exception
+  {
+    String json = "{"//
+        + "\"" + KEY_VERSION + "\":\"" + VERSION + "\"," //
+        + "\"" + KEY_COMMAND + "\":\"nautilus ${resource_path}\"," //
+        + "\"" + KEY_NAME_FOR_RESOURCE_VIEW + "\":\"open nautilus\"}";
+    List<CommandConfig> imported = this.converter.convertToCommandConfigs(json);
+    assertEquals(1, imported.size());
+    assertThat(imported.get(0).getCommand(),
+        equalTo("nautilus ${resource_path}"));
+    assertThat(imported.get(0).getNameForResourcesMenu(),
+        equalTo("open nautilus"));
+  }
+
+  @Test
+  public void shouldSkipUnknownNestedValuesInBundle() throws Exception
+  {
+    String json = "{"//
+        + "\"" + KEY_VERSION + "\":\"" + BUNDLE_VERSION + "\"," //
+        + "\"unknown\":{\"" + KEY_COMMAND + "\":\"no\",\"x\":[1,2]}," //
+        + "\"" + KEY_COMMANDS + "\":[" //
+        + "{\"" + KEY_COMMAND + "\":\"a\",\"tags\":[\"x\",{\"y\":1}]}," //
+        + "{\"nested\":{\"" + KEY_COMMAND + "\":\"no\"},\"" + KEY_COMMAND
+        + "\":\"b\"}" //
+        + "]}";
+    List<CommandConfig> imported = this.converter.convertToCommandConfigs(json);
+    assertEquals(2, imported.size());
+    assertThat(imported.get(0).getCommand(), equalTo("a"));
+    assertThat(imported.get(1).getCommand(), equalTo("b"));
+  }
+
+  @Test
+  public void shouldNotImportArray() throws Exception
+  {
+    try
+    {
+      this.converter.convertToCommandConfigs("[{}]");
+      fail("Exception should have been thrown.");
+    }
+    catch (IllegalArgumentException e)
+    {
+      // expected
+    }
+  }
 }
@@ -0,0 +1,268 @@
+package de.bastiankrol.startexplorer.customcommands;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import de.bastiankrol.startexplorer.Activator;
+import de.bastiankrol.startexplorer.ActivatorInstanceInjector;
+import de.bastiankrol.startexplorer.LogFacility;
+import de.bastiankrol.startexplorer.PluginContext;
+import de.bastiankrol.startexplorer.customcommands.SharedFileFinderJob.ScanRule;
+
+/**
+ * Test class for {@link SharedFileFinderJob}.
+ *
+ * @author Bastian Krol
+ */
+public class SharedFileFinderJobTest
+{
+  @Mock
+  private Activator activatorMock;
+
+  @Mock
+  private PluginContext pluginContextMock;
+
+  @Mock
+  private LogFacility logFacilityMock;
+
+  @Mock
+  private IWorkspace workspaceMock;
+
+  private SharedFileIndex index;
+
+  /**
+   * JUnit before
+   */
+  @Before
+  public void setUp()
+  {
+    MockitoAnnotations.initMocks(this);
+    ActivatorInstanceInjector.injectDefaultInstanceForTest(this.activatorMock);
+    ActivatorInstanceInjector.stubGetContextCall(this.activatorMock,
+        this.pluginContextMock);
+    when(this.pluginContextMock.getLogFacility()).thenReturn(
+        this.logFacilityMock);
+    this.index = new SharedFileIndex(this.workspaceMock, null);
+    this.index.setFilter(new SharedFileScanFilter("node_modules", 16));
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception never
+   */
+  @Test
+  public void testSearchesAllProjects() throws Exception
+  {
+    List<IProject> projects = new ArrayList<IProject>();
+    for (int i = 0; i < 20; i++)
+    {
+      projects.add(this.project("p" + i));
+    }
+    SharedFileFinderJob job = new SharedFileFinderJob(this.index, projects);
+    job.schedule();
+    job.join();
+    assertEquals(IStatus.OK, job.getResult().getSeverity());
+    assertEquals(20, this.index.size());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception never
+   */
+  @Test
+  public void testCancelStopsSearch() throws Exception
+  {
+    List<IProject> projects = new ArrayList<IProject>();
+    for (int i = 0; i < 200; i++)
+    {
+      projects.add(this.slowProject("p" + i));
+    }
+    SharedFileFinderJob job = new SharedFileFinderJob(this.index, projects);
+    job.schedule();
+    Thread.sleep(200);
+    job.cancel();
+    job.join();
+    assertEquals(IStatus.CANCEL, job.getResult().getSeverity());
+    assertTrue(this.index.size() < 200);
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception never
+   */
+  @Test
+  public void testPublishesProjectsWhileSearching() throws Exception
+  {
+    List<IProject> projects = new ArrayList<IProject>();
+    for (int i = 0; i < 200; i++)
+    {
+      projects.add(this.slowProject("p" + i));
+    }
+    SharedFileFinderJob job = new SharedFileFinderJob(this.index, projects);
+    assertEquals(-1, job.getNumberOfProjects());
+    job.schedule();
+    long timeout = System.currentTimeMillis() + 5000;
+    while (this.index.size() == 0 && System.currentTimeMillis() < timeout)
+    {
+      Thread.sleep(10);
+    }
+    assertTrue(this.index.size() > 0);
+    assertEquals(200, job.getNumberOfProjects());
+    job.cancel();
+    job.join();
+    assertEquals(IStatus.CANCEL, job.getResult().getSeverity());
+    assertTrue(this.index.size() < 200);
+    assertEquals(this.index.size(), job.getNumberOfSearchedProjects());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception never
+   */
+  @Test
+  public void testSkipsExcludedAndDerivedFolders() throws Exception
+  {
+    List<IProject> projects = new ArrayList<IProject>();
+    projects.add(this.project("p"));
+    SharedFileFinderJob job = new SharedFileFinderJob(this.index, projects);
+    job.schedule();
+    job.join();
+    assertEquals(IStatus.OK, job.getResult().getSeverity());
+    assertEquals(1, this.index.size());
+    assertEquals("p", this.index.getCommandConfigs().get(0).getCommand());
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testScanRules()
+  {
+    Object scan = new Object();
+    ISchedulingRule worker1 = new ScanRule(scan);
+    ISchedulingRule worker2 = new ScanRule(scan);
+    ISchedulingRule otherScan = new ScanRule(new Object());
+    assertTrue(worker1.isConflicting(worker1));
+    assertFalse(worker1.isConflicting(worker2));
+    assertTrue(worker1.isConflicting(otherScan));
+    assertTrue(otherScan.isConflicting(worker2));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testNumberOfWorkers()
+  {
+    assertEquals(1, SharedFileFinderJob.getNumberOfWorkers(0));
+    assertEquals(1, SharedFileFinderJob.getNumberOfWorkers(1));
+    assertTrue(SharedFileFinderJob.getNumberOfWorkers(1000) <= SharedFileFinderJob.MAX_WORKERS);
+  }
+
+  private IProject project(String name) throws CoreException
+  {
+    return this.project(name, 0);
+  }
+
+  private IProject slowProject(String name) throws CoreException
+  {
+    return this.project(name, 20);
+  }
+
+  private IProject project(String name, final long delay)
+      throws CoreException
+  {
+    IProject project = mock(IProject.class);
+    when(project.isOpen()).thenReturn(true);
+    when(project.isAccessible()).thenReturn(true);
+    // the project, a shared file in the project, one in a derived folder and
+    // one in an excluded folder; children are only visited if the visitor
+    // returns true for their folder
+    final IResourceProxy[] proxies = new IResourceProxy[] {
+        this.proxy(IResource.PROJECT, "/" + name, false, null),
+        this.proxy(IResource.FILE, "/" + name + "/cmd.startexplorer", false,
+            this.file(name, name)),
+        this.proxy(IResource.FOLDER, "/" + name + "/bin", true, null),
+        this.proxy(IResource.FILE, "/" + name + "/bin/cmd.startexplorer",
+            false, this.file(name + "/bin", "derived")),
+        this.proxy(IResource.FOLDER, "/" + name + "/node_modules", false,
+            null),
+        this.proxy(IResource.FILE, "/" + name
+            + "/node_modules/cmd.startexplorer", false,
+            this.file(name + "/node_modules", "excluded")) };
+    doAnswer(new Answer<Void>()
+    {
+      public Void answer(InvocationOnMock invocation) throws Exception
+      {
+        Thread.sleep(delay);
+        IResourceProxyVisitor visitor = (IResourceProxyVisitor) invocation
+            .getArguments()[0];
+        IPath skipped = null;
+        for (IResourceProxy proxy : proxies)
+        {
+          IPath path = proxy.requestFullPath();
+          if (skipped != null && skipped.isPrefixOf(path))
+          {
+            continue;
+          }
+          skipped = visitor.visit(proxy) ? null : path;
+        }
+        return null;
+      }
+    }).when(project).accept(any(IResourceProxyVisitor.class), anyInt());
+    return project;
+  }
+
+  private IFile file(String folder, String command) throws CoreException
+  {
+    IFile file = mock(IFile.class);
+    when(file.getType()).thenReturn(IResource.FILE);
+    when(file.getFullPath()).thenReturn(
+        new Path("/" + folder + "/cmd.startexplorer"));
+    when(file.getFileExtension()).thenReturn(SharedFileIndex.FILE_EXTENSION);
+    when(file.getContents(true)).thenReturn(
+        new ByteArrayInputStream(("{\"command\":\"" + command + "\"}")
+            .getBytes()));
+    return file;
+  }
+
+  private IResourceProxy proxy(int type, String fullPath, boolean derived,
+      IResource resource)
+  {
+    IPath path = new Path(fullPath);
+    IResourceProxy proxy = mock(IResourceProxy.class);
+    when(proxy.getType()).thenReturn(type);
+    when(proxy.getName()).thenReturn(path.lastSegment());
+    when(proxy.requestFullPath()).thenReturn(path);
+    when(proxy.isDerived()).thenReturn(derived);
+    when(proxy.requestResource()).thenReturn(resource);
+    return proxy;
+  }
+}
@@ -0,0 +1,390 @@
+package de.bastiankrol.startexplorer.customcommands;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ISaveContext;
+import org.eclipse.core.resources.ISavedState;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import de.bastiankrol.startexplorer.Activator;
+import de.bastiankrol.startexplorer.ActivatorInstanceInjector;
+import de.bastiankrol.startexplorer.LogFacility;
+import de.bastiankrol.startexplorer.PluginContext;
+
+/**
+ * Test class for {@link SharedFileIndex}.
+ *
+ * @author Bastian Krol
+ */
+public class SharedFileIndexTest
+{
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Mock
+  private Activator activatorMock;
+
+  @Mock
+  private PluginContext pluginContextMock;
+
+  @Mock
+  private LogFacility logFacilityMock;
+
+  @Mock
+  private IWorkspace workspaceMock;
+
+  private SharedFileIndex index;
+
+  /**
+   * JUnit before
+   */
+  @Before
+  public void setUp()
+  {
+    MockitoAnnotations.initMocks(this);
+    ActivatorInstanceInjector.injectDefaultInstanceForTest(this.activatorMock);
+    ActivatorInstanceInjector.stubGetContextCall(this.activatorMock,
+        this.pluginContextMock);
+    when(this.pluginContextMock.getLogFacility()).thenReturn(
+        this.logFacilityMock);
+    this.index = new SharedFileIndex(this.workspaceMock,
+        this.temporaryFolder.getRoot());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws CoreException never
+   */
+  @Test
+  public void testAppliesDeltas() throws CoreException
+  {
+    IFile file = this.sharedFile("/project/a.startexplorer", "first");
+    this.fire(this.delta(this.project("/project", true),
+        IResourceDelta.CHANGED, 0,
+        this.delta(file, IResourceDelta.ADDED, 0)));
+    assertCommands("first");
+
+    when(file.getContents(true)).thenReturn(json("second"));
+    when(file.getModificationStamp()).thenReturn(2L);
+    this.fire(this.delta(this.project("/project", true),
+        IResourceDelta.CHANGED, 0,
+        this.delta(file, IResourceDelta.CHANGED, IResourceDelta.MARKERS)));
+    assertCommands("first");
+    this.fire(this.delta(this.project("/project", true),
+        IResourceDelta.CHANGED, 0,
+        this.delta(file, IResourceDelta.CHANGED, IResourceDelta.CONTENT)));
+    assertCommands("second");
+
+    this.fire(this.delta(this.project("/project", true),
+        IResourceDelta.CHANGED, 0,
+        this.delta(file, IResourceDelta.REMOVED, 0)));
+    assertCommands();
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws CoreException never
+   */
+  @Test
+  public void testCommandsBelongToTheFileTheyHaveBeenReadFrom()
+      throws CoreException
+  {
+    // the project has been copied, both files claim the original path
+    IFile copy = this.file("/copy/a.startexplorer",
+        SharedFileIndex.FILE_EXTENSION);
+    when(copy.getContents(true)).thenReturn(
+        new ByteArrayInputStream(("{\"command\":\"b\",\"store as\":"
+            + "\"SHARED_FILE\",\"shared file\":\"/project/a.startexplorer\"}")
+            .getBytes()));
+    when(copy.getModificationStamp()).thenReturn(1L);
+    this.index.update(this.sharedFile("/project/a.startexplorer", "a"));
+    this.index.update(copy);
+
+    List<CommandConfig> commandConfigs = this.index.getCommandConfigs();
+    assertEquals("b", commandConfigs.get(0).getCommand());
+    assertEquals("/copy/a.startexplorer", commandConfigs.get(0)
+        .getSharedFilePath());
+    assertFalse(commandConfigs.get(0).isDirty());
+    assertEquals("/project/a.startexplorer", commandConfigs.get(1)
+        .getSharedFilePath());
+    assertEquals(2, SharedFileManager.groupBySharedFile(commandConfigs).size());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws CoreException never
+   */
+  @Test
+  public void testIgnoresOtherFiles() throws CoreException
+  {
+    IFile file = this.file("/project/a.txt", "txt");
+    this.fire(this.delta(this.project("/project", true),
+        IResourceDelta.CHANGED, 0,
+        this.delta(file, IResourceDelta.ADDED, 0)));
+    assertCommands();
+    verify(file, never()).getContents(anyBoolean());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws CoreException never
+   */
+  @Test
+  public void testRemovesEntriesOfClosedProjects() throws CoreException
+  {
+    this.index.update(this.sharedFile("/project/a.startexplorer", "a"));
+    this.index.update(this.sharedFile("/project/dir/b.startexplorer", "b"));
+    this.index.update(this.sharedFile("/project2/c.startexplorer", "c"));
+    assertCommands("a", "b", "c");
+
+    this.fire(this.delta(this.project("/project", false),
+        IResourceDelta.CHANGED, IResourceDelta.OPEN));
+    assertCommands("c");
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception never
+   */
+  @Test
+  public void testSavesAndRestores() throws Exception
+  {
+    IFile file = this.sharedFile("/project/a.startexplorer", "a");
+    this.index.update(file);
+    this.index.setComplete(true);
+    ISaveContext saveContext = mock(ISaveContext.class);
+    when(saveContext.getKind()).thenReturn(ISaveContext.FULL_SAVE);
+    when(saveContext.getSaveNumber()).thenReturn(3);
+    this.index.saving(saveContext);
+    verify(saveContext).map(new Path("shared-file-index"), new Path(
+        "shared-file-index-3"));
+    verify(saveContext).needDelta();
+
+    ISavedState savedState = mock(ISavedState.class);
+    when(savedState.lookup(new Path("shared-file-index"))).thenReturn(
+        new Path("shared-file-index-3"));
+    when(
+        this.workspaceMock.addSaveParticipant(eq(Activator.PLUGIN_ID),
+            any(SharedFileIndex.class))).thenReturn(savedState);
+    SharedFileIndex restored = new SharedFileIndex(this.workspaceMock,
+        this.temporaryFolder.getRoot());
+    assertTrue(restored.start());
+    assertTrue(restored.isComplete());
+    assertEquals("a", restored.getCommandConfigs().get(0).getCommand());
+    verify(savedState).processResourceChangeEvents(restored);
+
+    // the parse cache is restored from the same file
+    restored.setComplete(false);
+    restored.update(file);
+    assertEquals("a", restored.getCommandConfigs().get(0).getCommand());
+    verify(file, times(1)).getContents(true);
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception never
+   */
+  @Test
+  public void testDoesNotReadUnchangedFilesAgain() throws Exception
+  {
+    IFile file = this.sharedFile("/project/a.startexplorer", "a");
+    this.index.update(file);
+    this.index.setComplete(false);
+    this.index.update(file);
+    assertCommands("a");
+    verify(file, times(1)).getContents(true);
+
+    when(file.getContents(true)).thenReturn(json("b"));
+    when(file.getModificationStamp()).thenReturn(2L);
+    this.index.update(file);
+    assertCommands("b");
+    verify(file, times(2)).getContents(true);
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception never
+   */
+  @Test
+  public void testKeepsParseCacheOfClosedProjects() throws Exception
+  {
+    this.index.update(this.sharedFile("/project/a.startexplorer", "a"));
+    this.fire(this.delta(this.project("/project", false),
+        IResourceDelta.CHANGED, IResourceDelta.OPEN));
+    assertEquals(1, this.index.getParseCache().size());
+
+    this.fire(this.delta(this.project("/project", false),
+        IResourceDelta.REMOVED, 0));
+    assertEquals(0, this.index.getParseCache().size());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception never
+   */
+  @Test
+  public void testUpdateAllPublishesFilesTogether() throws Exception
+  {
+    long version = this.index.getVersion();
+    List<CommandConfig> before = this.index.getCommandConfigs();
+    List<IFile> files = new ArrayList<IFile>();
+    files.add(this.sharedFile("/project/a.startexplorer", "a"));
+    files.add(this.sharedFile("/project/b.startexplorer", "b"));
+    this.index.updateAll(files);
+    assertEquals(version + 1, this.index.getVersion());
+    assertCommands("a", "b");
+    assertEquals(0, before.size());
+    assertSame(this.index.getCommandConfigs(), this.index.getCommandConfigs());
+
+    this.index.updateAll(new ArrayList<IFile>());
+    assertEquals(version + 1, this.index.getVersion());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception never
+   */
+  @Test
+  public void testSnapshotsAreNotChangedByLaterUpdates() throws Exception
+  {
+    this.index.update(this.sharedFile("/project/a.startexplorer", "a"));
+    List<CommandConfig> snapshot = this.index.getCommandConfigs();
+    long version = this.index.getVersion();
+    this.index.update(this.sharedFile("/project/b.startexplorer", "b"));
+    assertEquals(1, snapshot.size());
+    assertEquals(2, this.index.size());
+    assertTrue(this.index.getVersion() > version);
+    try
+    {
+      snapshot.clear();
+      fail("snapshot must not be modifiable");
+    }
+    catch (UnsupportedOperationException e)
+    {
+      // expected
+    }
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws IOException never
+   */
+  @Test
+  public void testDoesNotRestoreIncompleteIndex() throws IOException
+  {
+    this.index.setComplete(false);
+    File file = this.temporaryFolder.newFile("index");
+    this.index.save(file);
+    assertFalse(new SharedFileIndex(this.workspaceMock,
+        this.temporaryFolder.getRoot()).restore(file));
+  }
+
+  private void assertCommands(String... commands)
+  {
+    List<CommandConfig> commandConfigs = this.index.getCommandConfigs();
+    assertEquals(commands.length, commandConfigs.size());
+    for (int i = 0; i < commands.length; i++)
+    {
+      assertEquals(commands[i], commandConfigs.get(i).getCommand());
+    }
+  }
+
+  private void fire(IResourceDelta delta)
+  {
+    IResourceChangeEvent event = mock(IResourceChangeEvent.class);
+    when(event.getDelta()).thenReturn(delta);
+    this.index.resourceChanged(event);
+  }
+
+  private IResourceDelta delta(IResource resource, int kind, int flags,
+      final IResourceDelta... children) throws CoreException
+  {
+    final IResourceDelta delta = mock(IResourceDelta.class);
+    when(delta.getResource()).thenReturn(resource);
+    when(delta.getKind()).thenReturn(kind);
+    when(delta.getFlags()).thenReturn(flags);
+    doAnswer(new Answer<Void>()
+    {
+      public Void answer(InvocationOnMock invocation) throws CoreException
+      {
+        IResourceDeltaVisitor visitor = (IResourceDeltaVisitor) invocation
+            .getArguments()[0];
+        if (visitor.visit(delta))
+        {
+          for (IResourceDelta child : children)
+          {
+            child.accept(visitor);
+          }
+        }
+        return null;
+      }
+    }).when(delta).accept(any(IResourceDeltaVisitor.class));
+    return delta;
+  }
+
+  private IProject project(String path, boolean open)
+  {
+    IProject project = mock(IProject.class);
+    when(project.getType()).thenReturn(IResource.PROJECT);
+    when(project.getFullPath()).thenReturn(new Path(path));
+    when(project.isOpen()).thenReturn(open);
+    return project;
+  }
+
+  private IFile sharedFile(String path, String command) throws CoreException
+  {
+    IFile file = this.file(path, SharedFileIndex.FILE_EXTENSION);
+    when(file.getContents(true)).thenReturn(json(command));
+    when(file.getModificationStamp()).thenReturn(1L);
+    return file;
+  }
+
+  private IFile file(String path, String extension)
+  {
+    IFile file = mock(IFile.class);
+    when(file.getType()).thenReturn(IResource.FILE);
+    when(file.getFullPath()).thenReturn(new Path(path));
+    when(file.getFileExtension()).thenReturn(extension);
+    return file;
+  }
+
+  private static ByteArrayInputStream json(String command)
+  {
+    return new ByteArrayInputStream(("{\"command\":\"" + command + "\"}")
+        .getBytes());
+  }
+}
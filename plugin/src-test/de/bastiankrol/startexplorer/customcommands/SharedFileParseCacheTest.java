@@ -0,0 +1,130 @@
+package de.bastiankrol.startexplorer.customcommands;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.bastiankrol.startexplorer.ResourceType;
+
+/**
+ * Test class for {@link SharedFileParseCache}.
+ *
+ * @author Bastian Krol
+ */
+public class SharedFileParseCacheTest
+{
+  private SharedFileParseCache cache;
+
+  /**
+   * JUnit before
+   */
+  @Before
+  public void setUp()
+  {
+    this.cache = new SharedFileParseCache();
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testMissesIfStampOrLengthHasChanged()
+  {
+    this.cache.put("/p/a.startexplorer", 7, 42, commandConfigs("a"));
+    assertEquals("a", this.cache.get("/p/a.startexplorer", 7, 42).get(0)
+        .getCommand());
+    assertNull(this.cache.get("/p/a.startexplorer", 8, 42));
+    assertNull(this.cache.get("/p/a.startexplorer", 7, 43));
+    assertNull(this.cache.get("/p/b.startexplorer", 7, 42));
+    assertEquals(1, this.cache.getHits());
+    assertEquals(3, this.cache.getMisses());
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testHandsOutCopies()
+  {
+    List<CommandConfig> commandConfigs = commandConfigs("a");
+    this.cache.put("/p/a.startexplorer", 7, 42, commandConfigs);
+    // the preference model edits command configs in place
+    commandConfigs.get(0).setCommand("changed");
+    List<CommandConfig> first = this.cache.get("/p/a.startexplorer", 7, 42);
+    assertEquals("a", first.get(0).getCommand());
+    first.get(0).setCommand("changed");
+    List<CommandConfig> second = this.cache.get("/p/a.startexplorer", 7, 42);
+    assertEquals("a", second.get(0).getCommand());
+    assertNotSame(first.get(0), second.get(0));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testRestoresStamps()
+  {
+    SharedFileManager sharedFileManager = new SharedFileManager();
+    String json = sharedFileManager.convertToJsonString(commandConfigs(
+        "b \u00fc", "c"));
+    this.cache.put("/p/dir/b.startexplorer", 8, -1, commandConfigs(
+        "b \u00fc", "c"));
+    String stamp = this.cache.getStamp("/p/dir/b.startexplorer", json);
+    assertNotNull(stamp);
+    // not saved if the index holds other command configs for the file
+    assertNull(this.cache.getStamp("/p/dir/b.startexplorer",
+        sharedFileManager.convertToJsonString(commandConfigs("d"))));
+    assertNull(this.cache.getStamp("/p/a.startexplorer", json));
+
+    SharedFileParseCache restored = new SharedFileParseCache();
+    restored.putStamp("/p/dir/b.startexplorer", stamp, json);
+    assertEquals(1, restored.size());
+    List<CommandConfig> bundle = restored.get("/p/dir/b.startexplorer", 8, -1);
+    assertEquals(2, bundle.size());
+    assertEquals("b \u00fc", bundle.get(0).getCommand());
+    assertEquals("c", bundle.get(1).getCommand());
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testIgnoresCorruptStamps()
+  {
+    this.cache.putStamp("/p/a.startexplorer", "7", "{}");
+    this.cache.putStamp("/p/b.startexplorer", "x 42", "{}");
+    assertEquals(0, this.cache.size());
+    this.cache.putStamp("/p/c.startexplorer", "7 42", "no json");
+    assertNull(this.cache.get("/p/c.startexplorer", 7, 42));
+    assertEquals(0, this.cache.size());
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testRemovesAllBelow()
+  {
+    this.cache.put("/p/a.startexplorer", 1, 1, commandConfigs("a"));
+    this.cache.put("/p/dir/b.startexplorer", 1, 1, commandConfigs("b"));
+    this.cache.put("/p2/c.startexplorer", 1, 1, commandConfigs("c"));
+    this.cache.removeAllBelow("/p/");
+    assertEquals(1, this.cache.size());
+    assertNotNull(this.cache.get("/p2/c.startexplorer", 1, 1));
+  }
+
+  private static List<CommandConfig> commandConfigs(String... commands)
+  {
+    List<CommandConfig> commandConfigs = new ArrayList<CommandConfig>();
+    for (String command : commands)
+    {
+      commandConfigs.add(new CommandConfig(command, ResourceType.BOTH, true,
+          command, true, command, false));
+    }
+    return commandConfigs;
+  }
+}
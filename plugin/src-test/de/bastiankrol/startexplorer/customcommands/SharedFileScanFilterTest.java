@@ -0,0 +1,77 @@
+package de.bastiankrol.startexplorer.customcommands;
+
+import static org.junit.Assert.*;
+
+import org.eclipse.core.runtime.Path;
+import org.junit.Test;
+
+/**
+ * Test class for {@link SharedFileScanFilter}.
+ *
+ * @author Bastian Krol
+ */
+public class SharedFileScanFilterTest
+{
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testDerivedResourcesAreAlwaysExcluded()
+  {
+    SharedFileScanFilter filter = SharedFileScanFilter.DERIVED_ONLY;
+    assertTrue(filter.isExcludedFolder(new Path("/p/bin"), true));
+    assertTrue(filter.isExcludedFile(new Path("/p/x.startexplorer"), true));
+    assertFalse(filter.isExcludedFolder(new Path("/p/bin"), false));
+    assertFalse(filter.isExcludedFile(new Path("/p/x.startexplorer"), false));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testNamePatternsMatchOnAnyLevel()
+  {
+    SharedFileScanFilter filter = new SharedFileScanFilter(
+        " node_modules , *.tmp.startexplorer,build?", 16);
+    assertTrue(filter.isExcludedFolder(new Path("/p/node_modules"), false));
+    assertTrue(filter.isExcludedFolder(new Path("/p/a/b/node_modules"), false));
+    assertFalse(filter.isExcludedFolder(new Path("/p/node_modules2"), false));
+    assertTrue(filter.isExcludedFile(new Path("/p/a/x.tmp.startexplorer"),
+        false));
+    assertFalse(filter.isExcludedFile(new Path("/p/a/x.startexplorer"), false));
+    assertTrue(filter.isExcludedFolder(new Path("/p/build2"), false));
+    assertFalse(filter.isExcludedFolder(new Path("/p/build"), false));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testPathPatternsAreRelativeToTheProject()
+  {
+    SharedFileScanFilter filter = new SharedFileScanFilter(
+        "docs/old, /src/*/gen/, **/archive", 16);
+    assertTrue(filter.isExcludedFolder(new Path("/p/docs/old"), false));
+    assertFalse(filter.isExcludedFolder(new Path("/p/x/docs/old"), false));
+    assertTrue(filter.isExcludedFolder(new Path("/p/src/main/gen"), false));
+    assertFalse(filter.isExcludedFolder(new Path("/p/src/a/b/gen"), false));
+    assertTrue(filter.isExcludedFolder(new Path("/p/archive"), false));
+    assertTrue(filter.isExcludedFolder(new Path("/p/a/b/archive"), false));
+    assertFalse(filter.isExcludedFolder(new Path("/p/archive2"), false));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testMaxDepth()
+  {
+    SharedFileScanFilter filter = new SharedFileScanFilter("", 2);
+    assertFalse(filter.isExcludedFolder(new Path("/p/a"), false));
+    assertFalse(filter.isExcludedFolder(new Path("/p/a/b"), false));
+    assertTrue(filter.isExcludedFolder(new Path("/p/a/b/c"), false));
+    // files in the deepest searched folder are used
+    assertFalse(filter.isExcludedFile(new Path("/p/a/b/x.startexplorer"),
+        false));
+  }
+}
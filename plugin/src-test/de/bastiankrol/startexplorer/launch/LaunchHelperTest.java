@@ -0,0 +1,370 @@
+package de.bastiankrol.startexplorer.launch;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import de.bastiankrol.startexplorer.Activator;
+import de.bastiankrol.startexplorer.ActivatorInstanceInjector;
+import de.bastiankrol.startexplorer.LogFacility;
+import de.bastiankrol.startexplorer.PluginContext;
+
+/**
+ * Test class
+ *
+ * @author Bastian Krol
+ */
+public class LaunchHelperTest
+{
+  @Mock
+  private Activator activatorMock;
+
+  @Mock
+  private PluginContext pluginContextMock;
+
+  @Mock
+  private LogFacility logFacilityMock;
+
+  /**
+   * JUnit before
+   */
+  @Before
+  public void setUp()
+  {
+    MockitoAnnotations.initMocks(this);
+    ActivatorInstanceInjector.injectDefaultInstanceForTest(this.activatorMock);
+    ActivatorInstanceInjector.stubGetContextCall(this.activatorMock,
+        this.pluginContextMock);
+    when(this.pluginContextMock.getLogFacility()).thenReturn(
+        this.logFacilityMock);
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testEncode()
+  {
+    Map<String, String> environment = new LinkedHashMap<String, String>();
+    environment.put("FOO", "bar baz");
+    assertEquals("/tmp/dir\n1\nFOO=bar baz\n3\nnautilus\n--no-desktop\n"
+        + "/tmp/a file\n", LaunchHelper.encode(new String[] { "nautilus",
+        "--no-desktop", "/tmp/a file" }, new File("/tmp/dir"), environment));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testEncodeWithoutWorkingDirectoryAndEnvironment()
+  {
+    assertEquals("\n0\n1\nxterm\n", LaunchHelper.encode(
+        new String[] { "xterm" }, null, null));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testCanNotEncodeLineBreaks()
+  {
+    assertTrue(LaunchHelper.canEncode(new String[] { "echo", "a b" }, null));
+    assertFalse(LaunchHelper.canEncode(new String[] { "echo", "a\nb" }, null));
+    assertFalse(LaunchHelper.canEncode(new String[] { "echo", "a\rb" }, null));
+    assertFalse(LaunchHelper.canEncode(new String[0], null));
+    Map<String, String> environment = new LinkedHashMap<String, String>();
+    environment.put("A=B", "c");
+    assertFalse(LaunchHelper.canEncode(new String[] { "echo" }, environment));
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testLaunch() throws Exception
+  {
+    FakeHelperProcess helperProcess = new FakeHelperProcess("ok\n", false);
+    LaunchHelper launchHelper = new FakeLaunchHelper(helperProcess);
+    assertTrue(launchHelper.launch(new String[] { "xterm" }, null, null));
+    assertEquals("\n0\n1\nxterm\n", helperProcess.stdin.toString());
+    assertFalse(launchHelper.isDead());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test(expected = IOException.class)
+  public void testLaunchReportsError() throws Exception
+  {
+    LaunchHelper launchHelper = new FakeLaunchHelper(new FakeHelperProcess(
+        "error Cannot run program xterm\n"));
+    launchHelper.launch(new String[] { "xterm" }, null, null);
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testFallsBackIfHelperHasDied() throws Exception
+  {
+    FakeHelperProcess helperProcess = new FakeHelperProcess("ok\n");
+    LaunchHelper launchHelper = new FakeLaunchHelper(helperProcess);
+    assertTrue(launchHelper.launch(new String[] { "xterm" }, null, null));
+    // no further response, the helper terminates before the next request
+    for (int i = 0; i < 100 && !launchHelper.isDead(); i++)
+    {
+      Thread.sleep(10L);
+    }
+    assertTrue(launchHelper.isDead());
+    assertFalse(launchHelper.launch(new String[] { "xterm" }, null, null));
+    assertTrue(helperProcess.destroyed);
+    verify(this.logFacilityMock).logWarning(anyString());
+    assertFalse(launchHelper.launch(new String[] { "xterm" }, null, null));
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testFallsBackIfHelperCanNotBeStarted() throws Exception
+  {
+    LaunchHelper launchHelper = new LaunchHelper()
+    {
+      @Override
+      Process startHelperProcess() throws IOException
+      {
+        throw new IOException("no shell");
+      }
+    };
+    assertFalse(launchHelper.launch(new String[] { "xterm" }, null, null));
+    assertTrue(launchHelper.isDead());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testFailsIfHelperDoesNotRespond() throws Exception
+  {
+    FakeHelperProcess helperProcess = new FakeHelperProcess(
+        new PipedInputStream(new PipedOutputStream()));
+    LaunchHelper launchHelper = new FakeLaunchHelper(helperProcess)
+    {
+      @Override
+      long getResponseTimeoutMillis()
+      {
+        return 100L;
+      }
+    };
+    try
+    {
+      launchHelper.launch(new String[] { "xterm" }, null, null);
+      fail("Expected IOException");
+    }
+    catch (IOException e)
+    {
+      // expected, the request has been written, so the caller must not start
+      // the command again
+    }
+    assertTrue(launchHelper.isDead());
+    assertTrue(helperProcess.destroyed);
+    // the next launch falls back without passing the command to the helper
+    assertFalse(launchHelper.launch(new String[] { "xterm" }, null, null));
+    assertEquals("\n0\n1\nxterm\n", helperProcess.stdin.toString());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testRestartsHelperAfterDelay() throws Exception
+  {
+    final FakeHelperProcess[] helperProcesses = {
+        new FakeHelperProcess(""), new FakeHelperProcess("ok\n") };
+    final long[] now = { 1000L };
+    LaunchHelper launchHelper = new LaunchHelper()
+    {
+      private int started;
+
+      @Override
+      Process startHelperProcess()
+      {
+        return helperProcesses[this.started++];
+      }
+
+      @Override
+      long currentTimeMillis()
+      {
+        return now[0];
+      }
+    };
+    try
+    {
+      // terminates after the request has been written
+      launchHelper.launch(new String[] { "xterm" }, null, null);
+      fail("Expected IOException");
+    }
+    catch (IOException e)
+    {
+      // expected
+    }
+    assertTrue(launchHelper.isDead());
+    assertTrue(helperProcesses[0].destroyed);
+    now[0] += LaunchHelper.RESTART_DELAY_MILLIS;
+    assertFalse(launchHelper.isDead());
+    assertTrue(launchHelper.launch(new String[] { "xterm" }, null, null));
+    assertEquals("\n0\n1\nxterm\n", helperProcesses[1].stdin.toString());
+  }
+
+  private static class FakeLaunchHelper extends LaunchHelper
+  {
+    private final Process helperProcess;
+
+    FakeLaunchHelper(Process helperProcess)
+    {
+      this.helperProcess = helperProcess;
+    }
+
+    @Override
+    Process startHelperProcess()
+    {
+      return this.helperProcess;
+    }
+  }
+
+  /**
+   * Like the real helper, answers only after a request has been written. After
+   * the given responses, the stream either ends (the helper has terminated) or
+   * blocks (the helper waits for the next request).
+   */
+  private static class ResponseStream extends InputStream
+  {
+    private final ByteArrayOutputStream requests;
+    private final InputStream responses;
+    private final boolean terminates;
+
+    ResponseStream(ByteArrayOutputStream requests, String responses,
+        boolean terminates)
+    {
+      this.requests = requests;
+      this.responses = new ByteArrayInputStream(responses.getBytes());
+      this.terminates = terminates;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+      this.awaitResponse();
+      return this.responses.read();
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException
+    {
+      this.awaitResponse();
+      return this.responses.read(bytes, offset, length);
+    }
+
+    private void awaitResponse() throws IOException
+    {
+      while (this.requests.size() == 0
+          || (!this.terminates && this.responses.available() == 0))
+      {
+        try
+        {
+          Thread.sleep(10L);
+        }
+        catch (InterruptedException e)
+        {
+          throw new IOException(e.getMessage());
+        }
+      }
+    }
+  }
+
+  private static class FakeHelperProcess extends Process
+  {
+    private final ByteArrayOutputStream stdin = new ByteArrayOutputStream();
+    private final InputStream stdout;
+    private volatile boolean destroyed;
+
+    FakeHelperProcess(String responses)
+    {
+      this(responses, true);
+    }
+
+    FakeHelperProcess(String responses, boolean terminates)
+    {
+      this.stdout = new ResponseStream(this.stdin, responses, terminates);
+    }
+
+    FakeHelperProcess(InputStream stdout)
+    {
+      this.stdout = stdout;
+    }
+
+    @Override
+    public OutputStream getOutputStream()
+    {
+      return this.stdin;
+    }
+
+    @Override
+    public InputStream getInputStream()
+    {
+      return this.stdout;
+    }
+
+    @Override
+    public InputStream getErrorStream()
+    {
+      return new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public int waitFor()
+    {
+      return 0;
+    }
+
+    @Override
+    public int exitValue()
+    {
+      return 0;
+    }
+
+    @Override
+    public void destroy()
+    {
+      this.destroyed = true;
+    }
+  }
+}
@@ -0,0 +1,352 @@
+package de.bastiankrol.startexplorer.launch;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import de.bastiankrol.startexplorer.Activator;
+import de.bastiankrol.startexplorer.ActivatorInstanceInjector;
+import de.bastiankrol.startexplorer.LogFacility;
+import de.bastiankrol.startexplorer.PluginContext;
+import de.bastiankrol.startexplorer.util.MessageDialogHelper;
+
+/**
+ * Test class
+ *
+ * @author Bastian Krol
+ */
+public class ProcessSupervisorTest
+{
+  @Mock
+  private Activator activatorMock;
+
+  @Mock
+  private PluginContext pluginContextMock;
+
+  @Mock
+  private LogFacility logFacilityMock;
+
+  @Mock
+  private MessageDialogHelper messageDialogHelperMock;
+
+  private ProcessSupervisor processSupervisor;
+
+  /**
+   * JUnit before
+   */
+  @Before
+  public void setUp()
+  {
+    MockitoAnnotations.initMocks(this);
+    ActivatorInstanceInjector.injectDefaultInstanceForTest(this.activatorMock);
+    ActivatorInstanceInjector.stubGetContextCall(this.activatorMock,
+        this.pluginContextMock);
+    when(this.pluginContextMock.getLogFacility()).thenReturn(
+        this.logFacilityMock);
+    this.processSupervisor = new ProcessSupervisor(
+        this.messageDialogHelperMock);
+  }
+
+  /**
+   * JUnit after
+   */
+  @After
+  public void tearDown()
+  {
+    this.processSupervisor.shutdown();
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testRecordsExitCodeAndOutput() throws Exception
+  {
+    FakeProcess process = new FakeProcess("out", "", 0);
+    ProcessResult result = this.processSupervisor.supervise(new String[] {
+        "command", "arg" }, null, process);
+
+    assertTrue(result.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals("command arg", result.getCommand());
+    assertEquals(Integer.valueOf(0), result.getExitCode());
+    assertFalse(result.hasFailed());
+    assertEquals("out", result.getStandardOutput());
+    assertEquals("", result.getStandardError());
+    assertTrue(process.stdinClosed);
+    assertSame(result, this.processSupervisor.getRecentResults().get(0));
+    verifyZeroInteractions(this.messageDialogHelperMock);
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testShowsErrorIfProcessFailsWithOutputOnStderr()
+      throws Exception
+  {
+    ProcessResult result = this.processSupervisor.supervise(
+        new String[] { "command" }, null, new FakeProcess("", "broken", 2));
+
+    assertTrue(result.awaitTermination(5, TimeUnit.SECONDS));
+    assertTrue(result.hasFailed());
+    assertEquals("broken", result.getStandardError());
+    verify(this.messageDialogHelperMock, timeout(5000)).displayErrorMessage(
+        eq("Command failed"), contains("broken"));
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testDoesNotShowErrorIfProcessFailsSilently() throws Exception
+  {
+    ProcessResult result = this.processSupervisor.supervise(
+        new String[] { "command" }, null, new FakeProcess("", "", 1));
+
+    assertTrue(result.awaitTermination(5, TimeUnit.SECONDS));
+    assertTrue(result.hasFailed());
+    verify(this.logFacilityMock, timeout(5000)).logWarning(anyString());
+    verifyZeroInteractions(this.messageDialogHelperMock);
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testTruncatesOutput() throws Exception
+  {
+    StringBuilder output = new StringBuilder();
+    for (int i = 0; i < ProcessSupervisor.MAX_OUTPUT_BYTES + 100; i++)
+    {
+      output.append(i % 10);
+    }
+    ProcessResult result = this.processSupervisor.supervise(
+        new String[] { "command" }, null,
+        new FakeProcess(output.toString(), "", 0));
+
+    assertTrue(result.awaitTermination(5, TimeUnit.SECONDS));
+    String standardOutput = result.getStandardOutput();
+    assertTrue(standardOutput.startsWith("[...]"));
+    assertTrue(output.toString().endsWith(standardOutput.substring(5)));
+    assertEquals(ProcessSupervisor.MAX_OUTPUT_BYTES,
+        standardOutput.length() - 5);
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testNotifiesOutputListener() throws Exception
+  {
+    ProcessOutputListener listener = mock(ProcessOutputListener.class);
+    ProcessResult result = this.processSupervisor.supervise(
+        new String[] { "command" }, null, new FakeProcess("out", "err", 0),
+        listener);
+
+    assertTrue(result.awaitTermination(5, TimeUnit.SECONDS));
+    verify(listener).processStarted(result);
+    verify(listener).outputReceived(eq(result), eq(false), any(byte[].class),
+        eq(0), eq(3));
+    verify(listener).outputReceived(eq(result), eq(true), any(byte[].class),
+        eq(0), eq(3));
+    verify(listener, timeout(5000)).processTerminated(result);
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testNotifiesOutputListenerOnSupervisorThread() throws Exception
+  {
+    final List<String> threadNames = Collections
+        .synchronizedList(new ArrayList<String>());
+    Answer<Void> recordThread = new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation)
+      {
+        threadNames.add(Thread.currentThread().getName());
+        return null;
+      }
+    };
+    ProcessOutputListener listener = mock(ProcessOutputListener.class);
+    doAnswer(recordThread).when(listener).processStarted(
+        any(ProcessResult.class));
+    doAnswer(recordThread).when(listener).processTerminated(
+        any(ProcessResult.class));
+    ProcessResult result = this.processSupervisor.supervise(
+        new String[] { "command" }, null, new FakeProcess("", "", 0),
+        listener);
+
+    verify(listener, timeout(5000)).processTerminated(result);
+    assertEquals(Arrays.asList("StartExplorer process supervisor",
+        "StartExplorer process supervisor"), threadNames);
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testKeepsOnlyRecentResults()
+  {
+    for (int i = 0; i < ProcessSupervisor.MAX_RECENT_RESULTS + 10; i++)
+    {
+      this.processSupervisor.supervise(new String[] { "command" + i }, null,
+          new FakeProcess("", "", 0));
+    }
+    assertEquals(ProcessSupervisor.MAX_RECENT_RESULTS, this.processSupervisor
+        .getRecentResults().size());
+    assertEquals("command" + (ProcessSupervisor.MAX_RECENT_RESULTS + 9),
+        this.processSupervisor.getRecentResults().get(0).getCommand());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws Exception if anything goes wrong
+   */
+  @Test
+  public void testLooksAfterAllProcessesWithOneThread() throws Exception
+  {
+    List<FakeProcess> processes = new ArrayList<FakeProcess>();
+    List<ProcessResult> results = new ArrayList<ProcessResult>();
+    for (int i = 0; i < 20; i++)
+    {
+      FakeProcess process = new FakeProcess("out" + i, "", 0);
+      process.running = true;
+      processes.add(process);
+      results.add(this.processSupervisor.supervise(
+          new String[] { "command" + i }, null, process));
+    }
+
+    assertFalse(results.get(0).awaitTermination(
+        3 * ProcessSupervisor.POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+    int supervisorThreads = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet())
+    {
+      if (thread.getName().startsWith("StartExplorer process supervisor"))
+      {
+        supervisorThreads++;
+      }
+    }
+    assertEquals(1, supervisorThreads);
+
+    for (FakeProcess process : processes)
+    {
+      process.running = false;
+    }
+    for (int i = 0; i < 20; i++)
+    {
+      assertTrue(results.get(i).awaitTermination(5, TimeUnit.SECONDS));
+      assertEquals("out" + i, results.get(i).getStandardOutput());
+    }
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testOutputBufferWrapsAround()
+  {
+    OutputBuffer buffer = new OutputBuffer(4);
+    buffer.write("ab".getBytes(), 0, 2);
+    assertEquals("ab", buffer.toString());
+    buffer.write("cde".getBytes(), 0, 3);
+    assertEquals("[...]bcde", buffer.toString());
+    buffer.write("xfgy".getBytes(), 1, 2);
+    assertEquals("[...]defg", buffer.toString());
+    assertEquals(7, buffer.getTotalBytes());
+  }
+
+  private static class FakeProcess extends Process
+  {
+    private final String stdout;
+    private final String stderr;
+    private final int exitCode;
+    private boolean stdinClosed;
+    private volatile boolean running;
+
+    FakeProcess(String stdout, String stderr, int exitCode)
+    {
+      this.stdout = stdout;
+      this.stderr = stderr;
+      this.exitCode = exitCode;
+    }
+
+    @Override
+    public OutputStream getOutputStream()
+    {
+      return new ByteArrayOutputStream()
+      {
+        @Override
+        public void close()
+        {
+          FakeProcess.this.stdinClosed = true;
+        }
+      };
+    }
+
+    @Override
+    public InputStream getInputStream()
+    {
+      return new ByteArrayInputStream(this.stdout.getBytes());
+    }
+
+    @Override
+    public InputStream getErrorStream()
+    {
+      return new ByteArrayInputStream(this.stderr.getBytes());
+    }
+
+    @Override
+    public int waitFor()
+    {
+      return this.exitCode;
+    }
+
+    @Override
+    public int exitValue()
+    {
+      if (this.running)
+      {
+        throw new IllegalThreadStateException("process has not exited");
+      }
+      return this.exitCode;
+    }
+
+    @Override
+    public void destroy()
+    {
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package de.bastiankrol.startexplorer.util;
+
+import static de.bastiankrol.startexplorer.util.ArgumentQuoter.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link ArgumentQuoter}.
+ *
+ * @author Bastian Krol
+ */
+public class ArgumentQuoterTest
+{
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testReturnsSameInstanceIfNothingToDo()
+  {
+    String argument = new String("/home/user/file.txt");
+    assertSame(argument, PLAIN_ARGV.quote(argument));
+    assertSame(argument, POSIX_SHELL.quote(argument));
+    String withSpace = new String("/home/user/my file.txt");
+    assertSame(withSpace, PLAIN_ARGV.quote(withSpace));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testPosixShellEscapesWhitespace()
+  {
+    assertEquals("/home/user/my\\ file\\ 1.txt",
+        POSIX_SHELL.quote("/home/user/my file 1.txt"));
+    assertEquals("a\\\tb", POSIX_SHELL.quote("a\tb"));
+    assertEquals("\\ ", POSIX_SHELL.quote(" "));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testWindowsWrapsInQuotes()
+  {
+    assertEquals("\"C:\\My Documents\\file.txt\"",
+        WINDOWS.quote("C:\\My Documents\\file.txt"));
+    assertEquals("\"\"", WINDOWS.quote(""));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testWindowsDoublesBackslashesInFrontOfQuotes()
+  {
+    // a trailing backslash must not escape the closing quote
+    assertEquals("\"C:\\\\\"", WINDOWS.quote("C:\\"));
+    assertEquals("\"say \\\"hi\\\"\"", WINDOWS.quote("say \"hi\""));
+    assertEquals("\"a\\\\\\\"b\"", WINDOWS.quote("a\\\"b"));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testFlagsMatchPreviousBehaviour()
+  {
+    String[] arguments = { "", "plain", "with space", " leading", "two  spaces",
+        "C:\\dir\\file name.txt" };
+    for (boolean wrap : new boolean[] { false, true })
+    {
+      for (boolean escape : new boolean[] { false, true })
+      {
+        for (String argument : arguments)
+        {
+          assertEquals(previousWrapAndEscape(argument, wrap, escape),
+              forFileParts(wrap, escape).quote(argument));
+        }
+      }
+    }
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testAppendTo()
+  {
+    StringBuilder builder = new StringBuilder("cmd ");
+    POSIX_SHELL.appendTo(builder, "a b");
+    builder.append(' ');
+    WINDOWS.appendTo(builder, "c d");
+    assertEquals("cmd a\\ b \"c d\"", builder.toString());
+  }
+
+  private static String previousWrapAndEscape(String string, boolean wrap,
+      boolean escape)
+  {
+    if (escape)
+    {
+      string = string.replaceAll(" ", "\\\\ ");
+    }
+    if (wrap)
+    {
+      string = "\"" + string + "\"";
+    }
+    return string;
+  }
+}
@@ -0,0 +1,199 @@
+package de.bastiankrol.startexplorer.variables;
+
+import static de.bastiankrol.startexplorer.variables.VariableManager.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.variables.IStringVariableManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import de.bastiankrol.startexplorer.util.MessageDialogHelper;
+
+/**
+ * Test class for {@link CommandBatch}.
+ *
+ * @author Bastian Krol
+ */
+public class CommandBatchTest
+{
+  @Mock
+  private IStringVariableManager eclipseVariableManagerMock;
+
+  @Mock
+  private MessageDialogHelper messageDialogHelperMock;
+
+  private VariableManager variableManager;
+
+  /**
+   * JUnit before
+   *
+   * @throws CoreException never
+   */
+  @Before
+  public void setUp() throws CoreException
+  {
+    MockitoAnnotations.initMocks(this);
+    this.variableManager = new VariableManager(this.eclipseVariableManagerMock,
+        this.messageDialogHelperMock);
+    when(
+        this.eclipseVariableManagerMock
+            .performStringSubstitution("${workspace_loc}")).thenReturn(
+        "/workspace");
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws CoreException never
+   */
+  @Test
+  public void testStampsCommandPerFile() throws CoreException
+  {
+    String[] cmdArray = new String[] { "lint",
+        "--config=${workspace_loc}/lint.xml", RESOURCE_PATH_VAR };
+    CommandBatch batch = this.variableManager.prepareBatch(cmdArray, false,
+        false);
+    // nothing is resolved before the first command is needed
+    verifyZeroInteractions(this.eclipseVariableManagerMock);
+
+    File first = new File("/src/A.java");
+    File second = new File("/src/B.java");
+    String[] firstCommand = batch.stamp(first);
+    String[] secondCommand = batch.stamp(second);
+
+    assertArrayEquals(new String[] { "lint", "--config=/workspace/lint.xml",
+        first.getAbsolutePath() }, firstCommand);
+    assertArrayEquals(new String[] { "lint", "--config=/workspace/lint.xml",
+        second.getAbsolutePath() }, secondCommand);
+    // the part that does not depend on the file is resolved once per batch
+    verify(this.eclipseVariableManagerMock, times(1))
+        .performStringSubstitution(anyString());
+    // the template is not modified
+    assertEquals(RESOURCE_PATH_VAR, cmdArray[2]);
+    assertEquals(3, batch.size());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws CoreException never
+   */
+  @Test
+  public void testMemoizesEclipseVariables() throws CoreException
+  {
+    when(this.eclipseVariableManagerMock.performStringSubstitution(anyString()))
+        .thenAnswer(new Answer<String>()
+        {
+          @Override
+          public String answer(InvocationOnMock invocation)
+          {
+            return "[" + invocation.getArguments()[0] + "]";
+          }
+        });
+    CommandBatch batch = this.variableManager.prepareBatch(new String[] {
+        "${workspace_loc}", "${env_var:HOME}/" + RESOURCE_NAME_VAR,
+        "${project_loc:" + RESOURCE_PARENT_VAR + "}" }, false, false);
+
+    batch.stamp(new File("/p1/A.java"));
+    batch.stamp(new File("/p1/B.java"));
+    String[] cmdArray = batch.stamp(new File("/p2/C.java"));
+
+    assertEquals("[${workspace_loc}]", cmdArray[0]);
+    assertEquals("[${env_var:HOME}]/C.java", cmdArray[1]);
+    assertEquals("[${project_loc:" + new File("/p2").getAbsolutePath() + "}]",
+        cmdArray[2]);
+    // workspace_loc, env_var:HOME and project_loc for /p1 and /p2
+    assertEquals(4, batch.getEclipseVariableMisses());
+    assertEquals(3, batch.getEclipseVariableHits());
+    verify(this.eclipseVariableManagerMock, times(4))
+        .performStringSubstitution(anyString());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws CoreException never
+   */
+  @Test
+  public void testFailsWholeBatchIfVariablesCanNotBeResolved()
+      throws CoreException
+  {
+    when(
+        this.eclipseVariableManagerMock
+            .performStringSubstitution("${unknown}")).thenThrow(
+        new CoreException(Status.CANCEL_STATUS));
+    CommandBatch batch = this.variableManager.prepareBatch(new String[] {
+        "${unknown}", RESOURCE_PATH_VAR }, false, false);
+    for (int i = 0; i < 3; i++)
+    {
+      try
+      {
+        batch.stamp(new File("/src/A" + i + ".java"));
+        fail("Expected RuntimeException");
+      }
+      catch (RuntimeException e)
+      {
+        // expected
+      }
+    }
+    assertTrue(batch.hasFailed());
+    verify(this.eclipseVariableManagerMock, times(1))
+        .performStringSubstitution("${unknown}");
+    verify(this.messageDialogHelperMock, times(1)).displayErrorMessage(
+        anyString(), anyString());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws CoreException never
+   */
+  @Test
+  public void testStopsResolvingAfterFirstFailure() throws CoreException
+  {
+    when(this.eclipseVariableManagerMock.performStringSubstitution(anyString()))
+        .thenThrow(new CoreException(Status.CANCEL_STATUS));
+    CommandBatch batch = this.variableManager.prepareBatch(
+        new String[] { "${project_loc:" + RESOURCE_PATH_VAR + "}" }, false,
+        false);
+    for (int i = 0; i < 3; i++)
+    {
+      try
+      {
+        // each file has a reference of its own
+        batch.stamp(new File("/p" + i + "/A.java"));
+        fail("Expected RuntimeException");
+      }
+      catch (RuntimeException e)
+      {
+        // expected
+      }
+    }
+    assertTrue(batch.hasFailed());
+    verify(this.eclipseVariableManagerMock, times(1))
+        .performStringSubstitution(anyString());
+    verify(this.messageDialogHelperMock, times(1)).displayErrorMessage(
+        anyString(), anyString());
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testUsesPlatformSettingsOfBatch()
+  {
+    CommandBatch batch = this.variableManager.prepareBatch(
+        new String[] { RESOURCE_NAME_VAR }, true, true);
+    assertArrayEquals(new String[] { "\"a\\ b.txt\"" },
+        batch.stamp(new File("/tmp/a b.txt")));
+  }
+}
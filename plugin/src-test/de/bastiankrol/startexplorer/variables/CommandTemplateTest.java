@@ -0,0 +1,81 @@
+package de.bastiankrol.startexplorer.variables;
+
+import static de.bastiankrol.startexplorer.variables.VariableManager.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import de.bastiankrol.startexplorer.variables.CommandTemplate.ResourceVariable;
+
+/**
+ * Test class for {@link CommandTemplate}.
+ *
+ * @author Bastian Krol
+ */
+public class CommandTemplateTest
+{
+  private final File file = new File("/path/to/some file.tar.gz");
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testLiteral()
+  {
+    CommandTemplate template = CommandTemplate.compile("--verbose");
+    assertFalse(template.usesResourceVariables());
+    assertFalse(template.usesEclipseVariables());
+    assertSame(template.getText(),
+        template.expand(this.file, true, true));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testReferencedVariables()
+  {
+    CommandTemplate template = CommandTemplate.compile("--out="
+        + RESOURCE_PARENT_VAR + "/" + RESOURCE_NAME_WIHTOUT_EXTENSION_VAR
+        + ".bak");
+    assertTrue(template.usesResourceVariables());
+    assertTrue(template.references(ResourceVariable.PARENT));
+    assertTrue(template.references(ResourceVariable.NAME_WITHOUT_EXTENSION));
+    assertFalse(template.references(ResourceVariable.PATH));
+    assertFalse(template.references(ResourceVariable.EXTENSION));
+    assertFalse(template.usesEclipseVariables());
+    assertEquals("--out=/path/to/some file.tar.bak",
+        template.expand(this.file, false, false));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testAllVariables()
+  {
+    CommandTemplate template = CommandTemplate.compile(RESOURCE_PATH_VAR
+        + "|" + RESOURCE_PARENT_VAR + "|" + RESOURCE_NAME_VAR + "|"
+        + RESOURCE_NAME_WIHTOUT_EXTENSION_VAR + "|" + RESOURCE_EXTENSION_VAR
+        + "|" + RESOURCE_PATH_VAR);
+    assertEquals("\"/path/to/some\\ file.tar.gz\"|\"/path/to\"|"
+        + "\"some\\ file.tar.gz\"|\"some\\ file.tar\"|\"gz\"|"
+        + "\"/path/to/some\\ file.tar.gz\"",
+        template.expand(this.file, true, true));
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testEclipseVariablesAreKept()
+  {
+    CommandTemplate template = CommandTemplate
+        .compile("${workspace_loc}${resource_name}${resource_nam${env_var:X}");
+    assertTrue(template.usesEclipseVariables());
+    assertEquals("${workspace_loc}some file.tar.gz${resource_nam${env_var:X}",
+        template.expand(this.file, false, false));
+  }
+}
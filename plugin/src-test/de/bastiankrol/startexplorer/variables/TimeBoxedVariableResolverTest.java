@@ -0,0 +1,231 @@
+package de.bastiankrol.startexplorer.variables;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.variables.IStringVariableManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import de.bastiankrol.startexplorer.Activator;
+import de.bastiankrol.startexplorer.ActivatorInstanceInjector;
+import de.bastiankrol.startexplorer.LogFacility;
+import de.bastiankrol.startexplorer.PluginContext;
+import de.bastiankrol.startexplorer.util.MessageDialogHelper;
+
+/**
+ * Test class for {@link TimeBoxedVariableResolver}.
+ *
+ * @author Bastian Krol
+ */
+public class TimeBoxedVariableResolverTest
+{
+  @Mock
+  private Activator activatorMock;
+
+  @Mock
+  private PluginContext pluginContextMock;
+
+  @Mock
+  private LogFacility logFacilityMock;
+
+  @Mock
+  private IStringVariableManager eclipseVariableManagerMock;
+
+  @Mock
+  private MessageDialogHelper messageDialogHelperMock;
+
+  private VariableManager variableManager;
+
+  /**
+   * JUnit before
+   *
+   * @throws CoreException never
+   */
+  @Before
+  public void setUp() throws CoreException
+  {
+    MockitoAnnotations.initMocks(this);
+    ActivatorInstanceInjector.injectDefaultInstanceForTest(this.activatorMock);
+    ActivatorInstanceInjector.stubGetContextCall(this.activatorMock,
+        this.pluginContextMock);
+    when(this.pluginContextMock.getLogFacility()).thenReturn(
+        this.logFacilityMock);
+    this.variableManager = new VariableManager(this.eclipseVariableManagerMock,
+        this.messageDialogHelperMock);
+    when(this.eclipseVariableManagerMock.performStringSubstitution("${fast}"))
+        .thenReturn("fast value");
+    when(this.eclipseVariableManagerMock.performStringSubstitution("${slow}"))
+        .thenAnswer(new Answer<String>()
+        {
+          public String answer(InvocationOnMock invocation)
+              throws InterruptedException
+          {
+            Thread.sleep(400);
+            return "slow value";
+          }
+        });
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws CoreException never
+   */
+  @Test
+  public void testDoesNotKeepValues() throws CoreException
+  {
+    TimeBoxedVariableResolver resolver = new TimeBoxedVariableResolver(
+        this.variableManager, 5000);
+    assertEquals("fast value", resolver.resolve("${fast}", null));
+    assertEquals("fast value", resolver.resolve("${fast}", null));
+    assertEquals("slow value", resolver.resolve("${slow}", null));
+    assertEquals("slow value", resolver.resolve("${slow}", null));
+    // the values might depend on the selection, they are remembered for one
+    // batch by EclipseVariableMemo, not here
+    verify(this.eclipseVariableManagerMock, times(2))
+        .performStringSubstitution("${fast}");
+    verify(this.eclipseVariableManagerMock, times(2))
+        .performStringSubstitution("${slow}");
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testHonorsTimeBudget()
+  {
+    TimeBoxedVariableResolver resolver = new TimeBoxedVariableResolver(
+        this.variableManager, 150);
+    try
+    {
+      resolver.resolve("${slow}", null);
+      fail("Expected RuntimeException");
+    }
+    catch (OperationCanceledException e)
+    {
+      fail("Expected RuntimeException, got " + e);
+    }
+    catch (RuntimeException e)
+    {
+      // expected
+    }
+    verify(this.messageDialogHelperMock).displayErrorMessage(anyString(),
+        anyString());
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws CoreException never
+   */
+  @Test
+  public void testBoundsNumberOfStuckWorkerThreads() throws CoreException
+  {
+    final CountDownLatch released = new CountDownLatch(1);
+    when(this.eclipseVariableManagerMock.performStringSubstitution("${stuck}"))
+        .thenAnswer(new Answer<String>()
+        {
+          public String answer(InvocationOnMock invocation)
+          {
+            // ignores interrupts, like a resolver that hangs in native code
+            while (released.getCount() > 0)
+            {
+              try
+              {
+                released.await();
+              }
+              catch (InterruptedException e)
+              {
+                // ignored
+              }
+            }
+            return "stuck value";
+          }
+        });
+    TimeBoxedVariableResolver resolver = new TimeBoxedVariableResolver(
+        this.variableManager, 50);
+    try
+    {
+      for (int i = 0; i < TimeBoxedVariableResolver.MAX_WORKER_THREADS; i++)
+      {
+        try
+        {
+          resolver.resolve("${stuck}", null);
+          fail("Expected RuntimeException");
+        }
+        catch (RuntimeException e)
+        {
+          // expected
+        }
+      }
+      try
+      {
+        resolver.resolve("${fast}", null);
+        fail("Expected RuntimeException");
+      }
+      catch (RuntimeException e)
+      {
+        // expected, all worker threads are stuck
+      }
+      verify(this.eclipseVariableManagerMock, never())
+          .performStringSubstitution("${fast}");
+      verify(this.messageDialogHelperMock,
+          times(TimeBoxedVariableResolver.MAX_WORKER_THREADS + 1))
+          .displayErrorMessage(anyString(), anyString());
+    }
+    finally
+    {
+      released.countDown();
+    }
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test(expected = OperationCanceledException.class)
+  public void testCanBeCancelled()
+  {
+    TimeBoxedVariableResolver resolver = new TimeBoxedVariableResolver(
+        this.variableManager, 5000);
+    NullProgressMonitor monitor = new NullProgressMonitor();
+    monitor.setCanceled(true);
+    resolver.resolve("${slow}", monitor);
+  }
+
+  /**
+   * JUnit test method
+   *
+   * @throws CoreException never
+   */
+  @Test
+  public void testDoesNotTimeBoxPrompts() throws CoreException
+  {
+    when(
+        this.eclipseVariableManagerMock
+            .performStringSubstitution("${string_prompt:Name}")).thenAnswer(
+        new Answer<String>()
+        {
+          public String answer(InvocationOnMock invocation)
+              throws InterruptedException
+          {
+            // the user takes longer than the time budget to answer
+            Thread.sleep(200);
+            return "answer";
+          }
+        });
+    TimeBoxedVariableResolver resolver = new TimeBoxedVariableResolver(
+        this.variableManager, 50);
+    assertEquals("answer", resolver.resolve("${string_prompt:Name}", null));
+    verifyZeroInteractions(this.messageDialogHelperMock);
+  }
+}
@@ -0,0 +1,172 @@
+package de.bastiankrol.startexplorer.variables;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.eclipse.core.variables.IDynamicVariable;
+import org.eclipse.core.variables.IStringVariableManager;
+import org.eclipse.core.variables.IValueVariable;
+import org.eclipse.core.variables.IValueVariableListener;
+import org.eclipse.jface.fieldassist.IContentProposal;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import de.bastiankrol.startexplorer.util.MessageDialogHelper;
+
+/**
+ * Test class for {@link VariableProposalIndex}.
+ *
+ * @author Bastian Krol
+ */
+public class VariableProposalIndexTest
+{
+  @Mock
+  private IStringVariableManager eclipseVariableManagerMock;
+
+  @Mock
+  private MessageDialogHelper messageDialogHelperMock;
+
+  private VariableManager variableManager;
+  private VariableProposalIndex index;
+
+  /**
+   * JUnit before
+   */
+  @Before
+  public void setUp()
+  {
+    MockitoAnnotations.initMocks(this);
+    IValueVariable[] valueVariables = { this.valueVariable("eclipse_home") };
+    IDynamicVariable[] dynamicVariables = {
+        this.dynamicVariable("project_loc"),
+        this.dynamicVariable("project_name"),
+        this.dynamicVariable("workspace_loc") };
+    when(this.eclipseVariableManagerMock.getValueVariables()).thenReturn(
+        valueVariables);
+    when(this.eclipseVariableManagerMock.getDynamicVariables()).thenReturn(
+        dynamicVariables);
+    this.variableManager = new VariableManager(this.eclipseVariableManagerMock,
+        this.messageDialogHelperMock);
+    this.index = this.variableManager.getProposalIndex();
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testProposesAllVariablesForDollarSign()
+  {
+    IContentProposal[] proposals = this.index.getProposals("cmd $", 5);
+    assertEquals(9, proposals.length);
+    assertEquals(VariableManager.RESOURCE_PATH_VAR, proposals[0].getContent());
+    assertEquals("${workspace_loc}", proposals[8].getContent());
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testRanksPrefixBeforeSubstringBeforeSubsequence()
+  {
+    assertContents(this.index.getProposals("${xyz", 5));
+    assertContents(this.index.getProposals("cmd ${pro", 9), "${project_loc}",
+        "${project_name}");
+    assertContents(this.index.getProposals("${_loc", 6), "${project_loc}",
+        "${workspace_loc}");
+    assertContents(this.index.getProposals("${prl", 5), "${project_loc}");
+    assertContents(this.index.getProposals("${ehom", 6), "${eclipse_home}");
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testNarrowsWhileTyping()
+  {
+    assertEquals(2, this.index.getProposals("${pro", 5).length);
+    assertContents(this.index.getProposals("${proj", 6), "${project_loc}",
+        "${project_name}");
+    assertContents(this.index.getProposals("${projn", 7), "${project_name}");
+    // deleting characters widens the result again
+    assertEquals(2, this.index.getProposals("${pro", 5).length);
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testRanksRecentlyUsedFirst()
+  {
+    this.index.recordUse("${project_name}");
+    assertContents(this.index.getProposals("${pro", 5), "${project_name}",
+        "${project_loc}");
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testIsRebuiltWhenValueVariablesChange()
+  {
+    ArgumentCaptor<IValueVariableListener> listener = ArgumentCaptor
+        .forClass(IValueVariableListener.class);
+    verify(this.eclipseVariableManagerMock).addValueVariableListener(
+        listener.capture());
+    assertEquals(0, this.index.getProposals("${my", 4).length);
+
+    IValueVariable added = this.valueVariable("my_var");
+    IValueVariable[] valueVariables = { this.valueVariable("eclipse_home"),
+        added };
+    when(this.eclipseVariableManagerMock.getValueVariables()).thenReturn(
+        valueVariables);
+    listener.getValue().variablesAdded(new IValueVariable[] { added });
+
+    assertContents(this.index.getProposals("${my", 4), "${my_var}");
+    verify(this.eclipseVariableManagerMock, times(2)).getValueVariables();
+
+    this.variableManager.dispose();
+    verify(this.eclipseVariableManagerMock).removeValueVariableListener(
+        listener.getValue());
+  }
+
+  /**
+   * JUnit test method
+   */
+  @Test
+  public void testGetStartOfQuery()
+  {
+    assertEquals(4, VariableProposalIndex.getStartOfQuery("cmd ${res", 9));
+    assertEquals(4, VariableProposalIndex.getStartOfQuery("cmd $", 5));
+    assertEquals(3, VariableProposalIndex.getStartOfQuery("cmd", 3));
+    assertEquals(20, VariableProposalIndex.getStartOfQuery(
+        "cmd ${resource_path}", 20));
+  }
+
+  private static void assertContents(IContentProposal[] proposals,
+      String... expected)
+  {
+    String[] contents = new String[proposals.length];
+    for (int i = 0; i < proposals.length; i++)
+    {
+      contents[i] = proposals[i].getContent();
+    }
+    assertArrayEquals(expected, contents);
+  }
+
+  private IValueVariable valueVariable(String name)
+  {
+    IValueVariable variable = mock(IValueVariable.class);
+    when(variable.getName()).thenReturn(name);
+    return variable;
+  }
+
+  private IDynamicVariable dynamicVariable(String name)
+  {
+    IDynamicVariable variable = mock(IDynamicVariable.class);
+    when(variable.getName()).thenReturn(name);
+    return variable;
+  }
+}
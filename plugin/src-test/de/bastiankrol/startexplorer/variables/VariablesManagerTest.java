@@ -9,6 +9,8 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import static org.mockito.Mockito.mock;
@@ -104,4 +106,48 @@ public class VariablesManagerTest
       assertThat(cmdArray[i], is(equalTo(expectedOutput[i])));
     }
   }
+
+  @Test
+  public void testEclipseVariablesAreOnlyResolvedIfPresent()
+      throws CoreException
+  {
+    when(
+        this.eclipseVariableManagerMock
+            .performStringSubstitution("${workspace_loc}/"
+                + this.file.getName())).thenReturn("/workspace/resource.txt");
+    String[] cmdArray = new String[] { "cat", RESOURCE_PATH_VAR,
+        "${workspace_loc}/" + RESOURCE_NAME_VAR };
+
+    this.variableManager.replaceAllVariablesInCommand(cmdArray, this.file,
+        false, false);
+
+    assertThat(cmdArray[0], is(equalTo("cat")));
+    assertThat(cmdArray[1], is(equalTo(this.file.getAbsolutePath())));
+    assertThat(cmdArray[2], is(equalTo("/workspace/resource.txt")));
+    verify(this.eclipseVariableManagerMock, never()).performStringSubstitution(
+        "cat");
+    verify(this.eclipseVariableManagerMock, never()).performStringSubstitution(
+        this.file.getAbsolutePath());
+  }
+
+  @Test
+  public void testTemplatesAreCachedAndForgotten()
+  {
+    CommandTemplate template = this.variableManager.getTemplate("ls "
+        + RESOURCE_PATH_VAR);
+    assertThat(this.variableManager.getTemplate("ls " + RESOURCE_PATH_VAR),
+        is(template));
+    this.variableManager.getTemplate(RESOURCE_PATH_VAR);
+    assertThat(this.variableManager.getNumberOfCachedTemplates(), is(2));
+
+    this.variableManager.forgetTemplates("ls " + RESOURCE_PATH_VAR);
+    assertThat(this.variableManager.getNumberOfCachedTemplates(), is(0));
+
+    for (int i = 0; i < VariableManager.MAX_CACHED_TEMPLATES + 10; i++)
+    {
+      this.variableManager.getTemplate("part" + i);
+    }
+    assertThat(this.variableManager.getNumberOfCachedTemplates(),
+        is(VariableManager.MAX_CACHED_TEMPLATES));
+  }
 }
@@ -7,6 +7,7 @@ import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
+import de.bastiankrol.startexplorer.crossplatform.DesktopEnvironmentCache;
 import de.bastiankrol.startexplorer.customcommands.CommandConfig;
 
 /**
@@ -45,6 +46,8 @@ public class Activator extends AbstractUIPlugin
   {
     this.initContext();
     defaultInstance = this;
+    this.pluginContext.initDesktopEnvironmentCache(this.getStateLocation()
+        .append(DesktopEnvironmentCache.FILE_NAME).toFile());
     this.pluginContext.getSharedFileFinder().startSearch();
   }
 
@@ -135,8 +138,12 @@ public class Activator extends AbstractUIPlugin
           commandConfig.getNameForTextSelectionMenu());
       store.setDefault(getPassSelectedTextKey(i),
           commandConfig.isPassSelectedText());
+      store.setDefault(getShowOutputInConsoleKey(i),
+          commandConfig.isShowOutputInConsole());
       store.setDefault(getCommandKey(i), commandConfig.getCommand());
     }
+    store.setDefault(KEY_SHARED_FILE_EXCLUDES, DEFAULT_SHARED_FILE_EXCLUDES);
+    store.setDefault(KEY_SHARED_FILE_MAX_DEPTH, DEFAULT_SHARED_FILE_MAX_DEPTH);
   }
 
   static void injectDefaultInstanceForTest(Activator instance)
@@ -1,14 +1,22 @@
 package de.bastiankrol.startexplorer;
 
+import java.io.File;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.eclipse.jface.preference.IPreferenceStore;
 
+import de.bastiankrol.startexplorer.console.CommandConsoleManager;
 import de.bastiankrol.startexplorer.crossplatform.DesktopEnvironment;
 import de.bastiankrol.startexplorer.crossplatform.DesktopEnvironmentAutoDetecter;
+import de.bastiankrol.startexplorer.crossplatform.DesktopEnvironmentCache;
 import de.bastiankrol.startexplorer.crossplatform.IRuntimeExecCalls;
 import de.bastiankrol.startexplorer.crossplatform.RuntimeExecCallsFactory;
 import de.bastiankrol.startexplorer.customcommands.CustomCommandEditorFactory;
 import de.bastiankrol.startexplorer.customcommands.CustomCommandResourceViewFactory;
 import de.bastiankrol.startexplorer.customcommands.SharedFileFinder;
+import de.bastiankrol.startexplorer.launch.LaunchHelper;
+import de.bastiankrol.startexplorer.launch.LaunchQueue;
+import de.bastiankrol.startexplorer.launch.ProcessSupervisor;
 import de.bastiankrol.startexplorer.preferences.PreferenceModel;
 import de.bastiankrol.startexplorer.util.MessageDialogHelper;
 import de.bastiankrol.startexplorer.util.Validator;
@@ -21,15 +29,20 @@ import de.bastiankrol.startexplorer.variables.VariableManager;
  */
 public class PluginContext
 {
-  private IRuntimeExecCalls runtimeExecCalls;
+  private final AtomicReference<IRuntimeExecCalls> runtimeExecCalls = new AtomicReference<IRuntimeExecCalls>();
   private CustomCommandResourceViewFactory customCommandResourceViewFactory;
   private CustomCommandEditorFactory customCommandEditorFactory;
   private Validator validator;
-  PreferenceModel preferenceModel;
+  volatile PreferenceModel preferenceModel;
   private VariableManager variableManager;
   private SharedFileFinder sharedFileFinder;
   private MessageDialogHelper messageDialogHelper;
+  private LaunchQueue launchQueue;
+  private ProcessSupervisor processSupervisor;
+  private LaunchHelper launchHelper;
+  private CommandConsoleManager commandConsoleManager;
   private LogFacility logFacility;
+  private DesktopEnvironmentCache desktopEnvironmentCache;
 
   void init()
   {
@@ -40,6 +53,23 @@ public class PluginContext
     this.variableManager = this.initVariableManager();
     this.sharedFileFinder = new SharedFileFinder();
     this.messageDialogHelper = new MessageDialogHelper();
+    this.launchQueue = new LaunchQueue();
+    this.processSupervisor = new ProcessSupervisor(this.messageDialogHelper);
+    this.launchHelper = new LaunchHelper();
+    this.commandConsoleManager = new CommandConsoleManager();
+  }
+
+  /**
+   * Restores the desktop environment detected in the previous session and
+   * starts detecting it again in the background.
+   * 
+   * @param stateFile the file in the plug-in's state area that holds the
+   *          detection results
+   */
+  void initDesktopEnvironmentCache(File stateFile)
+  {
+    this.desktopEnvironmentCache = new DesktopEnvironmentCache(stateFile);
+    this.desktopEnvironmentCache.restoreAndRefresh();
   }
 
   VariableManager initVariableManager()
@@ -49,13 +79,22 @@ public class PluginContext
 
   void stop()
   {
+    if (this.desktopEnvironmentCache != null)
+    {
+      this.desktopEnvironmentCache.stop();
+    }
+    this.launchQueue.cancelAll();
+    this.processSupervisor.shutdown();
+    this.launchHelper.shutdown();
+    this.variableManager.dispose();
+    this.sharedFileFinder.stop();
     this.preferenceModel = null;
     this.customCommandResourceViewFactory.doCleanupAtPluginStop();
     this.customCommandResourceViewFactory = null;
     this.customCommandEditorFactory.doCleanupAtPluginStop();
     this.customCommandEditorFactory = null;
     this.validator = null;
-    this.runtimeExecCalls = null;
+    this.runtimeExecCalls.set(null);
   }
 
   /**
@@ -66,44 +105,63 @@ public class PluginContext
    */
   public void resetRuntimeExecCalls()
   {
-    this.runtimeExecCalls = null;
+    this.runtimeExecCalls.set(null);
   }
 
   /**
-   * Returns the shared instance of RuntimeExecCalls
+   * Returns the shared instance of RuntimeExecCalls. If two threads need to
+   * choose the instance at the same time, both do so, but only one of the
+   * instances is published and returned to both of them.
    * 
    * @return the shared instance of RuntimeExecCalls
    */
   public IRuntimeExecCalls getRuntimeExecCalls()
   {
-    if (this.runtimeExecCalls == null)
+    IRuntimeExecCalls current = this.runtimeExecCalls.get();
+    if (current != null)
+    {
+      return current;
+    }
+    IRuntimeExecCalls chosen = this.chooseRuntimeExecCalls();
+    if (this.runtimeExecCalls.compareAndSet(null, chosen))
     {
-      this.chooseRuntimeExecCalls();
+      return chosen;
     }
-    return this.runtimeExecCalls;
+    current = this.runtimeExecCalls.get();
+    // might have been reset again in the meantime
+    return current != null ? current : chosen;
   }
 
   /**
    * Selects the runtime exec calls implementation depending on the selected
    * desktop environment from the preferences.
    */
-  private void chooseRuntimeExecCalls()
+  private IRuntimeExecCalls chooseRuntimeExecCalls()
   {
-    if (this.getPreferenceModel().isAutoDetectDesktopEnvironment())
+    PreferenceModel preferences = this.getPreferenceModel();
+    IRuntimeExecCalls chosen;
+    if (preferences.isAutoDetectDesktopEnvironment())
     {
-      this.runtimeExecCalls = chooseRuntimeExecCalls(DesktopEnvironmentAutoDetecter
-          .findDesktopEnvironment());
+      DesktopEnvironment desktopEnvironment = DesktopEnvironmentAutoDetecter
+          .findDesktopEnvironment();
+      chosen = RuntimeExecCallsFactory.withInstalledPrograms(
+          desktopEnvironment, chooseRuntimeExecCalls(desktopEnvironment));
     }
-    else if (this.getPreferenceModel().isUseCustomeDesktopEnvironment())
+    else if (preferences.isUseCustomeDesktopEnvironment())
     {
-      this.runtimeExecCalls = RuntimeExecCallsFactory.custom(this
-          .getPreferenceModel().getCustomDesktopEnvironmentContainer());
+      chosen = RuntimeExecCallsFactory.custom(preferences
+          .getCustomDesktopEnvironmentContainer());
     }
     else
     {
-      this.runtimeExecCalls = chooseRuntimeExecCalls(this.getPreferenceModel()
+      chosen = chooseRuntimeExecCalls(preferences
           .getSelectedDesktopEnvironment());
     }
+    if (preferences.isUseLaunchHelper())
+    {
+      RuntimeExecCallsFactory.useLaunchHelper(chosen, this.launchHelper);
+    }
+    return chosen;
   }
 
   private IRuntimeExecCalls chooseRuntimeExecCalls(
@@ -144,12 +202,16 @@ public class PluginContext
   /**
    * @return {@code true} if and only if the current operating system's/desktop
    *         manager's file manager supports selecting files (as opposed to just
-   *         opening a certain directory) on startup
+   *         opening a certain directory) on startup, either by itself or via
+   *         D-Bus, if D-Bus is available
    */
   public boolean isFileSelectionSupportedByFileManager()
   {
-    return this.getRuntimeExecCalls().getCapabilities()
-        .isFileSelectionSupportedByFileManager();
+    IRuntimeExecCalls runtimeExecCalls = this.getRuntimeExecCalls();
+    return runtimeExecCalls.getCapabilities()
+        .isFileSelectionSupportedByFileManager()
+        || RuntimeExecCallsFactory
+            .isFileManagerReachableViaDBus(runtimeExecCalls);
   }
 
   /**
@@ -187,6 +249,26 @@ public class PluginContext
     return this.messageDialogHelper;
   }
 
+  public LaunchQueue getLaunchQueue()
+  {
+    return this.launchQueue;
+  }
+
+  public ProcessSupervisor getProcessSupervisor()
+  {
+    return this.processSupervisor;
+  }
+
+  public LaunchHelper getLaunchHelper()
+  {
+    return this.launchHelper;
+  }
+
+  public CommandConsoleManager getCommandConsoleManager()
+  {
+    return this.commandConsoleManager;
+  }
+
   public LogFacility getLogFacility()
   {
     return this.logFacility;
@@ -194,22 +276,30 @@ public class PluginContext
 
   public PreferenceModel getPreferenceModel()
   {
-    this.ensurePreferencesHaveBeenLoadedFromStore();
-    return this.preferenceModel;
+    PreferenceModel model = this.preferenceModel;
+    if (model != null)
+    {
+      return model;
+    }
+    return this.ensurePreferencesHaveBeenLoadedFromStore();
   }
 
-  private synchronized void ensurePreferencesHaveBeenLoadedFromStore()
+  private synchronized PreferenceModel ensurePreferencesHaveBeenLoadedFromStore()
   {
     if (this.preferenceModel == null)
     {
-      this.preferenceModel = new PreferenceModel();
-      this.loadPreferencesFromEclipseStore();
+      // the model is only published after it has been loaded, other threads
+      // see either no model or a loaded one
+      PreferenceModel model = new PreferenceModel();
+      this.loadPreferencesFromEclipseStore(model);
+      this.preferenceModel = model;
     }
+    return this.preferenceModel;
   }
 
-  void loadPreferencesFromEclipseStore()
+  void loadPreferencesFromEclipseStore(PreferenceModel preferenceModel)
   {
-    this.preferenceModel.loadPreferencesFromStore();
+    preferenceModel.loadPreferencesFromStore();
   }
 
   public void initializePreferencesFromDefault()
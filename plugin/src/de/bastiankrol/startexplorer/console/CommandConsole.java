@@ -0,0 +1,156 @@
+package de.bastiankrol.startexplorer.console;
+
+import static de.bastiankrol.startexplorer.Activator.getLogFacility;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.console.IOConsole;
+import org.eclipse.ui.console.IOConsoleOutputStream;
+
+import de.bastiankrol.startexplorer.Activator;
+import de.bastiankrol.startexplorer.launch.ProcessOutputListener;
+import de.bastiankrol.startexplorer.launch.ProcessResult;
+
+/**
+ * A console showing the output of one custom command. The content of the
+ * console is bounded by the console's water marks: as soon as it exceeds
+ * {@link #HIGH_WATER_MARK} characters, the oldest output is discarded until
+ * only {@link #LOW_WATER_MARK} characters are left. This way, a long running
+ * or very chatty command can not fill up the heap.
+ *
+ * A pinned console is not reused for later launches of the same command, so
+ * its output is kept.
+ *
+ * @author Bastian Krol
+ */
+public class CommandConsole extends IOConsole implements ProcessOutputListener
+{
+  /**
+   * The console type of all StartExplorer command consoles.
+   */
+  public static final String CONSOLE_TYPE = "de.bastiankrol.startexplorer.console";
+
+  /**
+   * Number of characters that are left after the console has been trimmed.
+   */
+  static final int LOW_WATER_MARK = 60000;
+
+  /**
+   * Number of characters that trigger trimming the console.
+   */
+  static final int HIGH_WATER_MARK = 80000;
+
+  private static final String TIME_FORMAT = "HH:mm:ss";
+
+  private final IOConsoleOutputStream messageStream;
+  private final IOConsoleOutputStream outputStream;
+  private final IOConsoleOutputStream errorStream;
+  private volatile boolean pinned;
+
+  CommandConsole(String name)
+  {
+    super(name, CONSOLE_TYPE, Activator
+        .getImageDescriptor("icons/customcommands.gif"), true);
+    this.setWaterMarks(LOW_WATER_MARK, HIGH_WATER_MARK);
+    this.messageStream = this.newOutputStream();
+    this.outputStream = this.newOutputStream();
+    this.errorStream = this.newOutputStream();
+    Display.getDefault().asyncExec(new Runnable()
+    {
+      public void run()
+      {
+        CommandConsole.this.errorStream.setColor(Display.getDefault()
+            .getSystemColor(SWT.COLOR_RED));
+        CommandConsole.this.messageStream.setColor(Display.getDefault()
+            .getSystemColor(SWT.COLOR_BLUE));
+      }
+    });
+  }
+
+  /**
+   * @return {@code true} if and only if this console has been pinned
+   */
+  public boolean isPinned()
+  {
+    return this.pinned;
+  }
+
+  /**
+   * Pins or unpins this console. The output of a pinned console is kept, the
+   * next launch of the command opens a new console.
+   *
+   * @param pinned if the console is pinned
+   */
+  public void setPinned(boolean pinned)
+  {
+    this.pinned = pinned;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see de.bastiankrol.startexplorer.launch.ProcessOutputListener#processStarted(de.bastiankrol.startexplorer.launch.ProcessResult)
+   */
+  @Override
+  public void processStarted(ProcessResult result)
+  {
+    this.write(this.messageStream, "[" + this.format(result.getStartTime())
+        + "] " + result.getCommand() + "\n");
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see de.bastiankrol.startexplorer.launch.ProcessOutputListener#outputReceived(de.bastiankrol.startexplorer.launch.ProcessResult,
+   *      boolean, byte[], int, int)
+   */
+  @Override
+  public void outputReceived(ProcessResult result, boolean isStandardError,
+      byte[] bytes, int offset, int length)
+  {
+    try
+    {
+      (isStandardError ? this.errorStream : this.outputStream).write(bytes,
+          offset, length);
+    }
+    catch (IOException e)
+    {
+      getLogFacility().logException("Could not write to console.", e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see de.bastiankrol.startexplorer.launch.ProcessOutputListener#processTerminated(de.bastiankrol.startexplorer.launch.ProcessResult)
+   */
+  @Override
+  public void processTerminated(ProcessResult result)
+  {
+    this.write(this.messageStream, "[" + this.format(System.currentTimeMillis())
+        + "] " + result.getCommand() + " terminated with exit code "
+        + result.getExitCode() + " after " + result.getDuration() + " ms\n");
+  }
+
+  private void write(IOConsoleOutputStream stream, String text)
+  {
+    try
+    {
+      stream.write(text);
+    }
+    catch (IOException e)
+    {
+      getLogFacility().logException("Could not write to console.", e);
+    }
+  }
+
+  private String format(long time)
+  {
+    // SimpleDateFormat is not thread safe
+    return new SimpleDateFormat(TIME_FORMAT).format(new Date(time));
+  }
+}
@@ -0,0 +1,78 @@
+package de.bastiankrol.startexplorer.console;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.ui.console.ConsolePlugin;
+import org.eclipse.ui.console.IConsole;
+import org.eclipse.ui.console.IConsoleManager;
+
+import de.bastiankrol.startexplorer.customcommands.CommandConfig;
+import de.bastiankrol.startexplorer.launch.ProcessOutputListener;
+
+/**
+ * Keeps track of the {@link CommandConsole}s, one per custom command. A
+ * console is reused for every launch of its command until it is pinned or
+ * closed by the user.
+ *
+ * @author Bastian Krol
+ */
+public class CommandConsoleManager
+{
+  private static final String CONSOLE_NAME_PREFIX = "StartExplorer: ";
+
+  private final Map<String, CommandConsole> consoles = new HashMap<String, CommandConsole>();
+
+  /**
+   * Returns the console for the given custom command and brings it to the
+   * front, if the command has been configured to show its output in a
+   * console. Must be called from the UI thread.
+   *
+   * @param commandConfig the custom command
+   * @return the listener that writes the output of the command to the
+   *         console, or {@code null} if the output is not to be shown
+   */
+  public synchronized ProcessOutputListener getOutputListener(
+      CommandConfig commandConfig)
+  {
+    if (!commandConfig.isShowOutputInConsole())
+    {
+      return null;
+    }
+    IConsoleManager consoleManager = ConsolePlugin.getDefault()
+        .getConsoleManager();
+    String name = getName(commandConfig);
+    CommandConsole console = this.consoles.get(name);
+    if (console == null || console.isPinned()
+        || !isRegistered(consoleManager, console))
+    {
+      console = new CommandConsole(CONSOLE_NAME_PREFIX + name);
+      consoleManager.addConsoles(new IConsole[] { console });
+      this.consoles.put(name, console);
+    }
+    consoleManager.showConsoleView(console);
+    return console;
+  }
+
+  private static boolean isRegistered(IConsoleManager consoleManager,
+      CommandConsole console)
+  {
+    return Arrays.asList(consoleManager.getConsoles()).contains(console);
+  }
+
+  static String getName(CommandConfig commandConfig)
+  {
+    if (commandConfig.isEnabledForResourcesMenu()
+        && commandConfig.getNameForResourcesMenu().length() > 0)
+    {
+      return commandConfig.getNameForResourcesMenu();
+    }
+    else if (commandConfig.isEnabledForTextSelectionMenu()
+        && commandConfig.getNameForTextSelectionMenu().length() > 0)
+    {
+      return commandConfig.getNameForTextSelectionMenu();
+    }
+    return commandConfig.getCommand();
+  }
+}
@@ -0,0 +1,111 @@
+package de.bastiankrol.startexplorer.console;
+
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IAction;
+import org.eclipse.jface.action.IToolBarManager;
+import org.eclipse.ui.IActionBars;
+import org.eclipse.ui.console.IConsole;
+import org.eclipse.ui.console.IConsoleConstants;
+import org.eclipse.ui.console.IConsolePageParticipant;
+import org.eclipse.ui.console.actions.ClearOutputAction;
+import org.eclipse.ui.console.actions.CloseConsoleAction;
+import org.eclipse.ui.part.IPageBookViewPage;
+
+/**
+ * Adds the actions to clear, pin and close a {@link CommandConsole} to the
+ * console view's tool bar.
+ *
+ * @author Bastian Krol
+ */
+public class CommandConsolePageParticipant implements IConsolePageParticipant
+{
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.eclipse.ui.console.IConsolePageParticipant#init(org.eclipse.ui.part.IPageBookViewPage,
+   *      org.eclipse.ui.console.IConsole)
+   */
+  @Override
+  public void init(IPageBookViewPage page, IConsole console)
+  {
+    if (!(console instanceof CommandConsole))
+    {
+      return;
+    }
+    CommandConsole commandConsole = (CommandConsole) console;
+    IActionBars actionBars = page.getSite().getActionBars();
+    IToolBarManager toolBarManager = actionBars.getToolBarManager();
+    toolBarManager.appendToGroup(IConsoleConstants.OUTPUT_GROUP,
+        new ClearOutputAction(commandConsole));
+    toolBarManager.appendToGroup(IConsoleConstants.OUTPUT_GROUP,
+        new PinAction(commandConsole));
+    toolBarManager.appendToGroup(IConsoleConstants.LAUNCH_GROUP,
+        new CloseConsoleAction(commandConsole));
+    actionBars.updateActionBars();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.eclipse.ui.console.IConsolePageParticipant#activated()
+   */
+  @Override
+  public void activated()
+  {
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.eclipse.ui.console.IConsolePageParticipant#deactivated()
+   */
+  @Override
+  public void deactivated()
+  {
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.eclipse.ui.console.IConsolePageParticipant#dispose()
+   */
+  @Override
+  public void dispose()
+  {
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.eclipse.core.runtime.IAdaptable#getAdapter(java.lang.Class)
+   */
+  // raw signature, IAdaptable is only generic in newer Eclipse versions
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  @Override
+  public Object getAdapter(Class adapter)
+  {
+    return null;
+  }
+
+  /**
+   * Toggles {@link CommandConsole#setPinned(boolean)}.
+   */
+  private static class PinAction extends Action
+  {
+    private final CommandConsole console;
+
+    PinAction(CommandConsole console)
+    {
+      super("Pin Output", IAction.AS_CHECK_BOX);
+      this.console = console;
+      this.setToolTipText("Keep this output, the next launch of the command opens a new console");
+      this.setChecked(console.isPinned());
+    }
+
+    @Override
+    public void run()
+    {
+      this.console.setPinned(this.isChecked());
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package de.bastiankrol.startexplorer.crossplatform;
 
+import static de.bastiankrol.startexplorer.Activator.getLogFacility;
 import static de.bastiankrol.startexplorer.Activator.getPluginContext;
 
 import java.awt.Desktop;
@@ -7,11 +8,20 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+
 import de.bastiankrol.startexplorer.Activator;
+import de.bastiankrol.startexplorer.launch.ProcessOutputListener;
 import de.bastiankrol.startexplorer.util.Util;
+import de.bastiankrol.startexplorer.variables.CommandBatch;
 import de.bastiankrol.startexplorer.variables.VariableManager;
 
 /**
@@ -24,6 +34,9 @@ abstract class AbstractRuntimeExecCalls implements IRuntimeExecCalls
 {
   IRuntimeExecDelegate runtimeExecDelegate;
 
+  private ExecutableResolver executableResolver = ExecutableResolver
+      .getDefault();
+
   private final Capabilities defaultCapabilities = Capabilities.create()
       .build();
 
@@ -56,6 +69,31 @@ abstract class AbstractRuntimeExecCalls implements IRuntimeExecCalls
     this.runtimeExecDelegate = runtimeExecDelegate;
   }
 
+  /**
+   * Sets the {@link ExecutableResolver} which resolves the executables of the
+   * built-in commands.
+   * 
+   * @param executableResolver the {@link ExecutableResolver}
+   */
+  void setExecutableResolver(ExecutableResolver executableResolver)
+  {
+    this.executableResolver = executableResolver;
+  }
+
+  /**
+   * @return the executables the built-in commands rely on that can not be
+   *         found by the {@link ExecutableResolver} of this instance
+   */
+  List<String> getMissingExecutables()
+  {
+    if (this.executableResolver == null)
+    {
+      return new ArrayList<String>();
+    }
+    return this.getCapabilities().getMissingExecutables(
+        this.executableResolver);
+  }
+
   /**
    * {@inheritDoc}
    * 
@@ -66,10 +104,174 @@ abstract class AbstractRuntimeExecCalls implements IRuntimeExecCalls
   public void startFileManagerForFileList(List<File> fileList,
       boolean selectFile)
   {
+    FreedesktopFileManager freedesktopFileManager = this
+        .getUsableFreedesktopFileManager();
+    if (freedesktopFileManager == null)
+    {
+      this.startFileManagerForBatches(this.batchFilesForFileManager(fileList,
+          selectFile, false), selectFile);
+      return;
+    }
+    for (List<File> batch : this.batchFilesForFileManager(fileList,
+        selectFile, true))
+    {
+      List<File> notShown = freedesktopFileManager.show(batch);
+      if (!notShown.isEmpty())
+      {
+        // fall back to starting the file manager directly
+        this.startFileManagerForBatches(this.batchFilesForFileManager(
+            notShown, selectFile, false), selectFile);
+      }
+    }
+  }
+
+  private void startFileManagerForBatches(List<List<File>> batches,
+      boolean selectFile)
+  {
+    for (List<File> batch : batches)
+    {
+      if (batch.size() == 1)
+      {
+        this.startFileManagerForFile(batch.get(0), selectFile);
+      }
+      else
+      {
+        this.execBuiltInCommand(this.getCommandForStartFileManager(batch),
+            this.getWorkingDirectoryForStartFileManager(batch.get(0)));
+      }
+    }
+  }
+
+  /**
+   * Splits the given list of files into the batches that
+   * {@link #startFileManagerForFileList(List, boolean)} would use. Files that
+   * would not be selected are replaced by their parent directory, duplicate
+   * targets are removed and targets are grouped by their parent directory. If
+   * the file manager accepts several paths per invocation (see
+   * {@link Capabilities#getMaxPathsPerFileManagerCall()}), directories are
+   * combined into one batch. Targets that would open more than
+   * {@link Capabilities#getMaxFileManagerWindows()} windows are skipped; via
+   * D-Bus, all files in the same directory are shown in one window.
+   * 
+   * Without D-Bus, each batch is shown by one file manager process. If the file
+   * manager is reachable via D-Bus, all targets form a single batch, which is
+   * shown with one D-Bus call per method.
+   * 
+   * This accesses the file system, it must not be called from the UI thread.
+   * 
+   * @param fileList the list of File objects to start a file manager for.
+   * @param selectFile see {@link #startFileManagerForFileList(List, boolean)}
+   * @return the batches
+   */
+  List<List<File>> batchFilesForFileManager(List<File> fileList,
+      boolean selectFile)
+  {
+    return this.batchFilesForFileManager(fileList, selectFile,
+        this.getUsableFreedesktopFileManager() != null);
+  }
+
+  private List<List<File>> batchFilesForFileManager(List<File> fileList,
+      boolean selectFile, boolean viaDBus)
+  {
+    Capabilities capabilities = this.getCapabilities();
+    // via D-Bus, files can always be selected
+    boolean selectFiles = selectFile
+        && (viaDBus || capabilities.isFileSelectionSupportedByFileManager());
+
+    // group targets by parent directory, the sets remove duplicates
+    Map<File, Set<File>> targetsByParent = new LinkedHashMap<File, Set<File>>();
     for (File file : fileList)
     {
-      this.startFileManagerForFile(file, selectFile);
+      File target = file;
+      if (!selectFiles && file.isFile() && file.getParentFile() != null)
+      {
+        target = file.getParentFile();
+      }
+      File parent = target.getParentFile();
+      Set<File> targets = targetsByParent.get(parent);
+      if (targets == null)
+      {
+        targets = new LinkedHashSet<File>();
+        targetsByParent.put(parent, targets);
+      }
+      targets.add(target);
+    }
+    List<File> targets = new ArrayList<File>();
+    for (Set<File> targetsWithSameParent : targetsByParent.values())
+    {
+      targets.addAll(targetsWithSameParent);
     }
+
+    targets = this.capNumberOfWindows(targets, selectFiles, viaDBus,
+        capabilities.getMaxFileManagerWindows());
+
+    List<List<File>> batches = new ArrayList<List<File>>();
+    if (viaDBus)
+    {
+      // everything is shown with one call per D-Bus method
+      if (!targets.isEmpty())
+      {
+        batches.add(new ArrayList<File>(targets));
+      }
+      return batches;
+    }
+
+    // combine directories, files that are to be selected get a process of
+    // their own
+    int maxPaths = capabilities.getMaxPathsPerFileManagerCall();
+    List<File> currentBatch = null;
+    for (File target : targets)
+    {
+      if (selectFiles && target.isFile())
+      {
+        List<File> singleFile = new ArrayList<File>(1);
+        singleFile.add(target);
+        batches.add(singleFile);
+        continue;
+      }
+      if (currentBatch == null || currentBatch.size() >= maxPaths)
+      {
+        currentBatch = new ArrayList<File>();
+        batches.add(currentBatch);
+      }
+      currentBatch.add(target);
+    }
+    return batches;
+  }
+
+  /**
+   * Skips the targets that would open more than the given number of file
+   * manager windows. Without D-Bus, every target opens a window of its own.
+   * Via D-Bus, all files in the same directory are shown in one window.
+   */
+  private List<File> capNumberOfWindows(List<File> targets,
+      boolean selectFiles, boolean viaDBus, int maxWindows)
+  {
+    Set<File> windows = new LinkedHashSet<File>();
+    List<File> shown = new ArrayList<File>();
+    for (File target : targets)
+    {
+      File window = target;
+      if (viaDBus && selectFiles && target.isFile()
+          && target.getParentFile() != null)
+      {
+        window = target.getParentFile();
+      }
+      if (windows.size() >= maxWindows && !windows.contains(window))
+      {
+        continue;
+      }
+      windows.add(window);
+      shown.add(target);
+    }
+    if (shown.size() < targets.size())
+    {
+      getLogFacility().logWarning(
+          "Only opening " + maxWindows + " file manager windows, skipping "
+              + (targets.size() - shown.size()) + " of " + targets.size()
+              + " paths.");
+    }
+    return shown;
   }
 
   /**
@@ -112,10 +314,16 @@ abstract class AbstractRuntimeExecCalls implements IRuntimeExecCalls
   public void startCustomCommandForFileList(String[] customCommand,
       List<File> fileList)
   {
+    CommandBatch batch = this.prepareCustomCommand(customCommand);
     for (File file : fileList)
     {
-      this.startCustomCommandForFile(customCommand, file);
+      this.startCustomCommandForFile(batch, file, null, null);
     }
+    getLogFacility().logDebug(
+        "Started custom command for " + fileList.size()
+            + " files, Eclipse variables resolved: "
+            + batch.getEclipseVariableMisses() + ", taken from memo: "
+            + batch.getEclipseVariableHits() + ".");
   }
 
   /**
@@ -127,9 +335,9 @@ abstract class AbstractRuntimeExecCalls implements IRuntimeExecCalls
   @Override
   public void startFileManagerForFile(File file, boolean selectFile)
   {
-    this.runtimeExecDelegate.exec(
+    this.execBuiltInCommand(
         this.getCommandForStartFileManager(file, selectFile),
-        this.getWorkingDirectoryForStartFileManager(file), this.isWindows());
+        this.getWorkingDirectoryForStartFileManager(file));
   }
 
   /**
@@ -153,8 +361,8 @@ abstract class AbstractRuntimeExecCalls implements IRuntimeExecCalls
   @Override
   public void startShellForFile(File file)
   {
-    this.runtimeExecDelegate.exec(this.getCommandForStartShell(file),
-        this.getWorkingDirectoryForForStartShell(file), this.isWindows());
+    this.execBuiltInCommand(this.getCommandForStartShell(file),
+        this.getWorkingDirectoryForForStartShell(file));
   }
 
   /**
@@ -166,10 +374,39 @@ abstract class AbstractRuntimeExecCalls implements IRuntimeExecCalls
   @Override
   public void startSystemApplicationForFile(File file)
   {
-    this.runtimeExecDelegate.exec(
-        this.getCommandForStartSystemApplication(file),
-        this.getWorkingDirectoryForForStartSystemApplication(file),
-        this.isWindows());
+    this.execBuiltInCommand(this.getCommandForStartSystemApplication(file),
+        this.getWorkingDirectoryForForStartSystemApplication(file));
+  }
+
+  /**
+   * Executes one of the built-in commands. If the executable of the command is
+   * listed in {@link Capabilities#getExecutables()}, it is replaced by its
+   * absolute path. If it does not exist, the user is told so and nothing is
+   * executed.
+   * 
+   * @param cmdArray the command
+   * @param workingDirectory the working directory
+   */
+  private void execBuiltInCommand(String[] cmdArray, File workingDirectory)
+  {
+    if (this.executableResolver != null
+        && this.getCapabilities().getExecutables().contains(cmdArray[0]))
+    {
+      File executable = this.executableResolver.resolve(cmdArray[0]);
+      if (executable == null)
+      {
+        getPluginContext().getMessageDialogHelper().displayErrorMessage(
+            "Program not found",
+            "The program \"" + cmdArray[0]
+                + "\" could not be found on the PATH. Please install it or "
+                + "configure a custom desktop environment in the "
+                + "StartExplorer preferences.");
+        return;
+      }
+      cmdArray = cmdArray.clone();
+      cmdArray[0] = executable.getPath();
+    }
+    this.runtimeExecDelegate.exec(cmdArray, workingDirectory, this.isWindows());
   }
 
   /**
@@ -210,6 +447,21 @@ abstract class AbstractRuntimeExecCalls implements IRuntimeExecCalls
 
   abstract String[] getCommandForStartFileManager(URL url);
 
+  /**
+   * Returns the command to open several directories with one file manager
+   * process. Only called with more than one directory and only if
+   * {@link Capabilities#getMaxPathsPerFileManagerCall()} is greater than one,
+   * implementations that support this need to override this method.
+   * 
+   * @param directories the directories to open
+   * @return the command
+   */
+  String[] getCommandForStartFileManager(List<File> directories)
+  {
+    throw new UnsupportedOperationException(
+        "Illegal call: AbstractRuntimeExecCalls#getCommandForStartFileManager(List)");
+  }
+
   abstract File getWorkingDirectoryForStartFileManager(File file);
 
   abstract String[] getCommandForStartShell(File file);
@@ -222,6 +474,57 @@ abstract class AbstractRuntimeExecCalls implements IRuntimeExecCalls
 
   abstract boolean isWindows();
 
+  /**
+   * Returns the {@link FreedesktopFileManager} which shows files via D-Bus.
+   * Only relevant if {@link Capabilities#isFileManagerDBusInterfaceSupported()}
+   * is {@code true}.
+   * 
+   * @return the {@link FreedesktopFileManager}, {@code null} by default
+   */
+  FreedesktopFileManager getFreedesktopFileManager()
+  {
+    return null;
+  }
+
+  /**
+   * @return {@code true} if and only if the file manager is reachable via
+   *         D-Bus, as far as is known
+   */
+  boolean isFreedesktopFileManagerUsable()
+  {
+    return this.getUsableFreedesktopFileManager() != null;
+  }
+
+  /**
+   * Makes the next file manager call try D-Bus again, even if a previous call
+   * has shown that no file manager has been reachable via D-Bus.
+   */
+  void reprobeFreedesktopFileManager()
+  {
+    FreedesktopFileManager freedesktopFileManager = this
+        .getFreedesktopFileManager();
+    if (freedesktopFileManager != null)
+    {
+      freedesktopFileManager.reprobe();
+    }
+  }
+
+  private FreedesktopFileManager getUsableFreedesktopFileManager()
+  {
+    if (!this.getCapabilities().isFileManagerDBusInterfaceSupported())
+    {
+      return null;
+    }
+    FreedesktopFileManager freedesktopFileManager = this
+        .getFreedesktopFileManager();
+    if (freedesktopFileManager == null
+        || !freedesktopFileManager.isAvailable())
+    {
+      return null;
+    }
+    return freedesktopFileManager;
+  }
+
   /**
    * {@inheritDoc}
    * 
@@ -230,13 +533,70 @@ abstract class AbstractRuntimeExecCalls implements IRuntimeExecCalls
    */
   @Override
   public void startCustomCommandForFile(String[] cmdArray, File file)
+  {
+    this.replaceVariablesInCustomCommand(cmdArray, file);
+    this.runtimeExecDelegate.exec(cmdArray,
+        this.getWorkingDirectoryForCustomCommand(file), this.isWindows());
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * @see de.bastiankrol.startexplorer.crossplatform.IRuntimeExecCalls#startCustomCommandForFile(String[],
+   *      File, ProcessOutputListener)
+   */
+  @Override
+  public void startCustomCommandForFile(String[] cmdArray, File file,
+      ProcessOutputListener outputListener)
+  {
+    this.replaceVariablesInCustomCommand(cmdArray, file);
+    this.runtimeExecDelegate.exec(cmdArray,
+        this.getWorkingDirectoryForCustomCommand(file), this.isWindows(),
+        outputListener);
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * @see de.bastiankrol.startexplorer.crossplatform.IRuntimeExecCalls#prepareCustomCommand(String[])
+   */
+  @Override
+  public CommandBatch prepareCustomCommand(String[] customCommand)
+  {
+    return getVariableManager().prepareBatch(customCommand,
+        this.doFilePartsWantWrapping(), this.doFilePartsWantEscaping());
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * @see de.bastiankrol.startexplorer.crossplatform.IRuntimeExecCalls#startCustomCommandForFile(CommandBatch,
+   *      File, ProcessOutputListener, IProgressMonitor)
+   */
+  @Override
+  public void startCustomCommandForFile(CommandBatch customCommand, File file,
+      ProcessOutputListener outputListener, IProgressMonitor monitor)
+  {
+    String[] cmdArray = customCommand.stamp(file, monitor);
+    File workingDirectory = this.getWorkingDirectoryForCustomCommand(file);
+    if (outputListener != null)
+    {
+      this.runtimeExecDelegate.exec(cmdArray, workingDirectory,
+          this.isWindows(), outputListener);
+    }
+    else
+    {
+      this.runtimeExecDelegate.exec(cmdArray, workingDirectory,
+          this.isWindows());
+    }
+  }
+
+  private void replaceVariablesInCustomCommand(String[] cmdArray, File file)
   {
     boolean wrapFileParts = this.doFilePartsWantWrapping();
     boolean escapeFileParts = this.doFilePartsWantEscaping();
     getVariableManager().replaceAllVariablesInCommand(cmdArray, file,
         wrapFileParts, escapeFileParts);
-    this.runtimeExecDelegate.exec(cmdArray,
-        this.getWorkingDirectoryForCustomCommand(file), this.isWindows());
   }
 
   /**
@@ -309,6 +669,25 @@ abstract class AbstractRuntimeExecCalls implements IRuntimeExecCalls
     return getPluginContext().getVariableManager();
   }
 
+  /**
+   * Returns a new command array consisting of {@code command}, followed by the
+   * paths of all given files.
+   * 
+   * @param command the command
+   * @param fileList the files to append
+   * @return the command with the paths appended
+   */
+  String[] appendPaths(String[] command, List<File> fileList)
+  {
+    String[] cmdArray = new String[command.length + fileList.size()];
+    System.arraycopy(command, 0, cmdArray, 0, command.length);
+    for (int i = 0; i < fileList.size(); i++)
+    {
+      cmdArray[command.length + i] = this.getPath(fileList.get(i));
+    }
+    return cmdArray;
+  }
+
   String getPath(File file)
   {
     return Util.getPath(file, this.doFilePartsWantWrapping(),
@@ -5,6 +5,7 @@ import java.net.URL;
 abstract class AbstractRuntimeExecCallsLinux extends
     AbstractRuntimeExecCalls
 {
+  private FreedesktopFileManager freedesktopFileManager = new FreedesktopFileManager();
 
   AbstractRuntimeExecCallsLinux()
   {
@@ -40,4 +41,21 @@ abstract class AbstractRuntimeExecCallsLinux extends
   {
     return false;
   }
+
+  @Override
+  FreedesktopFileManager getFreedesktopFileManager()
+  {
+    return this.freedesktopFileManager;
+  }
+
+  /**
+   * Replaces the {@link FreedesktopFileManager}, {@code null} disables the
+   * D-Bus interface.
+   * 
+   * @param freedesktopFileManager the {@link FreedesktopFileManager} to use
+   */
+  void setFreedesktopFileManager(FreedesktopFileManager freedesktopFileManager)
+  {
+    this.freedesktopFileManager = freedesktopFileManager;
+  }
 }
@@ -1,22 +1,76 @@
 package de.bastiankrol.startexplorer.crossplatform;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Represents the capabilities of a platform.
  */
 public class Capabilities
 {
+  /**
+   * Default for the maximum number of file manager windows that are opened for
+   * one selection.
+   */
+  public static final int DEFAULT_MAX_FILE_MANAGER_WINDOWS = 20;
+
+  /**
+   * Default for the maximum number of paths that are passed to one invocation
+   * of a file manager that accepts several paths.
+   */
+  public static final int DEFAULT_MAX_PATHS_PER_FILE_MANAGER_CALL = 50;
 
   private final boolean fileManagerSupportsFileSelection;
   private final boolean fileManagerSupportsUrls;
   private final boolean hasSystemApplicationForUrls;
+  private final int maxPathsPerFileManagerCall;
+  private final int maxFileManagerWindows;
+  private final boolean fileManagerDBusInterface;
+  private final List<String> executables;
 
   public Capabilities(boolean fileManagerSupportsFileSelection,
       boolean fileManagerSupportsUrls, boolean hasSystemApplicationForUrls)
+  {
+    this(fileManagerSupportsFileSelection, fileManagerSupportsUrls,
+        hasSystemApplicationForUrls, 1, DEFAULT_MAX_FILE_MANAGER_WINDOWS);
+  }
+
+  public Capabilities(boolean fileManagerSupportsFileSelection,
+      boolean fileManagerSupportsUrls, boolean hasSystemApplicationForUrls,
+      int maxPathsPerFileManagerCall, int maxFileManagerWindows)
+  {
+    this(fileManagerSupportsFileSelection, fileManagerSupportsUrls,
+        hasSystemApplicationForUrls, maxPathsPerFileManagerCall,
+        maxFileManagerWindows, false);
+  }
+
+  public Capabilities(boolean fileManagerSupportsFileSelection,
+      boolean fileManagerSupportsUrls, boolean hasSystemApplicationForUrls,
+      int maxPathsPerFileManagerCall, int maxFileManagerWindows,
+      boolean fileManagerDBusInterface)
+  {
+    this(fileManagerSupportsFileSelection, fileManagerSupportsUrls,
+        hasSystemApplicationForUrls, maxPathsPerFileManagerCall,
+        maxFileManagerWindows, fileManagerDBusInterface, Collections
+            .<String> emptyList());
+  }
+
+  Capabilities(boolean fileManagerSupportsFileSelection,
+      boolean fileManagerSupportsUrls, boolean hasSystemApplicationForUrls,
+      int maxPathsPerFileManagerCall, int maxFileManagerWindows,
+      boolean fileManagerDBusInterface, List<String> executables)
   {
     super();
     this.fileManagerSupportsFileSelection = fileManagerSupportsFileSelection;
     this.fileManagerSupportsUrls = fileManagerSupportsUrls;
     this.hasSystemApplicationForUrls = hasSystemApplicationForUrls;
+    this.maxPathsPerFileManagerCall = Math.max(1, maxPathsPerFileManagerCall);
+    this.maxFileManagerWindows = Math.max(1, maxFileManagerWindows);
+    this.fileManagerDBusInterface = fileManagerDBusInterface;
+    this.executables = Collections.unmodifiableList(new ArrayList<String>(
+        executables));
   }
 
   public static Builder create()
@@ -48,6 +102,67 @@ public class Capabilities
     return hasSystemApplicationForUrls;
   }
 
+  /**
+   * @return the maximum number of directories that can be passed to one
+   *         invocation of the file manager; {@code 1} if the file manager only
+   *         accepts a single path
+   */
+  public int getMaxPathsPerFileManagerCall()
+  {
+    return this.maxPathsPerFileManagerCall;
+  }
+
+  /**
+   * @return the maximum number of file manager windows that are opened for one
+   *         selection, surplus paths are skipped
+   */
+  public int getMaxFileManagerWindows()
+  {
+    return this.maxFileManagerWindows;
+  }
+
+  /**
+   * @return {@code true} if and only if the desktop environment's file manager
+   *         implements the freedesktop.org file manager D-Bus interface
+   *         (org.freedesktop.FileManager1), which can show and select many
+   *         files with one call
+   */
+  public boolean isFileManagerDBusInterfaceSupported()
+  {
+    return this.fileManagerDBusInterface;
+  }
+
+  /**
+   * @return the names of the executables the built-in commands of the
+   *         platform rely on, empty if the commands are not checked
+   */
+  public List<String> getExecutables()
+  {
+    return this.executables;
+  }
+
+  /**
+   * Checks which of the executables from {@link #getExecutables()} do not exist
+   * on the PATH. The results are cached by the given
+   * {@link ExecutableResolver}.
+   * 
+   * @param executableResolver the resolver that looks up the executables
+   * @return the executables from {@link #getExecutables()} that do not exist
+   *         on this system
+   */
+  List<String> getMissingExecutables(ExecutableResolver executableResolver)
+  {
+    List<String> missing = new ArrayList<String>();
+    for (String executable : this.executables)
+    {
+      if (!executableResolver.isAvailable(executable))
+      {
+        missing.add(executable);
+      }
+    }
+    return missing;
+  }
+
   static class Builder
   {
     private boolean fileManagerSupportsFileSelection;
@@ -55,6 +170,10 @@ public class Capabilities
     // by default, we assume that a browser (aka system application for URLs) is
     // always present
     private boolean hasSystemApplicationForUrls = true;
+    private int maxPathsPerFileManagerCall = 1;
+    private int maxFileManagerWindows = DEFAULT_MAX_FILE_MANAGER_WINDOWS;
+    private boolean fileManagerDBusInterface;
+    private List<String> executables = Collections.emptyList();
 
     Builder withFileSelectionSupport()
     {
@@ -86,10 +205,36 @@ public class Capabilities
       return this;
     }
 
+    Builder withMaxPathsPerFileManagerCall(int maxPathsPerFileManagerCall)
+    {
+      this.maxPathsPerFileManagerCall = maxPathsPerFileManagerCall;
+      return this;
+    }
+
+    Builder withMaxFileManagerWindows(int maxFileManagerWindows)
+    {
+      this.maxFileManagerWindows = maxFileManagerWindows;
+      return this;
+    }
+
+    Builder withFileManagerDBusInterface()
+    {
+      this.fileManagerDBusInterface = true;
+      return this;
+    }
+
+    Builder withExecutables(String... executables)
+    {
+      this.executables = Arrays.asList(executables);
+      return this;
+    }
+
     Capabilities build()
     {
       return new Capabilities(this.fileManagerSupportsFileSelection,
-          this.fileManagerSupportsUrls, this.hasSystemApplicationForUrls);
+          this.fileManagerSupportsUrls, this.hasSystemApplicationForUrls,
+          this.maxPathsPerFileManagerCall, this.maxFileManagerWindows,
+          this.fileManagerDBusInterface, this.executables);
     }
   }
 }
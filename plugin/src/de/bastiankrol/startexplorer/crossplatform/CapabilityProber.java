@@ -0,0 +1,362 @@
+package de.bastiankrol.startexplorer.crossplatform;
+
+import static de.bastiankrol.startexplorer.Activator.getLogFacility;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds out which file manager, terminal and opener (the program that opens a
+ * file with its default application) are installed and synthesizes a
+ * {@link CustomDesktopEnvironmentContainer} from them. This covers desktop
+ * environments that are not supported directly or that ship different
+ * programs than the desktop environment they are derived from, like Cinnamon
+ * (a Gnome variant that comes with nemo instead of nautilus).
+ *
+ * All candidates are looked up on the PATH in parallel. The probe is
+ * time-boxed, candidates that have not been found when the time budget is
+ * exhausted (for example because a directory on the PATH is on a slow network
+ * file system) are not considered. Complete results are cached until PATH or
+ * the desktop changes.
+ *
+ * @author Bastian Krol
+ */
+class CapabilityProber
+{
+  /** The default time budget for one probe. */
+  static final long DEFAULT_TIME_BUDGET_MILLIS = 500;
+
+  private static final int PROBE_THREADS = 4;
+
+  /**
+   * The roles a program can play.
+   */
+  enum Role
+  {
+    FILE_MANAGER, TERMINAL, OPENER;
+  }
+
+  /**
+   * A program that can play a role, together with the commands for it.
+   */
+  static class Candidate
+  {
+    final Role role;
+    final String executable;
+    final String command;
+    final String commandAndSelectFile;
+
+    Candidate(Role role, String executable, String command,
+        String commandAndSelectFile)
+    {
+      this.role = role;
+      this.executable = executable;
+      this.command = command;
+      this.commandAndSelectFile = commandAndSelectFile;
+    }
+  }
+
+  /**
+   * All candidates, in the order they are preferred if the desktop does not
+   * tell otherwise.
+   */
+  private static final List<Candidate> CANDIDATES = Arrays.asList(
+      fileManager("nautilus", "--select"), //
+      fileManager("nemo", null), //
+      fileManager("caja", null), //
+      fileManager("dolphin", "--select"), //
+      fileManager("konqueror", "--select"), //
+      fileManager("thunar", null), //
+      fileManager("pcmanfm", null), //
+      fileManager("pcmanfm-qt", null), //
+      fileManager("spacefm", null), //
+      terminal("gnome-terminal"), //
+      terminal("mate-terminal"), //
+      terminal("xfce4-terminal"), //
+      terminal("konsole"), //
+      terminal("lxterminal"), //
+      terminal("qterminal"), //
+      terminal("tilix"), //
+      terminal("terminator"), //
+      terminal("x-terminal-emulator"), //
+      terminal("xterm"), //
+      opener("xdg-open"), //
+      opener("exo-open"), //
+      opener("kde-open5"), //
+      opener("kde-open"), //
+      opener("gnome-open"));
+
+  /**
+   * Maps the (lower case) names used in XDG_CURRENT_DESKTOP to the programs
+   * the desktop ships with, which are preferred over the other candidates.
+   */
+  private static final Map<String, List<String>> PREFERRED_EXECUTABLES = new HashMap<String, List<String>>();
+
+  static
+  {
+    PREFERRED_EXECUTABLES.put("gnome",
+        Arrays.asList("nautilus", "gnome-terminal"));
+    PREFERRED_EXECUTABLES.put("cinnamon",
+        Arrays.asList("nemo", "gnome-terminal"));
+    PREFERRED_EXECUTABLES.put("mate", Arrays.asList("caja", "mate-terminal"));
+    PREFERRED_EXECUTABLES.put("kde", Arrays.asList("dolphin", "konsole",
+        "kde-open5"));
+    PREFERRED_EXECUTABLES.put("xfce", Arrays.asList("thunar",
+        "xfce4-terminal", "exo-open"));
+    PREFERRED_EXECUTABLES.put("lxde", Arrays.asList("pcmanfm", "lxterminal"));
+    PREFERRED_EXECUTABLES.put("lxqt", Arrays.asList("pcmanfm-qt",
+        "qterminal"));
+  }
+
+  private static final CapabilityProber DEFAULT = new CapabilityProber(
+      ExecutableResolver.getDefault(), DEFAULT_TIME_BUDGET_MILLIS);
+
+  private final ExecutableResolver executableResolver;
+  private final long timeBudgetMillis;
+
+  private String cacheKey;
+  private CustomDesktopEnvironmentContainer cachedResult;
+
+  CapabilityProber(ExecutableResolver executableResolver, long timeBudgetMillis)
+  {
+    this.executableResolver = executableResolver;
+    this.timeBudgetMillis = timeBudgetMillis;
+  }
+
+  /**
+   * @return the shared instance, which searches the PATH of the Eclipse process
+   */
+  static CapabilityProber getDefault()
+  {
+    return DEFAULT;
+  }
+
+  /**
+   * Probes for the installed programs and synthesizes a configuration from
+   * them. Takes at most the time budget (plus a few milliseconds), unless the
+   * result is taken from the cache.
+   *
+   * @param desktopNames the value of XDG_CURRENT_DESKTOP, might be
+   *          {@code null}
+   * @return the synthesized configuration or {@code null} if no program could
+   *         be found for at least one of the roles
+   */
+  synchronized CustomDesktopEnvironmentContainer probe(String desktopNames)
+  {
+    String path = this.executableResolver.getPathVariable();
+    String key = desktopNames + File.pathSeparator + path;
+    if (key.equals(this.cacheKey))
+    {
+      return this.cachedResult;
+    }
+    List<Candidate> candidates = orderCandidates(desktopNames);
+    List<Future<File>> results = this.search(path, candidates);
+    if (results == null)
+    {
+      return null;
+    }
+    boolean complete = true;
+    Map<Role, Candidate> chosen = new HashMap<Role, Candidate>();
+    for (int i = 0; i < candidates.size(); i++)
+    {
+      Candidate candidate = candidates.get(i);
+      if (chosen.containsKey(candidate.role))
+      {
+        continue;
+      }
+      Future<File> result = results.get(i);
+      if (result.isCancelled())
+      {
+        complete = false;
+        continue;
+      }
+      if (getResult(result) != null)
+      {
+        chosen.put(candidate.role, candidate);
+      }
+    }
+    CustomDesktopEnvironmentContainer container = createContainer(chosen);
+    if (complete)
+    {
+      this.cacheKey = key;
+      this.cachedResult = container;
+    }
+    else
+    {
+      getLogFacility().logDebug(
+          "Probing for installed programs has exceeded the time budget of "
+              + this.timeBudgetMillis + " ms, the result is not cached.");
+    }
+    return container;
+  }
+
+  /**
+   * Discards the cached result.
+   */
+  synchronized void invalidate()
+  {
+    this.cacheKey = null;
+    this.cachedResult = null;
+  }
+
+  /**
+   * @return the results in the order of the candidates, {@code null} if
+   *         interrupted
+   */
+  private List<Future<File>> search(final String path,
+      List<Candidate> candidates)
+  {
+    List<Callable<File>> tasks = new ArrayList<Callable<File>>();
+    for (final Candidate candidate : candidates)
+    {
+      tasks.add(new Callable<File>()
+      {
+        public File call()
+        {
+          return CapabilityProber.this.executableResolver.search(path,
+              candidate.executable);
+        }
+      });
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(PROBE_THREADS,
+        new ThreadFactory()
+        {
+          public Thread newThread(Runnable runnable)
+          {
+            Thread thread = new Thread(runnable, "StartExplorer probe");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    try
+    {
+      // cancels all tasks that have not completed when the budget is exhausted
+      return executor.invokeAll(tasks, this.timeBudgetMillis,
+          TimeUnit.MILLISECONDS);
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  private static File getResult(Future<File> result)
+  {
+    try
+    {
+      return result.get();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+    catch (ExecutionException e)
+    {
+      return null;
+    }
+  }
+
+  /**
+   * Moves the programs that the desktop ships with to the front, the order of
+   * the other candidates is kept.
+   *
+   * @param desktopNames the value of XDG_CURRENT_DESKTOP, might be
+   *          {@code null}
+   * @return the candidates in the order they are preferred
+   */
+  static List<Candidate> orderCandidates(String desktopNames)
+  {
+    List<String> preferred = new ArrayList<String>();
+    if (desktopNames != null)
+    {
+      for (String name : desktopNames.split(":"))
+      {
+        String key = name.trim().toLowerCase();
+        if (key.startsWith("x-"))
+        {
+          key = key.substring("x-".length());
+        }
+        List<String> executables = PREFERRED_EXECUTABLES.get(key);
+        if (executables != null)
+        {
+          preferred.addAll(executables);
+        }
+      }
+    }
+    List<Candidate> ordered = new ArrayList<Candidate>();
+    for (String executable : preferred)
+    {
+      for (Candidate candidate : CANDIDATES)
+      {
+        if (candidate.executable.equals(executable)
+            && !ordered.contains(candidate))
+        {
+          ordered.add(candidate);
+        }
+      }
+    }
+    for (Candidate candidate : CANDIDATES)
+    {
+      if (!ordered.contains(candidate))
+      {
+        ordered.add(candidate);
+      }
+    }
+    return ordered;
+  }
+
+  private static CustomDesktopEnvironmentContainer createContainer(
+      Map<Role, Candidate> chosen)
+  {
+    Candidate fileManager = chosen.get(Role.FILE_MANAGER);
+    Candidate terminal = chosen.get(Role.TERMINAL);
+    Candidate opener = chosen.get(Role.OPENER);
+    if (fileManager == null || terminal == null || opener == null)
+    {
+      return null;
+    }
+    boolean fileSelectionSupported = fileManager.commandAndSelectFile != null;
+    return new CustomDesktopEnvironmentContainer(fileManager.command,
+        fileSelectionSupported ? fileManager.commandAndSelectFile
+            : fileManager.command, WorkingDirectoryMode.NONE,
+        terminal.command, WorkingDirectoryMode.RESOURCE, opener.command,
+        WorkingDirectoryMode.PARENT, WorkingDirectoryMode.NONE,
+        fileSelectionSupported, false);
+  }
+
+  private static Candidate fileManager(String executable, String selectOption)
+  {
+    return new Candidate(Role.FILE_MANAGER, executable, executable
+        + " ${resource_path}", selectOption != null ? executable + " "
+        + selectOption + " ${resource_path}" : null);
+  }
+
+  private static Candidate terminal(String executable)
+  {
+    // terminals are started in the resource's directory
+    return new Candidate(Role.TERMINAL, executable, executable, null);
+  }
+
+  private static Candidate opener(String executable)
+  {
+    return new Candidate(Role.OPENER, executable, executable
+        + " ${resource_path}", null);
+  }
+}
@@ -3,7 +3,12 @@ package de.bastiankrol.startexplorer.crossplatform;
 import static de.bastiankrol.startexplorer.Activator.getLogFacility;
 import static de.bastiankrol.startexplorer.Activator.getPluginContext;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 public class DesktopEnvironmentAutoDetecter
 {
@@ -15,18 +20,120 @@ public class DesktopEnvironmentAutoDetecter
   private static final String SYSTEM_PROPERTY_OS_NAME_VALUE_MAC = "Mac OS"
       .toLowerCase();
 
+  private static final String ENV_XDG_CURRENT_DESKTOP = "XDG_CURRENT_DESKTOP";
+  private static final String ENV_DESKTOP_SESSION = "DESKTOP_SESSION";
+  private static final String PROC_DIRECTORY = "/proc";
+
+  /**
+   * Maps the (lower case) names used in XDG_CURRENT_DESKTOP and
+   * DESKTOP_SESSION to desktop environments.
+   */
+  private static final Map<String, DesktopEnvironment> DESKTOP_NAMES = new HashMap<String, DesktopEnvironment>();
+
+  static
+  {
+    // Gnome variants like Cinnamon do not necessarily ship the Gnome
+    // programs (Cinnamon has nemo instead of nautilus), in this case the
+    // installed programs are used instead, see CapabilityProber.
+    for (String name : new String[] { "gnome", "gnome-classic",
+        "gnome-flashback", "unity", "ubuntu", "budgie", "budgie-desktop",
+        "pantheon", "cinnamon" })
+    {
+      DESKTOP_NAMES.put(name, DesktopEnvironment.LINUX_GNOME);
+    }
+    for (String name : new String[] { "kde", "plasma", "plasmawayland",
+        "kde-plasma" })
+    {
+      DESKTOP_NAMES.put(name, DesktopEnvironment.LINUX_KDE);
+    }
+    for (String name : new String[] { "xfce", "xfce4", "xubuntu" })
+    {
+      DESKTOP_NAMES.put(name, DesktopEnvironment.LINUX_XFCE);
+    }
+    for (String name : new String[] { "lxde", "lubuntu" })
+    {
+      DESKTOP_NAMES.put(name, DesktopEnvironment.LINUX_LXDE);
+    }
+    DESKTOP_NAMES.put("mate", DesktopEnvironment.LINUX_MATE);
+  }
+
+  /**
+   * The session processes of the supported desktop environments, in the order
+   * they are checked. /proc/&lt;pid&gt;/comm is truncated to 15 characters, so
+   * the process names are matched as prefixes.
+   */
+  private static final String[] SESSION_PROCESS_NAMES = { "gnome-session",
+      "ksmserver", "xfce4-session", "xfce-mcs-manage", "lxsession",
+      "mate-session" };
+
+  private static final DesktopEnvironment[] SESSION_PROCESS_DESKTOP_ENVIRONMENTS = {
+      DesktopEnvironment.LINUX_GNOME, DesktopEnvironment.LINUX_KDE,
+      DesktopEnvironment.LINUX_XFCE, DesktopEnvironment.LINUX_XFCE,
+      DesktopEnvironment.LINUX_LXDE, DesktopEnvironment.LINUX_MATE };
+
   private static DesktopEnvironment cachedValue;
 
-  public static synchronized DesktopEnvironment getCachedValue()
+  /**
+   * Same as {@link #findDesktopEnvironment()}.
+   * 
+   * @return the desktop environment
+   */
+  public static DesktopEnvironment getCachedValue()
+  {
+    return findDesktopEnvironment();
+  }
+
+  /**
+   * Returns the desktop environment the plug-in is running in. It is only
+   * detected once, the result is memoized.
+   * 
+   * @return the desktop environment
+   */
+  public static synchronized DesktopEnvironment findDesktopEnvironment()
   {
     if (cachedValue == null)
     {
-      cachedValue = findDesktopEnvironment();
+      cachedValue = detectDesktopEnvironment();
     }
     return cachedValue;
   }
 
-  public static DesktopEnvironment findDesktopEnvironment()
+  /**
+   * Uses the given desktop environment (usually one that has been detected in
+   * a previous session) until the desktop environment is detected again via
+   * {@link #redetect()}. Does nothing if the desktop environment has already
+   * been detected.
+   * 
+   * @param desktopEnvironment the desktop environment
+   */
+  static synchronized void seed(DesktopEnvironment desktopEnvironment)
+  {
+    if (cachedValue == null)
+    {
+      cachedValue = desktopEnvironment;
+    }
+  }
+
+  /**
+   * Detects the desktop environment again and replaces the memoized value.
+   * The detection itself runs without holding the lock, so callers of
+   * {@link #findDesktopEnvironment()} keep getting the old value meanwhile.
+   * 
+   * @return {@code true} if the desktop environment differs from the
+   *         previously memoized one
+   */
+  static boolean redetect()
+  {
+    DesktopEnvironment detected = detectDesktopEnvironment();
+    synchronized (DesktopEnvironmentAutoDetecter.class)
+    {
+      boolean changed = cachedValue != null && cachedValue != detected;
+      cachedValue = detected;
+      return changed;
+    }
+  }
+
+  private static DesktopEnvironment detectDesktopEnvironment()
   {
     OperatingSystem operatingSystem = findOperatingSystem();
     switch (operatingSystem)
@@ -90,67 +197,186 @@ public class DesktopEnvironmentAutoDetecter
   {
     try
     {
-      if (checkProcessNames("gnome-session"))
+      return detectLinuxDesktopEnvironment(System.getenv(), new File(
+          PROC_DIRECTORY));
+    }
+    catch (Exception e)
+    {
+      getLogFacility().logWarning(
+          "Could not autodetect desktop environment due to "
+              + e.getClass().getName() + ": " + e.getMessage());
+      return DesktopEnvironment.LINUX_UNKNOWN;
+    }
+  }
+
+  /**
+   * Detects the Linux desktop environment without starting any process. The
+   * variables XDG_CURRENT_DESKTOP and DESKTOP_SESSION, which are set by all
+   * current display managers, are checked first. If they do not tell, the
+   * names of all running processes are read from {@code /proc/<pid>/comm} in
+   * one pass and compared with the session processes of the supported desktop
+   * environments.
+   * 
+   * @param environment the environment variables
+   * @param procDirectory the proc file system, usually /proc
+   * @return the desktop environment, LINUX_UNKNOWN if it could not be detected
+   * @throws IOException if the proc file system can not be read
+   * @throws InterruptedException if interrupted while waiting for pidof (only
+   *           used if there is no proc file system)
+   */
+  static DesktopEnvironment detectLinuxDesktopEnvironment(
+      Map<String, String> environment, File procDirectory) throws IOException,
+      InterruptedException
+  {
+    DesktopEnvironment desktopEnvironment = fromDesktopNames(
+        environment.get(ENV_XDG_CURRENT_DESKTOP), ":");
+    if (desktopEnvironment == null)
+    {
+      String desktopSession = environment.get(ENV_DESKTOP_SESSION);
+      if (desktopSession != null)
       {
-        // TODO How to check for gnome variants like cinnamon that do not have
-        // nautilus (but nemo)? Maybe something like feature detection would be
-        // a better approach. Like this:
-        // Is there an executable named nautilus? No? Maybe nemo? No? Maybe
-        // thunar or konqueror....?
-        return DesktopEnvironment.LINUX_GNOME;
+        // some display managers put the path of the session file here
+        desktopSession = new File(desktopSession).getName();
       }
-      if (checkProcessNames("ksmserver"))
+      desktopEnvironment = fromDesktopNames(desktopSession, null);
+    }
+    if (desktopEnvironment == null)
+    {
+      desktopEnvironment = findFromSessionProcesses(procDirectory);
+    }
+    return desktopEnvironment;
+  }
+
+  /**
+   * Maps the desktop names used in XDG_CURRENT_DESKTOP and DESKTOP_SESSION to
+   * a desktop environment.
+   * 
+   * @param names the names, might be {@code null}
+   * @param separator the separator for multiple names, {@code null} if there is
+   *          only one name
+   * @return the first recognized desktop environment or {@code null}
+   */
+  static DesktopEnvironment fromDesktopNames(String names, String separator)
+  {
+    if (names == null)
+    {
+      return null;
+    }
+    for (String name : separator != null ? names.split(separator)
+        : new String[] { names })
+    {
+      String key = name.trim().toLowerCase();
+      if (key.startsWith("x-"))
       {
-        return DesktopEnvironment.LINUX_KDE;
+        key = key.substring("x-".length());
       }
-      if (checkProcessNames("xfce4-session", "xfce-mcs-manage"))
+      DesktopEnvironment desktopEnvironment = DESKTOP_NAMES.get(key);
+      if (desktopEnvironment != null)
+      {
+        return desktopEnvironment;
+      }
+    }
+    return null;
+  }
+
+  private static DesktopEnvironment findFromSessionProcesses(File procDirectory)
+      throws IOException, InterruptedException
+  {
+    File[] processDirectories = procDirectory.listFiles();
+    if (processDirectories == null)
+    {
+      getLogFacility().logDebug(
+          procDirectory + " is not available, falling back to pidof.");
+      return findFromSessionProcessesWithPidOf();
+    }
+    // one pass over all processes, the candidates are ranked by their
+    // position in SESSION_PROCESS_NAMES
+    int bestMatch = SESSION_PROCESS_NAMES.length;
+    for (File processDirectory : processDirectories)
+    {
+      if (!isPid(processDirectory.getName()))
       {
-        return DesktopEnvironment.LINUX_XFCE;
+        continue;
       }
-      if (checkProcessNames("lxsession"))
+      String processName = readProcessName(processDirectory);
+      if (processName == null)
       {
-        return DesktopEnvironment.LINUX_LXDE;
+        continue;
       }
-      if (checkProcessNames("mate-session"))
+      for (int i = 0; i < bestMatch; i++)
       {
-        return DesktopEnvironment.LINUX_MATE;
+        if (processName.startsWith(SESSION_PROCESS_NAMES[i]))
+        {
+          bestMatch = i;
+          break;
+        }
       }
-      return DesktopEnvironment.LINUX_UNKNOWN;
     }
-    catch (IOException e)
+    if (bestMatch < SESSION_PROCESS_NAMES.length)
     {
-      getLogFacility().logWarning(
-          "Could not autodetect desktop environment due to IOException: "
-              + e.getMessage());
-      return DesktopEnvironment.LINUX_UNKNOWN;
+      return SESSION_PROCESS_DESKTOP_ENVIRONMENTS[bestMatch];
+    }
+    return DesktopEnvironment.LINUX_UNKNOWN;
+  }
+
+  private static boolean isPid(String name)
+  {
+    if (name.length() == 0)
+    {
+      return false;
     }
-    catch (InterruptedException e)
+    for (int i = 0; i < name.length(); i++)
     {
-      getLogFacility().logWarning(
-          "Could not autodetect desktop environment due to InterruptedException: "
-              + e.getMessage());
-      return DesktopEnvironment.LINUX_UNKNOWN;
+      if (!Character.isDigit(name.charAt(i)))
+      {
+        return false;
+      }
     }
-    catch (Exception e)
+    return true;
+  }
+
+  private static String readProcessName(File processDirectory)
+  {
+    BufferedReader reader = null;
+    try
     {
-      getLogFacility().logWarning(
-          "Could not autodetect desktop environment due to "
-              + e.getClass().getName() + ": " + e.getMessage());
-      return DesktopEnvironment.LINUX_UNKNOWN;
+      reader = new BufferedReader(new FileReader(new File(processDirectory,
+          "comm")));
+      String line = reader.readLine();
+      return line != null ? line.trim() : null;
+    }
+    catch (IOException e)
+    {
+      // the process has terminated in the meantime or belongs to another user
+      return null;
+    }
+    finally
+    {
+      if (reader != null)
+      {
+        try
+        {
+          reader.close();
+        }
+        catch (IOException e)
+        {
+          // ignore
+        }
+      }
     }
   }
 
-  private static boolean checkProcessNames(String... processNames)
+  private static DesktopEnvironment findFromSessionProcessesWithPidOf()
       throws IOException, InterruptedException
   {
-    for (String processName : processNames)
+    for (int i = 0; i < SESSION_PROCESS_NAMES.length; i++)
     {
-      if (executePidOfCommand(processName))
+      if (executePidOfCommand(SESSION_PROCESS_NAMES[i]))
       {
-        return true;
+        return SESSION_PROCESS_DESKTOP_ENVIRONMENTS[i];
       }
     }
-    return false;
+    return DesktopEnvironment.LINUX_UNKNOWN;
   }
 
   private static boolean executePidOfCommand(String processName)
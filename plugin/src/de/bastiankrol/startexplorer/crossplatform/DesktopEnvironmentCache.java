@@ -0,0 +1,260 @@
+package de.bastiankrol.startexplorer.crossplatform;
+
+import static de.bastiankrol.startexplorer.Activator.getLogFacility;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Keeps the detected desktop environment and the locations of the executables
+ * it needs in a file in the plug-in's state area, so that they are available
+ * immediately after Eclipse has been restarted. The stored values are only
+ * used if the session looks the same as when they were stored. The session is
+ * identified by a fingerprint made of the session type, the desktop variables,
+ * the operating system and a hash of PATH.
+ *
+ * The stored values are checked again by a background job after they have
+ * been restored (see {@link #restoreAndRefresh()}).
+ *
+ * @author Bastian Krol
+ */
+public class DesktopEnvironmentCache
+{
+  /** The name of the file in the state area. */
+  public static final String FILE_NAME = "desktop-environment.properties";
+
+  private static final String KEY_FINGERPRINT = "fingerprint";
+  private static final String KEY_DESKTOP_ENVIRONMENT = "desktopEnvironment";
+  private static final String KEY_EXECUTABLES_CACHE_KEY = "executablesCacheKey";
+  private static final String KEY_PREFIX_EXECUTABLE = "executable.";
+
+  private static final String[] FINGERPRINT_VARIABLES = { "XDG_SESSION_TYPE",
+      "XDG_CURRENT_DESKTOP", "DESKTOP_SESSION", "GDMSESSION",
+      "KDE_FULL_SESSION" };
+
+  private final File stateFile;
+  private final Map<String, String> environment;
+  private final ExecutableResolver executableResolver;
+  private DesktopEnvironmentRefreshJob refreshJob;
+
+  /**
+   * Creates a cache for the environment of the Eclipse process.
+   *
+   * @param stateFile the file to store the values in
+   */
+  public DesktopEnvironmentCache(File stateFile)
+  {
+    this(stateFile, System.getenv(), ExecutableResolver.getDefault());
+  }
+
+  DesktopEnvironmentCache(File stateFile, Map<String, String> environment,
+      ExecutableResolver executableResolver)
+  {
+    this.stateFile = stateFile;
+    this.environment = environment;
+    this.executableResolver = executableResolver;
+  }
+
+  /**
+   * Restores the values stored in a previous session (if the session has not
+   * changed since) and schedules a background job that detects the desktop
+   * environment again and stores the result. If the result differs from the
+   * restored value, the {@link IRuntimeExecCalls} instance is replaced.
+   */
+  public synchronized void restoreAndRefresh()
+  {
+    DesktopEnvironment restored = this.restore();
+    if (restored != null)
+    {
+      DesktopEnvironmentAutoDetecter.seed(restored);
+      getLogFacility().logDebug(
+          "Restored desktop environment " + restored + " from "
+              + this.stateFile + ".");
+    }
+    this.refreshJob = new DesktopEnvironmentRefreshJob(this);
+    this.refreshJob.schedule();
+  }
+
+  /**
+   * Cancels the background job, if it is still running.
+   */
+  public synchronized void stop()
+  {
+    if (this.refreshJob != null)
+    {
+      this.refreshJob.cancel();
+      this.refreshJob = null;
+    }
+  }
+
+  /**
+   * Reads the stored values. If the fingerprint of the current session matches
+   * the stored one, the stored executable locations are handed to the
+   * {@link ExecutableResolver}.
+   *
+   * @return the stored desktop environment, {@code null} if there is none or if
+   *         it has been stored in a different session
+   */
+  DesktopEnvironment restore()
+  {
+    Properties properties = this.read();
+    if (properties == null
+        || !this.getFingerprint().equals(
+            properties.getProperty(KEY_FINGERPRINT)))
+    {
+      return null;
+    }
+    DesktopEnvironment desktopEnvironment;
+    try
+    {
+      desktopEnvironment = DesktopEnvironment.valueOf(properties
+          .getProperty(KEY_DESKTOP_ENVIRONMENT));
+    }
+    catch (RuntimeException e)
+    {
+      // no longer known or missing, the refresh job will replace it
+      return null;
+    }
+    String executablesCacheKey = properties
+        .getProperty(KEY_EXECUTABLES_CACHE_KEY);
+    if (executablesCacheKey != null)
+    {
+      Map<String, File> executables = new HashMap<String, File>();
+      for (String key : properties.stringPropertyNames())
+      {
+        if (key.startsWith(KEY_PREFIX_EXECUTABLE))
+        {
+          String path = properties.getProperty(key);
+          executables.put(key.substring(KEY_PREFIX_EXECUTABLE.length()),
+              path.length() > 0 ? new File(path) : null);
+        }
+      }
+      this.executableResolver.seed(executablesCacheKey, executables);
+    }
+    return desktopEnvironment;
+  }
+
+  /**
+   * Stores the desktop environment and the locations of the executables
+   * required by the given capabilities, together with the fingerprint of the
+   * current session. Resolving the executables might touch the file system, so
+   * this should not be called from the UI thread.
+   *
+   * @param desktopEnvironment the detected desktop environment
+   * @param capabilities the capabilities of the desktop environment in use,
+   *          might be {@code null}
+   * @throws IOException if the file can not be written
+   */
+  void store(DesktopEnvironment desktopEnvironment, Capabilities capabilities)
+      throws IOException
+  {
+    Properties properties = new Properties();
+    properties.setProperty(KEY_FINGERPRINT, this.getFingerprint());
+    properties.setProperty(KEY_DESKTOP_ENVIRONMENT, desktopEnvironment.name());
+    if (capabilities != null && !capabilities.getExecutables().isEmpty())
+    {
+      properties.setProperty(KEY_EXECUTABLES_CACHE_KEY,
+          this.executableResolver.getCurrentCacheKey());
+      for (String executable : capabilities.getExecutables())
+      {
+        File resolved = this.executableResolver.resolve(executable);
+        properties.setProperty(KEY_PREFIX_EXECUTABLE + executable,
+            resolved != null ? resolved.getPath() : "");
+      }
+    }
+    this.write(properties);
+  }
+
+  /**
+   * @return the fingerprint of the current session
+   */
+  String getFingerprint()
+  {
+    StringBuilder fingerprint = new StringBuilder();
+    fingerprint.append(System.getProperty("os.name"));
+    for (String variable : FINGERPRINT_VARIABLES)
+    {
+      fingerprint.append('|');
+      String value = this.environment.get(variable);
+      fingerprint.append(value != null ? value : "");
+    }
+    String path = this.environment.get("PATH");
+    fingerprint.append('|');
+    fingerprint.append(Integer.toHexString(path != null ? path.hashCode() : 0));
+    return fingerprint.toString();
+  }
+
+  private Properties read()
+  {
+    if (!this.stateFile.isFile())
+    {
+      return null;
+    }
+    InputStream input = null;
+    try
+    {
+      input = new FileInputStream(this.stateFile);
+      Properties properties = new Properties();
+      properties.load(input);
+      return properties;
+    }
+    catch (IOException e)
+    {
+      getLogFacility().logWarning(
+          "Could not read " + this.stateFile + ": " + e.getMessage());
+      return null;
+    }
+    finally
+    {
+      close(input);
+    }
+  }
+
+  private void write(Properties properties) throws IOException
+  {
+    // write to a temporary file first, so that a crash can not leave a
+    // truncated file behind
+    File temporaryFile = new File(this.stateFile.getPath() + ".tmp");
+    OutputStream output = new FileOutputStream(temporaryFile);
+    try
+    {
+      properties.store(output, "StartExplorer desktop environment detection");
+    }
+    finally
+    {
+      close(output);
+    }
+    if (!temporaryFile.renameTo(this.stateFile))
+    {
+      this.stateFile.delete();
+      if (!temporaryFile.renameTo(this.stateFile))
+      {
+        throw new IOException("Could not rename " + temporaryFile + " to "
+            + this.stateFile + ".");
+      }
+    }
+  }
+
+  private static void close(Closeable closeable)
+  {
+    if (closeable != null)
+    {
+      try
+      {
+        closeable.close();
+      }
+      catch (IOException e)
+      {
+        // ignore
+      }
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package de.bastiankrol.startexplorer.crossplatform;
+
+import static de.bastiankrol.startexplorer.Activator.getLogFacility;
+
+import java.io.IOException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import de.bastiankrol.startexplorer.Activator;
+import de.bastiankrol.startexplorer.PluginContext;
+
+/**
+ * Detects the desktop environment in the background after the plug-in has
+ * been started and stores the result in the {@link DesktopEnvironmentCache}.
+ * If the desktop environment differs from the one that has been restored from
+ * the previous session, the {@link IRuntimeExecCalls} instance is replaced.
+ * Otherwise, the file manager D-Bus interface is probed again if it has not
+ * been reachable so far.
+ *
+ * @author Bastian Krol
+ */
+class DesktopEnvironmentRefreshJob extends Job
+{
+  private static final String JOB_NAME = "Detecting desktop environment";
+
+  private final DesktopEnvironmentCache cache;
+
+  DesktopEnvironmentRefreshJob(DesktopEnvironmentCache cache)
+  {
+    super(JOB_NAME);
+    this.cache = cache;
+    this.setSystem(true);
+    this.setPriority(Job.DECORATE);
+  }
+
+  @Override
+  protected IStatus run(IProgressMonitor monitor)
+  {
+    boolean changed = DesktopEnvironmentAutoDetecter.redetect();
+    if (monitor.isCanceled())
+    {
+      return Status.CANCEL_STATUS;
+    }
+    DesktopEnvironment desktopEnvironment = DesktopEnvironmentAutoDetecter
+        .findDesktopEnvironment();
+    if (changed)
+    {
+      getLogFacility().logInfo(
+          "The desktop environment has changed to " + desktopEnvironment
+              + " since the last session.");
+    }
+    PluginContext pluginContext = Activator.getDefault() != null ? Activator
+        .getPluginContext() : null;
+    if (pluginContext == null)
+    {
+      // the plug-in has been stopped in the meantime
+      return Status.CANCEL_STATUS;
+    }
+    if (changed)
+    {
+      pluginContext.resetRuntimeExecCalls();
+    }
+    else
+    {
+      // a file manager might have claimed the D-Bus name by now
+      RuntimeExecCallsFactory.reprobeFileManagerDBusInterface(pluginContext
+          .getRuntimeExecCalls());
+    }
+    try
+    {
+      this.cache.store(desktopEnvironment, pluginContext.getRuntimeExecCalls()
+          .getCapabilities());
+    }
+    catch (IOException e)
+    {
+      getLogFacility().logWarning(
+          "Could not store the detected desktop environment: "
+              + e.getMessage());
+    }
+    return Status.OK_STATUS;
+  }
+}
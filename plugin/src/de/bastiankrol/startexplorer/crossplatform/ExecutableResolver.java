@@ -0,0 +1,184 @@
+package de.bastiankrol.startexplorer.crossplatform;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resolves bare command names like {@code nautilus} to the absolute path of
+ * the executable, by searching the PATH like the shell does. The results
+ * (including the information that an executable does not exist) are cached.
+ * The cache is keyed by the value of PATH and the modification times of the
+ * directories on the PATH, so it is invalidated automatically when PATH
+ * changes or when programs are installed or removed.
+ *
+ * Checking the cache costs one stat call per PATH directory, which is much
+ * cheaper than forking a process that then fails because the executable does
+ * not exist.
+ *
+ * @author Bastian Krol
+ */
+class ExecutableResolver
+{
+  private static final ExecutableResolver DEFAULT = new ExecutableResolver();
+
+  /**
+   * Marks executables that could not be found in the cache.
+   */
+  private static final File NOT_FOUND = new File("");
+
+  private final Map<String, File> cache = new HashMap<String, File>();
+  private String cacheKey;
+
+  /**
+   * @return the shared instance, which searches the PATH of the Eclipse process
+   */
+  static ExecutableResolver getDefault()
+  {
+    return DEFAULT;
+  }
+
+  /**
+   * Resolves the given command name. Names containing a slash are not searched
+   * on the PATH, they are only checked for being executable.
+   *
+   * @param name the command name
+   * @return the absolute path of the executable or {@code null} if there is no
+   *         such executable
+   */
+  synchronized File resolve(String name)
+  {
+    if (name.length() == 0)
+    {
+      return null;
+    }
+    if (name.indexOf(File.separatorChar) != -1)
+    {
+      File file = new File(name);
+      return isExecutable(file) ? file.getAbsoluteFile() : null;
+    }
+    String path = this.getPathVariable();
+    String key = this.getCacheKey(path);
+    if (!key.equals(this.cacheKey))
+    {
+      this.cache.clear();
+      this.cacheKey = key;
+    }
+    File resolved = this.cache.get(name);
+    if (resolved == null)
+    {
+      resolved = this.search(path, name);
+      this.cache.put(name, resolved != null ? resolved : NOT_FOUND);
+    }
+    return resolved != NOT_FOUND ? resolved : null;
+  }
+
+  /**
+   * @param name the command name
+   * @return {@code true} if and only if the command can be resolved
+   */
+  boolean isAvailable(String name)
+  {
+    return this.resolve(name) != null;
+  }
+
+  /**
+   * Discards all cached results.
+   */
+  synchronized void invalidate()
+  {
+    this.cache.clear();
+    this.cacheKey = null;
+  }
+
+  /**
+   * @return the key the cache is currently valid for, it changes when PATH or
+   *         one of the directories on the PATH changes
+   */
+  String getCurrentCacheKey()
+  {
+    return this.getCacheKey(this.getPathVariable());
+  }
+
+  /**
+   * Fills the cache with results from a previous session. The results are only
+   * used if the given key equals the current cache key, that is, if neither
+   * PATH nor any directory on the PATH has changed since.
+   * 
+   * @param key the cache key the results are valid for
+   * @param resolved maps command names to the absolute path of the executable,
+   *          or to {@code null} if there is no such executable
+   * @return {@code true} if the results have been used
+   */
+  synchronized boolean seed(String key, Map<String, File> resolved)
+  {
+    if (!key.equals(this.getCurrentCacheKey()))
+    {
+      return false;
+    }
+    if (!key.equals(this.cacheKey))
+    {
+      this.cache.clear();
+      this.cacheKey = key;
+    }
+    for (Map.Entry<String, File> entry : resolved.entrySet())
+    {
+      if (!this.cache.containsKey(entry.getKey()))
+      {
+        this.cache.put(entry.getKey(),
+            entry.getValue() != null ? entry.getValue() : NOT_FOUND);
+      }
+    }
+    return true;
+  }
+
+  String getPathVariable()
+  {
+    String path = System.getenv("PATH");
+    return path != null ? path : "";
+  }
+
+  private String getCacheKey(String path)
+  {
+    StringBuilder key = new StringBuilder(path);
+    for (String directory : path.split(File.pathSeparator))
+    {
+      key.append(File.pathSeparatorChar);
+      key.append(new File(directory).lastModified());
+    }
+    return key.toString();
+  }
+
+  /**
+   * Searches the given PATH for the given command name, bypassing the cache.
+   * Does not lock this instance, so several searches can run in parallel.
+   * 
+   * @param path the value of PATH
+   * @param name the command name
+   * @return the absolute path of the executable or {@code null} if there is no
+   *         such executable
+   */
+  File search(String path, String name)
+  {
+    for (String directory : path.split(File.pathSeparator))
+    {
+      if (directory.length() == 0)
+      {
+        // an empty PATH entry denotes the current directory, which is not
+        // well defined for Eclipse
+        continue;
+      }
+      File candidate = new File(directory, name);
+      if (isExecutable(candidate))
+      {
+        return candidate.getAbsoluteFile();
+      }
+    }
+    return null;
+  }
+
+  private static boolean isExecutable(File file)
+  {
+    return file.isFile() && file.canExecute();
+  }
+}
@@ -0,0 +1,266 @@
+package de.bastiankrol.startexplorer.crossplatform;
+
+import static de.bastiankrol.startexplorer.Activator.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows files and directories via the freedesktop.org file manager D-Bus
+ * interface (org.freedesktop.FileManager1), which is implemented by the file
+ * managers of Gnome, KDE, Xfce and Mate. One D-Bus call reveals any number of
+ * files and reuses an already running file manager, in contrast to starting a
+ * new file manager process for each path.
+ *
+ * The D-Bus calls are issued with dbus-send, so no D-Bus library is needed. If
+ * no file manager has claimed the bus name (or dbus-send is not installed), the
+ * interface is marked as unavailable and callers are expected to start the
+ * file manager directly.
+ *
+ * @author Bastian Krol
+ */
+class FreedesktopFileManager
+{
+  static final String BUS_NAME = "org.freedesktop.FileManager1";
+  static final String OBJECT_PATH = "/org/freedesktop/FileManager1";
+  static final String METHOD_SHOW_ITEMS = BUS_NAME + ".ShowItems";
+  static final String METHOD_SHOW_FOLDERS = BUS_NAME + ".ShowFolders";
+  static final int REPLY_TIMEOUT_MILLIS = 5000;
+
+  private final String busAddress;
+  private volatile boolean available = true;
+
+  /**
+   * Creates an instance that talks to the session bus.
+   */
+  FreedesktopFileManager()
+  {
+    this(null);
+  }
+
+  /**
+   * Creates an instance that talks to the bus with the given address.
+   *
+   * @param busAddress the address of the bus, {@code null} for the session bus
+   */
+  FreedesktopFileManager(String busAddress)
+  {
+    this.busAddress = busAddress;
+  }
+
+  /**
+   * @return {@code false} if a previous call has shown that there is no file
+   *         manager implementing the interface, {@code true} otherwise
+   */
+  boolean isAvailable()
+  {
+    return this.available;
+  }
+
+  /**
+   * Marks the interface as available again, the next call finds out if a file
+   * manager implements it by now.
+   */
+  void reprobe()
+  {
+    this.available = true;
+  }
+
+  /**
+   * Shows the given files and directories in the file manager. Files are
+   * selected in their parent directory (ShowItems), directories are opened
+   * (ShowFolders). At most two D-Bus calls are made, regardless of the number
+   * of paths.
+   *
+   * @param targets the files and directories to show
+   * @return the targets that could not be shown, empty if all went well
+   */
+  List<File> show(List<File> targets)
+  {
+    List<File> items = new ArrayList<File>();
+    List<File> folders = new ArrayList<File>();
+    for (File target : targets)
+    {
+      if (target.isFile())
+      {
+        items.add(target);
+      }
+      else
+      {
+        folders.add(target);
+      }
+    }
+    List<File> notShown = new ArrayList<File>();
+    if (!items.isEmpty() && !this.call(METHOD_SHOW_ITEMS, items))
+    {
+      notShown.addAll(items);
+    }
+    if (!folders.isEmpty() && !this.call(METHOD_SHOW_FOLDERS, folders))
+    {
+      notShown.addAll(folders);
+    }
+    return notShown;
+  }
+
+  private boolean call(String method, List<File> files)
+  {
+    if (!this.available)
+    {
+      return false;
+    }
+    String[] command = this.getCommand(method, files);
+    try
+    {
+      CallResult result = this.run(command);
+      if (result.exitCode == 0)
+      {
+        getLogFacility().logDebug(
+            "Called " + method + " via D-Bus for " + files.size()
+                + " path(s).");
+        return true;
+      }
+      getLogFacility().logDebug(
+          "D-Bus call " + method + " failed: " + result.errorOutput);
+      if (result.errorOutput.contains("ServiceUnknown")
+          || result.errorOutput.contains("NameHasNoOwner")
+          || result.errorOutput.contains("UnknownMethod"))
+      {
+        this.markUnavailable("No file manager provides " + BUS_NAME + ".");
+      }
+      return false;
+    }
+    catch (IOException e)
+    {
+      this.markUnavailable("dbus-send could not be executed: "
+          + e.getMessage());
+      return false;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private void markUnavailable(String reason)
+  {
+    this.available = false;
+    getLogFacility().logDebug(
+        reason + " Starting the file manager directly from now on.");
+  }
+
+  /**
+   * Creates the dbus-send call for the given method.
+   *
+   * @param method the fully qualified method name
+   * @param files the files to pass to the method
+   * @return the command
+   */
+  String[] getCommand(String method, List<File> files)
+  {
+    List<String> command = new ArrayList<String>();
+    command.add("dbus-send");
+    command.add(this.busAddress != null ? "--bus=" + this.busAddress
+        : "--session");
+    command.add("--print-reply");
+    command.add("--reply-timeout=" + REPLY_TIMEOUT_MILLIS);
+    command.add("--dest=" + BUS_NAME);
+    command.add("--type=method_call");
+    command.add(OBJECT_PATH);
+    command.add(method);
+    StringBuilder uris = new StringBuilder("array:string:");
+    for (int i = 0; i < files.size(); i++)
+    {
+      if (i > 0)
+      {
+        uris.append(',');
+      }
+      uris.append(toUri(files.get(i)));
+    }
+    command.add(uris.toString());
+    // startup id
+    command.add("string:");
+    return command.toArray(new String[command.size()]);
+  }
+
+  /**
+   * Converts a file into a file URI as expected by the file managers. Commas
+   * are escaped, because dbus-send uses them to separate array elements.
+   *
+   * @param file the file
+   * @return the URI
+   */
+  static String toUri(File file)
+  {
+    String uri = file.getAbsoluteFile().toURI().toASCIIString();
+    // File#toURI yields file:/path, the file managers want file:///path
+    if (uri.startsWith("file:/") && !uri.startsWith("file://"))
+    {
+      uri = "file://" + uri.substring("file:".length());
+    }
+    // the trailing slash File#toURI appends to directories is not needed
+    if (uri.length() > "file:///".length() && uri.endsWith("/"))
+    {
+      uri = uri.substring(0, uri.length() - 1);
+    }
+    return uri.replace(",", "%2C");
+  }
+
+  /**
+   * Executes the given command and waits for it to terminate. This is called
+   * from a background job, never from the UI thread.
+   *
+   * @param command the command
+   * @return the exit code and the error output of the command
+   * @throws IOException if the command could not be executed
+   * @throws InterruptedException if interrupted while waiting
+   */
+  CallResult run(String[] command) throws IOException, InterruptedException
+  {
+    Process process = Runtime.getRuntime().exec(command);
+    process.getOutputStream().close();
+    // dbus-send writes only a few lines, so reading one stream after the other
+    // can not block
+    readFully(process.getInputStream());
+    String errorOutput = readFully(process.getErrorStream());
+    return new CallResult(process.waitFor(), errorOutput);
+  }
+
+  private static String readFully(InputStream stream) throws IOException
+  {
+    try
+    {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[1024];
+      int read;
+      while ((read = stream.read(buffer)) != -1)
+      {
+        bytes.write(buffer, 0, read);
+      }
+      return bytes.toString();
+    }
+    finally
+    {
+      stream.close();
+    }
+  }
+
+  /**
+   * The outcome of a dbus-send call.
+   */
+  static class CallResult
+  {
+    final int exitCode;
+    final String errorOutput;
+
+    CallResult(int exitCode, String errorOutput)
+    {
+      this.exitCode = exitCode;
+      this.errorOutput = errorOutput;
+    }
+  }
+}
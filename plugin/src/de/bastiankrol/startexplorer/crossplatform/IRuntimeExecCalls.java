@@ -4,6 +4,11 @@ import java.io.File;
 import java.net.URL;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import de.bastiankrol.startexplorer.launch.ProcessOutputListener;
+import de.bastiankrol.startexplorer.variables.CommandBatch;
+
 /**
  * Provides preconfigured calls to {@link java.lang.Runtime#exec(String)}.
  * Offers the following services:
@@ -24,7 +29,9 @@ public interface IRuntimeExecCalls
 
   /**
    * Starts the file manager (windows explorer or linux equivalent, like
-   * Nautilus or Konqueror) for the paths in the list.
+   * Nautilus or Konqueror) for the paths in the list. The files are grouped
+   * into as few file manager calls as possible, which accesses the file system,
+   * so this must not be called from the UI thread.
    * 
    * @param fileList the list of File objects to start a file manager for.
    * @param selectFile if {@code true} then for all objects from
@@ -107,6 +114,45 @@ public interface IRuntimeExecCalls
    */
   void startCustomCommandForFile(String[] customCommand, File file);
 
+  /**
+   * Starts a custom command, defined by user preferences, for the given file
+   * and passes the output of the process on to the given listener.
+   * 
+   * @param customCommand the custom command to execute
+   * @param file the File
+   * @param outputListener receives the output of the process
+   */
+  void startCustomCommandForFile(String[] customCommand, File file,
+      ProcessOutputListener outputListener);
+
+  /**
+   * Prepares a custom command for being started for many files. The platform
+   * specific settings and everything else that does not depend on the file
+   * are evaluated only once.
+   * 
+   * @param customCommand the custom command to execute
+   * @return the prepared command, to be passed to
+   *         {@link #startCustomCommandForFile(CommandBatch, File, ProcessOutputListener, IProgressMonitor)};
+   *         {@code null} if custom commands can not be started at all (the
+   *         user has been informed in that case)
+   */
+  CommandBatch prepareCustomCommand(String[] customCommand);
+
+  /**
+   * Starts a custom command that has been prepared by
+   * {@link #prepareCustomCommand(String[])} for the given file.
+   * 
+   * @param customCommand the prepared custom command
+   * @param file the File
+   * @param outputListener receives the output of the process, might be
+   *          {@code null}
+   * @param monitor the progress monitor of the launch job, resolving the
+   *          Eclipse variables can be cancelled through it; might be
+   *          {@code null}
+   */
+  void startCustomCommandForFile(CommandBatch customCommand, File file,
+      ProcessOutputListener outputListener, IProgressMonitor monitor);
+
   /**
    * Either returns an array with lenght one, containing the command or splits
    * the command into separate strings like Runtime.exec(String) does.
@@ -2,6 +2,8 @@ package de.bastiankrol.startexplorer.crossplatform;
 
 import java.io.File;
 
+import de.bastiankrol.startexplorer.launch.ProcessOutputListener;
+
 /**
  * A wrapper for the call to {@link Runtime#exec(String)}.
  */
@@ -19,4 +21,17 @@ public interface IRuntimeExecDelegate
    */
   public void exec(String[] cmdArray, File workingDirectory, boolean isWindows);
 
+  /**
+   * Executes the command given by <code>cmdArray</code> via
+   * Runtime.exec(String) and passes its output on to the given listener.
+   * 
+   * @param cmdArray the shell command to execute and its arguments
+   * @param workingDirectory the working directory for the command, can be null
+   * @param isWindows are we running on a Windows right now? (special handling
+   *          required)
+   * @param outputListener receives the output of the process, can be null
+   */
+  public void exec(String[] cmdArray, File workingDirectory,
+      boolean isWindows, ProcessOutputListener outputListener);
+
 }
@@ -0,0 +1,65 @@
+package de.bastiankrol.startexplorer.crossplatform;
+
+import static de.bastiankrol.startexplorer.Activator.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import de.bastiankrol.startexplorer.launch.LaunchHelper;
+import de.bastiankrol.startexplorer.launch.ProcessOutputListener;
+
+/**
+ * A {@link RuntimeExecDelegate} that lets the {@link LaunchHelper} start the
+ * processes instead of forking the Eclipse JVM. Commands whose output is
+ * streamed into a console, commands on Windows and commands that can not be
+ * passed to the helper are still started directly, as is everything after the
+ * helper has died.
+ *
+ * @author Bastian Krol
+ */
+class LaunchHelperRuntimeExecDelegate extends RuntimeExecDelegate
+{
+  private final LaunchHelper launchHelper;
+
+  /**
+   * Creates an instance.
+   *
+   * @param launchHelper the helper which starts the processes
+   */
+  LaunchHelperRuntimeExecDelegate(LaunchHelper launchHelper)
+  {
+    super();
+    this.launchHelper = launchHelper;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see de.bastiankrol.startexplorer.crossplatform.RuntimeExecDelegate#exec(java.lang.String[],
+   *      java.io.File, boolean,
+   *      de.bastiankrol.startexplorer.launch.ProcessOutputListener)
+   */
+  @Override
+  public void exec(String[] cmdArray, File workingDirectory,
+      boolean isWindows, ProcessOutputListener outputListener)
+  {
+    if (!isWindows && outputListener == null)
+    {
+      try
+      {
+        if (this.launchHelper.launch(cmdArray, workingDirectory, null))
+        {
+          getLogFacility().logDebug(
+              "Launch helper started command <" + cmdArray[0] + ">.");
+          return;
+        }
+      }
+      catch (IOException e)
+      {
+        this.displayExecError(e);
+        return;
+      }
+    }
+    super.exec(cmdArray, workingDirectory, isWindows, outputListener);
+  }
+}
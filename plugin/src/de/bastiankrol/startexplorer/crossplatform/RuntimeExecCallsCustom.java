@@ -4,6 +4,10 @@ import static de.bastiankrol.startexplorer.Activator.getLogFacility;
 
 import java.io.File;
 import java.net.URL;
+import java.util.List;
+
+import de.bastiankrol.startexplorer.util.Util;
+import de.bastiankrol.startexplorer.variables.VariableManager;
 
 /**
  * Custom/configurable runtime exec calls.
@@ -56,6 +60,63 @@ class RuntimeExecCallsCustom extends AbstractRuntimeExecCalls
     return cmdArray;
   }
 
+  /**
+   * Opens several directories with one invocation of the custom file manager
+   * command. The command for the first directory is created from the
+   * configured command as usual, the paths of the remaining directories are
+   * appended as additional arguments.
+   * 
+   * @see #acceptsMultiplePaths()
+   */
+  @Override
+  String[] getCommandForStartFileManager(List<File> directories)
+  {
+    String[] cmdArray = this.getCommandForStartFileManager(directories.get(0),
+        false);
+    String[] result = new String[cmdArray.length + directories.size() - 1];
+    System.arraycopy(cmdArray, 0, result, 0, cmdArray.length);
+    for (int i = 1; i < directories.size(); i++)
+    {
+      result[cmdArray.length + i - 1] = Util.getPath(directories.get(i),
+          this.container.doFilePartsWantWrapping(),
+          this.container.doFilePartsWantEscaping());
+    }
+    return result;
+  }
+
+  /**
+   * The custom file manager command accepts several paths if it is not a
+   * Windows command and ${resource_path} is its last argument and the only
+   * variable in it. Appending further paths to such a command is what the
+   * user would expect; for all other commands, we can't tell.
+   * 
+   * @return {@code true} if and only if additional paths can be appended to
+   *         the file manager command
+   */
+  boolean acceptsMultiplePaths()
+  {
+    String command = this.container.getCommandForStartFileManager();
+    if (command == null || this.isWindows())
+    {
+      return false;
+    }
+    String[] cmdArray = convertCommandStringToArray(command);
+    if (cmdArray.length < 2
+        || !VariableManager.RESOURCE_PATH_VAR
+            .equals(cmdArray[cmdArray.length - 1]))
+    {
+      return false;
+    }
+    for (int i = 0; i < cmdArray.length - 1; i++)
+    {
+      if (cmdArray[i].contains(VariableManager.VAR_BEGIN))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
   @Override
   String[] getCommandForStartFileManager(URL url)
   {
@@ -142,7 +203,10 @@ class RuntimeExecCallsCustom extends AbstractRuntimeExecCalls
     return Capabilities
         .create()
         .withFileSelectionSupport(
-            this.container.isFileSelectionSupportedByFileManager()).build();
+            this.container.isFileSelectionSupportedByFileManager())
+        .withMaxPathsPerFileManagerCall(
+            this.acceptsMultiplePaths() ? Capabilities.DEFAULT_MAX_PATHS_PER_FILE_MANAGER_CALL
+                : 1).build();
   }
 
   @Override
@@ -1,5 +1,12 @@
 package de.bastiankrol.startexplorer.crossplatform;
 
+import static de.bastiankrol.startexplorer.Activator.getLogFacility;
+
+import java.util.Collections;
+import java.util.List;
+
+import de.bastiankrol.startexplorer.launch.LaunchHelper;
+
 public class RuntimeExecCallsFactory
 {
   public static RuntimeExecCallsWindows windows()
@@ -62,4 +69,101 @@ public class RuntimeExecCallsFactory
   {
     return new RuntimeExecCallsUnsupported();
   }
+
+  /**
+   * Replaces the runtime exec calls for an auto-detected Linux desktop
+   * environment by a configuration synthesized from the installed programs
+   * (see {@link CapabilityProber}), if the desktop environment is unknown or
+   * if some of the programs the runtime exec calls rely on are missing.
+   * 
+   * @param desktopEnvironment the auto-detected desktop environment
+   * @param runtimeExecCalls the runtime exec calls for the desktop environment
+   * @return the given runtime exec calls or the synthesized ones
+   */
+  public static IRuntimeExecCalls withInstalledPrograms(
+      DesktopEnvironment desktopEnvironment, IRuntimeExecCalls runtimeExecCalls)
+  {
+    if (desktopEnvironment.getOperatingSystem() != OperatingSystem.LINUX)
+    {
+      return runtimeExecCalls;
+    }
+    List<String> missing = Collections.emptyList();
+    if (runtimeExecCalls instanceof AbstractRuntimeExecCalls)
+    {
+      missing = ((AbstractRuntimeExecCalls) runtimeExecCalls)
+          .getMissingExecutables();
+    }
+    if (desktopEnvironment != DesktopEnvironment.LINUX_UNKNOWN
+        && missing.isEmpty())
+    {
+      return runtimeExecCalls;
+    }
+    CustomDesktopEnvironmentContainer container = CapabilityProber
+        .getDefault().probe(System.getenv("XDG_CURRENT_DESKTOP"));
+    if (container == null)
+    {
+      return runtimeExecCalls;
+    }
+    getLogFacility().logInfo(
+        "Using the installed programs ("
+            + container.getCommandForStartFileManager() + ", "
+            + container.getCommandForStartShell() + ", "
+            + container.getCommandForStartSystemApplication()
+            + ") instead of the defaults for " + desktopEnvironment
+            + ", missing programs: " + missing + ".");
+    return custom(container);
+  }
+
+  /**
+   * Lets the given runtime exec calls start their processes via the given
+   * launch helper, as long as the helper is alive. Has no effect for
+   * implementations that do not start processes at all.
+   * 
+   * @param runtimeExecCalls the runtime exec calls
+   * @param launchHelper the launch helper
+   */
+  public static void useLaunchHelper(IRuntimeExecCalls runtimeExecCalls,
+      LaunchHelper launchHelper)
+  {
+    if (runtimeExecCalls instanceof AbstractRuntimeExecCalls)
+    {
+      ((AbstractRuntimeExecCalls) runtimeExecCalls)
+          .setRuntimeExecDelegate(new LaunchHelperRuntimeExecDelegate(
+              launchHelper));
+    }
+  }
+
+  /**
+   * Checks whether the file manager of the given runtime exec calls is
+   * reachable via the freedesktop.org file manager D-Bus interface. This is
+   * {@code false} if the desktop environment does not support the interface or
+   * if a previous call has shown that no file manager implements it.
+   * 
+   * @param runtimeExecCalls the runtime exec calls
+   * @return {@code true} if and only if the file manager is reachable via
+   *         D-Bus
+   */
+  public static boolean isFileManagerReachableViaDBus(
+      IRuntimeExecCalls runtimeExecCalls)
+  {
+    return runtimeExecCalls instanceof AbstractRuntimeExecCalls
+        && ((AbstractRuntimeExecCalls) runtimeExecCalls)
+            .isFreedesktopFileManagerUsable();
+  }
+
+  /**
+   * Makes the given runtime exec calls try the freedesktop.org file manager
+   * D-Bus interface again, even if it has not been reachable before.
+   * 
+   * @param runtimeExecCalls the runtime exec calls
+   */
+  static void reprobeFileManagerDBusInterface(
+      IRuntimeExecCalls runtimeExecCalls)
+  {
+    if (runtimeExecCalls instanceof AbstractRuntimeExecCalls)
+    {
+      ((AbstractRuntimeExecCalls) runtimeExecCalls)
+          .reprobeFreedesktopFileManager();
+    }
+  }
 }
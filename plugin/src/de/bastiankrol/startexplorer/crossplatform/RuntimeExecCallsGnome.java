@@ -1,6 +1,7 @@
 package de.bastiankrol.startexplorer.crossplatform;
 
 import java.io.File;
+import java.util.List;
 
 /**
  * Runtime exec calls for Gnome.
@@ -9,6 +10,12 @@ import java.io.File;
  */
 class RuntimeExecCallsGnome extends AbstractRuntimeExecCallsLinux
 {
+  private final Capabilities gnomeCapabilities = Capabilities.create()
+      .withMaxPathsPerFileManagerCall(
+          Capabilities.DEFAULT_MAX_PATHS_PER_FILE_MANAGER_CALL)
+      .withFileManagerDBusInterface()
+      .withExecutables("nautilus", "gnome-terminal", "xdg-open").build();
+
   /**
    * Creates a new instance and initializes the {@link RuntimeExecDelegate}.
    */
@@ -33,6 +40,12 @@ class RuntimeExecCallsGnome extends AbstractRuntimeExecCallsLinux
     return new String[] { "nautilus", getPath(file) };
   }
 
+  @Override
+  String[] getCommandForStartFileManager(List<File> directories)
+  {
+    return this.appendPaths(new String[] { "nautilus" }, directories);
+  }
+
   @Override
   File getWorkingDirectoryForStartFileManager(File file)
   {
@@ -54,7 +67,9 @@ class RuntimeExecCallsGnome extends AbstractRuntimeExecCallsLinux
   @Override
   String[] getCommandForStartSystemApplication(File file)
   {
-    return new String[] { "gnome-open", getPath(file) };
+    // gnome-open is not installed on current Gnome versions anymore, xdg-open
+    // delegates to gio there
+    return new String[] { "xdg-open", getPath(file) };
   }
 
   @Override
@@ -68,4 +83,10 @@ class RuntimeExecCallsGnome extends AbstractRuntimeExecCallsLinux
   {
     return null;
   }
+
+  @Override
+  public Capabilities getCapabilities()
+  {
+    return gnomeCapabilities;
+  }
 }
@@ -1,6 +1,7 @@
 package de.bastiankrol.startexplorer.crossplatform;
 
 import java.io.File;
+import java.util.List;
 
 /**
  * Runtime exec calls for KDE.
@@ -9,6 +10,12 @@ import java.io.File;
  */
 class RuntimeExecCallsKde extends AbstractRuntimeExecCallsLinux
 {
+  private final Capabilities kdeCapabilities = Capabilities.create()
+      .withMaxPathsPerFileManagerCall(
+          Capabilities.DEFAULT_MAX_PATHS_PER_FILE_MANAGER_CALL)
+      .withFileManagerDBusInterface()
+      .withExecutables("konqueror", "konsole", "kde-open").build();
+
   /**
    * Creates a new instance and initializes the {@link RuntimeExecDelegate}.
    */
@@ -33,6 +40,12 @@ class RuntimeExecCallsKde extends AbstractRuntimeExecCallsLinux
     return new String[] { "konqueror", getPath(file) };
   }
 
+  @Override
+  String[] getCommandForStartFileManager(List<File> directories)
+  {
+    return this.appendPaths(new String[] { "konqueror" }, directories);
+  }
+
   @Override
   File getWorkingDirectoryForStartFileManager(File file)
   {
@@ -68,4 +81,10 @@ class RuntimeExecCallsKde extends AbstractRuntimeExecCallsLinux
   {
     return null;
   }
+
+  @Override
+  public Capabilities getCapabilities()
+  {
+    return kdeCapabilities;
+  }
 }
@@ -9,6 +9,9 @@ import java.io.File;
  */
 class RuntimeExecCallsLxde extends AbstractRuntimeExecCallsLinux
 {
+  private final Capabilities lxdeCapabilities = Capabilities.create()
+      .withExecutables("pcmanfm", "lxterminal", "xdg-open").build();
+
   /**
    * Creates a new instance and initializes the {@link RuntimeExecDelegate}.
    */
@@ -71,4 +74,10 @@ class RuntimeExecCallsLxde extends AbstractRuntimeExecCallsLinux
   {
     return null;
   }
+
+  @Override
+  public Capabilities getCapabilities()
+  {
+    return lxdeCapabilities;
+  }
 }
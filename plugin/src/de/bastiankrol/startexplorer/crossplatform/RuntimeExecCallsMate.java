@@ -9,6 +9,10 @@ import java.io.File;
  */
 class RuntimeExecCallsMate extends AbstractRuntimeExecCallsLinux
 {
+  private final Capabilities mateCapabilities = Capabilities.create()
+      .withFileManagerDBusInterface()
+      .withExecutables("caja", "mate-terminal").build();
+
   /**
    * Creates a new instance and initializes the {@link RuntimeExecDelegate}.
    */
@@ -74,4 +78,10 @@ class RuntimeExecCallsMate extends AbstractRuntimeExecCallsLinux
   {
     return true;
   }
+
+  @Override
+  public Capabilities getCapabilities()
+  {
+    return mateCapabilities;
+  }
 }
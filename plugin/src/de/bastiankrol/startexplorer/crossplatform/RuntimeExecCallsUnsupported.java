@@ -4,7 +4,11 @@ import java.io.File;
 import java.net.URL;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import de.bastiankrol.startexplorer.launch.ProcessOutputListener;
 import de.bastiankrol.startexplorer.util.MessageDialogHelper;
+import de.bastiankrol.startexplorer.variables.CommandBatch;
 
 /**
  * {@link IRuntimeExecCalls} implementation that just shows annoying popups
@@ -91,6 +95,28 @@ class RuntimeExecCallsUnsupported implements IRuntimeExecCalls
     this.annoyUser();
   }
 
+  @Override
+  public void startCustomCommandForFile(String[] cmdArray, File file,
+      ProcessOutputListener outputListener)
+  {
+    this.annoyUser();
+  }
+
+  @Override
+  public CommandBatch prepareCustomCommand(String[] cmdArray)
+  {
+    // nothing can be prepared, the handler stops after this one dialog
+    this.annoyUser();
+    return null;
+  }
+
+  @Override
+  public void startCustomCommandForFile(CommandBatch cmdArray, File file,
+      ProcessOutputListener outputListener, IProgressMonitor monitor)
+  {
+    this.annoyUser();
+  }
+
   @Override
   public String[] convertCommandStringToArray(String command)
   {
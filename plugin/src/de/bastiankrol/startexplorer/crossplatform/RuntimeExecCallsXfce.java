@@ -1,6 +1,7 @@
 package de.bastiankrol.startexplorer.crossplatform;
 
 import java.io.File;
+import java.util.List;
 
 /**
  * Runtime exec calls for Xfce.
@@ -9,6 +10,12 @@ import java.io.File;
  */
 class RuntimeExecCallsXfce extends AbstractRuntimeExecCallsLinux
 {
+  private final Capabilities xfceCapabilities = Capabilities.create()
+      .withMaxPathsPerFileManagerCall(
+          Capabilities.DEFAULT_MAX_PATHS_PER_FILE_MANAGER_CALL)
+      .withFileManagerDBusInterface()
+      .withExecutables("thunar", "exo-open").build();
+
   /**
    * Creates a new instance and initializes the {@link RuntimeExecDelegate}.
    */
@@ -33,6 +40,12 @@ class RuntimeExecCallsXfce extends AbstractRuntimeExecCallsLinux
     return new String[] { "thunar", getPath(file) };
   }
 
+  @Override
+  String[] getCommandForStartFileManager(List<File> directories)
+  {
+    return this.appendPaths(new String[] { "thunar" }, directories);
+  }
+
   @Override
   File getWorkingDirectoryForStartFileManager(File file)
   {
@@ -69,4 +82,10 @@ class RuntimeExecCallsXfce extends AbstractRuntimeExecCallsLinux
   {
     return null;
   }
+
+  @Override
+  public Capabilities getCapabilities()
+  {
+    return xfceCapabilities;
+  }
 }
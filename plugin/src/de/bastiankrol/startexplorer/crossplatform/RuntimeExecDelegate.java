@@ -5,10 +5,13 @@ import static de.bastiankrol.startexplorer.Activator.*;
 import java.io.File;
 import java.io.IOException;
 
+import de.bastiankrol.startexplorer.launch.ProcessOutputListener;
+import de.bastiankrol.startexplorer.launch.ProcessSupervisor;
 import de.bastiankrol.startexplorer.util.MessageDialogHelper;
 
 /**
- * A wrapper for the call to {@link Runtime#exec(String)}.
+ * A wrapper for the call to {@link Runtime#exec(String)}. The started processes
+ * are handed over to the {@link ProcessSupervisor}.
  */
 class RuntimeExecDelegate implements IRuntimeExecDelegate
 {
@@ -43,6 +46,11 @@ class RuntimeExecDelegate implements IRuntimeExecDelegate
     return RUNTIME;
   }
 
+  ProcessSupervisor getProcessSupervisor()
+  {
+    return getPluginContext().getProcessSupervisor();
+  }
+
   /**
    * {@inheritDoc}
    * 
@@ -50,35 +58,61 @@ class RuntimeExecDelegate implements IRuntimeExecDelegate
    *      java.io.File, boolean)
    */
   public void exec(String[] cmdArray, File workingDirectory, boolean isWindows)
+  {
+    this.exec(cmdArray, workingDirectory, isWindows, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * @see de.bastiankrol.startexplorer.crossplatform.IRuntimeExecDelegate#exec(java.lang.String[],
+   *      java.io.File, boolean,
+   *      de.bastiankrol.startexplorer.launch.ProcessOutputListener)
+   */
+  public void exec(String[] cmdArray, File workingDirectory,
+      boolean isWindows, ProcessOutputListener outputListener)
   {
     logCommand(cmdArray, workingDirectory);
     try
     {
+      Process process;
       if (!isWindows)
       {
-        this.getRuntime().exec(cmdArray, null, workingDirectory);
+        process = this.getRuntime().exec(cmdArray, null, workingDirectory);
       }
       else
       {
         // Use the non-array version for windows. Contrary to intuition, this is
         // safer when it comes to paths with spaces.
-        this.getRuntime().exec(cmdArray[0], null, workingDirectory);
+        process = this.getRuntime().exec(cmdArray[0], null, workingDirectory);
       }
+      this.getProcessSupervisor().supervise(cmdArray, workingDirectory,
+          process, outputListener);
     }
     catch (IOException e)
     {
-      StringBuilder builder = new StringBuilder();
-      builder.append("The command could not be executed.");
+      this.displayExecError(e);
+    }
+  }
+
+  /**
+   * Tells the user that a command could not be started.
+   * 
+   * @param e the exception that occured when starting the command
+   */
+  void displayExecError(IOException e)
+  {
+    StringBuilder builder = new StringBuilder();
+    builder.append("The command could not be executed.");
+    builder.append("\n");
+    if (e.getMessage() != null)
+    {
+      builder.append(" Message: ");
+      builder.append(e.getMessage());
       builder.append("\n");
-      if (e.getMessage() != null)
-      {
-        builder.append(" Message: ");
-        builder.append(e.getMessage());
-        builder.append("\n");
-      }
-      this.messageDialogHelper.displayErrorMessage(
-          "Command could not be executed", builder.toString());
     }
+    this.messageDialogHelper.displayErrorMessage(
+        "Command could not be executed", builder.toString());
   }
 
   private void logCommand(String[] cmdArray, File workingDirectory)
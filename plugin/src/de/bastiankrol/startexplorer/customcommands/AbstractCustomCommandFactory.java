@@ -3,7 +3,12 @@ package de.bastiankrol.startexplorer.customcommands;
 import static de.bastiankrol.startexplorer.Activator.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.commands.AbstractHandler;
 import org.eclipse.core.commands.Category;
@@ -24,6 +29,17 @@ import org.eclipse.ui.services.IServiceLocator;
 import de.bastiankrol.startexplorer.preferences.PreferenceModel;
 import de.bastiankrol.startexplorer.util.Util;
 
+/**
+ * Creates the menu entries for the custom commands. The Eclipse commands and
+ * handlers for the custom commands are kept in a registry that lives as long
+ * as the plug-in; when a menu is opened, only the commands that have been
+ * added, removed or disabled since the last time are defined, undefined or
+ * deactivated. Commands are identified by their {@link CommandConfig} object,
+ * the handlers read the command config when they are executed, so changes to
+ * a command config do not require a new command or handler.
+ * 
+ * @author Bastian Krol
+ */
 abstract class AbstractCustomCommandFactory
 {
   private static final String CUSTOM_COMMAND_CATEGORY = "de.bastiankrol.startexplorer.customCommandCategory";
@@ -36,6 +52,13 @@ abstract class AbstractCustomCommandFactory
   private List<CommandConfig> commandConfigList;
   private boolean customCommandsFromSharedFileHaveBeenAdded;
 
+  /**
+   * The command configs for which a command has been defined and a handler
+   * has been activated, with the parameter for their menu entry, by identity.
+   * Only accessed from the UI thread.
+   */
+  private final Map<CommandConfig, CommandContributionItemParameter> registry = new IdentityHashMap<CommandConfig, CommandContributionItemParameter>();
+
   private Command dummyCommandComeBackLater;
 
   private static synchronized int getNextCustomCommandIdNumber()
@@ -46,9 +69,6 @@ abstract class AbstractCustomCommandFactory
   IContributionItem[] getContributionItems()
   {
     getLogFacility().logDebug("getContributionItems() start");
-    this.doCleanup();
-    getLogFacility().logDebug("getContributionItems() cleanup done");
-
     getLogFacility().logDebug("fetching command configs from preferences");
     this.commandConfigList = getPreferenceModel().getCommandConfigList();
     this.customCommandsFromSharedFileHaveBeenAdded = getPreferenceModel()
@@ -56,45 +76,93 @@ abstract class AbstractCustomCommandFactory
     getLogFacility().logDebug(
         "fetched " + commandConfigList.size() + " configs.");
 
+    this.updateRegistry();
     IContributionItem[] contributionItems = this.createContributionItems();
     getLogFacility().logDebug("getContributionItems() done");
     return contributionItems;
   }
 
+  /**
+   * Brings the registry in line with the current command configs: commands
+   * that have been removed or disabled are undefined and their handlers are
+   * deactivated, commands for new command configs are defined and get a
+   * handler. Everything else is kept.
+   */
+  private void updateRegistry()
+  {
+    Set<CommandConfig> enabled = Collections
+        .newSetFromMap(new IdentityHashMap<CommandConfig, Boolean>());
+    for (CommandConfig commandConfig : this.commandConfigList)
+    {
+      if (this.isEnabled(commandConfig))
+      {
+        enabled.add(commandConfig);
+      }
+    }
+    int removed = 0;
+    for (Iterator<CommandConfig> iterator = this.registry.keySet().iterator(); iterator
+        .hasNext();)
+    {
+      CommandConfig commandConfig = iterator.next();
+      if (!enabled.contains(commandConfig))
+      {
+        this.unregister(commandConfig, false);
+        iterator.remove();
+        removed++;
+      }
+    }
+    int added = 0;
+    for (CommandConfig commandConfig : this.commandConfigList)
+    {
+      if (enabled.contains(commandConfig)
+          && !this.registry.containsKey(commandConfig))
+      {
+        this.registry.put(commandConfig, this.register(commandConfig));
+        added++;
+      }
+    }
+    getLogFacility().logDebug(
+        "updated command registry: " + added + " added, " + removed
+            + " removed, " + this.registry.size() + " registered.");
+  }
+
+  private CommandContributionItemParameter register(CommandConfig commandConfig)
+  {
+    // Retrieve the cached command from the command config.
+    // If it has not been initialized before, it will be created on demand and
+    // stored in the command config.
+    Command command = this.getCommandFromCommandConfig(commandConfig);
+    getLogFacility().logDebug(
+        "got command for " + commandConfig.getCommand() + ": " + command);
+    return new CommandContributionItemParameter( //
+        this.getServiceLocator(), // IServiceLocator serviceLocator,
+        command.getId(), // String id,
+        command.getId(), // String commandId,
+        CommandContributionItem.STYLE_PUSH // int style)
+    );
+  }
+
   private IContributionItem[] createContributionItems()
   {
     getLogFacility().logDebug("createContributionItems() start");
 
+    // The contribution items themselves can not be reused, the menu disposes
+    // the items of the previous call before it asks for new ones.
     List<IContributionItem> contributionItemList = new ArrayList<IContributionItem>();
     for (CommandConfig commandConfig : this.commandConfigList)
     {
-      getLogFacility().logDebug(
-          "creating contribution item for " + commandConfig);
-      if (!isEnabled(commandConfig))
+      CommandContributionItemParameter commandContributionItemParameter = this.registry
+          .get(commandConfig);
+      if (commandContributionItemParameter == null)
       {
-        getLogFacility().logDebug("not enabled");
+        // not enabled
         continue;
       }
-
-      // Retrieve the cached command from the command config.
-      // If it has not been initialized before, it will be created on demand and
-      // stored in the command config.
-      Command command = this.getCommandFromCommandConfig(commandConfig);
-      getLogFacility().logDebug(
-          "got command for " + commandConfig.getCommand() + ": " + command);
-      getLogFacility().logDebug("command.isDefined(): " + command.isDefined());
-
-      CommandContributionItemParameter commandContributionItemParameter = new CommandContributionItemParameter( //
-          this.getServiceLocator(), // IServiceLocator serviceLocator,
-          command.getId(), // String id,
-          command.getId(), // String commandId,
-          CommandContributionItem.STYLE_PUSH // int style)
-      );
+      // the name might have been edited since the command has been registered
       commandContributionItemParameter.label = this
           .getNameFromCommandConfig(commandConfig);
       contributionItemList.add(this
           .createContributionItem(commandContributionItemParameter));
-      getLogFacility().logDebug("contribution item added to list");
     }
     this.addComeBackLaterDummyCommand(contributionItemList);
 
@@ -116,6 +184,8 @@ abstract class AbstractCustomCommandFactory
       CommandContributionItemParameter commandContributionItemParameter = new CommandContributionItemParameter(
           this.getServiceLocator(), COMMAND_ID_DUMMY_COME_BACK_LATER,
           COMMAND_ID_DUMMY_COME_BACK_LATER, CommandContributionItem.STYLE_PUSH);
+      commandContributionItemParameter.label = getPluginContext()
+          .getSharedFileFinder().getTitleSharedFilesLater();
       contributionItemList.add(this
           .createContributionItem(commandContributionItemParameter));
     }
@@ -159,6 +229,22 @@ abstract class AbstractCustomCommandFactory
    */
   abstract Command getCommandFromCommandConfig(CommandConfig commandConfig);
 
+  /**
+   * Returns the command from the command config without creating it.
+   * 
+   * @param commandConfig the command config to ask for the command object
+   * @return the command object or {@code null} if it has not been created
+   */
+  abstract Command getCommandFromCommandConfigNoInit(
+      CommandConfig commandConfig);
+
+  /**
+   * Discards the reference to the command in the command config.
+   * 
+   * @param commandConfig the command config
+   */
+  abstract void deleteCommandInCommandConfig(CommandConfig commandConfig);
+
   /**
    * Returns the proper name from the command config.
    * 
@@ -283,31 +369,29 @@ abstract class AbstractCustomCommandFactory
   private void doCleanup(boolean atPluginStop)
   {
     getLogFacility().logDebug("doCleanup(" + atPluginStop + ") start");
-    if (this.commandConfigList != null)
+    for (CommandConfig commandConfig : this.registry.keySet())
     {
-      for (CommandConfig commandConfig : this.commandConfigList)
-      {
-        Command eclipseCommandForResourceViewNoInit = commandConfig
-            .getEclipseCommandForResourceViewNoInit();
-        this.disposeCommand(eclipseCommandForResourceViewNoInit, atPluginStop);
-        commandConfig.deleteEclipseCommandForResourceView();
-        deactivateHandler(commandConfig.getHandlerActivationForResourceView(),
-            commandConfig.getNameForResourcesMenu());
-        commandConfig.setHandlerActivationForResourceView(null);
-
-        Command eclipseCommandForEditorNoInit = commandConfig
-            .getEclipseCommandForEditorNoInit();
-        this.disposeCommand(eclipseCommandForEditorNoInit, atPluginStop);
-        commandConfig.deleteEclipseCommandForEditor();
-        deactivateHandler(commandConfig.getHandlerActivationForEditor(),
-            commandConfig.getNameForTextSelectionMenu());
-        commandConfig.setHandlerActivationForEditor(null);
-      }
-      this.commandConfigList = null;
+      this.unregister(commandConfig, atPluginStop);
     }
+    this.registry.clear();
+    this.commandConfigList = null;
     getLogFacility().logDebug("doCleanup(" + atPluginStop + ") done");
   }
 
+  /**
+   * Undefines the command of the command config and deactivates its handler.
+   */
+  private void unregister(CommandConfig commandConfig, boolean atPluginStop)
+  {
+    this.disposeCommand(this.getCommandFromCommandConfigNoInit(commandConfig),
+        atPluginStop);
+    this.deleteCommandInCommandConfig(commandConfig);
+    this.deactivateHandler(
+        this.getHandlerActivationFromCommandConfig(commandConfig),
+        this.getNameFromCommandConfig(commandConfig));
+    this.setHandlerActivationInCommandConfig(commandConfig, null);
+  }
+
   private void disposeCommand(Command command, boolean atPluginStop)
   {
     if (command != null)
@@ -23,10 +23,23 @@ public class CommandConfig
   private boolean enabledForTextSelectionMenu;
   private String nameForTextSelectionMenu;
   private boolean passSelectedText;
+  private boolean showOutputInConsole;
 
   private StorageMode storageMode;
   private String sharedFilePath;
 
+  /**
+   * {@code true} if this command has been changed since it has been read from
+   * or written to its shared file (new commands are always dirty).
+   */
+  private boolean dirty = true;
+
+  /**
+   * The shared file this command has been read from or written to the last
+   * time, {@code null} if it has never been.
+   */
+  private String writtenSharedFilePath;
+
   /**
    * Stores the Eclipse command object for the resource view, once it has been
    * created.
@@ -112,6 +125,7 @@ public class CommandConfig
    */
   public void setCommand(String command)
   {
+    this.dirty |= !equal(this.command, command);
     this.command = command;
   }
 
@@ -122,6 +136,7 @@ public class CommandConfig
 
   public void setResourceType(ResourceType resourceType)
   {
+    this.dirty |= this.resourceType != resourceType;
     this.resourceType = resourceType;
   }
 
@@ -146,6 +161,7 @@ public class CommandConfig
    */
   public void setEnabledForResourcesMenu(boolean enabledForResourcesMenu)
   {
+    this.dirty |= this.enabledForResourcesMenu != enabledForResourcesMenu;
     this.enabledForResourcesMenu = enabledForResourcesMenu;
   }
 
@@ -166,6 +182,7 @@ public class CommandConfig
    */
   public void setNameForResourcesMenu(String nameForResourcesMenu)
   {
+    this.dirty |= !equal(this.nameForResourcesMenu, nameForResourcesMenu);
     this.nameForResourcesMenu = nameForResourcesMenu;
   }
 
@@ -190,6 +207,7 @@ public class CommandConfig
    */
   public void setEnabledForTextSelectionMenu(boolean enabledForTextSelectionMenu)
   {
+    this.dirty |= this.enabledForTextSelectionMenu != enabledForTextSelectionMenu;
     this.enabledForTextSelectionMenu = enabledForTextSelectionMenu;
   }
 
@@ -211,6 +229,8 @@ public class CommandConfig
    */
   public void setNameForTextSelectionMenu(String nameForTextSelectionMenu)
   {
+    this.dirty |= !equal(this.nameForTextSelectionMenu,
+        nameForTextSelectionMenu);
     this.nameForTextSelectionMenu = nameForTextSelectionMenu;
   }
 
@@ -235,9 +255,35 @@ public class CommandConfig
    */
   public void setPassSelectedText(boolean passSelectedText)
   {
+    this.dirty |= this.passSelectedText != passSelectedText;
     this.passSelectedText = passSelectedText;
   }
 
+  /**
+   * If <code>true</code>, the output of this command is shown in a console
+   * while the command is running
+   * 
+   * @return <code>true</code>, if the output of this command is shown in a
+   *         console
+   */
+  public boolean isShowOutputInConsole()
+  {
+    return this.showOutputInConsole;
+  }
+
+  /**
+   * If set to <code>true</code>, the output of this command is shown in a
+   * console while the command is running
+   * 
+   * @param showOutputInConsole if <code>true</code>, the output of this
+   *          command is shown in a console
+   */
+  public void setShowOutputInConsole(boolean showOutputInConsole)
+  {
+    this.dirty |= this.showOutputInConsole != showOutputInConsole;
+    this.showOutputInConsole = showOutputInConsole;
+  }
+
   /**
    * Returns the Eclipse command object for the resource view; if it has not
    * been created yet, it will be created on demand.
@@ -388,13 +434,13 @@ public class CommandConfig
 
   public void setStoreInPreferences()
   {
-    this.storageMode = StorageMode.PREFERENCES;
+    this.setStorageMode(StorageMode.PREFERENCES);
   }
 
   public void setStoreAsSharedFile(String path)
   {
-    this.storageMode = StorageMode.SHARED_FILE;
-    this.sharedFilePath = path;
+    this.setStorageMode(StorageMode.SHARED_FILE);
+    this.setSharedFilePath(path);
   }
 
   public boolean isStoreInPreferences()
@@ -416,6 +462,7 @@ public class CommandConfig
 
   void setStorageMode(StorageMode storageMode)
   {
+    this.dirty |= this.storageMode != storageMode;
     this.storageMode = storageMode;
   }
 
@@ -426,9 +473,56 @@ public class CommandConfig
 
   void setSharedFilePath(String path)
   {
+    this.dirty |= !equal(this.sharedFilePath, path);
     this.sharedFilePath = path;
   }
 
+  /**
+   * Returns {@code true} if this command has been changed since it has been
+   * read from or written to its shared file, that is, if its shared file needs
+   * to be written.
+   * 
+   * @return {@code true} if this command has unsaved changes
+   */
+  public boolean isDirty()
+  {
+    return this.dirty;
+  }
+
+  /**
+   * Marks this command as changed, for example because another command in the
+   * same shared file has been removed and the file needs to be written again.
+   */
+  void markDirty()
+  {
+    this.dirty = true;
+  }
+
+  /**
+   * Marks this command as being in sync with its shared file, after it has been
+   * read from or written to it.
+   */
+  void markClean()
+  {
+    this.dirty = false;
+    this.writtenSharedFilePath = this.isStoreAsSharedFile() ? this.sharedFilePath
+        : null;
+  }
+
+  /**
+   * @return the shared file this command has been read from or written to the
+   *         last time, {@code null} if it has never been
+   */
+  String getWrittenSharedFilePath()
+  {
+    return this.writtenSharedFilePath;
+  }
+
+  private static boolean equal(Object a, Object b)
+  {
+    return a == null ? b == null : a.equals(b);
+  }
+
   /**
    * {@inheritDoc}
    * 
@@ -0,0 +1,209 @@
+package de.bastiankrol.startexplorer.customcommands;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.simple.parser.ContentHandler;
+
+/**
+ * Receives the events of the streaming json-simple parser for a shared file
+ * and collects the command configs in it, without building a tree of
+ * {@link org.json.simple.JSONObject}s for the whole file. Only the flat
+ * properties of the command that is currently read are kept.
+ *
+ * Two formats are understood:
+ * <ul>
+ * <li>a single command, the properties are members of the root object (the
+ * format of StartExplorer 1.2 to 1.5),</li>
+ * <li>a bundle, the root object has a {@link SharedFileManager#KEY_COMMANDS}
+ * member which holds an array of command objects.</li>
+ * </ul>
+ * Nested objects and arrays that are not part of these formats are skipped.
+ *
+ * @author Bastian Krol
+ */
+class CommandConfigContentHandler implements ContentHandler
+{
+  private final SharedFileManager sharedFileManager;
+  private final List<CommandConfig> commandConfigs = new ArrayList<CommandConfig>();
+
+  /** The number of objects and arrays that are currently open. */
+  private int depth;
+  private boolean rootIsObject;
+  private String rootKey;
+  private final Map<String, Object> rootProperties = new HashMap<String, Object>();
+  private boolean bundle;
+  private boolean inCommands;
+  private String commandKey;
+  private Map<String, Object> commandProperties;
+
+  CommandConfigContentHandler(SharedFileManager sharedFileManager)
+  {
+    this.sharedFileManager = sharedFileManager;
+  }
+
+  /**
+   * @return the command configs that have been read
+   * @throws IllegalArgumentException if the root of the JSON text is not an
+   *           object
+   */
+  List<CommandConfig> getCommandConfigs()
+  {
+    if (!this.rootIsObject)
+    {
+      throw new IllegalArgumentException(
+          "Input was not parsed to a JSONObject.");
+    }
+    return this.commandConfigs;
+  }
+
+  /**
+   * @return the value of the version property of the root object, might be
+   *         {@code null}
+   */
+  String getVersion()
+  {
+    Object version = this.rootProperties.get(SharedFileManager.KEY_VERSION);
+    return version instanceof String ? (String) version : null;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.json.simple.parser.ContentHandler#startJSON()
+   */
+  public void startJSON()
+  {
+    // nothing to do
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.json.simple.parser.ContentHandler#endJSON()
+   */
+  public void endJSON()
+  {
+    if (this.rootIsObject && !this.bundle)
+    {
+      this.commandConfigs.add(this.sharedFileManager
+          .toCommandConfig(this.rootProperties));
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.json.simple.parser.ContentHandler#startObject()
+   */
+  public boolean startObject()
+  {
+    this.depth++;
+    if (this.depth == 1)
+    {
+      this.rootIsObject = true;
+    }
+    else if (this.depth == 3 && this.inCommands)
+    {
+      this.commandProperties = new HashMap<String, Object>();
+    }
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.json.simple.parser.ContentHandler#endObject()
+   */
+  public boolean endObject()
+  {
+    if (this.depth == 3 && this.commandProperties != null)
+    {
+      this.commandConfigs.add(this.sharedFileManager
+          .toCommandConfig(this.commandProperties));
+      this.commandProperties = null;
+    }
+    this.depth--;
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.json.simple.parser.ContentHandler#startObjectEntry(java.lang.String)
+   */
+  public boolean startObjectEntry(String key)
+  {
+    if (this.depth == 1)
+    {
+      this.rootKey = key;
+    }
+    else if (this.depth == 3)
+    {
+      this.commandKey = key;
+    }
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.json.simple.parser.ContentHandler#endObjectEntry()
+   */
+  public boolean endObjectEntry()
+  {
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.json.simple.parser.ContentHandler#startArray()
+   */
+  public boolean startArray()
+  {
+    this.depth++;
+    if (this.depth == 2
+        && SharedFileManager.KEY_COMMANDS.equals(this.rootKey))
+    {
+      this.bundle = true;
+      this.inCommands = true;
+    }
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.json.simple.parser.ContentHandler#endArray()
+   */
+  public boolean endArray()
+  {
+    if (this.depth == 2)
+    {
+      this.inCommands = false;
+    }
+    this.depth--;
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.json.simple.parser.ContentHandler#primitive(java.lang.Object)
+   */
+  public boolean primitive(Object value)
+  {
+    if (this.depth == 1)
+    {
+      this.rootProperties.put(this.rootKey, value);
+    }
+    else if (this.depth == 3 && this.commandProperties != null)
+    {
+      this.commandProperties.put(this.commandKey, value);
+    }
+    return true;
+  }
+}
@@ -36,6 +36,18 @@ public class CustomCommandEditorFactory extends AbstractCustomCommandFactory
     return commandConfig.getEclipseCommandForEditor(this);
   }
 
+  @Override
+  Command getCommandFromCommandConfigNoInit(CommandConfig commandConfig)
+  {
+    return commandConfig.getEclipseCommandForEditorNoInit();
+  }
+
+  @Override
+  void deleteCommandInCommandConfig(CommandConfig commandConfig)
+  {
+    commandConfig.deleteEclipseCommandForEditor();
+  }
+
   @Override
   IHandlerActivation getHandlerActivationFromCommandConfig(
       CommandConfig commandConfig)
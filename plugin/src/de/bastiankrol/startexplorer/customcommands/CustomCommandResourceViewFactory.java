@@ -37,6 +37,18 @@ public class CustomCommandResourceViewFactory extends
     return commandConfig.getEclipseCommandForResourceView(this);
   }
 
+  @Override
+  Command getCommandFromCommandConfigNoInit(CommandConfig commandConfig)
+  {
+    return commandConfig.getEclipseCommandForResourceViewNoInit();
+  }
+
+  @Override
+  void deleteCommandInCommandConfig(CommandConfig commandConfig)
+  {
+    commandConfig.deleteEclipseCommandForResourceView();
+  }
+
   @Override
   IHandlerActivation getHandlerActivationFromCommandConfig(
       CommandConfig commandConfig)
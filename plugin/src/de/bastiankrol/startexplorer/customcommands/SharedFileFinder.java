@@ -3,23 +3,30 @@ package de.bastiankrol.startexplorer.customcommands;
 import static de.bastiankrol.startexplorer.Activator.*;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.jobs.IJobChangeEvent;
 import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.jface.preference.IPreferenceStore;
+
+import de.bastiankrol.startexplorer.preferences.PreferenceConstantsAndDefaults;
 
 /**
  * Searches each project in the workspace for custom command definitions that
- * are stored as shared files.
+ * are stored as shared files. The result is kept in a {@link SharedFileIndex},
+ * which follows all later changes to shared files and is saved with the
+ * workspace, so the search is only necessary if there is no saved index yet.
  */
 public class SharedFileFinder
 {
   public static final String TITLE_SHARED_FILES_LATER = "Shared files will be added later...";
 
   public static final String MESSAGE_SHARED_FILES_LATER = "The job which scans the workspace has not yet finished, "
-      + "therefore custom commands stored as shared files in the workspace "
-      + "have not yet been added. Once it has finished, you will also find "
-      + "these custom commands here.";
+      + "therefore custom commands stored as shared files in projects that "
+      + "have not been scanned yet have not yet been added. They are added "
+      + "as soon as their project has been scanned.";
 
   private enum SharedFileFinderStatus
   {
@@ -27,14 +34,16 @@ public class SharedFileFinder
   }
 
   /*
-   * The internal state is comprised of status, searchJob and commandConfigs.
-   * None of them must be read or written without acquiring the lock. Also, no
-   * long running operations must be executed while holding the lock.
+   * The internal state is comprised of status, searchJob and index, which are
+   * kept together in an immutable State object. The menus and the preference
+   * model read the current state without locking. Changes (starting,
+   * finishing, resetting and stopping the search) are serialized by the lock
+   * and publish a new State. No long running operations must be executed while
+   * holding the lock.
    */
-  private Object lock = new Object();
-  private SharedFileFinderStatus status;
-  private SharedFileFinderJob searchJob;
-  private List<CommandConfig> commandConfigs;
+  private final Object lock = new Object();
+  private final AtomicReference<State> state = new AtomicReference<State>(
+      State.INITIAL);
 
   public SharedFileFinder()
   {
@@ -43,13 +52,20 @@ public class SharedFileFinder
 
   private void reset()
   {
-    getLogFacility().logDebug("reset() waiting for lock");
     synchronized (this.lock)
     {
-      getLogFacility().logDebug("reset() got lock");
-      this.status = SharedFileFinderStatus.INIT;
-      this.commandConfigs = null;
-      this.searchJob = null;
+      State current = this.state.get();
+      if (current.searchJob != null)
+      {
+        // a search that is still running is superseded
+        current.searchJob.cancel();
+      }
+      if (current.index != null)
+      {
+        current.index.setComplete(false);
+      }
+      this.state.set(new State(SharedFileFinderStatus.INIT, null,
+          current.index));
     }
     getLogFacility().logDebug("reset() done");
   }
@@ -61,12 +77,8 @@ public class SharedFileFinder
    */
   public void forceRefreshCustomCommandDefinitions()
   {
-    getLogFacility().logDebug(
-        "forceRefreshCustomCommandDefinitions() waiting for lock");
     synchronized (this.lock)
     {
-      getLogFacility().logDebug(
-          "forceRefreshCustomCommandDefinitions() got lock");
       this.reset();
       this.startSearch();
     }
@@ -77,37 +89,62 @@ public class SharedFileFinder
   /**
    * Starts the search job asynchronously, the search job will search each
    * project in the workspace for custom command definitions that are stored as
-   * shared files. If the workspace has been searched before, the cached result
-   * will be returned.
-   * 
+   * shared files. If the workspace has been searched before (in this session or
+   * in a previous session, if the index has been saved with the workspace),
+   * nothing needs to be done, the index is kept up to date by resource
+   * deltas.
+   *
    * @see SharedFileFinder#forceRefreshCustomCommandDefinitions()
    */
   public void startSearch()
   {
-    getLogFacility().logDebug(
-        "startSearch() waiting for lock");
     synchronized (this.lock)
     {
-      getLogFacility().logDebug("startSearch() got lock");
-      if (this.status == SharedFileFinderStatus.DONE)
+      State current = this.state.get();
+      if (current.status == SharedFileFinderStatus.DONE)
       {
         return;
       }
-      this.status = SharedFileFinderStatus.HAS_BEEN_STARTED;
-      this.searchJob = new SharedFileFinderJob();
-      this.registerJobChangeListener();
-      this.searchJob.schedule();
-      getPluginContext()
-          .getLogFacility()
-          .logDebug(
-              "StartExplorer search job for custom command config stored as shared files has been started asynchronously.");
+      SharedFileIndex index = current.index;
+      if (index == null)
+      {
+        index = new SharedFileIndex(ResourcesPlugin.getWorkspace(),
+            getDefault().getStateLocation().toFile());
+        index.setFilter(createScanFilter());
+        if (index.start())
+        {
+          this.state.set(new State(SharedFileFinderStatus.DONE, null, index));
+          return;
+        }
+      }
+      index.setFilter(createScanFilter());
+      SharedFileFinderJob searchJob = new SharedFileFinderJob(index);
+      this.registerJobChangeListener(searchJob);
+      this.state.set(new State(SharedFileFinderStatus.HAS_BEEN_STARTED,
+          searchJob, index));
+      searchJob.schedule();
     }
-    getLogFacility().logDebug("startSearch() done");
+    getPluginContext()
+        .getLogFacility()
+        .logDebug(
+            "StartExplorer search job for custom command config stored as shared files has been started asynchronously.");
+  }
+
+  /**
+   * Reads the scan settings directly from the preference store; loading the
+   * preference model would start the search again.
+   */
+  private static SharedFileScanFilter createScanFilter()
+  {
+    IPreferenceStore store = getDefault().getPreferenceStore();
+    return new SharedFileScanFilter(
+        store.getString(PreferenceConstantsAndDefaults.KEY_SHARED_FILE_EXCLUDES),
+        store.getInt(PreferenceConstantsAndDefaults.KEY_SHARED_FILE_MAX_DEPTH));
   }
 
-  private void registerJobChangeListener()
+  private void registerJobChangeListener(final SharedFileFinderJob job)
   {
-    this.searchJob.addJobChangeListener(new JobChangeAdapter()
+    job.addJobChangeListener(new JobChangeAdapter()
     {
       @Override
       public void done(IJobChangeEvent event)
@@ -125,60 +162,142 @@ public class SharedFileFinder
 
       private void onFinished()
       {
-        getLogFacility().logDebug(
-            "onFinished() waiting for lock");
         synchronized (lock)
         {
-          getLogFacility().logDebug("onFinished() got lock");
-          status = SharedFileFinderStatus.DONE;
-          commandConfigs = searchJob.getCommandConfigs();
-          searchJob = null;
-          getPluginContext()
-              .getLogFacility()
-              .logDebug(
-                  "StartExplorer search job for custom command config stored as shared files has finished successfully.");
+          State current = state.get();
+          if (current.searchJob != job)
+          {
+            // this search has been cancelled and replaced by a new one
+            return;
+          }
+          current.index.setComplete(true);
+          state.set(new State(SharedFileFinderStatus.DONE, null,
+              current.index));
         }
+        getPluginContext()
+            .getLogFacility()
+            .logDebug(
+                "StartExplorer search job for custom command config stored as shared files has finished successfully.");
       }
 
       private void onTerminatedAbruptly()
       {
+        synchronized (lock)
+        {
+          if (state.get().searchJob != job)
+          {
+            // this search has been cancelled and replaced by a new one
+            return;
+          }
+          reset();
+        }
         getPluginContext()
             .getLogFacility()
             .logDebug(
                 "StartExplorer search job for custom command config stored as shared files has terminated with non-OK state.");
-        reset();
       }
 
     });
   }
 
-  public boolean hasFinished()
+  /**
+   * Stops following changes to shared files, should be called when the
+   * plug-in is stopped.
+   */
+  public void stop()
   {
-    getLogFacility().logDebug(
-        "hasFinished() waiting for lock");
     synchronized (this.lock)
     {
-      getLogFacility().logDebug("hasFinished() got lock");
-      getLogFacility().logDebug("hasFinished() done");
-      return this.status == SharedFileFinderStatus.DONE;
+      State current = this.state.get();
+      if (current.searchJob != null)
+      {
+        current.searchJob.cancel();
+      }
+      if (current.index != null)
+      {
+        current.index.stop();
+      }
     }
   }
 
+  public boolean hasFinished()
+  {
+    return this.state.get().status == SharedFileFinderStatus.DONE;
+  }
+
+  /**
+   * Returns the custom command definitions from shared files that have been
+   * found so far. While the search is still running, this contains the shared
+   * files of all projects that have already been searched; use
+   * {@link #hasFinished()} to check if the result is complete.
+   *
+   * @return the command configs found so far (unmodifiable), or {@code null}
+   *         if the search has not been started yet
+   */
   public List<CommandConfig> getResult()
   {
-    getLogFacility()
-        .logDebug("getResult() waiting for lock");
-    synchronized (this.lock)
+    SharedFileIndex index = this.state.get().index;
+    return index != null ? index.getCommandConfigs() : null;
+  }
+
+  /**
+   * @return a number that changes whenever the result of {@link #getResult()}
+   *         changes, -1 if the search has not been started yet
+   */
+  public long getVersion()
+  {
+    SharedFileIndex index = this.state.get().index;
+    return index != null ? index.getVersion() : -1;
+  }
+
+  /**
+   * @return {@link #TITLE_SHARED_FILES_LATER}, together with the progress of
+   *         the search if it is known
+   */
+  public String getTitleSharedFilesLater()
+  {
+    String progressMessage = this.getProgressMessage();
+    if (progressMessage == null)
     {
-      getLogFacility().logDebug("getResult() got lock");
-      if (this.hasFinished())
-      {
-        return this.commandConfigs;
-      }
-      else
-      {
-        return null;
-      }
+      return TITLE_SHARED_FILES_LATER;
+    }
+    return TITLE_SHARED_FILES_LATER + " (" + progressMessage + ")";
+  }
+
+  /**
+   * @return a short description of the progress of a running search, like
+   *         "12 of 150 projects searched", or {@code null} if no search is
+   *         running or the number of projects is not yet known
+   */
+  public String getProgressMessage()
+  {
+    SharedFileFinderJob job = this.state.get().searchJob;
+    if (job == null || job.getNumberOfProjects() < 0)
+    {
+      return null;
+    }
+    return job.getNumberOfSearchedProjects() + " of "
+        + job.getNumberOfProjects() + " projects searched";
+  }
+
+  /**
+   * One immutable state of the finder.
+   */
+  private static class State
+  {
+    private static final State INITIAL = new State(
+        SharedFileFinderStatus.INIT, null, null);
+
+    private final SharedFileFinderStatus status;
+    private final SharedFileFinderJob searchJob;
+    private final SharedFileIndex index;
+
+    private State(SharedFileFinderStatus status,
+        SharedFileFinderJob searchJob, SharedFileIndex index)
+    {
+      this.status = status;
+      this.searchJob = searchJob;
+      this.index = index;
     }
   }
 }
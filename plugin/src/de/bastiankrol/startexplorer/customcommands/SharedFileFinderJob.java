@@ -2,64 +2,97 @@ package de.bastiankrol.startexplorer.customcommands;
 
 import static de.bastiankrol.startexplorer.Activator.*;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
-import org.eclipse.core.resources.IResourceVisitor;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
 import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.core.runtime.jobs.Job;
-import org.json.simple.parser.ParseException;
-
-import de.bastiankrol.startexplorer.util.Util;
 
+/**
+ * Searches projects for custom command definitions stored as shared files and
+ * adds them to the {@link SharedFileIndex}. The projects are searched in
+ * parallel by a bounded number of worker jobs, each taking the next project
+ * from a shared queue. This job only distributes the work, reports the
+ * progress and waits for the workers; cancelling it cancels the workers.
+ * 
+ * The shared files of a project are added to the index together, as soon as
+ * the project has been searched, so the commands of the projects that have
+ * been searched already can be used while the search is still running (see
+ * {@link SharedFileFinder#getResult()}).
+ * 
+ * The projects are visited with an {@link IResourceProxyVisitor}, so no
+ * resource handles are created except for the shared files themselves.
+ * Folders and files excluded by the {@link SharedFileScanFilter} of the index
+ * are skipped. The number of visited and skipped resources is logged when the
+ * search has finished.
+ * 
+ * The workers of one search do not conflict with each other, but with the
+ * workers of any other search (see {@link ScanRule}), so when a search is
+ * cancelled and a new one is started, the new workers only start after the
+ * old ones have stopped.
+ */
 class SharedFileFinderJob extends Job
 {
   private static final String JOB_NAME = "Searching for StartExplorer custom command definitions";
   private static final String BEGIN_TASK_MESSAGE = "Searching projects: ";
+  private static final String WORKER_JOB_NAME = "Searching project for StartExplorer custom command definitions";
+
+  /** The upper limit for the number of worker jobs of one search. */
+  static final int MAX_WORKERS = 8;
+
+  private static final long POLL_INTERVAL_MILLIS = 100;
+  private static final String SHARED_FILE_SUFFIX = "."
+      + SharedFileIndex.FILE_EXTENSION;
+
+  private final SharedFileIndex index;
 
-  private volatile List<CommandConfig> commandConfigs = new ArrayList<CommandConfig>();
+  /**
+   * The projects to search, {@code null} for all open projects in the
+   * workspace.
+   */
+  private final List<IProject> projectsToSearch;
+
+  /** The statistics of the running search, {@code null} before it starts. */
+  private volatile ScanStatistics statistics;
+
+  SharedFileFinderJob(SharedFileIndex index)
+  {
+    this(index, null);
+  }
 
-  SharedFileFinderJob()
+  SharedFileFinderJob(SharedFileIndex index, List<IProject> projectsToSearch)
   {
     super(JOB_NAME);
+    this.index = index;
+    this.projectsToSearch = projectsToSearch;
   }
 
   @Override
   protected IStatus run(IProgressMonitor monitor)
   {
+    List<IProject> projects;
     try
     {
-      List<IProject> projects = new ArrayList<IProject>();
-      IWorkspaceRoot workspaceRoot = ResourcesPlugin.getWorkspace().getRoot();
-      IResource[] projectResources = workspaceRoot.members();
-      for (IResource projectResource : projectResources)
-      {
-        if (projectResource instanceof IProject)
-        {
-          IProject project = (IProject) projectResource;
-          if (project.isOpen() && project.isAccessible())
-          {
-            projects.add(project);
-          }
-        }
-      }
-
-      monitor.beginTask(BEGIN_TASK_MESSAGE, projects.size());
-      for (IProject project : projects)
-      {
-        monitor.subTask(project.getName());
-        this.search(project);
-        monitor.worked(1);
-      }
-      return Status.OK_STATUS;
+      projects = this.projectsToSearch != null ? this.projectsToSearch
+          : getOpenProjects();
     }
     catch (CoreException e)
     {
@@ -70,69 +103,295 @@ class SharedFileFinderJob extends Job
               e);
       return Status.CANCEL_STATUS;
     }
+    monitor.beginTask(BEGIN_TASK_MESSAGE, projects.size());
+    Queue<IProject> queue = new ConcurrentLinkedQueue<IProject>(projects);
+    ScanStatistics statistics = new ScanStatistics(projects.size());
+    this.statistics = statistics;
+    AtomicBoolean incomplete = new AtomicBoolean();
+    int numberOfWorkers = getNumberOfWorkers(projects.size());
+    CountDownLatch workersDone = new CountDownLatch(numberOfWorkers);
+    List<Worker> workers = new ArrayList<Worker>(numberOfWorkers);
+    Object scan = new Object();
+    for (int i = 0; i < numberOfWorkers; i++)
+    {
+      Worker worker = new Worker(this, queue, statistics, incomplete,
+          workersDone);
+      worker.setRule(new ScanRule(scan));
+      worker.setSystem(true);
+      workers.add(worker);
+      worker.schedule();
+    }
+    try
+    {
+      int reported = 0;
+      while (!workersDone.await(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS))
+      {
+        if (monitor.isCanceled())
+        {
+          cancel(workers);
+          return Status.CANCEL_STATUS;
+        }
+        reported = reportProgress(monitor, statistics.projects.get(),
+            reported);
+      }
+      reportProgress(monitor, statistics.projects.get(), reported);
+      getLogFacility().logDebug(
+          "Searched " + statistics.projects.get()
+              + " projects for shared custom command definitions: visited "
+              + statistics.visited.get() + " resources, skipped "
+              + statistics.skipped.get() + " folders/files, took "
+              + (System.currentTimeMillis() - statistics.start) + " ms.");
+    }
+    catch (InterruptedException e)
+    {
+      cancel(workers);
+      Thread.currentThread().interrupt();
+      return Status.CANCEL_STATUS;
+    }
+    finally
+    {
+      monitor.done();
+    }
+    return incomplete.get() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+  }
+
+  /**
+   * @return the number of projects this search searches, -1 if that is not
+   *         known yet
+   */
+  int getNumberOfProjects()
+  {
+    ScanStatistics statistics = this.statistics;
+    return statistics != null ? statistics.total : -1;
+  }
+
+  /**
+   * @return the number of projects that have been searched so far
+   */
+  int getNumberOfSearchedProjects()
+  {
+    ScanStatistics statistics = this.statistics;
+    return statistics != null ? statistics.projects.get() : 0;
+  }
+
+  private static int reportProgress(IProgressMonitor monitor, int searched,
+      int reported)
+  {
+    if (searched > reported)
+    {
+      monitor.worked(searched - reported);
+    }
+    return Math.max(searched, reported);
   }
 
-  private void search(IResource resource) throws CoreException
+  private static void cancel(List<Worker> workers)
   {
-    resource.accept(new IResourceVisitor()
+    for (Worker worker : workers)
     {
-      @Override
-      public boolean visit(IResource resource) throws CoreException
+      worker.cancel();
+    }
+  }
+
+  static int getNumberOfWorkers(int numberOfProjects)
+  {
+    int workers = Math.min(Runtime.getRuntime().availableProcessors(),
+        MAX_WORKERS);
+    return Math.max(1, Math.min(workers, numberOfProjects));
+  }
+
+  private static List<IProject> getOpenProjects() throws CoreException
+  {
+    List<IProject> projects = new ArrayList<IProject>();
+    IWorkspaceRoot workspaceRoot = ResourcesPlugin.getWorkspace().getRoot();
+    IResource[] projectResources = workspaceRoot.members();
+    for (IResource projectResource : projectResources)
+    {
+      if (projectResource instanceof IProject)
       {
-        if (resource.getType() == IResource.FILE)
-        {
-          if (resource.getFileExtension() != null
-              && resource.getFileExtension().equals("startexplorer"))
-          {
-            CommandConfig commandConfig = SharedFileFinderJob.this
-                .loadCommandConfigFromSharedFile(resource);
-            if (commandConfig != null)
-            {
-              SharedFileFinderJob.this.commandConfigs.add(commandConfig);
-            }
-          }
-          return false;
-        }
-        else
+        IProject project = (IProject) projectResource;
+        if (project.isOpen() && project.isAccessible())
         {
-          return true;
+          projects.add(project);
         }
       }
-    });
+    }
+    return projects;
   }
 
-  private CommandConfig loadCommandConfigFromSharedFile(IResource resource)
+  /**
+   * Takes projects from the queue and searches them until the queue is empty.
+   */
+  private static class Worker extends Job
   {
-    try
+    private final SharedFileFinderJob search;
+    private final Queue<IProject> queue;
+    private final ScanStatistics statistics;
+    private final AtomicBoolean incomplete;
+    private final CountDownLatch workersDone;
+
+    private Worker(SharedFileFinderJob search, Queue<IProject> queue,
+        ScanStatistics statistics, AtomicBoolean incomplete,
+        CountDownLatch workersDone)
     {
-      return new SharedFileManager().importCommandConfigFromFile(Util
-          .getIFileInWorkspace(resource));
+      super(WORKER_JOB_NAME);
+      this.search = search;
+      this.queue = queue;
+      this.statistics = statistics;
+      this.incomplete = incomplete;
+      this.workersDone = workersDone;
     }
-    catch (CoreException e)
+
+    @Override
+    public boolean belongsTo(Object family)
     {
-      getLogFacility().logException(
-          "Could not import custom command from " + resource.getFullPath()
-              + " due to an unexpected CoreException.", e);
-      return null;
+      return family == this.search;
     }
-    catch (IOException e)
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor)
     {
-      getLogFacility().logException(
-          "Could not import custom command from " + resource.getFullPath()
-              + " due to an IOException.", e);
-      return null;
+      IStatus status = Status.CANCEL_STATUS;
+      try
+      {
+        status = this.searchProjects(monitor);
+        return status;
+      }
+      finally
+      {
+        if (!status.isOK())
+        {
+          this.incomplete.set(true);
+        }
+        // getResult() is only set after run() has returned, so the outcome is
+        // recorded in the shared flag before the coordinator is released
+        this.workersDone.countDown();
+      }
     }
-    catch (ParseException e)
+
+    private IStatus searchProjects(IProgressMonitor monitor)
     {
-      getLogFacility().logException(
-          "Could not import custom command from " + resource.getFullPath()
-              + " because the content is not valid JSON.", e);
-      return null;
+      try
+      {
+        IProject project;
+        while ((project = this.queue.poll()) != null)
+        {
+          if (monitor.isCanceled())
+          {
+            return Status.CANCEL_STATUS;
+          }
+          if (project.isOpen() && project.isAccessible())
+          {
+            // published in one go, after the project has been searched
+            this.search.index.updateAll(this.search(project, monitor));
+          }
+          this.statistics.projects.incrementAndGet();
+        }
+        return Status.OK_STATUS;
+      }
+      catch (OperationCanceledException e)
+      {
+        return Status.CANCEL_STATUS;
+      }
+      catch (CoreException e)
+      {
+        getPluginContext()
+            .getLogFacility()
+            .logException(
+                "A problem occured while searching for StartExplorer custom command definitions.",
+                e);
+        return Status.CANCEL_STATUS;
+      }
+    }
+
+    private List<IFile> search(IProject project,
+        final IProgressMonitor monitor) throws CoreException
+    {
+      final List<IFile> sharedFiles = new ArrayList<IFile>();
+      final SharedFileScanFilter filter = this.search.index.getFilter();
+      final ScanStatistics statistics = this.statistics;
+      // without INCLUDE_HIDDEN and INCLUDE_TEAM_PRIVATE_MEMBERS, hidden and
+      // team private members are not visited
+      project.accept(new IResourceProxyVisitor()
+      {
+        public boolean visit(IResourceProxy proxy)
+        {
+          if (monitor.isCanceled())
+          {
+            throw new OperationCanceledException();
+          }
+          statistics.visited.incrementAndGet();
+          switch (proxy.getType())
+          {
+            case IResource.FILE:
+              if (!proxy.getName().endsWith(SHARED_FILE_SUFFIX))
+              {
+                return false;
+              }
+              if (filter.isExcludedFile(proxy.requestFullPath(),
+                  proxy.isDerived()))
+              {
+                statistics.skipped.incrementAndGet();
+                return false;
+              }
+              sharedFiles.add((IFile) proxy.requestResource());
+              return false;
+            case IResource.FOLDER:
+              if (filter.isExcludedFolder(proxy.requestFullPath(),
+                  proxy.isDerived()))
+              {
+                statistics.skipped.incrementAndGet();
+                return false;
+              }
+              return true;
+            default:
+              return true;
+          }
+        }
+      }, IResource.NONE);
+      return sharedFiles;
+    }
+  }
+
+  /**
+   * Counters shared by the workers of one search.
+   */
+  private static class ScanStatistics
+  {
+    private final long start = System.currentTimeMillis();
+    private final int total;
+    private final AtomicInteger projects = new AtomicInteger();
+    private final AtomicInteger visited = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    private ScanStatistics(int total)
+    {
+      this.total = total;
     }
   }
 
-  List<CommandConfig> getCommandConfigs()
+  /**
+   * The rule of a worker job. The rules of the workers of one search do not
+   * conflict, so they run in parallel, but they conflict with the rules of
+   * the workers of all other searches.
+   */
+  static class ScanRule implements ISchedulingRule
   {
-    return this.commandConfigs;
+    private final Object scan;
+
+    ScanRule(Object scan)
+    {
+      this.scan = scan;
+    }
+
+    public boolean contains(ISchedulingRule rule)
+    {
+      return rule == this;
+    }
+
+    public boolean isConflicting(ISchedulingRule rule)
+    {
+      return rule == this
+          || (rule instanceof ScanRule && ((ScanRule) rule).scan != this.scan);
+    }
   }
 }
@@ -0,0 +1,710 @@
+package de.bastiankrol.startexplorer.customcommands;
+
+import static de.bastiankrol.startexplorer.Activator.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ISaveContext;
+import org.eclipse.core.resources.ISaveParticipant;
+import org.eclipse.core.resources.ISavedState;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.json.simple.parser.ParseException;
+
+import de.bastiankrol.startexplorer.Activator;
+
+/**
+ * Keeps track of the custom command definitions that are stored as shared
+ * files in the workspace. The index is filled once by a
+ * {@link SharedFileFinderJob} and from then on kept up to date by applying the
+ * resource deltas of added, changed and removed shared files. It is written to
+ * the plug-in's state area whenever the workspace is saved; on the next start
+ * it is restored from there and the resource deltas since that save are
+ * applied, so the workspace does not need to be searched again. The
+ * modification stamps of the shared files are saved along with their command
+ * configs, so the {@link SharedFileParseCache} is restored from the same file.
+ * 
+ * @author Bastian Krol
+ */
+class SharedFileIndex implements IResourceChangeListener, ISaveParticipant
+{
+  static final String FILE_EXTENSION = "startexplorer";
+
+  private static final IPath SAVE_KEY = new Path("shared-file-index");
+  private static final String SAVE_FILE_PREFIX = "shared-file-index-";
+  private static final String KEY_COMPLETE = "complete";
+  private static final String STAMP_KEY_PREFIX = "stamp:";
+
+  private final IWorkspace workspace;
+  private final File stateDirectory;
+  private final SharedFileParseCache parseCache;
+
+  /**
+   * The command configs by the full path of their shared file (a bundle holds
+   * several, see {@link SharedFileManager}). Guarded by this.
+   */
+  private final TreeMap<String, List<CommandConfig>> commandConfigs = new TreeMap<String, List<CommandConfig>>();
+
+  /**
+   * An immutable copy of the command configs that is replaced (with the lock
+   * held) whenever they change, so that the menus and the preference model can
+   * read them without taking the lock.
+   */
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>(
+      new Snapshot(0, Collections.<CommandConfig> emptyList()));
+
+  /**
+   * {@code true} if and only if the whole workspace has been searched. Guarded
+   * by this.
+   */
+  private boolean complete;
+
+  private volatile SharedFileScanFilter filter = SharedFileScanFilter.DERIVED_ONLY;
+
+  SharedFileIndex(IWorkspace workspace, File stateDirectory)
+  {
+    this.workspace = workspace;
+    this.stateDirectory = stateDirectory;
+    this.parseCache = new SharedFileParseCache();
+  }
+
+  /**
+   * Starts listening to resource changes and workspace saves, and restores the
+   * index that has been saved with the workspace the last time.
+   * 
+   * @return {@code true} if a complete index has been restored, {@code false}
+   *         if the workspace needs to be searched
+   */
+  boolean start()
+  {
+    this.workspace.addResourceChangeListener(this,
+        IResourceChangeEvent.POST_CHANGE);
+    try
+    {
+      ISavedState savedState = this.workspace.addSaveParticipant(
+          Activator.PLUGIN_ID, this);
+      if (savedState == null)
+      {
+        return false;
+      }
+      IPath saveFile = savedState.lookup(SAVE_KEY);
+      if (saveFile == null || !this.restore(new File(this.stateDirectory,
+          saveFile.toString())))
+      {
+        return false;
+      }
+      // apply everything that has changed since the index has been saved
+      savedState.processResourceChangeEvents(this);
+      getLogFacility().logDebug(
+          "Restored " + this.size()
+              + " custom command definitions stored as shared files.");
+      return true;
+    }
+    catch (CoreException e)
+    {
+      getLogFacility().logException(
+          "Could not register for workspace saves, the workspace will be searched for shared custom command definitions.",
+          e);
+      return false;
+    }
+  }
+
+  /**
+   * Stops listening to resource changes and workspace saves.
+   */
+  void stop()
+  {
+    this.workspace.removeResourceChangeListener(this);
+    this.workspace.removeSaveParticipant(Activator.PLUGIN_ID);
+  }
+
+  /**
+   * @return the command configs from all shared files, ordered by path (and by
+   *         their position in the file for bundles)
+   */
+  List<CommandConfig> getCommandConfigs()
+  {
+    return this.snapshot.get().commandConfigs;
+  }
+
+  /**
+   * @return the version of the command configs; it changes whenever a shared
+   *         file has been added, changed or removed, so callers can tell if
+   *         the result of {@link #getCommandConfigs()} has changed
+   */
+  long getVersion()
+  {
+    return this.snapshot.get().version;
+  }
+
+  /**
+   * Must be called with the lock held after the command configs have been
+   * changed, publishes a new snapshot.
+   */
+  private void changed()
+  {
+    List<CommandConfig> result = new ArrayList<CommandConfig>();
+    for (List<CommandConfig> commandConfigsFromFile : this.commandConfigs
+        .values())
+    {
+      result.addAll(commandConfigsFromFile);
+    }
+    this.snapshot.set(new Snapshot(this.snapshot.get().version + 1,
+        Collections.unmodifiableList(result)));
+  }
+
+  /**
+   * @return the number of command configs from all shared files
+   */
+  int size()
+  {
+    return this.getCommandConfigs().size();
+  }
+
+  synchronized boolean isComplete()
+  {
+    return this.complete;
+  }
+
+  /**
+   * Marks the index as complete (after the workspace has been searched) or
+   * empties it (before the workspace is searched again).
+   * 
+   * @param complete if the index is complete now
+   */
+  synchronized void setComplete(boolean complete)
+  {
+    if (complete)
+    {
+      getLogFacility().logDebug(
+          "Found " + this.size() + " custom commands in "
+              + this.commandConfigs.size() + " shared files, "
+              + this.parseCache.getHits() + " of them unchanged and "
+              + this.parseCache.getMisses() + " parsed.");
+    }
+    else
+    {
+      this.commandConfigs.clear();
+      this.changed();
+    }
+    this.parseCache.resetStatistics();
+    this.complete = complete;
+  }
+
+  /**
+   * (Re-)loads the command configs from the given shared file. The file is only
+   * read if its modification stamp or length has changed since it has been
+   * read the last time (see {@link SharedFileParseCache}).
+   * 
+   * @param file the shared file
+   */
+  void update(IFile file)
+  {
+    List<CommandConfig> commandConfigsFromFile = this.load(file);
+    synchronized (this)
+    {
+      this.put(file, commandConfigsFromFile);
+      this.changed();
+    }
+  }
+
+  /**
+   * (Re-)loads the command configs from the given shared files, for example
+   * all shared files of a project. The changes become visible together.
+   * 
+   * @param files the shared files
+   */
+  void updateAll(List<IFile> files)
+  {
+    if (files.isEmpty())
+    {
+      return;
+    }
+    List<List<CommandConfig>> loaded = new ArrayList<List<CommandConfig>>(
+        files.size());
+    for (IFile file : files)
+    {
+      loaded.add(this.load(file));
+    }
+    synchronized (this)
+    {
+      for (int i = 0; i < files.size(); i++)
+      {
+        this.put(files.get(i), loaded.get(i));
+      }
+      this.changed();
+    }
+  }
+
+  private List<CommandConfig> load(IFile file)
+  {
+    String key = file.getFullPath().toString();
+    long modificationStamp = file.getModificationStamp();
+    long length = getLength(file);
+    List<CommandConfig> commandConfigsFromFile = this.parseCache.get(key,
+        modificationStamp, length);
+    if (commandConfigsFromFile == null)
+    {
+      commandConfigsFromFile = storedIn(key,
+          loadCommandConfigsFromSharedFile(file));
+      if (commandConfigsFromFile != null
+          && modificationStamp != IResource.NULL_STAMP)
+      {
+        this.parseCache.put(key, modificationStamp, length,
+            commandConfigsFromFile);
+      }
+      else
+      {
+        this.parseCache.remove(key);
+      }
+    }
+    return commandConfigsFromFile;
+  }
+
+  /**
+   * The shared file path in a shared file is not necessarily the path of the
+   * file itself (for example, if the project has been copied); the commands
+   * belong to the file they have been read from, so that they are written to
+   * that file again.
+   * 
+   * @param path the full path of the shared file
+   * @param commandConfigsFromFile the command configs read from it, might be
+   *          {@code null}
+   * @return the given command configs
+   */
+  private static List<CommandConfig> storedIn(String path,
+      List<CommandConfig> commandConfigsFromFile)
+  {
+    if (commandConfigsFromFile != null)
+    {
+      for (CommandConfig commandConfig : commandConfigsFromFile)
+      {
+        if (!commandConfig.isStoreAsSharedFile()
+            || !path.equals(commandConfig.getSharedFilePath()))
+        {
+          commandConfig.setStoreAsSharedFile(path);
+          commandConfig.markClean();
+        }
+      }
+    }
+    return commandConfigsFromFile;
+  }
+
+  private void put(IFile file, List<CommandConfig> commandConfigsFromFile)
+  {
+    String key = file.getFullPath().toString();
+    if (commandConfigsFromFile != null && !commandConfigsFromFile.isEmpty())
+    {
+      this.commandConfigs.put(key, commandConfigsFromFile);
+    }
+    else
+    {
+      this.commandConfigs.remove(key);
+    }
+  }
+
+  private synchronized void remove(IPath path)
+  {
+    this.commandConfigs.remove(path.toString());
+    this.parseCache.remove(path.toString());
+    this.changed();
+  }
+
+  private synchronized void removeAllBelow(IPath path)
+  {
+    String prefix = path.addTrailingSeparator().toString();
+    Iterator<String> iterator = this.commandConfigs.tailMap(prefix).keySet()
+        .iterator();
+    while (iterator.hasNext() && iterator.next().startsWith(prefix))
+    {
+      iterator.remove();
+    }
+    this.changed();
+  }
+
+  /**
+   * @return the filter for folders and files that are not searched for shared
+   *         files
+   */
+  SharedFileScanFilter getFilter()
+  {
+    return this.filter;
+  }
+
+  /**
+   * Sets the filter for folders and files that are not searched for shared
+   * files. Files that are already in the index are not removed, the index needs
+   * to be rebuilt for that.
+   * 
+   * @param filter the filter
+   */
+  void setFilter(SharedFileScanFilter filter)
+  {
+    this.filter = filter;
+  }
+
+  static boolean isSharedFile(IResource resource)
+  {
+    return resource.getType() == IResource.FILE
+        && FILE_EXTENSION.equals(resource.getFileExtension());
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * @see org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent)
+   */
+  public void resourceChanged(IResourceChangeEvent event)
+  {
+    IResourceDelta delta = event.getDelta();
+    if (delta == null)
+    {
+      return;
+    }
+    final List<IProject> openedProjects = new ArrayList<IProject>();
+    try
+    {
+      delta.accept(new IResourceDeltaVisitor()
+      {
+        public boolean visit(IResourceDelta delta)
+        {
+          return SharedFileIndex.this.visit(delta, openedProjects);
+        }
+      });
+    }
+    catch (CoreException e)
+    {
+      getLogFacility().logException(
+          "Could not process resource changes for shared custom command definitions.",
+          e);
+    }
+    if (!openedProjects.isEmpty())
+    {
+      new SharedFileFinderJob(this, openedProjects).schedule();
+    }
+  }
+
+  private boolean visit(IResourceDelta delta, List<IProject> openedProjects)
+  {
+    IResource resource = delta.getResource();
+    switch (resource.getType())
+    {
+      case IResource.PROJECT:
+        if (delta.getKind() == IResourceDelta.REMOVED)
+        {
+          this.removeAllBelow(resource.getFullPath());
+          // the parse cache entries of closed projects are kept for when they
+          // are opened again
+          this.parseCache.removeAllBelow(resource.getFullPath()
+              .addTrailingSeparator().toString());
+          return false;
+        }
+        if ((delta.getFlags() & IResourceDelta.OPEN) != 0)
+        {
+          // the deltas of the children of opened/closed projects are not
+          // reported
+          IProject project = (IProject) resource;
+          if (project.isOpen())
+          {
+            openedProjects.add(project);
+          }
+          else
+          {
+            this.removeAllBelow(resource.getFullPath());
+          }
+          return false;
+        }
+        return true;
+      case IResource.FOLDER:
+        // removed folders are visited, their files might be in the index
+        return delta.getKind() == IResourceDelta.REMOVED
+            || !this.filter.isExcludedFolder(resource.getFullPath(),
+                resource.isDerived());
+      case IResource.FILE:
+        if (!isSharedFile(resource))
+        {
+          return false;
+        }
+        if (delta.getKind() != IResourceDelta.REMOVED
+            && this.filter.isExcludedFile(resource.getFullPath(),
+                resource.isDerived()))
+        {
+          return false;
+        }
+        switch (delta.getKind())
+        {
+          case IResourceDelta.ADDED:
+            this.update((IFile) resource);
+            break;
+          case IResourceDelta.REMOVED:
+            this.remove(resource.getFullPath());
+            break;
+          case IResourceDelta.CHANGED:
+            if ((delta.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED)) != 0)
+            {
+              this.update((IFile) resource);
+            }
+            break;
+          default:
+            break;
+        }
+        return false;
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * @see org.eclipse.core.resources.ISaveParticipant#prepareToSave(org.eclipse.core.resources.ISaveContext)
+   */
+  public void prepareToSave(ISaveContext context)
+  {
+    // nothing to do
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * @see org.eclipse.core.resources.ISaveParticipant#saving(org.eclipse.core.resources.ISaveContext)
+   */
+  public void saving(ISaveContext context)
+  {
+    if (context.getKind() == ISaveContext.PROJECT_SAVE)
+    {
+      return;
+    }
+    String fileName = SAVE_FILE_PREFIX + context.getSaveNumber();
+    try
+    {
+      this.save(new File(this.stateDirectory, fileName));
+      context.map(SAVE_KEY, new Path(fileName));
+      context.needSaveNumber();
+      context.needDelta();
+    }
+    catch (IOException e)
+    {
+      getLogFacility().logException(
+          "Could not save the index of shared custom command definitions.", e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * @see org.eclipse.core.resources.ISaveParticipant#doneSaving(org.eclipse.core.resources.ISaveContext)
+   */
+  public void doneSaving(ISaveContext context)
+  {
+    new File(this.stateDirectory, SAVE_FILE_PREFIX
+        + context.getPreviousSaveNumber()).delete();
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * @see org.eclipse.core.resources.ISaveParticipant#rollback(org.eclipse.core.resources.ISaveContext)
+   */
+  public void rollback(ISaveContext context)
+  {
+    new File(this.stateDirectory, SAVE_FILE_PREFIX + context.getSaveNumber())
+        .delete();
+  }
+
+  void save(File file) throws IOException
+  {
+    Map<String, List<CommandConfig>> snapshot;
+    boolean isComplete;
+    synchronized (this)
+    {
+      snapshot = new TreeMap<String, List<CommandConfig>>(this.commandConfigs);
+      isComplete = this.complete;
+    }
+    SharedFileManager sharedFileManager = new SharedFileManager();
+    Properties properties = new Properties();
+    // an incomplete index is not restored, the search starts over instead
+    properties.setProperty(KEY_COMPLETE, String.valueOf(isComplete));
+    for (Map.Entry<String, List<CommandConfig>> entry : snapshot.entrySet())
+    {
+      String json = sharedFileManager.convertToJsonString(entry.getValue());
+      properties.setProperty(entry.getKey(), json);
+      // only if the file has not been changed since it has been parsed
+      String stamp = this.parseCache.getStamp(entry.getKey(), json);
+      if (stamp != null)
+      {
+        properties.setProperty(STAMP_KEY_PREFIX + entry.getKey(), stamp);
+      }
+    }
+    OutputStream out = new FileOutputStream(file);
+    try
+    {
+      properties.store(out, "StartExplorer shared custom command definitions");
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  boolean restore(File file)
+  {
+    if (!file.isFile())
+    {
+      return false;
+    }
+    Properties properties = new Properties();
+    try
+    {
+      InputStream in = new FileInputStream(file);
+      try
+      {
+        properties.load(in);
+      }
+      finally
+      {
+        in.close();
+      }
+      if (!Boolean.parseBoolean(properties.getProperty(KEY_COMPLETE)))
+      {
+        return false;
+      }
+      SharedFileManager sharedFileManager = new SharedFileManager();
+      TreeMap<String, List<CommandConfig>> restored = new TreeMap<String, List<CommandConfig>>();
+      for (String key : properties.stringPropertyNames())
+      {
+        if (!key.equals(KEY_COMPLETE) && !key.startsWith(STAMP_KEY_PREFIX))
+        {
+          restored.put(key, storedIn(key, sharedFileManager
+              .convertToCommandConfigs(properties.getProperty(key))));
+        }
+      }
+      for (String key : restored.keySet())
+      {
+        String stamp = properties.getProperty(STAMP_KEY_PREFIX + key);
+        if (stamp != null)
+        {
+          this.parseCache.putStamp(key, stamp, properties.getProperty(key));
+        }
+      }
+      synchronized (this)
+      {
+        this.commandConfigs.clear();
+        this.commandConfigs.putAll(restored);
+        this.complete = true;
+        this.changed();
+      }
+      return true;
+    }
+    catch (IOException e)
+    {
+      getLogFacility().logException(
+          "Could not read the saved index of shared custom command definitions.",
+          e);
+      return false;
+    }
+    catch (ParseException e)
+    {
+      getLogFacility().logException(
+          "The saved index of shared custom command definitions is corrupt.",
+          e);
+      return false;
+    }
+    catch (IllegalArgumentException e)
+    {
+      getLogFacility().logException(
+          "The saved index of shared custom command definitions is corrupt.",
+          e);
+      return false;
+    }
+  }
+
+  /**
+   * @return the length of the file in the file system, or -1 if it is not
+   *         stored in the local file system
+   */
+  private static long getLength(IFile file)
+  {
+    IPath location = file.getLocation();
+    return location != null ? location.toFile().length() : -1;
+  }
+
+  SharedFileParseCache getParseCache()
+  {
+    return this.parseCache;
+  }
+
+  private static List<CommandConfig> loadCommandConfigsFromSharedFile(
+      IFile file)
+  {
+    try
+    {
+      return new SharedFileManager().importCommandConfigsFromFile(file);
+    }
+    catch (CoreException e)
+    {
+      getLogFacility().logException(
+          "Could not import custom command from " + file.getFullPath()
+              + " due to an unexpected CoreException.", e);
+      return null;
+    }
+    catch (IOException e)
+    {
+      getLogFacility().logException(
+          "Could not import custom command from " + file.getFullPath()
+              + " due to an IOException.", e);
+      return null;
+    }
+    catch (ParseException e)
+    {
+      getLogFacility().logException(
+          "Could not import custom command from " + file.getFullPath()
+              + " because the content is not valid JSON.", e);
+      return null;
+    }
+    catch (IllegalArgumentException e)
+    {
+      getLogFacility().logException(
+          "Could not import custom command from " + file.getFullPath()
+              + " because the content is not a JSON object.", e);
+      return null;
+    }
+  }
+
+  /**
+   * The command configs of one version of the index.
+   */
+  private static class Snapshot
+  {
+    private final long version;
+    private final List<CommandConfig> commandConfigs;
+
+    private Snapshot(long version, List<CommandConfig> commandConfigs)
+    {
+      this.version = version;
+      this.commandConfigs = commandConfigs;
+    }
+  }
+}
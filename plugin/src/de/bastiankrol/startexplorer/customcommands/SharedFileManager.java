@@ -10,11 +10,23 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
 import org.json.simple.parser.JSONParser;
@@ -28,12 +40,21 @@ import de.bastiankrol.startexplorer.util.Util;
  * Imports/exports custom command config definitions from/to shared files. Also
  * deletes shared files, if they are no longer needed.
  * 
+ * A shared file either holds a single command (the properties are members of
+ * the root object) or, if several commands share the same file, a bundle
+ * (version {@value #BUNDLE_VERSION}, the commands are in an array named
+ * {@value #KEY_COMMANDS}). Both formats are read by a streaming parser, see
+ * {@link CommandConfigContentHandler}. A file with a single command is still
+ * written in the old format, so older versions of StartExplorer can read it.
+ * 
  * @author Bastian Krol
  */
 public class SharedFileManager
 {
   static final String KEY_VERSION = "version";
   static final String VERSION = "1.2.0";
+  static final String BUNDLE_VERSION = "2.0.0";
+  static final String KEY_COMMANDS = "commands";
   static final String KEY_COMMAND = "command";
   static final String KEY_RESOURCE_TYPE = "resource type";
   static final String KEY_ENABLED_FOR_RESOURCE_VIEW = "enabled for resource view";
@@ -41,6 +62,7 @@ public class SharedFileManager
   static final String KEY_ENABLED_FOR_EDITOR = "enabled for editor";
   static final String KEY_NAME_FOR_EDITOR = "name for editor";
   static final String KEY_PASS_SELECTED_TEXT = "pass selected text";
+  static final String KEY_SHOW_OUTPUT_IN_CONSOLE = "show output in console";
   static final String KEY_STORAGE_OPTION = "store as";
   static final String KEY_SHARED_FILE = "shared file";
 
@@ -62,10 +84,24 @@ public class SharedFileManager
   public void exportCommandConfigToFile(CommandConfig commandConfig, IFile file)
       throws CoreException
   {
-    String jsonString = JSONValue
-        .toJSONString(commandConfigToJsonObject(commandConfig));
-    ByteArrayInputStream inputStream = new ByteArrayInputStream(
-        jsonString.getBytes());
+    this.exportCommandConfigsToFile(
+        Collections.singletonList(commandConfig), file);
+  }
+
+  /**
+   * Exports the given command configs to a file in the workspace, as a bundle
+   * if there is more than one. The file is written in one go, so the workspace
+   * only sees the complete bundle.
+   * 
+   * @param commandConfigs the {@link CommandConfig}s to export
+   * @param file the {@link IFile} to write to
+   * @throws CoreException if something goes wrong while exporting
+   */
+  public void exportCommandConfigsToFile(List<CommandConfig> commandConfigs,
+      IFile file) throws CoreException
+  {
+    ByteArrayInputStream inputStream = new ByteArrayInputStream(this
+        .convertToJsonString(commandConfigs).getBytes());
     if (file.exists())
     {
       file.setContents(inputStream, true, false, null);
@@ -76,6 +112,108 @@ public class SharedFileManager
     }
   }
 
+  /**
+   * Exports the shared command configs that have been changed to their shared
+   * files in one workspace operation. Command configs with the same shared
+   * file path are written to that file as one bundle, in the given order, if
+   * at least one of them has been changed (see {@link CommandConfig#isDirty()}
+   * ); files without changes are not touched at all. If a command has been
+   * moved to another shared file, its previous file is written again without
+   * it, or deleted if no other command is stored there. Resource change
+   * listeners are notified once, after all files have been written.
+   * 
+   * @param commandConfigs all command configs, those that are not stored as
+   *          shared files are ignored
+   * @return the number of files that have been written or deleted
+   * @throws CoreException if something goes wrong while exporting, the files
+   *           that have been written up to that point are kept
+   */
+  public int exportSharedCommandConfigs(
+      final Collection<CommandConfig> commandConfigs) throws CoreException
+  {
+    final Map<String, List<CommandConfig>> bundles = groupBySharedFile(commandConfigs);
+    final Set<String> dirtyPaths = getDirtySharedFilePaths(commandConfigs);
+    if (dirtyPaths.isEmpty())
+    {
+      return 0;
+    }
+    IWorkspace workspace = ResourcesPlugin.getWorkspace();
+    workspace.run(new IWorkspaceRunnable()
+    {
+      public void run(IProgressMonitor monitor) throws CoreException
+      {
+        for (String path : dirtyPaths)
+        {
+          IFile file = Util.getIFileInWorkspace(path);
+          List<CommandConfig> bundle = bundles.get(path);
+          if (bundle != null)
+          {
+            SharedFileManager.this.exportCommandConfigsToFile(bundle, file);
+            for (CommandConfig commandConfig : bundle)
+            {
+              commandConfig.markClean();
+            }
+          }
+          else if (file.exists())
+          {
+            // all commands have been moved to other files
+            file.delete(true, null);
+          }
+        }
+      }
+    }, workspace.getRoot(), IWorkspace.AVOID_UPDATE, null);
+    return dirtyPaths.size();
+  }
+
+  /**
+   * @param commandConfigs all command configs
+   * @return the paths of the shared files that need to be written because a
+   *         command that is (or has been) stored there has been changed
+   */
+  static Set<String> getDirtySharedFilePaths(
+      Collection<CommandConfig> commandConfigs)
+  {
+    Set<String> dirtyPaths = new LinkedHashSet<String>();
+    for (CommandConfig commandConfig : commandConfigs)
+    {
+      if (!commandConfig.isDirty())
+      {
+        continue;
+      }
+      if (commandConfig.isStoreAsSharedFile())
+      {
+        dirtyPaths.add(commandConfig.getSharedFilePath());
+      }
+      String writtenSharedFilePath = commandConfig.getWrittenSharedFilePath();
+      if (writtenSharedFilePath != null)
+      {
+        dirtyPaths.add(writtenSharedFilePath);
+      }
+    }
+    return dirtyPaths;
+  }
+
+  static Map<String, List<CommandConfig>> groupBySharedFile(
+      Collection<CommandConfig> commandConfigs)
+  {
+    Map<String, List<CommandConfig>> bundles = new LinkedHashMap<String, List<CommandConfig>>();
+    for (CommandConfig commandConfig : commandConfigs)
+    {
+      if (commandConfig.isStoreAsSharedFile())
+      {
+        List<CommandConfig> bundle = bundles.get(commandConfig
+            .getSharedFilePath());
+        if (bundle == null)
+        {
+          bundle = new ArrayList<CommandConfig>();
+          bundles.put(commandConfig.getSharedFilePath(), bundle);
+        }
+        bundle.add(commandConfig);
+      }
+    }
+    return bundles;
+  }
+
   /**
    * Exports {@code commandConfig} to a file in the file system. Even if that
    * file happens to be in the workspace, the workspace does not automatically
@@ -115,6 +253,37 @@ public class SharedFileManager
     return JSONValue.toJSONString(export);
   }
 
+  /**
+   * @param commandConfigs the command configs
+   * @return the JSON text for a shared file with the given command configs, in
+   *         the single command format if there is exactly one
+   */
+  String convertToJsonString(List<CommandConfig> commandConfigs)
+  {
+    return JSONValue.toJSONString(this.toJsonObject(commandConfigs));
+  }
+
+  private Map<String, Object> toJsonObject(List<CommandConfig> commandConfigs)
+  {
+    if (commandConfigs.size() == 1)
+    {
+      return commandConfigToJsonObject(commandConfigs.get(0));
+    }
+    List<Map<String, Object>> commands = new ArrayList<Map<String, Object>>(
+        commandConfigs.size());
+    for (CommandConfig commandConfig : commandConfigs)
+    {
+      Map<String, Object> command = commandConfigToJsonObject(commandConfig);
+      // the version of the bundle applies
+      command.remove(KEY_VERSION);
+      commands.add(command);
+    }
+    Map<String, Object> bundle = new LinkedHashMap<String, Object>();
+    bundle.put(KEY_VERSION, BUNDLE_VERSION);
+    bundle.put(KEY_COMMANDS, commands);
+    return bundle;
+  }
+
   private Map<String, Object> commandConfigToJsonObject(
       CommandConfig commandConfig)
   {
@@ -139,40 +308,48 @@ public class SharedFileManager
     export
         .put(KEY_NAME_FOR_EDITOR, commandConfig.getNameForTextSelectionMenu());
     export.put(KEY_PASS_SELECTED_TEXT, commandConfig.isPassSelectedText());
+    export.put(KEY_SHOW_OUTPUT_IN_CONSOLE,
+        commandConfig.isShowOutputInConsole());
     export.put(KEY_STORAGE_OPTION, commandConfig.getStorageMode().name());
     export.put(KEY_SHARED_FILE, commandConfig.getSharedFilePath());
     return export;
   }
 
   /**
-   * Imports a {@link CommandConfig} from a file in the workspace.
+   * Imports the {@link CommandConfig}s from a file in the workspace, which
+   * might hold a single command or a bundle. The commands are in sync with
+   * their shared file, they are not written again unless they are changed.
    * 
    * @param file the {@link IFile} to read from
-   * @return the imported commandConfig
+   * @return the imported commandConfigs
    * @throws IOException if something goes wrong while importing
    * @throws ParseException if something goes wrong while importing
    * @throws CoreException should not happen
    */
-  public CommandConfig importCommandConfigFromFile(IFile file)
+  public List<CommandConfig> importCommandConfigsFromFile(IFile file)
       throws IOException, ParseException, CoreException
   {
     InputStreamReader reader = new InputStreamReader(file.getContents(true));
-    return readCommandFromFile(reader);
+    return markClean(readCommandsFromFile(reader));
   }
 
   /**
-   * Imports a {@link CommandConfig} from a file in the file system.
+   * Imports the {@link CommandConfig}s from a file in the file system, which
+   * might hold a single command or a bundle. The file is not the shared file of
+   * the commands (it might have been exported from another workspace), so
+   * commands that are stored as shared files are written to their shared file
+   * when the preferences are saved.
    * 
    * @param file the {@link File} to read from
-   * @return the imported commandConfig
+   * @return the imported commandConfigs
    * @throws IOException if something goes wrong while importing
    * @throws ParseException if something goes wrong while importing
    */
-  public CommandConfig importCommandConfigFromFile(File file)
+  public List<CommandConfig> importCommandConfigsFromFile(File file)
       throws IOException, ParseException
   {
     FileReader reader = new FileReader(file);
-    return readCommandFromFile(reader);
+    return readCommandsFromFile(reader);
   }
 
   public CommandConfig convertToCommandConfig(String json)
@@ -181,14 +358,43 @@ public class SharedFileManager
     return toCommandConfig(this.parser.parse(json));
   }
 
-  private CommandConfig readCommandFromFile(InputStreamReader reader)
+  /**
+   * @param json the JSON text of a shared file, as it has been read from the
+   *          file (the commands are in sync with their shared file)
+   * @return the command configs in it
+   * @throws ParseException if the text is not valid JSON
+   */
+  List<CommandConfig> convertToCommandConfigs(String json)
+      throws ParseException
+  {
+    try
+    {
+      return markClean(this.readCommands(new StringReader(json)));
+    }
+    catch (IOException e)
+    {
+      // can not happen when reading from a string
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static List<CommandConfig> markClean(
+      List<CommandConfig> commandConfigs)
+  {
+    for (CommandConfig commandConfig : commandConfigs)
+    {
+      commandConfig.markClean();
+    }
+    return commandConfigs;
+  }
+
+  private List<CommandConfig> readCommandsFromFile(InputStreamReader reader)
       throws IOException, ParseException
   {
     BufferedReader bufferedReader = new BufferedReader(reader);
     try
     {
-      return toCommandConfig(this.parser.parse(bufferedReader));
-
+      return this.readCommands(bufferedReader);
     }
     finally
     {
@@ -204,6 +410,39 @@ public class SharedFileManager
     }
   }
 
+  private List<CommandConfig> readCommands(Reader reader) throws IOException,
+      ParseException
+  {
+    CommandConfigContentHandler handler = new CommandConfigContentHandler(this);
+    this.parser.parse(reader, handler);
+    String version = handler.getVersion();
+    if (getMajorVersion(version) > getMajorVersion(BUNDLE_VERSION))
+    {
+      getLogFacility().logWarning(
+          "Shared file has version " + version
+              + ", which is newer than the supported version "
+              + BUNDLE_VERSION + ". Unknown properties are ignored.");
+    }
+    return handler.getCommandConfigs();
+  }
+
+  private static int getMajorVersion(String version)
+  {
+    if (version == null)
+    {
+      return 0;
+    }
+    int dot = version.indexOf('.');
+    try
+    {
+      return Integer.parseInt(dot != -1 ? version.substring(0, dot) : version);
+    }
+    catch (NumberFormatException e)
+    {
+      return 0;
+    }
+  }
+
   private CommandConfig toCommandConfig(Object parsingResult)
   {
     if (!(parsingResult instanceof JSONObject))
@@ -212,7 +451,17 @@ public class SharedFileManager
           "Input was not parsed to a JSONObject, but to a "
               + parsingResult.getClass().getName() + ".");
     }
-    JSONObject jsonObject = (JSONObject) parsingResult;
+    return this.toCommandConfig((JSONObject) parsingResult);
+  }
+
+  /**
+   * Creates a command config from the (flat) properties of a command object.
+   * 
+   * @param jsonObject the properties
+   * @return the command config
+   */
+  CommandConfig toCommandConfig(Map<?, ?> jsonObject)
+  {
     CommandConfig commandConfig = new CommandConfig(
         (String) jsonObject.get(KEY_COMMAND),
         ResourceType.fromName((String) jsonObject.get(KEY_RESOURCE_TYPE)),
@@ -221,12 +470,14 @@ public class SharedFileManager
             jsonObject, KEY_ENABLED_FOR_EDITOR, true),
         (String) jsonObject.get(KEY_NAME_FOR_EDITOR), parseBoolean(jsonObject,
             KEY_PASS_SELECTED_TEXT, false));
+    commandConfig.setShowOutputInConsole(parseBoolean(jsonObject,
+        KEY_SHOW_OUTPUT_IN_CONSOLE, false));
 
     convertStorageMode(jsonObject, commandConfig);
     return commandConfig;
   }
 
-  private void convertStorageMode(JSONObject jsonObject,
+  private void convertStorageMode(Map<?, ?> jsonObject,
       CommandConfig commandConfig)
   {
     String storageModeAsString = (String) jsonObject.get(KEY_STORAGE_OPTION);
@@ -250,7 +501,7 @@ public class SharedFileManager
     }
   }
 
-  private boolean parseBoolean(JSONObject jsonObject, String key,
+  private boolean parseBoolean(Map<?, ?> jsonObject, String key,
       boolean defaultValue)
   {
     Boolean value = (Boolean) jsonObject.get(key);
@@ -266,13 +517,17 @@ public class SharedFileManager
 
   /**
    * Deletes the command config (which must be stored as a shared file) from the
-   * file system.
+   * file system. If other command configs are stored in the same file, the file
+   * is kept; it is written again without the deleted command when the
+   * preferences are saved.
    * 
    * @param commandConfig
+   * @param remainingCommandConfigs all other command configs
    * @throws IllegalArgumentException if the commandConfig is not stored as a
    *           shared file
    */
-  public void delete(CommandConfig commandConfig)
+  public void delete(CommandConfig commandConfig,
+      Collection<CommandConfig> remainingCommandConfigs)
   {
     if (!commandConfig.isStoreAsSharedFile())
     {
@@ -280,6 +535,20 @@ public class SharedFileManager
           "Can't delete a custom config which is not stored as a shared file from the file system.");
     }
     String sharedFilePath = commandConfig.getSharedFilePath();
+    boolean stillUsed = false;
+    for (CommandConfig remaining : remainingCommandConfigs)
+    {
+      if (remaining != commandConfig && remaining.isStoreAsSharedFile()
+          && sharedFilePath.equals(remaining.getSharedFilePath()))
+      {
+        remaining.markDirty();
+        stillUsed = true;
+      }
+    }
+    if (stillUsed)
+    {
+      return;
+    }
     IFile file = Util.getIFileInWorkspace(sharedFilePath);
     try
     {
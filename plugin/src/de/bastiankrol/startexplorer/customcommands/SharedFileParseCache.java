@@ -0,0 +1,213 @@
+package de.bastiankrol.startexplorer.customcommands;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.json.simple.parser.ParseException;
+
+/**
+ * Remembers which shared files have already been parsed, keyed by the full
+ * path of the file together with its modification stamp and length. As long
+ * as neither has changed, the command configs are served from the cache and
+ * the file is not read at all. This makes searching the workspace again (after
+ * the index has been reset or when a project is opened) cheap.
+ *
+ * The cache does not hand out the command configs it has been given: it keeps
+ * the JSON they have been parsed from and creates new command configs for
+ * every lookup, so changing them (like the preference model does) does not
+ * change the cache. The cache is not persisted on its own; the
+ * {@link SharedFileIndex} saves the modification stamps and lengths of the
+ * files it contains together with their command configs and restores the
+ * cache from there (see {@link #getStamp(String, String)} and
+ * {@link #putStamp(String, String, String)}). Entries are removed when the
+ * file or its project is deleted, but not when the project is closed.
+ *
+ * @author Bastian Krol
+ */
+class SharedFileParseCache
+{
+  /** The entries by full path. Guarded by this. */
+  private final TreeMap<String, Entry> entries = new TreeMap<String, Entry>();
+
+  /** Guarded by this. */
+  private int hits;
+
+  /** Guarded by this. */
+  private int misses;
+
+  /**
+   * Returns the command configs parsed from the shared file with the given
+   * path, if the file has not changed since then.
+   *
+   * @param path the full path of the shared file
+   * @param modificationStamp the current modification stamp of the file
+   * @param length the current length of the file, -1 if unknown
+   * @return new command configs or {@code null} if the file needs to be parsed
+   */
+  synchronized List<CommandConfig> get(String path, long modificationStamp,
+      long length)
+  {
+    Entry entry = this.entries.get(path);
+    if (entry == null || entry.modificationStamp != modificationStamp
+        || entry.length != length)
+    {
+      this.misses++;
+      return null;
+    }
+    List<CommandConfig> commandConfigs = toCommandConfigs(entry.json);
+    if (commandConfigs == null)
+    {
+      // the restored JSON is corrupt
+      this.entries.remove(path);
+      this.misses++;
+      return null;
+    }
+    this.hits++;
+    return commandConfigs;
+  }
+
+  /**
+   * Remembers the command configs parsed from the shared file with the given
+   * path. Later changes to the given command configs do not affect the cache.
+   *
+   * @param path the full path of the shared file
+   * @param modificationStamp the modification stamp of the file when it has
+   *          been parsed
+   * @param length the length of the file when it has been parsed, -1 if
+   *          unknown
+   * @param commandConfigs the command configs
+   */
+  synchronized void put(String path, long modificationStamp, long length,
+      List<CommandConfig> commandConfigs)
+  {
+    this.entries.put(path, new Entry(modificationStamp, length,
+        new SharedFileManager().convertToJsonString(commandConfigs)));
+  }
+
+  synchronized void remove(String path)
+  {
+    this.entries.remove(path);
+  }
+
+  /**
+   * Removes the entries of all files below the given path.
+   *
+   * @param prefix the full path of a folder or project, with a trailing slash
+   */
+  synchronized void removeAllBelow(String prefix)
+  {
+    Iterator<String> iterator = this.entries.tailMap(prefix).keySet()
+        .iterator();
+    while (iterator.hasNext() && iterator.next().startsWith(prefix))
+    {
+      iterator.remove();
+    }
+  }
+
+  synchronized int size()
+  {
+    return this.entries.size();
+  }
+
+  /**
+   * Returns the modification stamp and length of the given shared file, if the
+   * cached command configs are the given ones; used by {@link SharedFileIndex}
+   * to save the cache together with the index.
+   *
+   * @param path the full path of the shared file
+   * @param json the command configs of the file, as JSON
+   * @return the modification stamp and the length, separated by a space, or
+   *         {@code null} if the file is not in the cache or has been cached
+   *         with other command configs
+   */
+  synchronized String getStamp(String path, String json)
+  {
+    Entry entry = this.entries.get(path);
+    if (entry == null || !entry.json.equals(json))
+    {
+      return null;
+    }
+    return entry.modificationStamp + " " + entry.length;
+  }
+
+  /**
+   * Restores an entry that has been saved with the index.
+   *
+   * @param path the full path of the shared file
+   * @param stamp the modification stamp and length, as returned by
+   *          {@link #getStamp(String, String)}
+   * @param json the command configs of the file, as JSON
+   */
+  synchronized void putStamp(String path, String stamp, String json)
+  {
+    int separator = stamp.indexOf(' ');
+    try
+    {
+      this.entries.put(path, new Entry(Long.parseLong(stamp.substring(0,
+          separator)), Long.parseLong(stamp.substring(separator + 1)), json));
+    }
+    catch (NumberFormatException e)
+    {
+      // corrupt, the file will be parsed again
+    }
+    catch (IndexOutOfBoundsException e)
+    {
+      // corrupt, the file will be parsed again
+    }
+  }
+
+  /**
+   * @return the number of lookups that have been served from the cache since
+   *         the last call to {@link #resetStatistics()}
+   */
+  synchronized int getHits()
+  {
+    return this.hits;
+  }
+
+  /**
+   * @return the number of lookups that required parsing the file since the
+   *         last call to {@link #resetStatistics()}
+   */
+  synchronized int getMisses()
+  {
+    return this.misses;
+  }
+
+  synchronized void resetStatistics()
+  {
+    this.hits = 0;
+    this.misses = 0;
+  }
+
+  private static List<CommandConfig> toCommandConfigs(String json)
+  {
+    try
+    {
+      return new SharedFileManager().convertToCommandConfigs(json);
+    }
+    catch (ParseException e)
+    {
+      return null;
+    }
+    catch (IllegalArgumentException e)
+    {
+      return null;
+    }
+  }
+
+  private static class Entry
+  {
+    private final long modificationStamp;
+    private final long length;
+    private final String json;
+
+    private Entry(long modificationStamp, long length, String json)
+    {
+      this.modificationStamp = modificationStamp;
+      this.length = length;
+      this.json = json;
+    }
+  }
+}
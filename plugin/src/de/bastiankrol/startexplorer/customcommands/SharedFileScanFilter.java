@@ -0,0 +1,167 @@
+package de.bastiankrol.startexplorer.customcommands;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * Decides which folders and files are skipped when searching for shared
+ * custom command definitions. Derived resources are always skipped (hidden and
+ * team private members are never visited in the first place). In addition,
+ * the user can configure exclude patterns and a maximum folder depth.
+ * 
+ * Exclude patterns are separated by commas. A pattern without a slash is
+ * matched against the name of each folder and file (so {@code node_modules}
+ * skips all folders of that name), a pattern with a slash is matched against
+ * the path relative to the project (like {@code docs/old/**}). In both cases
+ * {@code *} matches any part of a name, {@code **} any number of folders and
+ * {@code ?} a single character.
+ * 
+ * Instances are immutable and can be shared between threads.
+ * 
+ * @author Bastian Krol
+ */
+class SharedFileScanFilter
+{
+  /** The filter that only skips derived resources. */
+  static final SharedFileScanFilter DERIVED_ONLY = new SharedFileScanFilter("",
+      Integer.MAX_VALUE);
+
+  private final List<Pattern> namePatterns = new ArrayList<Pattern>();
+  private final List<Pattern> pathPatterns = new ArrayList<Pattern>();
+  private final int maxDepth;
+
+  /**
+   * @param excludes the exclude patterns, separated by commas
+   * @param maxDepth the maximum number of folder levels below the project that
+   *          are searched
+   */
+  SharedFileScanFilter(String excludes, int maxDepth)
+  {
+    for (String exclude : excludes.split(","))
+    {
+      String glob = exclude.trim();
+      while (glob.endsWith("/"))
+      {
+        glob = glob.substring(0, glob.length() - 1);
+      }
+      while (glob.startsWith("/"))
+      {
+        glob = glob.substring(1);
+      }
+      if (glob.length() == 0)
+      {
+        continue;
+      }
+      if (glob.indexOf('/') == -1)
+      {
+        this.namePatterns.add(compile(glob));
+      }
+      else
+      {
+        this.pathPatterns.add(compile(glob));
+      }
+    }
+    this.maxDepth = maxDepth;
+  }
+
+  /**
+   * Decides if a folder is skipped, together with everything below it.
+   * 
+   * @param fullPath the full path of the folder (the first segment is the
+   *          project)
+   * @param derived if the folder is derived
+   * @return {@code true} if the folder is not searched
+   */
+  boolean isExcludedFolder(IPath fullPath, boolean derived)
+  {
+    return derived || fullPath.segmentCount() - 1 > this.maxDepth
+        || this.isExcluded(fullPath);
+  }
+
+  /**
+   * Decides if a shared file is skipped.
+   * 
+   * @param fullPath the full path of the file (the first segment is the
+   *          project)
+   * @param derived if the file is derived
+   * @return {@code true} if the file is not used
+   */
+  boolean isExcludedFile(IPath fullPath, boolean derived)
+  {
+    return derived || this.isExcluded(fullPath);
+  }
+
+  private boolean isExcluded(IPath fullPath)
+  {
+    String name = fullPath.lastSegment();
+    for (Pattern pattern : this.namePatterns)
+    {
+      if (pattern.matcher(name).matches())
+      {
+        return true;
+      }
+    }
+    if (!this.pathPatterns.isEmpty())
+    {
+      String projectRelativePath = fullPath.removeFirstSegments(1).toString();
+      for (Pattern pattern : this.pathPatterns)
+      {
+        if (pattern.matcher(projectRelativePath).matches())
+        {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static Pattern compile(String glob)
+  {
+    StringBuilder regex = new StringBuilder(glob.length() * 2);
+    for (int i = 0; i < glob.length(); i++)
+    {
+      char c = glob.charAt(i);
+      if (c == '*')
+      {
+        if (i + 1 < glob.length() && glob.charAt(i + 1) == '*')
+        {
+          i++;
+          if (i + 1 < glob.length() && glob.charAt(i + 1) == '/')
+          {
+            // "**/" also matches no folder at all
+            i++;
+            regex.append("(?:.*/)?");
+          }
+          else
+          {
+            regex.append(".*");
+          }
+        }
+        else
+        {
+          regex.append("[^/]*");
+        }
+      }
+      else if (c == '?')
+      {
+        regex.append("[^/]");
+      }
+      else
+      {
+        regex.append(Pattern.quote(String.valueOf(c)));
+      }
+    }
+    return Pattern.compile(regex.toString());
+  }
+
+  @Override
+  public String toString()
+  {
+    return "SharedFileScanFilter [namePatterns=" + this.namePatterns
+        + ", pathPatterns=" + this.pathPatterns + ", maxDepth="
+        + this.maxDepth + "]";
+  }
+}
@@ -4,14 +4,19 @@ import static de.bastiankrol.startexplorer.Activator.getLogFacility;
 import static de.bastiankrol.startexplorer.Activator.getPluginContext;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 
 import de.bastiankrol.startexplorer.ResourceType;
 import de.bastiankrol.startexplorer.crossplatform.IRuntimeExecCalls;
+import de.bastiankrol.startexplorer.launch.LaunchRequest;
 import de.bastiankrol.startexplorer.preferences.PreferenceModel;
 import de.bastiankrol.startexplorer.util.Validator;
 
@@ -62,6 +67,54 @@ public abstract class AbstractHandlerDelegate
     return getPluginContext().getPreferenceModel();
   }
 
+  /**
+   * Creates one launch request per target and hands them over to the launch
+   * queue, they will be executed in the background. Everything the launcher
+   * needs must already have been captured by the caller.
+   * 
+   * @param jobName the name of the background job
+   * @param targets the targets (files, lists of files, URLs) to launch
+   * @param launcher launches one target in the background job
+   */
+  <T> void enqueueLaunchRequests(String jobName, List<T> targets,
+      final Launcher<T> launcher)
+  {
+    List<LaunchRequest> launchRequests = new ArrayList<LaunchRequest>(
+        targets.size());
+    for (final T target : targets)
+    {
+      launchRequests.add(new LaunchRequest(launcher.describe(target))
+      {
+        @Override
+        public void launch()
+        {
+          this.launch(null);
+        }
+
+        @Override
+        public void launch(IProgressMonitor monitor)
+        {
+          launcher.launch(target, monitor);
+        }
+      });
+    }
+    getPluginContext().getLaunchQueue().enqueue(jobName, launchRequests);
+  }
+
+  /**
+   * Creates a launch request for one target and hands it over to the launch
+   * queue, it will be executed in the background.
+   * 
+   * @param jobName the name of the background job
+   * @param target the target (a file or a URL) to launch
+   * @param launcher launches the target in the background job
+   */
+  <T> void enqueueLaunchRequest(String jobName, T target, Launcher<T> launcher)
+  {
+    this.enqueueLaunchRequests(jobName, Collections.singletonList(target),
+        launcher);
+  }
+
   File resourceToFile(IResource resource, ResourceType resourceType,
       ExecutionEvent event) throws ExecutionException
   {
@@ -77,4 +130,38 @@ public abstract class AbstractHandlerDelegate
     return this.getValidator().checkPathAndShowMessage(pathString,
         resourceType, event);
   }
+
+  /**
+   * Does the actual work for one target of a launch, called from the launch
+   * job, never from the UI thread.
+   * 
+   * @param <T> the type of the targets
+   */
+  abstract static class Launcher<T>
+  {
+    /**
+     * Launches the given target.
+     * 
+     * @param target the target
+     * @param monitor the progress monitor of the launch job, may be
+     *          {@code null}
+     */
+    abstract void launch(T target, IProgressMonitor monitor);
+
+    /**
+     * Returns a short description of the given target, shown in the progress
+     * view.
+     * 
+     * @param target the target
+     * @return the description
+     */
+    String describe(T target)
+    {
+      if (target instanceof File)
+      {
+        return ((File) target).getAbsolutePath();
+      }
+      return String.valueOf(target);
+    }
+  }
 }
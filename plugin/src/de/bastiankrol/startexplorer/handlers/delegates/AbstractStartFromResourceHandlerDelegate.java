@@ -126,7 +126,10 @@ public abstract class AbstractStartFromResourceHandlerDelegate extends
   protected abstract ResourceType getResourceType();
 
   /**
-   * Executes the appropriate action for the given <code>pathList</code>
+   * Executes the appropriate action for the given <code>pathList</code>. This
+   * is called in the UI thread, implementations that start external processes
+   * should not do so directly but hand them over to the launch queue (see
+   * {@link #enqueueLaunchRequests(String, List, Launcher)}).
    * 
    * @param fileList the list of File objects to do something with
    */
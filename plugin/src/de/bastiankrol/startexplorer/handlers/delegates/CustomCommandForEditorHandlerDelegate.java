@@ -1,12 +1,19 @@
 package de.bastiankrol.startexplorer.handlers.delegates;
 
+import static de.bastiankrol.startexplorer.Activator.getPluginContext;
+
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+
 import de.bastiankrol.startexplorer.ResourceType;
 import de.bastiankrol.startexplorer.crossplatform.Capabilities;
+import de.bastiankrol.startexplorer.crossplatform.IRuntimeExecCalls;
 import de.bastiankrol.startexplorer.customcommands.CommandConfig;
+import de.bastiankrol.startexplorer.launch.ProcessOutputListener;
+import de.bastiankrol.startexplorer.variables.CommandBatch;
 
 /**
  * @author Bastian Krol
@@ -58,8 +65,27 @@ public class CustomCommandForEditorHandlerDelegate extends
   {
     // TODO Maybe we need make it possible to define custom commands as an array
     // of Strings instead of one String?
-    this.getRuntimeExecCalls().startCustomCommandForFile(
-        new String[] { this.getCommandConfig().getCommand() }, file);
+    final IRuntimeExecCalls runtimeExecCalls = this.getRuntimeExecCalls();
+    final String command = this.getCommandConfig().getCommand();
+    final ProcessOutputListener outputListener = getPluginContext()
+        .getCommandConsoleManager().getOutputListener(this.getCommandConfig());
+    final CommandBatch batch = runtimeExecCalls
+        .prepareCustomCommand(new String[] { command });
+    if (batch == null)
+    {
+      // custom commands are not supported, the user has been informed
+      return;
+    }
+    this.enqueueLaunchRequest(CustomCommandForResourceHandlerDelegate.JOB_NAME,
+        file, new Launcher<File>()
+        {
+          @Override
+          void launch(File file, IProgressMonitor monitor)
+          {
+            runtimeExecCalls.startCustomCommandForFile(batch, file,
+                outputListener, monitor);
+          }
+        });
   }
 
   /**
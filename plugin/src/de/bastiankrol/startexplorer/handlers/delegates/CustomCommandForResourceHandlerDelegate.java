@@ -1,10 +1,17 @@
 package de.bastiankrol.startexplorer.handlers.delegates;
 
+import static de.bastiankrol.startexplorer.Activator.*;
+
 import java.io.File;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+
 import de.bastiankrol.startexplorer.ResourceType;
+import de.bastiankrol.startexplorer.crossplatform.IRuntimeExecCalls;
 import de.bastiankrol.startexplorer.customcommands.CommandConfig;
+import de.bastiankrol.startexplorer.launch.ProcessOutputListener;
+import de.bastiankrol.startexplorer.variables.CommandBatch;
 
 /**
  * Examines the selection in the package explorer/navigator and opens a Windows
@@ -15,6 +22,7 @@ import de.bastiankrol.startexplorer.customcommands.CommandConfig;
 public class CustomCommandForResourceHandlerDelegate extends
     AbstractStartFromResourceHandlerDelegate
 {
+  static final String JOB_NAME = "Starting custom command";
 
   private CommandConfig commandConfig;
 
@@ -59,10 +67,35 @@ public class CustomCommandForResourceHandlerDelegate extends
   {
     // TODO Maybe we need make it possible to define custom commands as an array
     // of Strings instead of one String?
-    String[] cmdArray = this.getRuntimeExecCalls().convertCommandStringToArray(
-        this.getCommandConfig().getCommand());
-    this.getRuntimeExecCalls()
-        .startCustomCommandForFileList(cmdArray, fileList);
+    final IRuntimeExecCalls runtimeExecCalls = this.getRuntimeExecCalls();
+    final String command = this.getCommandConfig().getCommand();
+    final ProcessOutputListener outputListener = getPluginContext()
+        .getCommandConsoleManager().getOutputListener(this.getCommandConfig());
+    // The command is prepared once for the whole selection, every request
+    // stamps out a command array of its own.
+    final CommandBatch batch = runtimeExecCalls
+        .prepareCustomCommand(runtimeExecCalls
+            .convertCommandStringToArray(command));
+    if (batch == null)
+    {
+      // custom commands are not supported, the user has been informed
+      return;
+    }
+    this.enqueueLaunchRequests(JOB_NAME, fileList, new Launcher<File>()
+    {
+      @Override
+      void launch(File file, IProgressMonitor monitor)
+      {
+        if (batch.hasFailed())
+        {
+          // the user has been informed about the first failure, the other
+          // files are skipped
+          return;
+        }
+        runtimeExecCalls.startCustomCommandForFile(batch, file, outputListener,
+            monitor);
+      }
+    });
   }
 
   /**
@@ -2,7 +2,10 @@ package de.bastiankrol.startexplorer.handlers.delegates;
 
 import java.io.File;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+
 import de.bastiankrol.startexplorer.ResourceType;
+import de.bastiankrol.startexplorer.crossplatform.IRuntimeExecCalls;
 
 /**
  * Examines the selected region in a text file, tries to interpret it as a
@@ -31,7 +34,16 @@ public class StartCmdExeFromEditorHandlerDelegate extends
    */
   protected void doActionForFile(File file)
   {
-    this.getRuntimeExecCalls().startShellForFile(file);
+    final IRuntimeExecCalls runtimeExecCalls = this.getRuntimeExecCalls();
+    this.enqueueLaunchRequest(StartCmdExeFromResourceHandlerDelegate.JOB_NAME,
+        file, new Launcher<File>()
+        {
+          @Override
+          void launch(File file, IProgressMonitor monitor)
+          {
+            runtimeExecCalls.startShellForFile(file);
+          }
+        });
   }
 
   /**
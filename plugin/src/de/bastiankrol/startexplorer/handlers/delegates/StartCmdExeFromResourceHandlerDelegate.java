@@ -3,7 +3,10 @@ package de.bastiankrol.startexplorer.handlers.delegates;
 import java.io.File;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+
 import de.bastiankrol.startexplorer.ResourceType;
+import de.bastiankrol.startexplorer.crossplatform.IRuntimeExecCalls;
 
 /**
  * Handler for the command start cmd.exe from resource
@@ -14,6 +17,7 @@ import de.bastiankrol.startexplorer.ResourceType;
 public class StartCmdExeFromResourceHandlerDelegate extends
     AbstractStartFromResourceHandlerDelegate
 {
+  static final String JOB_NAME = "Starting shell";
 
   /**
    * {@inheritDoc}
@@ -33,7 +37,15 @@ public class StartCmdExeFromResourceHandlerDelegate extends
   @Override
   protected void doActionForFileList(List<File> fileList)
   {
-    this.getRuntimeExecCalls().startShellForFileList(fileList);
+    final IRuntimeExecCalls runtimeExecCalls = this.getRuntimeExecCalls();
+    this.enqueueLaunchRequests(JOB_NAME, fileList, new Launcher<File>()
+    {
+      @Override
+      void launch(File file, IProgressMonitor monitor)
+      {
+        runtimeExecCalls.startShellForFile(file);
+      }
+    });
   }
 
   /**
@@ -4,9 +4,13 @@ import static de.bastiankrol.startexplorer.Activator.getPluginContext;
 
 import java.io.File;
 import java.net.URL;
+import java.util.Collections;
+
+import org.eclipse.core.runtime.IProgressMonitor;
 
 import de.bastiankrol.startexplorer.ResourceType;
 import de.bastiankrol.startexplorer.crossplatform.Capabilities;
+import de.bastiankrol.startexplorer.crossplatform.IRuntimeExecCalls;
 
 /**
  * Examines the selected region in a text file, tries to interpret it as a
@@ -43,8 +47,19 @@ public class StartExplorerFromEditorHandlerDelegate extends
    */
   protected void doActionForFile(File file)
   {
-    this.getRuntimeExecCalls().startFileManagerForFile(file,
-        this.getPreferenceModel().isSelectFileInExplorer());
+    final IRuntimeExecCalls runtimeExecCalls = this.getRuntimeExecCalls();
+    final boolean selectFile = this.getPreferenceModel()
+        .isSelectFileInExplorer();
+    this.enqueueLaunchRequest(StartExplorerFromResourceHandlerDelegate.JOB_NAME,
+        file, new Launcher<File>()
+        {
+          @Override
+          void launch(File file, IProgressMonitor monitor)
+          {
+            runtimeExecCalls.startFileManagerForFileList(
+                Collections.singletonList(file), selectFile);
+          }
+        });
   }
 
   @Override
@@ -56,7 +71,16 @@ public class StartExplorerFromEditorHandlerDelegate extends
   @Override
   protected void doActionForUrl(URL url)
   {
-    this.getRuntimeExecCalls().startFileManagerForUrl(url);
+    final IRuntimeExecCalls runtimeExecCalls = this.getRuntimeExecCalls();
+    this.enqueueLaunchRequest(StartExplorerFromResourceHandlerDelegate.JOB_NAME,
+        url, new Launcher<URL>()
+        {
+          @Override
+          void launch(URL url, IProgressMonitor monitor)
+          {
+            runtimeExecCalls.startFileManagerForUrl(url);
+          }
+        });
   }
 
   /**
@@ -5,7 +5,10 @@ import static de.bastiankrol.startexplorer.Activator.*;
 import java.io.File;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+
 import de.bastiankrol.startexplorer.ResourceType;
+import de.bastiankrol.startexplorer.crossplatform.IRuntimeExecCalls;
 
 /**
  * Examines the selection in the package explorer/navigator and opens a Windows
@@ -16,6 +19,7 @@ import de.bastiankrol.startexplorer.ResourceType;
 public class StartExplorerFromResourceHandlerDelegate extends
     AbstractStartFromResourceHandlerDelegate
 {
+  static final String JOB_NAME = "Starting file manager";
 
   /**
    * {@inheritDoc}
@@ -43,8 +47,35 @@ public class StartExplorerFromResourceHandlerDelegate extends
   @Override
   protected void doActionForFileList(List<File> fileList)
   {
-    this.getRuntimeExecCalls().startFileManagerForFileList(fileList,
-        this.getPreferenceModel().isSelectFileInExplorer());
+    if (fileList.isEmpty())
+    {
+      // no selected resource has a location in the file system
+      return;
+    }
+    final boolean selectFile = this.getPreferenceModel()
+        .isSelectFileInExplorer();
+    final IRuntimeExecCalls runtimeExecCalls = this.getRuntimeExecCalls();
+    // The files are grouped into file manager calls in the launch job,
+    // grouping needs to check which paths are files.
+    this.enqueueLaunchRequest(JOB_NAME, fileList, new Launcher<List<File>>()
+    {
+      @Override
+      void launch(List<File> files, IProgressMonitor monitor)
+      {
+        runtimeExecCalls.startFileManagerForFileList(files, selectFile);
+      }
+
+      @Override
+      String describe(List<File> files)
+      {
+        String description = files.get(0).getAbsolutePath();
+        if (files.size() > 1)
+        {
+          description += " and " + (files.size() - 1) + " more";
+        }
+        return description;
+      }
+    });
   }
 
   /**
@@ -3,8 +3,11 @@ package de.bastiankrol.startexplorer.handlers.delegates;
 import java.io.File;
 import java.net.URL;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+
 import de.bastiankrol.startexplorer.ResourceType;
 import de.bastiankrol.startexplorer.crossplatform.Capabilities;
+import de.bastiankrol.startexplorer.crossplatform.IRuntimeExecCalls;
 
 /**
  * Examines the selected region in a text file, tries to interpret it as a
@@ -33,7 +36,17 @@ public class StartSystemApplicationFromEditorHandlerDelegate extends
    */
   protected void doActionForFile(File file)
   {
-    this.getRuntimeExecCalls().startSystemApplicationForFile(file);
+    final IRuntimeExecCalls runtimeExecCalls = this.getRuntimeExecCalls();
+    this.enqueueLaunchRequest(
+        StartSystemApplicationFromResourceHandlerDelegate.JOB_NAME, file,
+        new Launcher<File>()
+        {
+          @Override
+          void launch(File file, IProgressMonitor monitor)
+          {
+            runtimeExecCalls.startSystemApplicationForFile(file);
+          }
+        });
   }
 
   @Override
@@ -45,7 +58,17 @@ public class StartSystemApplicationFromEditorHandlerDelegate extends
   @Override
   protected void doActionForUrl(URL url)
   {
-    this.getRuntimeExecCalls().startSystemApplicationForUrl(url);
+    final IRuntimeExecCalls runtimeExecCalls = this.getRuntimeExecCalls();
+    this.enqueueLaunchRequest(
+        StartSystemApplicationFromResourceHandlerDelegate.JOB_NAME, url,
+        new Launcher<URL>()
+        {
+          @Override
+          void launch(URL url, IProgressMonitor monitor)
+          {
+            runtimeExecCalls.startSystemApplicationForUrl(url);
+          }
+        });
   }
 
   /**
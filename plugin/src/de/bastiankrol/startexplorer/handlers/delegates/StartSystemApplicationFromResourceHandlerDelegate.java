@@ -3,7 +3,10 @@ package de.bastiankrol.startexplorer.handlers.delegates;
 import java.io.File;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+
 import de.bastiankrol.startexplorer.ResourceType;
+import de.bastiankrol.startexplorer.crossplatform.IRuntimeExecCalls;
 
 /**
  * Handler for the command start system application from resource handler
@@ -14,6 +17,8 @@ import de.bastiankrol.startexplorer.ResourceType;
 public class StartSystemApplicationFromResourceHandlerDelegate extends
     AbstractStartFromResourceHandlerDelegate
 {
+  static final String JOB_NAME = "Starting system application";
+
   /**
    * {@inheritDoc}
    * 
@@ -32,7 +37,15 @@ public class StartSystemApplicationFromResourceHandlerDelegate extends
   @Override
   protected void doActionForFileList(List<File> fileList)
   {
-    this.getRuntimeExecCalls().startSystemApplicationForFileList(fileList);
+    final IRuntimeExecCalls runtimeExecCalls = this.getRuntimeExecCalls();
+    this.enqueueLaunchRequests(JOB_NAME, fileList, new Launcher<File>()
+    {
+      @Override
+      void launch(File file, IProgressMonitor monitor)
+      {
+        runtimeExecCalls.startSystemApplicationForFile(file);
+      }
+    });
   }
 
   /**
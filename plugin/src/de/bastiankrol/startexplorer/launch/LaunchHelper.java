@@ -0,0 +1,450 @@
+package de.bastiankrol.startexplorer.launch;
+
+import static de.bastiankrol.startexplorer.Activator.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small shell process that is started once and then starts all further
+ * processes on behalf of the plug-in. Forking the Eclipse JVM (which might
+ * have a heap of several gigabytes) for every launch is expensive, forking a
+ * shell is not.
+ *
+ * The helper reads one request after another from its stdin. A request
+ * consists of the following lines:
+ * <ul>
+ * <li>the working directory (an empty line for none),</li>
+ * <li>the number of environment variables, followed by one line
+ * {@code NAME=value} per variable,</li>
+ * <li>the number of arguments, followed by one line per argument.</li>
+ * </ul>
+ * For each request, the helper writes one line to stdout, either {@code ok} or
+ * {@code error <reason>}. The started process is detached from the helper (it
+ * is reparented to init), its stdin, stdout and stderr are redirected to
+ * /dev/null.
+ *
+ * The helper is only available on Unix like systems. If it can not be started
+ * or has died before a request could be written,
+ * {@link #launch(String[], File, Map)} returns {@code false} and the caller is
+ * expected to fall back to {@link Runtime#exec(String[])}. If the helper dies
+ * or does not answer in time after a request has been written, it might
+ * already have started the command, so the launch fails instead of starting
+ * the command a second time. Either way, the helper is killed and a new helper
+ * is started on a later launch.
+ *
+ * @author Bastian Krol
+ */
+public class LaunchHelper
+{
+  static final String SHELL = "/bin/sh";
+
+  static final String SCRIPT = "exec 2>/dev/null\n" //
+      + "while IFS= read -r dir; do\n" //
+      + "  IFS= read -r envc || exit 0\n" //
+      + "  (\n" //
+      + "    i=0\n" //
+      + "    while [ $i -lt $envc ]; do\n" //
+      + "      IFS= read -r e || exit 0\n" //
+      + "      export \"$e\"\n" //
+      + "      i=$((i+1))\n" //
+      + "    done\n" //
+      + "    IFS= read -r argc || exit 0\n" //
+      + "    set --\n" //
+      + "    i=0\n" //
+      + "    while [ $i -lt $argc ]; do\n" //
+      + "      IFS= read -r a || exit 0\n" //
+      + "      set -- \"$@\" \"$a\"\n" //
+      + "      i=$((i+1))\n" //
+      + "    done\n" //
+      + "    if [ -n \"$dir\" ] && ! cd \"$dir\"; then\n" //
+      + "      echo \"error Cannot change to directory $dir\"\n" //
+      + "    elif ! command -v \"$1\" >/dev/null; then\n" //
+      + "      echo \"error Cannot run program $1\"\n" //
+      + "    else\n" //
+      + "      exec \"$@\" </dev/null >/dev/null 2>&1 &\n" //
+      + "      echo ok\n" //
+      + "    fi\n" //
+      + "  ) || exit 0\n" //
+      + "done\n";
+
+  /**
+   * How long to wait for the helper to answer a request before it is
+   * considered hung.
+   */
+  static final long RESPONSE_TIMEOUT_MILLIS = 5000L;
+
+  /**
+   * How long to wait after the helper has failed before a new helper is
+   * started.
+   */
+  static final long RESTART_DELAY_MILLIS = 30000L;
+
+  private Connection connection;
+  private long failedAt;
+  private boolean failed;
+  private boolean shutdown;
+
+  /**
+   * Checks whether the given command can be passed to the helper at all. The
+   * protocol is line based, so arguments containing line breaks can not be
+   * transferred.
+   *
+   * @param cmdArray the command and its arguments
+   * @param environment additional environment variables, might be {@code null}
+   * @return {@code true} if and only if the command can be launched by the
+   *         helper
+   */
+  static boolean canEncode(String[] cmdArray, Map<String, String> environment)
+  {
+    if (cmdArray.length == 0)
+    {
+      return false;
+    }
+    for (String argument : cmdArray)
+    {
+      if (containsLineBreak(argument))
+      {
+        return false;
+      }
+    }
+    if (environment != null)
+    {
+      for (Map.Entry<String, String> variable : environment.entrySet())
+      {
+        if (variable.getKey().length() == 0
+            || variable.getKey().indexOf('=') != -1
+            || containsLineBreak(variable.getKey())
+            || containsLineBreak(variable.getValue()))
+        {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean containsLineBreak(String string)
+  {
+    return string.indexOf('\n') != -1 || string.indexOf('\r') != -1;
+  }
+
+  /**
+   * Encodes a launch request in the format the helper script reads.
+   *
+   * @param cmdArray the command and its arguments
+   * @param workingDirectory the working directory, might be {@code null}
+   * @param environment additional environment variables, might be {@code null}
+   * @return the request
+   */
+  static String encode(String[] cmdArray, File workingDirectory,
+      Map<String, String> environment)
+  {
+    StringBuilder request = new StringBuilder();
+    request.append(workingDirectory != null ? workingDirectory
+        .getAbsolutePath() : "");
+    request.append('\n');
+    request.append(environment != null ? environment.size() : 0);
+    request.append('\n');
+    if (environment != null)
+    {
+      for (Map.Entry<String, String> variable : environment.entrySet())
+      {
+        request.append(variable.getKey());
+        request.append('=');
+        request.append(variable.getValue());
+        request.append('\n');
+      }
+    }
+    request.append(cmdArray.length);
+    request.append('\n');
+    for (String argument : cmdArray)
+    {
+      request.append(argument);
+      request.append('\n');
+    }
+    return request.toString();
+  }
+
+  /**
+   * Lets the helper start the given command. The helper is started on first
+   * use and restarted if it has failed more than {@link #RESTART_DELAY_MILLIS}
+   * ago. Waiting for the answer of the helper is limited to
+   * {@link #RESPONSE_TIMEOUT_MILLIS}, other launches are not blocked while
+   * waiting.
+   *
+   * @param cmdArray the command and its arguments
+   * @param workingDirectory the working directory, might be {@code null}
+   * @param environment additional environment variables for the started
+   *          process, might be {@code null}
+   * @return {@code true} if the helper has started the command, {@code false}
+   *         if the helper is not available or the command can not be passed to
+   *         it; in this case the caller needs to start the command by itself
+   * @throws IOException if the helper reports that the command can not be
+   *           started, or if the helper has died or has not answered after the
+   *           command has been passed to it (the command might have been
+   *           started or not, it must not be started again)
+   */
+  public boolean launch(String[] cmdArray, File workingDirectory,
+      Map<String, String> environment) throws IOException
+  {
+    if (!canEncode(cmdArray, environment))
+    {
+      return false;
+    }
+    Connection usedConnection;
+    Response response;
+    synchronized (this)
+    {
+      if (this.isDead())
+      {
+        return false;
+      }
+      usedConnection = this.connection;
+      try
+      {
+        if (usedConnection == null)
+        {
+          usedConnection = new Connection(this.startHelperProcess());
+          this.connection = usedConnection;
+          this.failed = false;
+          getLogFacility().logDebug("Started launch helper.");
+        }
+        response = usedConnection.send(encode(cmdArray, workingDirectory,
+            environment));
+      }
+      catch (IOException e)
+      {
+        this.die(usedConnection,
+            "The launch helper failed, falling back to direct exec: "
+                + e.getMessage());
+        return false;
+      }
+    }
+
+    String line;
+    try
+    {
+      if (!response.await(this.getResponseTimeoutMillis()))
+      {
+        String message = "The launch helper did not respond within "
+            + this.getResponseTimeoutMillis() + " ms, the command <"
+            + cmdArray[0] + "> might not have been started.";
+        this.die(usedConnection, message);
+        throw new IOException(message);
+      }
+      line = response.getLine();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      // The request has already been handed over, the helper will most
+      // likely start the command. Starting it again would be worse.
+      return true;
+    }
+    if (line == null)
+    {
+      String message = "The launch helper has terminated, the command <"
+          + cmdArray[0] + "> might not have been started.";
+      this.die(usedConnection, message);
+      throw new IOException(message);
+    }
+    else if (line.startsWith("error "))
+    {
+      throw new IOException(line.substring("error ".length()));
+    }
+    return true;
+  }
+
+  /**
+   * @return {@code true} if and only if the helper is not used at the moment,
+   *         because it has been shut down or because it has failed less than
+   *         {@link #RESTART_DELAY_MILLIS} ago
+   */
+  public synchronized boolean isDead()
+  {
+    return this.shutdown
+        || (this.failed && this.currentTimeMillis() - this.failedAt < RESTART_DELAY_MILLIS);
+  }
+
+  Process startHelperProcess() throws IOException
+  {
+    return Runtime.getRuntime().exec(new String[] { SHELL, "-c", SCRIPT });
+  }
+
+  long getResponseTimeoutMillis()
+  {
+    return RESPONSE_TIMEOUT_MILLIS;
+  }
+
+  long currentTimeMillis()
+  {
+    return System.currentTimeMillis();
+  }
+
+  /**
+   * Gives up the given connection, if it is still the current one. The next
+   * launch after {@link #RESTART_DELAY_MILLIS} starts a new helper.
+   */
+  private synchronized void die(Connection failedConnection, String message)
+  {
+    if (failedConnection != null && failedConnection != this.connection)
+    {
+      // has already been given up
+      return;
+    }
+    getLogFacility().logWarning(message);
+    this.failed = true;
+    this.failedAt = this.currentTimeMillis();
+    if (this.connection != null)
+    {
+      this.connection.close();
+      this.connection = null;
+    }
+  }
+
+  /**
+   * Terminates the helper. Processes that have been started by the helper keep
+   * running.
+   */
+  public synchronized void shutdown()
+  {
+    this.shutdown = true;
+    if (this.connection != null)
+    {
+      this.connection.close();
+      this.connection = null;
+    }
+  }
+
+  /**
+   * One running helper process. Requests are written by the launching threads,
+   * the responses are read by a reader thread of its own and handed over to
+   * the waiting launches in the order of the requests.
+   */
+  private class Connection implements Runnable
+  {
+    private final Process helperProcess;
+    private final Writer requests;
+    private final BufferedReader responses;
+    private final LinkedList<Response> pendingResponses = new LinkedList<Response>();
+    private boolean terminated;
+
+    Connection(Process helperProcess)
+    {
+      this.helperProcess = helperProcess;
+      this.requests = new OutputStreamWriter(helperProcess.getOutputStream());
+      this.responses = new BufferedReader(new InputStreamReader(
+          helperProcess.getInputStream()));
+      Thread reader = new Thread(this, "StartExplorer launch helper reader");
+      reader.setDaemon(true);
+      reader.start();
+    }
+
+    /**
+     * Writes a request, must be called while holding the lock of the launch
+     * helper, so requests and pending responses are in the same order.
+     */
+    Response send(String request) throws IOException
+    {
+      Response response = new Response();
+      synchronized (this.pendingResponses)
+      {
+        if (this.terminated)
+        {
+          throw new IOException("The helper process has terminated.");
+        }
+        this.pendingResponses.addLast(response);
+      }
+      this.requests.write(request);
+      this.requests.flush();
+      return response;
+    }
+
+    @Override
+    public void run()
+    {
+      try
+      {
+        String line;
+        while ((line = this.responses.readLine()) != null)
+        {
+          Response response;
+          synchronized (this.pendingResponses)
+          {
+            response = this.pendingResponses.poll();
+          }
+          if (response != null)
+          {
+            response.complete(line);
+          }
+        }
+      }
+      catch (IOException e)
+      {
+        // the helper has been destroyed or has died
+      }
+      synchronized (this.pendingResponses)
+      {
+        this.terminated = true;
+        for (Response response : this.pendingResponses)
+        {
+          response.complete(null);
+        }
+        this.pendingResponses.clear();
+      }
+      die(this, "The launch helper has terminated.");
+    }
+
+    void close()
+    {
+      try
+      {
+        // closing stdin makes the helper script leave its loop
+        this.requests.close();
+      }
+      catch (IOException e)
+      {
+        // ignore, the helper is destroyed anyway
+      }
+      this.helperProcess.destroy();
+    }
+  }
+
+  /**
+   * The answer of the helper to one request.
+   */
+  private static class Response
+  {
+    private final CountDownLatch received = new CountDownLatch(1);
+    private volatile String line;
+
+    void complete(String line)
+    {
+      this.line = line;
+      this.received.countDown();
+    }
+
+    boolean await(long timeoutMillis) throws InterruptedException
+    {
+      return this.received.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the line written by the helper, {@code null} if the helper has
+     *         terminated before answering
+     */
+    String getLine()
+    {
+      return this.line;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package de.bastiankrol.startexplorer.launch;
+
+import static de.bastiankrol.startexplorer.Activator.getLogFacility;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+
+/**
+ * Executes a list of {@link LaunchRequest}s in the background. The job can be
+ * cancelled between two requests, also before it has been started. Either
+ * way, all requests that have not been executed are released from the
+ * {@link LaunchQueue} when the job is done.
+ *
+ * @author Bastian Krol
+ */
+class LaunchJob extends Job
+{
+  private final List<LaunchRequest> requests;
+  private final LaunchQueue queue;
+  private final AtomicInteger remaining;
+
+  LaunchJob(String name, List<LaunchRequest> requests, LaunchQueue queue)
+  {
+    super(name);
+    this.requests = requests;
+    this.queue = queue;
+    this.remaining = new AtomicInteger(requests.size());
+    this.addJobChangeListener(new JobChangeAdapter()
+    {
+      @Override
+      public void done(IJobChangeEvent event)
+      {
+        LaunchJob.this.queue.requestsDone(LaunchJob.this.remaining
+            .getAndSet(0));
+      }
+    });
+  }
+
+  @Override
+  protected IStatus run(IProgressMonitor monitor)
+  {
+    monitor.beginTask(this.getName(), this.requests.size());
+    try
+    {
+      for (LaunchRequest request : this.requests)
+      {
+        if (monitor.isCanceled())
+        {
+          getLogFacility().logDebug(
+              "Launch job " + this.getName() + " has been cancelled, "
+                  + this.remaining.get()
+                  + " launch requests have been skipped.");
+          return Status.CANCEL_STATUS;
+        }
+        monitor.subTask(request.getDescription());
+        try
+        {
+          request.launch(monitor);
+        }
+        catch (OperationCanceledException e)
+        {
+          getLogFacility().logDebug(
+              "Launch job " + this.getName() + " has been cancelled during "
+                  + request + ".");
+          return Status.CANCEL_STATUS;
+        }
+        catch (RuntimeException e)
+        {
+          getLogFacility().logException(
+              "Executing " + request + " failed.", e);
+        }
+        this.remaining.decrementAndGet();
+        this.queue.requestsDone(1);
+        monitor.worked(1);
+      }
+      return Status.OK_STATUS;
+    }
+    finally
+    {
+      monitor.done();
+    }
+  }
+
+  @Override
+  public boolean belongsTo(Object family)
+  {
+    return family == LaunchQueue.FAMILY;
+  }
+}
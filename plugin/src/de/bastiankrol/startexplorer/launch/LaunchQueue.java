@@ -0,0 +1,114 @@
+package de.bastiankrol.startexplorer.launch;
+
+import static de.bastiankrol.startexplorer.Activator.getLogFacility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Takes process launches off the UI thread. Handlers only snapshot the current
+ * selection into {@link LaunchRequest}s and enqueue them here, the requests are
+ * then executed by a {@link LaunchJob}.
+ *
+ * All launch jobs share one scheduling rule, so at most one of them runs at any
+ * time and launches happen in the order they have been requested. Large
+ * selections are split into several jobs of at most
+ * {@link #MAX_REQUESTS_PER_JOB} requests each, so no single job holds on to
+ * thousands of requests and cancelling one job from the progress view only
+ * skips its own chunk.
+ *
+ * @author Bastian Krol
+ */
+public class LaunchQueue
+{
+  /**
+   * Maximum number of launch requests that are executed by one launch job.
+   */
+  static final int MAX_REQUESTS_PER_JOB = 250;
+
+  /**
+   * The job family of all launch jobs.
+   */
+  static final Object FAMILY = new Object();
+
+  private final ISchedulingRule rule = new LaunchRule();
+  private final AtomicInteger pendingRequests = new AtomicInteger();
+
+  /**
+   * Enqueues the given launch requests. They will be executed asynchronously,
+   * in background jobs of at most {@link #MAX_REQUESTS_PER_JOB} requests each,
+   * in the order of the list.
+   *
+   * @param jobName the name of the jobs, shown in the progress view
+   * @param requests the requests to execute
+   */
+  public void enqueue(String jobName, List<LaunchRequest> requests)
+  {
+    int size = requests.size();
+    if (size == 0)
+    {
+      return;
+    }
+    int pending = this.pendingRequests.addAndGet(size);
+    int numberOfJobs = (size + MAX_REQUESTS_PER_JOB - 1) / MAX_REQUESTS_PER_JOB;
+    for (int from = 0; from < size; from += MAX_REQUESTS_PER_JOB)
+    {
+      int to = Math.min(from + MAX_REQUESTS_PER_JOB, size);
+      String name = numberOfJobs == 1 ? jobName : jobName + " ("
+          + (from / MAX_REQUESTS_PER_JOB + 1) + "/" + numberOfJobs + ")";
+      LaunchJob job = new LaunchJob(name, new ArrayList<LaunchRequest>(
+          requests.subList(from, to)), this);
+      job.setRule(this.rule);
+      job.schedule();
+    }
+    getLogFacility().logDebug(
+        "Enqueued " + size + " launch requests in " + numberOfJobs
+            + " launch jobs, " + pending + " launch requests pending.");
+  }
+
+  /**
+   * Returns the number of launch requests that have been enqueued but not yet
+   * been executed.
+   *
+   * @return the number of pending launch requests
+   */
+  public int getNumberOfPendingRequests()
+  {
+    return this.pendingRequests.get();
+  }
+
+  /**
+   * Cancels all launch jobs that are still waiting or running.
+   */
+  public void cancelAll()
+  {
+    Job.getJobManager().cancel(FAMILY);
+  }
+
+  void requestsDone(int numberOfRequests)
+  {
+    this.pendingRequests.addAndGet(-numberOfRequests);
+  }
+
+  /**
+   * A mutex rule, makes sure that only one launch job runs at a time.
+   */
+  private static class LaunchRule implements ISchedulingRule
+  {
+    @Override
+    public boolean contains(ISchedulingRule rule)
+    {
+      return rule == this;
+    }
+
+    @Override
+    public boolean isConflicting(ISchedulingRule rule)
+    {
+      return rule == this;
+    }
+  }
+}
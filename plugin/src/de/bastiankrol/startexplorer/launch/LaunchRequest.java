@@ -0,0 +1,69 @@
+package de.bastiankrol.startexplorer.launch;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * A single unit of work for the {@link LaunchQueue}, usually starting one
+ * external process for one file. Everything a request needs (the files, the
+ * {@link de.bastiankrol.startexplorer.crossplatform.IRuntimeExecCalls}
+ * instance, preference values) must be captured when the request is created on
+ * the UI thread, {@link #launch()} is executed later in a background job.
+ *
+ * @author Bastian Krol
+ */
+public abstract class LaunchRequest
+{
+  private final String description;
+
+  /**
+   * Creates a launch request.
+   *
+   * @param description a short description, shown as the sub task in the
+   *          progress view
+   */
+  public LaunchRequest(String description)
+  {
+    this.description = description != null ? description : "";
+  }
+
+  /**
+   * Returns the description of this request.
+   *
+   * @return the description of this request
+   */
+  public String getDescription()
+  {
+    return this.description;
+  }
+
+  /**
+   * Executes the request. This is called from a background job, never from the
+   * UI thread.
+   */
+  public abstract void launch();
+
+  /**
+   * Executes the request. The given monitor can be used to check for
+   * cancellation of long running steps and to report what is going on. The
+   * default implementation simply calls {@link #launch()}.
+   *
+   * @param monitor the progress monitor of the launch job
+   * @throws OperationCanceledException if the request has been cancelled
+   */
+  public void launch(IProgressMonitor monitor)
+  {
+    this.launch();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString()
+  {
+    return "LaunchRequest [" + this.description + "]";
+  }
+}
@@ -0,0 +1,91 @@
+package de.bastiankrol.startexplorer.launch;
+
+/**
+ * A bounded buffer for the output of a process. Only the last
+ * {@code capacity} bytes are kept, older bytes are overwritten, so a process
+ * that writes a lot of output can not exhaust the heap.
+ *
+ * @author Bastian Krol
+ */
+class OutputBuffer
+{
+  private final byte[] buffer;
+  private int start;
+  private int length;
+  private long totalBytes;
+
+  OutputBuffer(int capacity)
+  {
+    this.buffer = new byte[capacity];
+  }
+
+  synchronized void write(byte[] bytes, int offset, int count)
+  {
+    this.totalBytes += count;
+    int capacity = this.buffer.length;
+    if (count >= capacity)
+    {
+      // only the tail of the chunk survives
+      System.arraycopy(bytes, offset + count - capacity, this.buffer, 0,
+          capacity);
+      this.start = 0;
+      this.length = capacity;
+      return;
+    }
+    int end = (this.start + this.length) % capacity;
+    int firstPart = Math.min(count, capacity - end);
+    System.arraycopy(bytes, offset, this.buffer, end, firstPart);
+    System.arraycopy(bytes, offset + firstPart, this.buffer, 0, count
+        - firstPart);
+    int overflow = this.length + count - capacity;
+    if (overflow > 0)
+    {
+      this.start = (this.start + overflow) % capacity;
+      this.length = capacity;
+    }
+    else
+    {
+      this.length += count;
+    }
+  }
+
+  /**
+   * @return the number of bytes that have been written to this buffer in
+   *         total, including the bytes that have been dropped
+   */
+  synchronized long getTotalBytes()
+  {
+    return this.totalBytes;
+  }
+
+  /**
+   * @return {@code true} if and only if bytes have been dropped
+   */
+  synchronized boolean isTruncated()
+  {
+    return this.totalBytes > this.length;
+  }
+
+  synchronized boolean isEmpty()
+  {
+    return this.length == 0;
+  }
+
+  /**
+   * Returns the bytes that have been kept, decoded with the platform's default
+   * charset. If bytes have been dropped, the result starts with
+   * &quot;[...]&quot;.
+   *
+   * @return the retained output
+   */
+  @Override
+  public synchronized String toString()
+  {
+    byte[] bytes = new byte[this.length];
+    int firstPart = Math.min(this.length, this.buffer.length - this.start);
+    System.arraycopy(this.buffer, this.start, bytes, 0, firstPart);
+    System.arraycopy(this.buffer, 0, bytes, firstPart, this.length - firstPart);
+    String output = new String(bytes);
+    return this.isTruncated() ? "[...]" + output : output;
+  }
+}
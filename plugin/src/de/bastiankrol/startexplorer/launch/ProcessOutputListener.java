@@ -0,0 +1,40 @@
+package de.bastiankrol.startexplorer.launch;
+
+/**
+ * Receives the output of a supervised process while it is running. All methods
+ * are called from the thread of the {@link ProcessSupervisor}, never from the
+ * UI thread, so implementations must not block and need to be thread safe if
+ * they are also used from other threads.
+ *
+ * @author Bastian Krol
+ */
+public interface ProcessOutputListener
+{
+  /**
+   * Called once, after the process has been handed over to the supervisor and
+   * before any output is passed on.
+   *
+   * @param result the record of the process, still incomplete
+   */
+  void processStarted(ProcessResult result);
+
+  /**
+   * Called for each chunk of output the process writes. The byte array is
+   * reused after this method returns.
+   *
+   * @param result the record of the process
+   * @param isStandardError {@code true} for stderr, {@code false} for stdout
+   * @param bytes the buffer containing the output
+   * @param offset the offset of the output in {@code bytes}
+   * @param length the number of bytes
+   */
+  void outputReceived(ProcessResult result, boolean isStandardError,
+      byte[] bytes, int offset, int length);
+
+  /**
+   * Called once, after the process has terminated.
+   *
+   * @param result the record of the process, complete
+   */
+  void processTerminated(ProcessResult result);
+}
@@ -0,0 +1,158 @@
+package de.bastiankrol.startexplorer.launch;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The record of one process started by StartExplorer: the command, the exit
+ * code, the duration and the (truncated) output of the process. While the
+ * process is still running, {@link #isFinished()} returns {@code false} and
+ * the exit code is {@code null}.
+ *
+ * @author Bastian Krol
+ */
+public class ProcessResult
+{
+  private final String command;
+  private final File workingDirectory;
+  private final long startTime;
+  private final OutputBuffer standardOutput;
+  private final OutputBuffer standardError;
+  private final CountDownLatch finished = new CountDownLatch(1);
+  private volatile long endTime;
+  private volatile Integer exitCode;
+
+  ProcessResult(String command, File workingDirectory, int maxOutputBytes)
+  {
+    this.command = command;
+    this.workingDirectory = workingDirectory;
+    this.startTime = System.currentTimeMillis();
+    this.standardOutput = new OutputBuffer(maxOutputBytes);
+    this.standardError = new OutputBuffer(maxOutputBytes);
+  }
+
+  void finish(int exitCode)
+  {
+    this.endTime = System.currentTimeMillis();
+    this.exitCode = Integer.valueOf(exitCode);
+    this.finished.countDown();
+  }
+
+  OutputBuffer getStandardOutputBuffer()
+  {
+    return this.standardOutput;
+  }
+
+  OutputBuffer getStandardErrorBuffer()
+  {
+    return this.standardError;
+  }
+
+  /**
+   * @return the command, with its parts separated by spaces
+   */
+  public String getCommand()
+  {
+    return this.command;
+  }
+
+  /**
+   * @return the working directory of the process, might be {@code null}
+   */
+  public File getWorkingDirectory()
+  {
+    return this.workingDirectory;
+  }
+
+  /**
+   * @return the time the process has been started, in milliseconds since the
+   *         epoch
+   */
+  public long getStartTime()
+  {
+    return this.startTime;
+  }
+
+  /**
+   * @return {@code true} if and only if the process has terminated and has
+   *         been reaped
+   */
+  public boolean isFinished()
+  {
+    return this.exitCode != null;
+  }
+
+  /**
+   * @return the exit code of the process or {@code null} if it is still
+   *         running
+   */
+  public Integer getExitCode()
+  {
+    return this.exitCode;
+  }
+
+  /**
+   * @return {@code true} if and only if the process has terminated with a
+   *         non-zero exit code
+   */
+  public boolean hasFailed()
+  {
+    Integer code = this.exitCode;
+    return code != null && code.intValue() != 0;
+  }
+
+  /**
+   * @return the run time of the process in milliseconds; if the process is
+   *         still running, the time that has passed since it has been started
+   */
+  public long getDuration()
+  {
+    long end = this.isFinished() ? this.endTime : System.currentTimeMillis();
+    return end - this.startTime;
+  }
+
+  /**
+   * @return the last bytes the process has written to stdout
+   */
+  public String getStandardOutput()
+  {
+    return this.standardOutput.toString();
+  }
+
+  /**
+   * @return the last bytes the process has written to stderr
+   */
+  public String getStandardError()
+  {
+    return this.standardError.toString();
+  }
+
+  /**
+   * Waits until the process has terminated or the timeout has elapsed.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit the unit of {@code timeout}
+   * @return {@code true} if the process has terminated, {@code false} if the
+   *         timeout elapsed before
+   * @throws InterruptedException if the current thread is interrupted while
+   *           waiting
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit)
+      throws InterruptedException
+  {
+    return this.finished.await(timeout, unit);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString()
+  {
+    return "ProcessResult [command=" + this.command + ", exitCode="
+        + this.exitCode + ", duration=" + this.getDuration() + "ms]";
+  }
+}
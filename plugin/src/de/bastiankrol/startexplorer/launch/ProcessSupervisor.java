@@ -0,0 +1,465 @@
+package de.bastiankrol.startexplorer.launch;
+
+import static de.bastiankrol.startexplorer.Activator.getLogFacility;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import de.bastiankrol.startexplorer.util.MessageDialogHelper;
+
+/**
+ * Looks after the processes started by StartExplorer. For each process, stdout
+ * and stderr are drained into bounded buffers, so a process never blocks on a
+ * full pipe, and the process is reaped as soon as it terminates. The outcome
+ * of every process is recorded in a {@link ProcessResult}; the most recent
+ * results can be queried via {@link #getRecentResults()}. If a process
+ * terminates with a non-zero exit code and has written something to stderr,
+ * an error dialog is shown. Optionally, a {@link ProcessOutputListener} can be
+ * notified about the output while it arrives.
+ *
+ * All processes are looked after by one daemon thread, which polls the
+ * streams (reading only what is available, so it never blocks) and the exit
+ * values of the processes. The thread is started with the first process and
+ * ends when no process is left to look after.
+ *
+ * Processes are not destroyed when the plug-in stops, applications started by
+ * StartExplorer are supposed to outlive the workbench.
+ *
+ * @author Bastian Krol
+ */
+public class ProcessSupervisor
+{
+  /**
+   * Maximum number of bytes kept per stream and process.
+   */
+  static final int MAX_OUTPUT_BYTES = 8 * 1024;
+
+  /**
+   * Maximum number of results returned by {@link #getRecentResults()}.
+   */
+  static final int MAX_RECENT_RESULTS = 50;
+
+  /**
+   * How long the streams are still drained after the process has terminated,
+   * if there is still output arriving. A process might have passed its
+   * streams on to a child process that is still running.
+   */
+  static final long DRAIN_TIMEOUT_MILLIS = 2000L;
+
+  /**
+   * How long the supervisor thread sleeps when none of the processes had new
+   * output or has terminated.
+   */
+  static final long POLL_INTERVAL_MILLIS = 100L;
+
+  private static final int READ_BUFFER_SIZE = 1024;
+
+  private final LinkedList<ProcessResult> recentResults = new LinkedList<ProcessResult>();
+  private final MessageDialogHelper messageDialogHelper;
+
+  /*
+   * The processes that are currently looked after, the supervisor thread and
+   * the shutdown flag are guarded by the processes list.
+   */
+  private final List<SupervisedProcess> processes = new ArrayList<SupervisedProcess>();
+  private Thread thread;
+  private boolean shutdown;
+
+  /**
+   * Creates a new process supervisor.
+   *
+   * @param messageDialogHelper used to report failed processes
+   */
+  public ProcessSupervisor(MessageDialogHelper messageDialogHelper)
+  {
+    this.messageDialogHelper = messageDialogHelper;
+  }
+
+  /**
+   * Starts supervising the given process. Returns immediately.
+   *
+   * @param cmdArray the command that started the process
+   * @param workingDirectory the working directory of the process, might be
+   *          {@code null}
+   * @param process the process
+   * @return the result record, which is completed when the process terminates
+   */
+  public ProcessResult supervise(String[] cmdArray, File workingDirectory,
+      Process process)
+  {
+    return this.supervise(cmdArray, workingDirectory, process, null);
+  }
+
+  /**
+   * Starts supervising the given process and passes its output on to the given
+   * listener. Returns immediately.
+   *
+   * @param cmdArray the command that started the process
+   * @param workingDirectory the working directory of the process, might be
+   *          {@code null}
+   * @param process the process
+   * @param outputListener the listener to notify, might be {@code null}
+   * @return the result record, which is completed when the process terminates
+   */
+  public ProcessResult supervise(String[] cmdArray, File workingDirectory,
+      Process process, ProcessOutputListener outputListener)
+  {
+    ProcessResult result = new ProcessResult(join(cmdArray), workingDirectory,
+        MAX_OUTPUT_BYTES);
+    synchronized (this.recentResults)
+    {
+      this.recentResults.addFirst(result);
+      if (this.recentResults.size() > MAX_RECENT_RESULTS)
+      {
+        this.recentResults.removeLast();
+      }
+    }
+
+    // we never write to the process, so it should see EOF immediately
+    closeQuietly(process.getOutputStream());
+    synchronized (this.processes)
+    {
+      if (this.shutdown)
+      {
+        getLogFacility().logWarning(
+            "Process supervisor has been shut down, not supervising <"
+                + result.getCommand() + ">.");
+        return result;
+      }
+      this.processes.add(new SupervisedProcess(process, result,
+          outputListener));
+      if (this.thread == null)
+      {
+        this.thread = new Thread(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            superviseAll();
+          }
+        }, "StartExplorer process supervisor");
+        this.thread.setDaemon(true);
+        this.thread.start();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the results of the processes that have been started most
+   * recently, newest first. Results of processes that are still running are
+   * included.
+   *
+   * @return the results of the most recent processes
+   */
+  public List<ProcessResult> getRecentResults()
+  {
+    synchronized (this.recentResults)
+    {
+      return new ArrayList<ProcessResult>(this.recentResults);
+    }
+  }
+
+  /**
+   * Stops accepting new processes. Processes that are already supervised are
+   * still drained and reaped.
+   */
+  public void shutdown()
+  {
+    synchronized (this.processes)
+    {
+      this.shutdown = true;
+    }
+  }
+
+  /**
+   * The loop of the supervisor thread, runs until there are no more processes
+   * to look after.
+   */
+  void superviseAll()
+  {
+    List<SupervisedProcess> current = new ArrayList<SupervisedProcess>();
+    while (true)
+    {
+      synchronized (this.processes)
+      {
+        if (this.processes.isEmpty())
+        {
+          this.thread = null;
+          return;
+        }
+        current.clear();
+        current.addAll(this.processes);
+      }
+      boolean busy = false;
+      for (Iterator<SupervisedProcess> it = current.iterator(); it.hasNext();)
+      {
+        SupervisedProcess supervisedProcess = it.next();
+        busy |= supervisedProcess.poll();
+        if (!supervisedProcess.isDone())
+        {
+          it.remove();
+        }
+      }
+      if (!current.isEmpty())
+      {
+        // current now contains the processes that are done
+        synchronized (this.processes)
+        {
+          this.processes.removeAll(current);
+        }
+        for (SupervisedProcess supervisedProcess : current)
+        {
+          this.finish(supervisedProcess);
+        }
+        busy = true;
+      }
+      if (!busy)
+      {
+        try
+        {
+          Thread.sleep(POLL_INTERVAL_MILLIS);
+        }
+        catch (InterruptedException e)
+        {
+          synchronized (this.processes)
+          {
+            // a later call to supervise starts a new thread
+            this.thread = null;
+          }
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  private void finish(SupervisedProcess supervisedProcess)
+  {
+    ProcessResult result = supervisedProcess.result;
+    result.finish(supervisedProcess.exitCode.intValue());
+    if (supervisedProcess.outputListener != null)
+    {
+      try
+      {
+        supervisedProcess.outputListener.processTerminated(result);
+      }
+      catch (RuntimeException e)
+      {
+        getLogFacility().logException(
+            "Passing on termination of <" + result.getCommand()
+                + "> failed.", e);
+      }
+    }
+    this.report(result);
+  }
+
+  private void report(ProcessResult result)
+  {
+    if (!result.hasFailed())
+    {
+      getLogFacility().logDebug(
+          "Command <" + result.getCommand() + "> terminated after "
+              + result.getDuration() + " ms.");
+      return;
+    }
+    String standardError = result.getStandardError().trim();
+    getLogFacility().logWarning(
+        "Command <" + result.getCommand() + "> terminated with exit code "
+            + result.getExitCode() + " after " + result.getDuration()
+            + " ms. stderr: " + standardError);
+    // Some programs (most notably Explorer.exe) return non-zero exit codes
+    // even if everything went fine, so we only bother the user if the
+    // process actually complained.
+    if (standardError.length() > 0 && this.messageDialogHelper != null)
+    {
+      this.messageDialogHelper.displayErrorMessage("Command failed",
+          "The command " + result.getCommand()
+              + " terminated with exit code " + result.getExitCode()
+              + ".\n\n" + standardError);
+    }
+  }
+
+  private static String join(String[] cmdArray)
+  {
+    StringBuilder cmd = new StringBuilder();
+    for (String cmdPart : cmdArray)
+    {
+      if (cmd.length() > 0)
+      {
+        cmd.append(" ");
+      }
+      cmd.append(cmdPart);
+    }
+    return cmd.toString();
+  }
+
+  private static void closeQuietly(Closeable stream)
+  {
+    try
+    {
+      stream.close();
+    }
+    catch (IOException e)
+    {
+      // ignore
+    }
+  }
+
+  /**
+   * One process that is looked after by the supervisor thread.
+   */
+  private static class SupervisedProcess
+  {
+    private final Process process;
+    private final ProcessResult result;
+    private final ProcessOutputListener outputListener;
+    private final byte[] bytes = new byte[READ_BUFFER_SIZE];
+    private InputStream standardOutput;
+    private InputStream standardError;
+    private Integer exitCode;
+    private long exitTime;
+    private boolean started;
+
+    SupervisedProcess(Process process, ProcessResult result,
+        ProcessOutputListener outputListener)
+    {
+      this.process = process;
+      this.result = result;
+      this.outputListener = outputListener;
+      this.standardOutput = process.getInputStream();
+      this.standardError = process.getErrorStream();
+    }
+
+    /**
+     * Reads the output that is available without blocking and checks if the
+     * process has terminated.
+     *
+     * @return {@code true} if some output has been read
+     */
+    boolean poll()
+    {
+      if (!this.started)
+      {
+        this.started = true;
+        this.notifyStarted();
+      }
+      if (this.exitCode == null)
+      {
+        try
+        {
+          // check before reading, everything the process has written before
+          // it terminated is then read in this round
+          this.exitCode = Integer.valueOf(this.process.exitValue());
+          this.exitTime = System.currentTimeMillis();
+        }
+        catch (IllegalThreadStateException e)
+        {
+          // still running
+        }
+      }
+      boolean outputRead = false;
+      if (this.standardOutput != null)
+      {
+        outputRead |= this.drain(this.standardOutput, false);
+      }
+      if (this.standardError != null)
+      {
+        outputRead |= this.drain(this.standardError, true);
+      }
+      if (this.exitCode != null
+          && (!outputRead || System.currentTimeMillis() - this.exitTime > DRAIN_TIMEOUT_MILLIS))
+      {
+        // Nothing left or the streams have been inherited by a child of the
+        // process that is still writing, either way we stop here.
+        closeQuietly(this.standardOutput);
+        closeQuietly(this.standardError);
+        this.standardOutput = null;
+        this.standardError = null;
+      }
+      return outputRead;
+    }
+
+    /**
+     * @return {@code true} if the process has terminated and its streams have
+     *         been drained
+     */
+    boolean isDone()
+    {
+      return this.exitCode != null && this.standardOutput == null
+          && this.standardError == null;
+    }
+
+    private boolean drain(InputStream stream, boolean isStandardError)
+    {
+      OutputBuffer buffer = isStandardError ? this.result
+          .getStandardErrorBuffer() : this.result.getStandardOutputBuffer();
+      boolean outputRead = false;
+      try
+      {
+        int available;
+        while ((available = stream.available()) > 0)
+        {
+          int read = stream.read(this.bytes, 0,
+              Math.min(available, this.bytes.length));
+          if (read == -1)
+          {
+            break;
+          }
+          buffer.write(this.bytes, 0, read);
+          this.notifyListener(isStandardError, read);
+          outputRead = true;
+        }
+      }
+      catch (IOException e)
+      {
+        // stream has been closed, nothing more to read
+      }
+      return outputRead;
+    }
+
+    private void notifyStarted()
+    {
+      if (this.outputListener == null)
+      {
+        return;
+      }
+      try
+      {
+        this.outputListener.processStarted(this.result);
+      }
+      catch (RuntimeException e)
+      {
+        getLogFacility().logException(
+            "Passing on start of <" + this.result.getCommand() + "> failed.",
+            e);
+      }
+    }
+
+    private void notifyListener(boolean isStandardError, int length)
+    {
+      if (this.outputListener == null)
+      {
+        return;
+      }
+      try
+      {
+        this.outputListener.outputReceived(this.result, isStandardError,
+            this.bytes, 0, length);
+      }
+      catch (RuntimeException e)
+      {
+        // keep draining, otherwise the process might block
+        getLogFacility().logException(
+            "Passing on output of <" + this.result.getCommand()
+                + "> failed.", e);
+      }
+    }
+  }
+}
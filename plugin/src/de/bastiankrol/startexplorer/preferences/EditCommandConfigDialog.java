@@ -47,6 +47,7 @@ public class EditCommandConfigDialog extends Dialog
   private Button checkboxEnabledForTextSelection;
   private Text textNameForTextSelection;
   private Button checkboxPassSelectedText;
+  private Button checkboxShowOutputInConsole;
   private Combo comboResourceType;
   private List<CommandConfig> commandConfigList;
   private Button radioButtonPreferences;
@@ -149,6 +150,11 @@ public class EditCommandConfigDialog extends Dialog
     labelPassSelectedText.setText("Pass Selected Text to Application: ");
     this.checkboxPassSelectedText = new Button(dialogArea, SWT.CHECK);
 
+    Label labelShowOutputInConsole = new Label(dialogArea, SWT.HORIZONTAL
+        | SWT.SHADOW_NONE);
+    labelShowOutputInConsole.setText("Show Output in Console: ");
+    this.checkboxShowOutputInConsole = new Button(dialogArea, SWT.CHECK);
+
     // spacers
     new Label(dialogArea, SWT.NONE);
     new Label(dialogArea, SWT.NONE);
@@ -387,6 +393,8 @@ public class EditCommandConfigDialog extends Dialog
         .getLabel());
     this.checkboxPassSelectedText.setSelection(this.commandConfig
         .isPassSelectedText());
+    this.checkboxShowOutputInConsole.setSelection(this.commandConfig
+        .isShowOutputInConsole());
     this.textSharedFilename.setEnabled(this.radioButtonSharedFile
         .getSelection());
     this.radioButtonPreferences.setSelection(this.commandConfig
@@ -424,7 +432,13 @@ public class EditCommandConfigDialog extends Dialog
 
   private void flushViewToModel(CommandConfig commandConfig)
   {
-    commandConfig.setCommand(this.textCommand.getText());
+    String command = this.textCommand.getText();
+    if (!command.equals(commandConfig.getCommand()))
+    {
+      getPluginContext().getVariableManager().forgetTemplates(
+          commandConfig.getCommand());
+    }
+    commandConfig.setCommand(command);
     commandConfig.setEnabledForResourcesMenu(this.checkboxEnabledForResources
         .getSelection());
     commandConfig.setNameForResourcesMenu(this.textNameForResources.getText());
@@ -441,12 +455,15 @@ public class EditCommandConfigDialog extends Dialog
         .getText());
     commandConfig.setPassSelectedText(this.checkboxPassSelectedText
         .getSelection());
+    commandConfig.setShowOutputInConsole(this.checkboxShowOutputInConsole
+        .getSelection());
 
     if (this.radioButtonPreferences.getSelection())
     {
       if (commandConfig.isStoreAsSharedFile())
       {
-        this.sharedFileManager.delete(commandConfig);
+        this.sharedFileManager.delete(commandConfig, getPluginContext()
+            .getPreferenceModel().getCommandConfigList());
       }
       commandConfig.setStoreInPreferences();
     }
@@ -27,6 +27,7 @@ public class PreferenceConstantsAndDefaults
   private static final String KEY_CUSTOM_COMMAND_ENABLED_FOR_TEXT_SELECTION = "de.bastiankrol.startexplorer.command_enabled_for_text_selection_";
   private static final String KEY_CUSTOM_COMMAND_NAME_FOR_TEXT_SELECTION = "de.bastiankrol.startexplorer.command_name_text_selection_";
   private static final String KEY_CUSTOM_COMMAND_PASS_SELECTED_TEXT = "de.bastiankrol.startexplorer.command_pass_selected_text_";
+  private static final String KEY_CUSTOM_COMMAND_SHOW_OUTPUT_IN_CONSOLE = "de.bastiankrol.startexplorer.command_show_output_in_console_";
 
   /**
    * key for the copy resource path separator is-custom flag
@@ -52,6 +53,23 @@ public class PreferenceConstantsAndDefaults
   public static final String KEY_USE_CUSTOM_DESKTOP_ENVIRONMENT = "de.bastiankrol.startexplorer.use_custom_desktop_environment";
   public static final String KEY_SELECTED_DESKTOP_ENVIRONMENT = "de.bastiankrol.startexplorer.selected_desktop_environment";
 
+  /**
+   * key for the flag to start processes via the launch helper
+   */
+  public static final String KEY_USE_LAUNCH_HELPER = "de.bastiankrol.startexplorer.use_launch_helper";
+
+  /**
+   * key for the folders and files that are not searched for shared custom
+   * command definitions
+   */
+  public static final String KEY_SHARED_FILE_EXCLUDES = "de.bastiankrol.startexplorer.shared_file_excludes";
+
+  /**
+   * key for the maximum folder depth that is searched for shared custom command
+   * definitions
+   */
+  public static final String KEY_SHARED_FILE_MAX_DEPTH = "de.bastiankrol.startexplorer.shared_file_max_depth";
+
   public static final CommandConfig[] DEFAULT_CUSTOM_COMMANDS = new CommandConfig[] {};
 
   public static final boolean DEFAULT_COPY_RESOURCE_PATH_SEPARATOR_IS_CUSTOM = false;
@@ -68,6 +86,12 @@ public class PreferenceConstantsAndDefaults
 
   public static final boolean DEFAULT_USE_CUSTOM_DESKTOP_ENVIRONMENT = false;
 
+  public static final boolean DEFAULT_USE_LAUNCH_HELPER = false;
+
+  public static final String DEFAULT_SHARED_FILE_EXCLUDES = "node_modules, target, .git, .svn, .hg";
+
+  public static final int DEFAULT_SHARED_FILE_MAX_DEPTH = 16;
+
   public static String getCommandKey(int i)
   {
     return getCommandKey(KEY_CUSTOM_COMMAND, i);
@@ -103,6 +127,11 @@ public class PreferenceConstantsAndDefaults
     return getCommandKey(KEY_CUSTOM_COMMAND_PASS_SELECTED_TEXT, i);
   }
 
+  public static String getShowOutputInConsoleKey(int i)
+  {
+    return getCommandKey(KEY_CUSTOM_COMMAND_SHOW_OUTPUT_IN_CONSOLE, i);
+  }
+
   private static String getCommandKey(String keyPrefix, int i)
   {
     return keyPrefix + intToString(i);
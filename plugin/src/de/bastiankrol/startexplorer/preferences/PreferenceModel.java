@@ -5,9 +5,14 @@ import static de.bastiankrol.startexplorer.preferences.PreferenceConstantsAndDef
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.jface.preference.IPreferenceStore;
 
@@ -16,7 +21,6 @@ import de.bastiankrol.startexplorer.crossplatform.DesktopEnvironment;
 import de.bastiankrol.startexplorer.customcommands.CommandConfig;
 import de.bastiankrol.startexplorer.customcommands.SharedFileFinder;
 import de.bastiankrol.startexplorer.customcommands.SharedFileManager;
-import de.bastiankrol.startexplorer.util.Util;
 
 /**
  * Represents the preferences for the StartExplorer plug-in. All access to the
@@ -41,12 +45,29 @@ public class PreferenceModel
    * List of command configs
    */
   private List<CommandConfig> commandConfigList;
-  private boolean customCommandsFromSharedFileHaveBeenAdded;
+
+  /**
+   * The command configs from shared files that have been merged into the
+   * command config list (including those the user has removed from it since),
+   * compared by identity.
+   */
+  private Set<CommandConfig> mergedSharedCommandConfigs;
+
+  /**
+   * The version of the shared file search result that has been merged into
+   * the command config list.
+   */
+  private long mergedSharedFilesVersion;
 
   private SeparatorData separatorData;
 
   private boolean selectFileInExplorer;
 
+  private boolean useLaunchHelper;
+
+  private String sharedFileExcludes;
+  private int sharedFileMaxDepth;
+
   private boolean autoDetectDesktopEnvironment;
   private boolean useCustomeDesktopEnvironment;
   private DesktopEnvironment selectedDesktopEnvironment;
@@ -62,6 +83,7 @@ public class PreferenceModel
   {
     this.preferenceUtil = new PreferenceUtil();
     this.commandConfigList = new ArrayList<CommandConfig>();
+    this.resetMergedSharedCommandConfigs();
     this.separatorData = new SeparatorData();
     this.customDesktopEnvironmentContainer = new CustomDesktopEnvironmentContainer();
     this.sharedFileManager = new SharedFileManager();
@@ -74,16 +96,19 @@ public class PreferenceModel
    */
   public List<CommandConfig> getCommandConfigList()
   {
-    if (!this.customCommandsFromSharedFileHaveBeenAdded)
-    {
-      this.addCustomCommandsFromSharedFiles(this.commandConfigList);
-    }
+    this.mergeCustomCommandsFromSharedFiles();
     return this.commandConfigList;
   }
 
+  /**
+   * @return {@code true} if the search for shared files has finished and all
+   *         custom commands from shared files are in the command config list,
+   *         {@code false} if only the shared files of the projects that have
+   *         been searched so far are in the list
+   */
   public boolean customCommandsFromSharedFileHaveBeenAdded()
   {
-    return customCommandsFromSharedFileHaveBeenAdded;
+    return getPluginContext().getSharedFileFinder().hasFinished();
   }
 
   /**
@@ -94,6 +119,7 @@ public class PreferenceModel
   public void setCommandConfigList(List<CommandConfig> commandConfigList)
   {
     this.commandConfigList = commandConfigList;
+    this.resetMergedSharedCommandConfigs();
   }
 
   public SeparatorData getSeparatorData()
@@ -121,6 +147,36 @@ public class PreferenceModel
     this.selectFileInExplorer = selectFileInExplorer;
   }
 
+  public boolean isUseLaunchHelper()
+  {
+    return this.useLaunchHelper;
+  }
+
+  public void setUseLaunchHelper(boolean useLaunchHelper)
+  {
+    this.useLaunchHelper = useLaunchHelper;
+  }
+
+  public String getSharedFileExcludes()
+  {
+    return this.sharedFileExcludes;
+  }
+
+  public void setSharedFileExcludes(String sharedFileExcludes)
+  {
+    this.sharedFileExcludes = sharedFileExcludes;
+  }
+
+  public int getSharedFileMaxDepth()
+  {
+    return this.sharedFileMaxDepth;
+  }
+
+  public void setSharedFileMaxDepth(int sharedFileMaxDepth)
+  {
+    this.sharedFileMaxDepth = sharedFileMaxDepth;
+  }
+
   public boolean isAutoDetectDesktopEnvironment()
   {
     return this.autoDetectDesktopEnvironment;
@@ -171,8 +227,12 @@ public class PreferenceModel
     // list would write through to the default array, which is not what we want.
     this.commandConfigList = new ArrayList<CommandConfig>(
         Arrays.asList(DEFAULT_CUSTOM_COMMANDS));
+    this.resetMergedSharedCommandConfigs();
     this.separatorData.initializeFromDefaults();
     this.selectFileInExplorer = DEFAULT_SELECT_FILE_IN_EXPLORER;
+    this.useLaunchHelper = DEFAULT_USE_LAUNCH_HELPER;
+    this.sharedFileExcludes = DEFAULT_SHARED_FILE_EXCLUDES;
+    this.sharedFileMaxDepth = DEFAULT_SHARED_FILE_MAX_DEPTH;
     this.autoDetectDesktopEnvironment = DEFAULT_AUTO_DETECT_DESKTOP_ENVIRONMENT;
     this.useCustomeDesktopEnvironment = DEFAULT_USE_CUSTOM_DESKTOP_ENVIRONMENT;
     this.selectedDesktopEnvironment = DEFAULT_SELECTED_DESKTOP_ENVIRONMENT;
@@ -192,6 +252,9 @@ public class PreferenceModel
 
     this.separatorData.storeValues(store);
     store.setValue(KEY_SELECT_FILE_IN_EXPLORER, this.selectFileInExplorer);
+    store.setValue(KEY_USE_LAUNCH_HELPER, this.useLaunchHelper);
+    store.setValue(KEY_SHARED_FILE_EXCLUDES, this.sharedFileExcludes);
+    store.setValue(KEY_SHARED_FILE_MAX_DEPTH, this.sharedFileMaxDepth);
     store.setValue(KEY_AUTO_DETECT_DESKTOP_ENVIRONMENT,
         this.autoDetectDesktopEnvironment);
     store.setValue(KEY_USE_CUSTOM_DESKTOP_ENVIRONMENT,
@@ -221,26 +284,26 @@ public class PreferenceModel
             commandConfig.getNameForTextSelectionMenu());
         store.setValue(getPassSelectedTextKey(index),
             commandConfig.isPassSelectedText());
+        store.setValue(getShowOutputInConsoleKey(index),
+            commandConfig.isShowOutputInConsole());
         index++;
       }
-      else
-      {
-        String sharedFilePathAsString = commandConfig.getSharedFilePath();
-        IFile file = Util.getIFileInWorkspace(sharedFilePathAsString);
-        try
-        {
-          this.sharedFileManager.exportCommandConfigToFile(commandConfig, file);
-        }
-        catch (CoreException e)
-        {
-          getLogFacility().logException(
-              "Shared custom command " + commandConfig.toString()
-                  + " could not be exported to file "
-                  + file.getLocation().toString() + ".", e);
-        }
-      }
     }
     store.setValue(KEY_NUMBER_OF_CUSTOM_COMMANDS, index);
+    try
+    {
+      // only files with changed commands are written, commands that share a
+      // file are written to it as one bundle
+      int written = this.sharedFileManager
+          .exportSharedCommandConfigs(this.commandConfigList);
+      getLogFacility().logDebug(
+          "Stored custom commands, " + written + " shared file(s) written.");
+    }
+    catch (CoreException e)
+    {
+      getLogFacility().logException(
+          "Shared custom commands could not be exported.", e);
+    }
   }
 
   /**
@@ -255,30 +318,104 @@ public class PreferenceModel
     this.preferenceUtil.loadPreferencesFromStoreIntoPreferenceModel(this);
   }
 
-  private void addCustomCommandsFromSharedFiles(
-      List<CommandConfig> commandConfigList)
+  private void resetMergedSharedCommandConfigs()
+  {
+    this.mergedSharedCommandConfigs = Collections
+        .newSetFromMap(new IdentityHashMap<CommandConfig, Boolean>());
+    this.mergedSharedFilesVersion = Long.MIN_VALUE;
+  }
+
+  /**
+   * Brings the custom commands from shared files in the command config list up
+   * to date with the shared files that have been found so far. While the
+   * search is still running, this adds the shared files of each project as
+   * soon as it has been searched. Commands from shared files that have been
+   * changed or deleted are replaced or removed, commands that are still
+   * unchanged stay where they are (including changes the user has made to
+   * them but not yet saved).
+   */
+  private void mergeCustomCommandsFromSharedFiles()
   {
-    getLogFacility().logDebug(
-        "addCustomCommandsFromSharedFiles - start");
     SharedFileFinder sharedFileFinder = getPluginContext()
         .getSharedFileFinder();
-    if (sharedFileFinder.hasFinished())
+    long version = sharedFileFinder.getVersion();
+    if (version == this.mergedSharedFilesVersion)
     {
-      List<CommandConfig> commandConfigsFromSharedFiles = sharedFileFinder
-          .getResult();
-      commandConfigList.addAll(commandConfigsFromSharedFiles);
-      this.customCommandsFromSharedFileHaveBeenAdded = true;
-      getLogFacility().logDebug(
-          "Added custom command configs from shared files.");
+      return;
     }
-    else
+    List<CommandConfig> commandConfigsFromSharedFiles = sharedFileFinder
+        .getResult();
+    if (commandConfigsFromSharedFiles == null)
     {
-      this.customCommandsFromSharedFileHaveBeenAdded = false;
-      getPluginContext()
-          .getLogFacility()
-          .logWarning(
-              "Could not add custom command configs from shared files because search job has not finished yet.");
+      return;
     }
+    Set<CommandConfig> current = Collections
+        .newSetFromMap(new IdentityHashMap<CommandConfig, Boolean>());
+    current.addAll(commandConfigsFromSharedFiles);
+
+    // shared files that are owned by a command the user has created in this
+    // model, they have been written by the model itself
+    Set<String> ownedSharedFilePaths = new HashSet<String>();
+    for (CommandConfig commandConfig : this.commandConfigList)
+    {
+      if (!this.mergedSharedCommandConfigs.contains(commandConfig)
+          && commandConfig.isStoreAsSharedFile())
+      {
+        ownedSharedFilePaths.add(commandConfig.getSharedFilePath());
+      }
+    }
+    Map<String, List<CommandConfig>> addedBySharedFile = new LinkedHashMap<String, List<CommandConfig>>();
+    int added = 0;
+    for (CommandConfig commandConfig : commandConfigsFromSharedFiles)
+    {
+      String path = commandConfig.getSharedFilePath();
+      if (!this.mergedSharedCommandConfigs.contains(commandConfig)
+          && !ownedSharedFilePaths.contains(path))
+      {
+        List<CommandConfig> addedFromFile = addedBySharedFile.get(path);
+        if (addedFromFile == null)
+        {
+          addedFromFile = new ArrayList<CommandConfig>();
+          addedBySharedFile.put(path, addedFromFile);
+        }
+        addedFromFile.add(commandConfig);
+        added++;
+      }
+    }
+    // commands from a file that has been changed (for example, after it has
+    // been written by storeCustomCommands) take the place of their previous
+    // version, new files are appended
+    List<CommandConfig> merged = new ArrayList<CommandConfig>(
+        this.commandConfigList.size() + added);
+    for (CommandConfig commandConfig : this.commandConfigList)
+    {
+      if (this.mergedSharedCommandConfigs.contains(commandConfig)
+          && !current.contains(commandConfig))
+      {
+        List<CommandConfig> replacements = addedBySharedFile
+            .remove(commandConfig.getSharedFilePath());
+        if (replacements != null)
+        {
+          merged.addAll(replacements);
+        }
+      }
+      else
+      {
+        merged.add(commandConfig);
+      }
+    }
+    for (List<CommandConfig> addedFromFile : addedBySharedFile.values())
+    {
+      merged.addAll(addedFromFile);
+    }
+    // keep the list instance, the preference pages hold on to it
+    this.commandConfigList.clear();
+    this.commandConfigList.addAll(merged);
+    this.mergedSharedCommandConfigs = current;
+    this.mergedSharedFilesVersion = version;
+    getLogFacility().logDebug(
+        "Merged custom command configs from shared files, version " + version
+            + ", " + added + " added.");
   }
 
   public IPreferenceStore getPreferenceStore()
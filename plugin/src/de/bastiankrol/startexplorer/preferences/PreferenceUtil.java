@@ -51,6 +51,11 @@ class PreferenceUtil
     preferenceModel.setSeparatorData(separatorData);
     preferenceModel.setSelectFileInExplorer(this
         .loadSelectFileInExplorer(store));
+    preferenceModel.setUseLaunchHelper(this.loadUseLaunchHelper(store));
+    preferenceModel.setSharedFileExcludes(this
+        .loadSharedFileExcludes(store));
+    preferenceModel.setSharedFileMaxDepth(this
+        .loadSharedFileMaxDepth(store));
     preferenceModel.setAutoDetectDesktopEnvironment(this
         .loadAutoDetectDesktopEnvironment(store));
     preferenceModel.setUseCustomeDesktopEnvironment(this
@@ -87,6 +92,8 @@ class PreferenceUtil
           enabledForResourcesMenu, nameForResourcesMenu,
           enabledForTextSelectionMenu, nameForTextSelectionMenu,
           passSelectedText);
+      commandConfig.setShowOutputInConsole(store
+          .getBoolean(getShowOutputInConsoleKey(i)));
       commandConfigList.add(commandConfig);
     }
     return commandConfigList;
@@ -106,6 +113,21 @@ class PreferenceUtil
     return store.getBoolean(KEY_SELECT_FILE_IN_EXPLORER);
   }
 
+  private boolean loadUseLaunchHelper(IPreferenceStore store)
+  {
+    return store.getBoolean(KEY_USE_LAUNCH_HELPER);
+  }
+
+  private String loadSharedFileExcludes(IPreferenceStore store)
+  {
+    return store.getString(KEY_SHARED_FILE_EXCLUDES);
+  }
+
+  private int loadSharedFileMaxDepth(IPreferenceStore store)
+  {
+    return store.getInt(KEY_SHARED_FILE_MAX_DEPTH);
+  }
+
   private boolean loadAutoDetectDesktopEnvironment(IPreferenceStore store)
   {
     return store.getBoolean(KEY_AUTO_DETECT_DESKTOP_ENVIRONMENT);
@@ -215,6 +237,11 @@ class PreferenceUtil
     assertBoolean(store,
         KEY_CUSTOM_DESKTOP_ENVIRONMENT_FILE_PARTS_WANT_WRAPPING,
         DEFAULT_WINDOWS_CUSTOM_DESKTOP_ENVIRONMENT_FILE_PARTS_WANT_WRAPPING);
+
+    // Since 1.5
+    assertBoolean(store, KEY_USE_LAUNCH_HELPER, DEFAULT_USE_LAUNCH_HELPER);
+    assertString(store, KEY_SHARED_FILE_EXCLUDES, DEFAULT_SHARED_FILE_EXCLUDES);
+    assertInt(store, KEY_SHARED_FILE_MAX_DEPTH, DEFAULT_SHARED_FILE_MAX_DEPTH);
   }
 
   /**
@@ -237,6 +264,15 @@ class PreferenceUtil
     }
   }
 
+  private void assertInt(IPreferenceStore store, String key, int defaultValue)
+  {
+    if (!store.contains(key))
+    {
+      store.setDefault(key, defaultValue);
+      store.setValue(key, defaultValue);
+    }
+  }
+
   private void assertString(IPreferenceStore store, String key,
       String defaultValue)
   {
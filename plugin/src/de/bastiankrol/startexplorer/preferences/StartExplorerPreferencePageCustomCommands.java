@@ -5,6 +5,7 @@ import static de.bastiankrol.startexplorer.util.Util.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.MouseAdapter;
@@ -204,8 +205,15 @@ public class StartExplorerPreferencePageCustomCommands extends
   void refreshViewFromModel()
   {
     this.refreshTableCustomCommands();
-    this.buttonComeBackLater.setVisible(!this.getModel()
-        .customCommandsFromSharedFileHaveBeenAdded());
+    boolean searchRunning = !this.getModel()
+        .customCommandsFromSharedFileHaveBeenAdded();
+    if (searchRunning)
+    {
+      this.buttonComeBackLater.setText(getPluginContext()
+          .getSharedFileFinder().getTitleSharedFilesLater());
+      this.getPanel().layout(true);
+    }
+    this.buttonComeBackLater.setVisible(searchRunning);
   }
 
   private void refreshTableCustomCommands()
@@ -278,7 +286,8 @@ public class StartExplorerPreferencePageCustomCommands extends
           .getCommandConfigList().remove(selectedIndex);
       if (removedCommandConfig.isStoreAsSharedFile())
       {
-        this.sharedFileManager.delete(removedCommandConfig);
+        this.sharedFileManager.delete(removedCommandConfig, this.getModel()
+            .getCommandConfigList());
       }
       changed = true;
     }
@@ -329,9 +338,9 @@ public class StartExplorerPreferencePageCustomCommands extends
     {
       try
       {
-        CommandConfig commandConfig = this.sharedFileManager
-            .importCommandConfigFromFile(new File(importFilename));
-        this.getModel().getCommandConfigList().add(commandConfig);
+        List<CommandConfig> commandConfigs = this.sharedFileManager
+            .importCommandConfigsFromFile(new File(importFilename));
+        this.getModel().getCommandConfigList().addAll(commandConfigs);
         this.refreshViewFromModel();
       }
       catch (ParseException e)
@@ -1,5 +1,8 @@
 package de.bastiankrol.startexplorer.preferences;
 
+import static de.bastiankrol.startexplorer.preferences.PreferenceConstantsAndDefaults.*;
+
+import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.ModifyEvent;
 import org.eclipse.swt.events.ModifyListener;
@@ -11,8 +14,10 @@ import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Spinner;
 import org.eclipse.swt.widgets.Text;
 
+import de.bastiankrol.startexplorer.Activator;
 import de.bastiankrol.startexplorer.preferences.SeparatorData.SeparatorType;
 
 /**
@@ -31,6 +36,9 @@ public class StartExplorerPreferencePageGeneral extends
   private Button radioButtonTab;
   private Button radioButtonCustomSeparator;
   private Button checkboxSelectFileInExplorer;
+  private Button checkboxUseLaunchHelper;
+  private Text textSharedFileExcludes;
+  private Spinner spinnerSharedFileMaxDepth;
 
   /**
    * {@inheritDoc}
@@ -81,6 +89,66 @@ public class StartExplorerPreferencePageGeneral extends
             refreshSeparatorStuffFromModel();
           }
         });
+
+    this.checkboxUseLaunchHelper = new Button(compositeGeneralOptions,
+        SWT.CHECK);
+    this.checkboxUseLaunchHelper
+        .setText("Start Processes via Launch Helper (Linux/Mac OS)");
+    this.checkboxUseLaunchHelper
+        .setToolTipText("Starts a small helper process once, which then starts all other processes. This avoids forking the whole Eclipse process for each command.");
+    GridData gridDataUseLaunchHelper = new GridData(SWT.FILL, SWT.FILL, true,
+        false);
+    gridDataUseLaunchHelper.horizontalSpan = 2;
+    this.checkboxUseLaunchHelper.setLayoutData(gridDataUseLaunchHelper);
+    this.checkboxUseLaunchHelper.addSelectionListener(new SelectionAdapter()
+    {
+      @Override
+      public void widgetSelected(SelectionEvent e)
+      {
+        getModel().setUseLaunchHelper(
+            StartExplorerPreferencePageGeneral.this.checkboxUseLaunchHelper
+                .getSelection());
+      }
+    });
+
+    Label labelSharedFileExcludes = new Label(compositeGeneralOptions,
+        SWT.NONE);
+    labelSharedFileExcludes.setText("Do not search for shared files in: ");
+    this.textSharedFileExcludes = new Text(compositeGeneralOptions,
+        SWT.SINGLE | SWT.BORDER);
+    this.textSharedFileExcludes
+        .setToolTipText("Comma separated folder and file names (like node_modules) or paths relative to the project (like docs/**/old). * and ? are wildcards, ** matches any number of folders. Derived resources are never searched.");
+    GridData layoutDataSharedFileExcludes = new GridData(SWT.FILL, SWT.FILL,
+        true, false);
+    layoutDataSharedFileExcludes.widthHint = 250;
+    this.textSharedFileExcludes.setLayoutData(layoutDataSharedFileExcludes);
+    this.textSharedFileExcludes.addModifyListener(new ModifyListener()
+    {
+      public void modifyText(ModifyEvent event)
+      {
+        getModel().setSharedFileExcludes(
+            StartExplorerPreferencePageGeneral.this.textSharedFileExcludes
+                .getText());
+      }
+    });
+
+    Label labelSharedFileMaxDepth = new Label(compositeGeneralOptions,
+        SWT.NONE);
+    labelSharedFileMaxDepth
+        .setText("Maximum folder depth for shared files: ");
+    this.spinnerSharedFileMaxDepth = new Spinner(compositeGeneralOptions,
+        SWT.BORDER);
+    this.spinnerSharedFileMaxDepth.setMinimum(0);
+    this.spinnerSharedFileMaxDepth.setMaximum(999);
+    this.spinnerSharedFileMaxDepth.addModifyListener(new ModifyListener()
+    {
+      public void modifyText(ModifyEvent event)
+      {
+        getModel().setSharedFileMaxDepth(
+            StartExplorerPreferencePageGeneral.this.spinnerSharedFileMaxDepth
+                .getSelection());
+      }
+    });
   }
 
   private void createCopyResourcePathSeparatorSection(Composite parent)
@@ -232,5 +300,40 @@ public class StartExplorerPreferencePageGeneral extends
   {
     this.checkboxSelectFileInExplorer.setSelection(this.getModel()
         .isSelectFileInExplorer());
+    this.checkboxUseLaunchHelper.setSelection(this.getModel()
+        .isUseLaunchHelper());
+    String sharedFileExcludes = this.getModel().getSharedFileExcludes();
+    // Won't happen when running in Eclipse, just for testing
+    if (sharedFileExcludes == null)
+    {
+      sharedFileExcludes = "";
+    }
+    this.textSharedFileExcludes.setText(sharedFileExcludes);
+    this.spinnerSharedFileMaxDepth.setSelection(this.getModel()
+        .getSharedFileMaxDepth());
+  }
+
+  /**
+   * {@inheritDoc}
+   * 
+   * @see org.eclipse.jface.preference.PreferencePage#performOk()
+   */
+  @Override
+  public boolean performOk()
+  {
+    IPreferenceStore store = this.getPreferenceStore();
+    boolean sharedFileScanChanged = !this.getModel().getSharedFileExcludes()
+        .equals(store.getString(KEY_SHARED_FILE_EXCLUDES))
+        || this.getModel().getSharedFileMaxDepth() != store
+            .getInt(KEY_SHARED_FILE_MAX_DEPTH);
+    boolean returnValue = super.performOk();
+    Activator.getPluginContext().resetRuntimeExecCalls();
+    if (sharedFileScanChanged)
+    {
+      // folders that have been excluded before might contain shared files
+      Activator.getPluginContext().getSharedFileFinder()
+          .forceRefreshCustomCommandDefinitions();
+    }
+    return returnValue;
   }
 }
@@ -0,0 +1,194 @@
+package de.bastiankrol.startexplorer.util;
+
+/**
+ * Quotes file path/name parts for a command line. The rules for a target are
+ * precomputed into a table, so quoting an argument is a single scan over its
+ * characters. If an argument does not need to be changed, {@link #quote} returns
+ * the very same string without allocating anything.
+ *
+ * The targets:
+ * <ul>
+ * <li>{@link #PLAIN_ARGV}: the argument is passed on as is (the default on
+ * Linux and Mac OS, where each argument is a separate element of the command
+ * array).</li>
+ * <li>{@link #POSIX_SHELL}: whitespace is escaped with a backslash, so the
+ * shell does not split the argument.</li>
+ * <li>{@link #WINDOWS}: the argument is wrapped in double quotes, following
+ * the rules of {@code CommandLineToArgvW} (backslashes in front of a quote are
+ * doubled, quotes are escaped).</li>
+ * </ul>
+ *
+ * @author Bastian Krol
+ */
+public final class ArgumentQuoter
+{
+  /** Leaves arguments untouched. */
+  public static final ArgumentQuoter PLAIN_ARGV = new ArgumentQuoter(
+      new char[0], false);
+
+  /** Escapes whitespace with a backslash. */
+  public static final ArgumentQuoter POSIX_SHELL = new ArgumentQuoter(
+      new char[] { ' ', '\t', '\n' }, false);
+
+  /** Wraps arguments in double quotes for {@code CommandLineToArgvW}. */
+  public static final ArgumentQuoter WINDOWS = new ArgumentQuoter(new char[0],
+      true);
+
+  /**
+   * Escapes whitespace and wraps in double quotes afterwards, for desktop
+   * environments that have configured both.
+   */
+  private static final ArgumentQuoter POSIX_SHELL_IN_WINDOWS_QUOTES = new ArgumentQuoter(
+      new char[] { ' ', '\t', '\n' }, true);
+
+  private static final char ESCAPE_CHAR = '\\';
+  private static final char QUOTE_CHAR = '"';
+
+  /** Indexed by character, {@code true} if the character is escaped. */
+  private final boolean[] escapeTable;
+  private final boolean wrap;
+
+  private ArgumentQuoter(char[] charactersToEscape, boolean wrap)
+  {
+    int size = 0;
+    for (char c : charactersToEscape)
+    {
+      size = Math.max(size, c + 1);
+    }
+    this.escapeTable = new boolean[size];
+    for (char c : charactersToEscape)
+    {
+      this.escapeTable[c] = true;
+    }
+    this.wrap = wrap;
+  }
+
+  /**
+   * Returns the quoter matching the flags of a desktop environment (see
+   * doFilePartsWantWrapping/doFilePartsWantEscaping).
+   *
+   * @param wrap if file parts should be wrapped in quotes
+   * @param escape if spaces in file parts should be escaped
+   * @return the quoter
+   */
+  public static ArgumentQuoter forFileParts(boolean wrap, boolean escape)
+  {
+    if (wrap)
+    {
+      return escape ? POSIX_SHELL_IN_WINDOWS_QUOTES : WINDOWS;
+    }
+    else
+    {
+      return escape ? POSIX_SHELL : PLAIN_ARGV;
+    }
+  }
+
+  /**
+   * Quotes the given argument.
+   *
+   * @param argument the argument
+   * @return the quoted argument, or {@code argument} itself if nothing needs
+   *         to be changed
+   */
+  public String quote(String argument)
+  {
+    if (this.wrap)
+    {
+      return this.appendTo(new StringBuilder(argument.length() + 8), argument)
+          .toString();
+    }
+    int firstEscape = this.indexOfFirstEscape(argument);
+    if (firstEscape == -1)
+    {
+      return argument;
+    }
+    StringBuilder result = new StringBuilder(argument.length() + 8);
+    result.append(argument, 0, firstEscape);
+    this.escape(result, argument, firstEscape);
+    return result.toString();
+  }
+
+  /**
+   * Appends the quoted argument to the given builder. Callers that assemble a
+   * larger string can use this to avoid the intermediate string.
+   *
+   * @param builder the builder
+   * @param argument the argument
+   * @return the builder
+   */
+  public StringBuilder appendTo(StringBuilder builder, String argument)
+  {
+    if (!this.wrap)
+    {
+      this.escape(builder, argument, 0);
+      return builder;
+    }
+    builder.append(QUOTE_CHAR);
+    int backslashes = 0;
+    for (int i = 0; i < argument.length(); i++)
+    {
+      char c = argument.charAt(i);
+      if (c == ESCAPE_CHAR)
+      {
+        backslashes++;
+        continue;
+      }
+      // CommandLineToArgvW: 2n backslashes + quote => n backslashes and the
+      // quote ends the argument, 2n+1 backslashes + quote => n backslashes and
+      // a literal quote, backslashes not followed by a quote are literal
+      appendBackslashes(builder, c == QUOTE_CHAR ? 2 * backslashes + 1
+          : backslashes);
+      backslashes = 0;
+      if (this.isEscaped(c))
+      {
+        builder.append(ESCAPE_CHAR);
+      }
+      builder.append(c);
+    }
+    appendBackslashes(builder, 2 * backslashes);
+    builder.append(QUOTE_CHAR);
+    return builder;
+  }
+
+  private void escape(StringBuilder builder, String argument, int from)
+  {
+    for (int i = from; i < argument.length(); i++)
+    {
+      char c = argument.charAt(i);
+      if (this.isEscaped(c))
+      {
+        builder.append(ESCAPE_CHAR);
+      }
+      builder.append(c);
+    }
+  }
+
+  private int indexOfFirstEscape(String argument)
+  {
+    if (this.escapeTable.length == 0)
+    {
+      return -1;
+    }
+    for (int i = 0; i < argument.length(); i++)
+    {
+      if (this.isEscaped(argument.charAt(i)))
+      {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean isEscaped(char c)
+  {
+    return c < this.escapeTable.length && this.escapeTable[c];
+  }
+
+  private static void appendBackslashes(StringBuilder builder, int count)
+  {
+    for (int i = 0; i < count; i++)
+    {
+      builder.append(ESCAPE_CHAR);
+    }
+  }
+}
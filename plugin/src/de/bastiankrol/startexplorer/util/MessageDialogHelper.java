@@ -3,6 +3,7 @@ package de.bastiankrol.startexplorer.util;
 import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
 import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.ui.handlers.HandlerUtil;
 
@@ -38,12 +39,21 @@ public class MessageDialogHelper
    * {@link #displayErrorMessage(String, String, ExecutionEvent)} should be
    * used.
    * 
+   * This variant may also be called from a background thread, the dialog is
+   * then opened asynchronously in the UI thread.
+   * 
    * @param title the title of the dialog window
    * @param message the message of the dialog
    */
-  public void displayErrorMessage(String title, String message)
+  public void displayErrorMessage(final String title, final String message)
   {
-    MessageDialog.openError(SHELL, title, message);
+    this.runInUiThread(new Runnable()
+    {
+      public void run()
+      {
+        MessageDialog.openError(SHELL, title, message);
+      }
+    });
   }
 
   /**
@@ -61,14 +71,23 @@ public class MessageDialogHelper
   }
 
   /**
-   * Shows a message dialog with an informational message.
+   * Shows a message dialog with an informational message. This variant may
+   * also be called from a background thread, the dialog is then opened
+   * asynchronously in the UI thread.
    * 
    * @param title the title of the dialog window
    * @param message the message of the dialog
    */
-  public void displayInformationMessage(String title, String message)
+  public void displayInformationMessage(final String title,
+      final String message)
   {
-    MessageDialog.openInformation(SHELL, title, message);
+    this.runInUiThread(new Runnable()
+    {
+      public void run()
+      {
+        MessageDialog.openInformation(SHELL, title, message);
+      }
+    });
   }
 
   /**
@@ -83,4 +102,16 @@ public class MessageDialogHelper
   {
     return MessageDialog.openQuestion(SHELL, title, message);
   }
+
+  private void runInUiThread(Runnable runnable)
+  {
+    if (Display.getCurrent() != null)
+    {
+      runnable.run();
+    }
+    else
+    {
+      Display.getDefault().asyncExec(runnable);
+    }
+  }
 }
@@ -170,15 +170,7 @@ public class Util
   private static String wrapAndEscape(String string, boolean wrap,
       boolean escape)
   {
-    if (escape)
-    {
-      string = string.replaceAll(" ", "\\\\ ");
-    }
-    if (wrap)
-    {
-      string = "\"" + string + "\"";
-    }
-    return string;
+    return ArgumentQuoter.forFileParts(wrap, escape).quote(string);
   }
 
   public static IWorkspaceRoot getWorkspaceRoot()
@@ -0,0 +1,194 @@
+package de.bastiankrol.startexplorer.variables;
+
+import java.io.File;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * A command that is prepared for being started for many files, for example
+ * when a custom command is executed for a large selection. Everything that
+ * does not depend on the file is done once per batch: the command parts are
+ * compiled into {@link CommandTemplate}s and the parts without StartExplorer
+ * variables are passed to the Eclipse variables API only once (when the first
+ * command is stamped out, so this happens in the launch job, not in the UI
+ * thread). After that, {@link #stamp(File)} only evaluates the resource
+ * variables of the parts that reference them. The values of the Eclipse
+ * variable references are remembered for the whole batch (see
+ * {@link EclipseVariableMemo}), {@link #getEclipseVariableHits()} and
+ * {@link #getEclipseVariableMisses()} show how many calls to the Eclipse
+ * variables API have been saved.
+ *
+ * If an Eclipse variable reference can not be resolved (or not in time, see
+ * {@link TimeBoxedVariableResolver}), the user is informed once and the whole
+ * batch fails: every further call to {@link #stamp(File)} throws without
+ * calling the Eclipse variables API again.
+ *
+ * Instances are created by {@link VariableManager#prepareBatch}.
+ *
+ * @author Bastian Krol
+ */
+public class CommandBatch
+{
+  private final EclipseVariableMemo eclipseVariables;
+  private final CommandTemplate[] templates;
+  private final boolean wrapFileParts;
+  private final boolean escapeFileParts;
+
+  /**
+   * The parts that do not depend on the file, with the Eclipse variables
+   * replaced; {@code null} for the other parts. Filled on the first call to
+   * {@link #stamp(File)}.
+   */
+  private String[] fileIndependentParts;
+
+  /**
+   * The reason why the variables of this batch could not be resolved,
+   * {@code null} as long as nothing has failed.
+   */
+  private RuntimeException failure;
+
+  CommandBatch(VariableManager variableManager, CommandTemplate[] templates,
+      boolean wrapFileParts, boolean escapeFileParts)
+  {
+    this.eclipseVariables = new EclipseVariableMemo(variableManager);
+    this.templates = templates;
+    this.wrapFileParts = wrapFileParts;
+    this.escapeFileParts = escapeFileParts;
+  }
+
+  /**
+   * @return the number of command parts
+   */
+  public int size()
+  {
+    return this.templates.length;
+  }
+
+  /**
+   * Creates the command for the given file.
+   *
+   * @param file the file
+   * @return a new array with all variables replaced
+   */
+  public String[] stamp(File file)
+  {
+    return this.stamp(file, null);
+  }
+
+  /**
+   * Creates the command for the given file. Resolving the Eclipse variables
+   * can be cancelled via the given monitor.
+   *
+   * @param file the file
+   * @param monitor the progress monitor of the launch job, might be
+   *          {@code null}
+   * @return a new array with all variables replaced
+   * @throws OperationCanceledException if the monitor has been cancelled while
+   *           resolving the variables
+   * @throws RuntimeException if the variables could not be resolved, either
+   *           for this file or for an earlier file of this batch
+   */
+  public String[] stamp(File file, IProgressMonitor monitor)
+  {
+    String[] fileIndependent = this.getFileIndependentParts(monitor);
+    String[] cmdArray = new String[this.templates.length];
+    for (int i = 0; i < cmdArray.length; i++)
+    {
+      if (fileIndependent[i] != null)
+      {
+        cmdArray[i] = fileIndependent[i];
+        continue;
+      }
+      CommandTemplate template = this.templates[i];
+      String expanded = template.expand(file, this.wrapFileParts,
+          this.escapeFileParts);
+      if (template.needsEclipseSubstitution(expanded))
+      {
+        expanded = this.resolveEclipseVariables(expanded, monitor);
+      }
+      cmdArray[i] = expanded;
+    }
+    return cmdArray;
+  }
+
+  /**
+   * @return {@code true} if the variables of this batch could not be resolved,
+   *         that is, no further command can be created
+   */
+  public synchronized boolean hasFailed()
+  {
+    return this.failure != null;
+  }
+
+  /**
+   * @return the number of Eclipse variable references whose value has been
+   *         taken from the memo of this batch
+   */
+  public int getEclipseVariableHits()
+  {
+    return this.eclipseVariables.getHits();
+  }
+
+  /**
+   * @return the number of Eclipse variable references that have been resolved
+   *         by the Eclipse variables API
+   */
+  public int getEclipseVariableMisses()
+  {
+    return this.eclipseVariables.getMisses();
+  }
+
+  private synchronized String[] getFileIndependentParts(
+      IProgressMonitor monitor)
+  {
+    this.checkNotFailed();
+    if (this.fileIndependentParts == null)
+    {
+      String[] parts = new String[this.templates.length];
+      for (int i = 0; i < parts.length; i++)
+      {
+        CommandTemplate template = this.templates[i];
+        if (!template.usesResourceVariables())
+        {
+          parts[i] = template.usesEclipseVariables() ? this
+              .resolveEclipseVariables(template.getText(), monitor) : template
+              .getText();
+        }
+      }
+      this.fileIndependentParts = parts;
+    }
+    return this.fileIndependentParts;
+  }
+
+  private synchronized String resolveEclipseVariables(String text,
+      IProgressMonitor monitor)
+  {
+    this.checkNotFailed();
+    try
+    {
+      return this.eclipseVariables.resolve(text, monitor);
+    }
+    catch (OperationCanceledException e)
+    {
+      // a cancelled job is not a failure, other jobs of the batch may go on
+      throw e;
+    }
+    catch (RuntimeException e)
+    {
+      // the user has already been informed
+      this.failure = e;
+      throw e;
+    }
+  }
+
+  private void checkNotFailed()
+  {
+    if (this.failure != null)
+    {
+      throw new RuntimeException(
+          "The variables of this custom command could not be resolved.",
+          this.failure);
+    }
+  }
+}
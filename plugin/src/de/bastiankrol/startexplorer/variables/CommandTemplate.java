@@ -0,0 +1,271 @@
+package de.bastiankrol.startexplorer.variables;
+
+import static de.bastiankrol.startexplorer.Activator.getLogFacility;
+import static de.bastiankrol.startexplorer.util.Util.getName;
+import static de.bastiankrol.startexplorer.util.Util.getPath;
+import static de.bastiankrol.startexplorer.util.Util.separateNameAndExtension;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A part of a command that has been split into literal text and references to
+ * the StartExplorer variables (${resource_path} and friends) once, so that the
+ * variables can be replaced in a single pass afterwards. Only the variables
+ * that are actually referenced are evaluated. Eclipse variables are left in
+ * the literal text, {@link #usesEclipseVariables()} tells if the result needs
+ * to be passed to the Eclipse variables API.
+ *
+ * Instances are immutable and can be shared between threads.
+ *
+ * @author Bastian Krol
+ */
+public class CommandTemplate
+{
+  /**
+   * The StartExplorer variables a template can reference.
+   */
+  enum ResourceVariable
+  {
+    PATH(VariableManager.RESOURCE_PATH_VAR), //
+    PARENT(VariableManager.RESOURCE_PARENT_VAR), //
+    NAME(VariableManager.RESOURCE_NAME_VAR), //
+    NAME_WITHOUT_EXTENSION(VariableManager.RESOURCE_NAME_WIHTOUT_EXTENSION_VAR), //
+    EXTENSION(VariableManager.RESOURCE_EXTENSION_VAR);
+
+    private final String reference;
+
+    private ResourceVariable(String reference)
+    {
+      this.reference = reference;
+    }
+
+    String getReference()
+    {
+      return this.reference;
+    }
+  }
+
+  private static final ResourceVariable[] RESOURCE_VARIABLES = ResourceVariable
+      .values();
+
+  private final String text;
+
+  /**
+   * The segments of the template. Literal text is stored as a String, a
+   * variable reference as a {@link ResourceVariable}.
+   */
+  private final Object[] segments;
+
+  private final boolean[] referencedVariables = new boolean[RESOURCE_VARIABLES.length];
+  private final int literalLength;
+  private final boolean usesEclipseVariables;
+
+  private CommandTemplate(String text, List<Object> segments)
+  {
+    this.text = text;
+    this.segments = segments.toArray();
+    int length = 0;
+    boolean eclipseVariables = false;
+    for (Object segment : segments)
+    {
+      if (segment instanceof ResourceVariable)
+      {
+        this.referencedVariables[((ResourceVariable) segment).ordinal()] = true;
+      }
+      else
+      {
+        String literal = (String) segment;
+        length += literal.length();
+        eclipseVariables |= literal.contains(VariableManager.VAR_BEGIN);
+      }
+    }
+    this.literalLength = length;
+    this.usesEclipseVariables = eclipseVariables;
+  }
+
+  /**
+   * Splits the given text into literal text and variable references.
+   *
+   * @param text a part of a command
+   * @return the template
+   */
+  public static CommandTemplate compile(String text)
+  {
+    List<Object> segments = new ArrayList<Object>();
+    int literalStart = 0;
+    int index = text.indexOf(VariableManager.VAR_BEGIN);
+    while (index != -1)
+    {
+      ResourceVariable variable = matchVariable(text, index);
+      if (variable != null)
+      {
+        if (index > literalStart)
+        {
+          segments.add(text.substring(literalStart, index));
+        }
+        segments.add(variable);
+        literalStart = index + variable.getReference().length();
+        index = text.indexOf(VariableManager.VAR_BEGIN, literalStart);
+      }
+      else
+      {
+        index = text.indexOf(VariableManager.VAR_BEGIN, index + 1);
+      }
+    }
+    if (literalStart < text.length())
+    {
+      segments.add(text.substring(literalStart));
+    }
+    return new CommandTemplate(text, segments);
+  }
+
+  private static ResourceVariable matchVariable(String text, int index)
+  {
+    for (ResourceVariable variable : RESOURCE_VARIABLES)
+    {
+      if (text.startsWith(variable.getReference(), index))
+      {
+        return variable;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the text this template has been compiled from
+   */
+  public String getText()
+  {
+    return this.text;
+  }
+
+  /**
+   * @return {@code true} if and only if the template references at least one
+   *         StartExplorer variable
+   */
+  public boolean usesResourceVariables()
+  {
+    return this.segments.length != 1 || !(this.segments[0] instanceof String);
+  }
+
+  /**
+   * @return {@code true} if the literal text of the template contains
+   *         something that looks like an Eclipse variable
+   */
+  public boolean usesEclipseVariables()
+  {
+    return this.usesEclipseVariables;
+  }
+
+  boolean references(ResourceVariable variable)
+  {
+    return this.referencedVariables[variable.ordinal()];
+  }
+
+  /**
+   * Replaces the StartExplorer variables by the values for the given file.
+   * Eclipse variables are not replaced.
+   *
+   * @param file the file
+   * @param wrapFileParts if file parts should be wrapped in quotes
+   * @param escapeFileParts if spaces in file parts should be escaped
+   * @return the text with the variables replaced
+   */
+  public String expand(File file, boolean wrapFileParts,
+      boolean escapeFileParts)
+  {
+    if (!this.usesResourceVariables())
+    {
+      return this.text;
+    }
+    String[] values = new String[RESOURCE_VARIABLES.length];
+    int length = this.literalLength;
+    for (Object segment : this.segments)
+    {
+      if (segment instanceof ResourceVariable)
+      {
+        ResourceVariable variable = (ResourceVariable) segment;
+        if (values[variable.ordinal()] == null)
+        {
+          this.evaluate(variable, file, wrapFileParts, escapeFileParts, values);
+        }
+        length += values[variable.ordinal()].length();
+      }
+    }
+    StringBuilder result = new StringBuilder(length);
+    for (Object segment : this.segments)
+    {
+      if (segment instanceof ResourceVariable)
+      {
+        result.append(values[((ResourceVariable) segment).ordinal()]);
+      }
+      else
+      {
+        result.append((String) segment);
+      }
+    }
+    return result.toString();
+  }
+
+  private void evaluate(ResourceVariable variable, File file,
+      boolean wrapFileParts, boolean escapeFileParts, String[] values)
+  {
+    switch (variable)
+    {
+      case PATH:
+        values[variable.ordinal()] = getPath(file, wrapFileParts,
+            escapeFileParts);
+        break;
+      case PARENT:
+        File parent = file.getParentFile();
+        if (parent != null)
+        {
+          values[variable.ordinal()] = getPath(parent, wrapFileParts,
+              escapeFileParts);
+        }
+        else
+        {
+          getLogFacility().logWarning(
+              "The custom command contains the variable "
+                  + VariableManager.RESOURCE_PARENT_VAR + " but the file "
+                  + file.getAbsolutePath() + "has no parent.");
+          // left in place, so resolving the Eclipse variables will complain
+          values[variable.ordinal()] = variable.getReference();
+        }
+        break;
+      case NAME:
+        values[variable.ordinal()] = getName(file, wrapFileParts,
+            escapeFileParts);
+        break;
+      case NAME_WITHOUT_EXTENSION:
+        // fall through
+      case EXTENSION:
+        String[] nameWithoutExtensionAndExtension = separateNameAndExtension(
+            file, wrapFileParts, escapeFileParts);
+        values[ResourceVariable.NAME_WITHOUT_EXTENSION.ordinal()] = nameWithoutExtensionAndExtension[0];
+        values[ResourceVariable.EXTENSION.ordinal()] = nameWithoutExtensionAndExtension[1];
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown variable: " + variable);
+    }
+  }
+
+  /**
+   * @return {@code true} if the given expanded text has to be passed to the
+   *         Eclipse variables API
+   */
+  boolean needsEclipseSubstitution(String expanded)
+  {
+    return this.usesEclipseVariables
+        || (this.references(ResourceVariable.PARENT) && expanded
+            .contains(VariableManager.RESOURCE_PARENT_VAR));
+  }
+
+  @Override
+  public String toString()
+  {
+    return "CommandTemplate [" + this.text + "]";
+  }
+}
@@ -0,0 +1,126 @@
+package de.bastiankrol.startexplorer.variables;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Remembers the values of Eclipse variable references for the duration of one
+ * {@link CommandBatch}. Each reference (like {@code ${workspace_loc}} or
+ * {@code ${project_loc:/path/to/file}}) is resolved by the Eclipse variables
+ * API only once; references without argument are thus resolved once per
+ * batch, references with an argument once per distinct argument.
+ *
+ * @author Bastian Krol
+ */
+class EclipseVariableMemo
+{
+  private final VariableManager variableManager;
+  private final Map<String, String> values = new HashMap<String, String>();
+  private int hits;
+  private int misses;
+
+  EclipseVariableMemo(VariableManager variableManager)
+  {
+    this.variableManager = variableManager;
+  }
+
+  /**
+   * Replaces all Eclipse variable references in the given text.
+   *
+   * @param text the text
+   * @param monitor the progress monitor of the launch job, might be
+   *          {@code null}
+   * @return the text with the references replaced
+   */
+  synchronized String resolve(String text, IProgressMonitor monitor)
+  {
+    int start = text.indexOf(VariableManager.VAR_BEGIN);
+    if (start == -1)
+    {
+      return text;
+    }
+    StringBuilder result = new StringBuilder(text.length());
+    int literalStart = 0;
+    while (start != -1)
+    {
+      int end = findEndOfReference(text, start);
+      if (end == -1)
+      {
+        // not terminated, copied verbatim like the Eclipse variables API does
+        break;
+      }
+      result.append(text, literalStart, start);
+      result.append(this.getValue(text.substring(start, end), monitor));
+      literalStart = end;
+      start = text.indexOf(VariableManager.VAR_BEGIN, literalStart);
+    }
+    result.append(text, literalStart, text.length());
+    return result.toString();
+  }
+
+  private String getValue(String reference, IProgressMonitor monitor)
+  {
+    String value = this.values.get(reference);
+    if (value != null)
+    {
+      this.hits++;
+      return value;
+    }
+    this.misses++;
+    value = this.variableManager.resolveReference(reference, monitor);
+    this.values.put(reference, value);
+    return value;
+  }
+
+  /**
+   * @return the index after the closing brace of the reference starting at
+   *         the given index (nested references are part of the reference), or
+   *         -1 if the reference is not terminated
+   */
+  private static int findEndOfReference(String text, int start)
+  {
+    int depth = 0;
+    int i = start;
+    while (i < text.length())
+    {
+      if (text.startsWith(VariableManager.VAR_BEGIN, i))
+      {
+        depth++;
+        i += VariableManager.VAR_BEGIN.length();
+      }
+      else if (text.startsWith(VariableManager.VAR_END, i))
+      {
+        depth--;
+        i += VariableManager.VAR_END.length();
+        if (depth == 0)
+        {
+          return i;
+        }
+      }
+      else
+      {
+        i++;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the number of references that have been taken from the memo
+   */
+  synchronized int getHits()
+  {
+    return this.hits;
+  }
+
+  /**
+   * @return the number of references that have been resolved by the Eclipse
+   *         variables API
+   */
+  synchronized int getMisses()
+  {
+    return this.misses;
+  }
+}
@@ -0,0 +1,199 @@
+package de.bastiankrol.startexplorer.variables;
+
+import static de.bastiankrol.startexplorer.Activator.getLogFacility;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * Resolves single Eclipse variable references with a time budget. Some
+ * dynamic variables hit the network or the SCM, resolving them must neither
+ * block the launch job forever nor keep the user from cancelling it. Each
+ * reference is resolved in a worker thread while the calling thread polls the
+ * progress monitor for cancellation. Variables that prompt the user (like
+ * ${string_prompt}) are not time-boxed.
+ *
+ * No values are kept here, most variables depend on the selection; the
+ * values are remembered for one launch by {@link EclipseVariableMemo}, and a
+ * {@link CommandBatch} gives up after the first reference that could not be
+ * resolved. Worker threads that are stuck in a variable resolver are
+ * abandoned, at most {@link #MAX_WORKER_THREADS} of them are started.
+ *
+ * @author Bastian Krol
+ */
+class TimeBoxedVariableResolver
+{
+  /** How long a single reference may take to resolve. */
+  static final long DEFAULT_TIME_BUDGET_MILLIS = 10000;
+
+  /** How many references may be resolved (or stuck) at the same time. */
+  static final int MAX_WORKER_THREADS = 4;
+
+  private static final long POLL_INTERVAL_MILLIS = 100;
+  private static final String PROMPT_SUFFIX = "_prompt";
+
+  private final VariableManager variableManager;
+  private final long timeBudgetMillis;
+
+  private ExecutorService executor;
+
+  TimeBoxedVariableResolver(VariableManager variableManager)
+  {
+    this(variableManager, DEFAULT_TIME_BUDGET_MILLIS);
+  }
+
+  TimeBoxedVariableResolver(VariableManager variableManager,
+      long timeBudgetMillis)
+  {
+    this.variableManager = variableManager;
+    this.timeBudgetMillis = timeBudgetMillis;
+  }
+
+  /**
+   * Resolves a single variable reference.
+   *
+   * @param reference the reference, like {@code ${project_loc}}
+   * @param monitor the progress monitor of the launch job, might be
+   *          {@code null}
+   * @return the value
+   * @throws OperationCanceledException if the monitor has been cancelled
+   * @throws RuntimeException if the variable could not be resolved in time or
+   *           at all, the user has been informed in that case
+   */
+  String resolve(final String reference, IProgressMonitor monitor)
+  {
+    if (isPrompt(reference))
+    {
+      return this.variableManager.replaceEclipseVariables(reference);
+    }
+    long start = System.currentTimeMillis();
+    Future<String> future;
+    try
+    {
+      future = this.getExecutor().submit(new Callable<String>()
+      {
+        public String call()
+        {
+          return TimeBoxedVariableResolver.this.variableManager
+              .replaceEclipseVariables(reference);
+        }
+      });
+    }
+    catch (RejectedExecutionException e)
+    {
+      return this.noWorkerAvailable(reference);
+    }
+    boolean reported = false;
+    while (true)
+    {
+      if (monitor != null && monitor.isCanceled())
+      {
+        future.cancel(true);
+        throw new OperationCanceledException();
+      }
+      long elapsed = System.currentTimeMillis() - start;
+      if (elapsed >= this.timeBudgetMillis)
+      {
+        future.cancel(true);
+        return this.timedOut(reference);
+      }
+      try
+      {
+        return future.get(Math.min(POLL_INTERVAL_MILLIS,
+            this.timeBudgetMillis - elapsed), TimeUnit.MILLISECONDS);
+      }
+      catch (TimeoutException e)
+      {
+        if (monitor != null && !reported)
+        {
+          monitor.subTask("Resolving " + reference);
+          reported = true;
+        }
+      }
+      catch (InterruptedException e)
+      {
+        future.cancel(true);
+        Thread.currentThread().interrupt();
+        throw new OperationCanceledException();
+      }
+      catch (ExecutionException e)
+      {
+        // replaceEclipseVariables has already shown the error to the user
+        if (e.getCause() instanceof RuntimeException)
+        {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new RuntimeException(e.getCause());
+      }
+    }
+  }
+
+  private String timedOut(String reference)
+  {
+    return this.fail("Resolving the variable " + reference
+        + " took longer than " + (this.timeBudgetMillis / 1000)
+        + " seconds. The custom command has not been started.");
+  }
+
+  private String noWorkerAvailable(String reference)
+  {
+    return this.fail("The variable " + reference
+        + " can not be resolved, " + MAX_WORKER_THREADS
+        + " other variables are still being resolved. "
+        + "The custom command has not been started.");
+  }
+
+  private String fail(String message)
+  {
+    getLogFacility().logWarning(message);
+    this.variableManager.getMessageDialogHelper().displayErrorMessage(
+        "Error resolving variables in custom command", message);
+    throw new RuntimeException(message);
+  }
+
+  private synchronized ExecutorService getExecutor()
+  {
+    if (this.executor == null)
+    {
+      // a thread that is stuck in a variable resolver is abandoned, so the
+      // pool must be able to grow, but only up to a limit; idle threads
+      // terminate after a minute
+      this.executor = new ThreadPoolExecutor(0, MAX_WORKER_THREADS, 60L,
+          TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+          new ThreadFactory()
+          {
+            public Thread newThread(Runnable runnable)
+            {
+              Thread thread = new Thread(runnable,
+                  "StartExplorer variable resolver");
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+    }
+    return this.executor;
+  }
+
+  private static boolean isPrompt(String reference)
+  {
+    String name = reference.substring(VariableManager.VAR_BEGIN.length(),
+        reference.length() - VariableManager.VAR_END.length());
+    int colon = name.indexOf(':');
+    if (colon != -1)
+    {
+      name = name.substring(0, colon);
+    }
+    return name.endsWith(PROMPT_SUFFIX);
+  }
+}
@@ -1,18 +1,16 @@
 package de.bastiankrol.startexplorer.variables;
 
-import static de.bastiankrol.startexplorer.Activator.getLogFacility;
-import static de.bastiankrol.startexplorer.util.Util.getName;
-import static de.bastiankrol.startexplorer.util.Util.getPath;
-import static de.bastiankrol.startexplorer.util.Util.separateNameAndExtension;
-
 import java.io.File;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.StringTokenizer;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.variables.IDynamicVariable;
 import org.eclipse.core.variables.IStringVariableManager;
 import org.eclipse.core.variables.IValueVariable;
+import org.eclipse.core.variables.IValueVariableListener;
 import org.eclipse.core.variables.VariablesPlugin;
 
 import de.bastiankrol.startexplorer.util.MessageDialogHelper;
@@ -64,8 +62,33 @@ public class VariableManager
   public static final String RESOURCE_EXTENSION_VAR = VAR_BEGIN
       + RESOURCE_EXTENSION + VAR_END;
 
+  /**
+   * The maximum number of compiled command templates that are kept.
+   */
+  static final int MAX_CACHED_TEMPLATES = 256;
+
   private IStringVariableManager variableManager;
   private MessageDialogHelper messageDialogHelper;
+  private final TimeBoxedVariableResolver timeBoxedVariableResolver = new TimeBoxedVariableResolver(
+      this);
+  private VariableProposalIndex proposalIndex;
+  private IValueVariableListener valueVariableListener;
+
+  /**
+   * Compiled templates by their text, the least recently used template is
+   * dropped when the cache is full.
+   */
+  private final Map<String, CommandTemplate> templates = new LinkedHashMap<String, CommandTemplate>(
+      16, 0.75f, true)
+  {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, CommandTemplate> eldest)
+    {
+      return this.size() > MAX_CACHED_TEMPLATES;
+    }
+  };
 
   public VariableManager()
   {
@@ -100,7 +123,59 @@ public class VariableManager
   }
 
   /**
-   * Replaces variables in the given command parts.
+   * Returns the index of the variables that are proposed in the command
+   * fields. The index is kept until the Eclipse value variables change.
+   * 
+   * @return the proposal index
+   */
+  public synchronized VariableProposalIndex getProposalIndex()
+  {
+    if (this.proposalIndex == null)
+    {
+      final VariableProposalIndex index = new VariableProposalIndex(this);
+      this.valueVariableListener = new IValueVariableListener()
+      {
+        public void variablesAdded(IValueVariable[] variables)
+        {
+          index.invalidate();
+        }
+
+        public void variablesChanged(IValueVariable[] variables)
+        {
+          index.invalidate();
+        }
+
+        public void variablesRemoved(IValueVariable[] variables)
+        {
+          index.invalidate();
+        }
+      };
+      this.variableManager.addValueVariableListener(this.valueVariableListener);
+      this.proposalIndex = index;
+    }
+    return this.proposalIndex;
+  }
+
+  /**
+   * Unregisters from the Eclipse variables API, should be called when the
+   * plug-in is stopped.
+   */
+  public synchronized void dispose()
+  {
+    if (this.valueVariableListener != null)
+    {
+      this.variableManager
+          .removeValueVariableListener(this.valueVariableListener);
+      this.valueVariableListener = null;
+      this.proposalIndex = null;
+    }
+  }
+
+  /**
+   * Replaces variables in the given command parts. Each part is compiled into
+   * a {@link CommandTemplate} once, the StartExplorer variables are then
+   * replaced in a single pass. The Eclipse variables API is only called for
+   * parts that contain other variables.
    * 
    * @param cmdArray the command parts.
    * @param file the file, can be null
@@ -110,48 +185,115 @@ public class VariableManager
   public void replaceAllVariablesInCommand(String[] cmdArray, File file,
       boolean wrapFileParts, boolean escapeFileParts)
   {
+    // TODO Integrate "old" StartExplorer variables in standard Eclipse
+    // variables mechanism, that is, provide them as an extension as dynamic
+    // variables.
     for (int i = 0; i < cmdArray.length; i++)
     {
-      cmdArray[i] = replaceStartExplorerVariables(cmdArray[i], file,
-          wrapFileParts, escapeFileParts);
-      cmdArray[i] = replaceEclipseVariables(cmdArray[i]);
+      CommandTemplate template = this.getTemplate(cmdArray[i]);
+      String expanded = template.expand(file, wrapFileParts, escapeFileParts);
+      if (template.needsEclipseSubstitution(expanded))
+      {
+        expanded = replaceEclipseVariables(expanded);
+      }
+      cmdArray[i] = expanded;
     }
   }
 
-  private String replaceStartExplorerVariables(String command, File file,
-      boolean wrapFileParts, boolean escapeFileParts)
+  /**
+   * Prepares the given command for being started for many files, see
+   * {@link CommandBatch}.
+   * 
+   * @param cmdArray the command parts, not modified
+   * @param wrapFileParts if file parts should be wrapped in quotes
+   * @param escapeFileParts if spaces in file parts should be escaped
+   * @return the prepared command
+   */
+  public CommandBatch prepareBatch(String[] cmdArray, boolean wrapFileParts,
+      boolean escapeFileParts)
   {
-    // TODO Integrate "old" StartExplorer variables in standard Eclipse
-    // variables mechanism, that is, provide them as an extension as dynamic
-    // variables.
-    String path = getPath(file, wrapFileParts, escapeFileParts);
-    command = command.replace(RESOURCE_PATH_VAR, path);
-    String name = getName(file, wrapFileParts, escapeFileParts);
-    command = command.replace(RESOURCE_NAME_VAR, name);
-    File parent = file.getParentFile();
-    String parentPath;
-    if (parent != null)
+    CommandTemplate[] templates = new CommandTemplate[cmdArray.length];
+    for (int i = 0; i < cmdArray.length; i++)
     {
-      parentPath = getPath(parent, wrapFileParts, escapeFileParts);
-      command = command.replace(RESOURCE_PARENT_VAR, parentPath);
+      templates[i] = this.getTemplate(cmdArray[i]);
     }
-    else if (command.contains(RESOURCE_PARENT_VAR))
+    return new CommandBatch(this, templates, wrapFileParts, escapeFileParts);
+  }
+
+  /**
+   * Returns the compiled template for the given command part, compiling it if
+   * it is not in the cache yet.
+   * 
+   * @param text the command part
+   * @return the template
+   */
+  public CommandTemplate getTemplate(String text)
+  {
+    synchronized (this.templates)
     {
-      getLogFacility().logWarning(
-          "The custom command contains the variable " + RESOURCE_PARENT_VAR
-              + " but the file " + file.getAbsolutePath() + "has no parent.");
+      CommandTemplate template = this.templates.get(text);
+      if (template == null)
+      {
+        template = CommandTemplate.compile(text);
+        this.templates.put(text, template);
+      }
+      return template;
     }
+  }
 
-    String[] nameWithoutExtensionAndExtension = separateNameAndExtension(file,
-        wrapFileParts, escapeFileParts);
-    command = command.replace(RESOURCE_NAME_WIHTOUT_EXTENSION_VAR,
-        nameWithoutExtensionAndExtension[0]);
-    command = command.replace(RESOURCE_EXTENSION_VAR,
-        nameWithoutExtensionAndExtension[1]);
-    return command;
+  /**
+   * Drops the compiled templates for the parts of the given command, should be
+   * called when the command of a custom command is changed.
+   * 
+   * @param command the command, as entered by the user
+   */
+  public void forgetTemplates(String command)
+  {
+    if (command == null)
+    {
+      return;
+    }
+    synchronized (this.templates)
+    {
+      // the command is split into parts on Linux/Mac OS and passed as a whole
+      // on Windows
+      this.templates.remove(command);
+      StringTokenizer tokenizer = new StringTokenizer(command);
+      while (tokenizer.hasMoreTokens())
+      {
+        this.templates.remove(tokenizer.nextToken());
+      }
+    }
+  }
+
+  int getNumberOfCachedTemplates()
+  {
+    synchronized (this.templates)
+    {
+      return this.templates.size();
+    }
+  }
+
+  /**
+   * Resolves a single Eclipse variable reference within the time budget, see
+   * {@link TimeBoxedVariableResolver}.
+   * 
+   * @param reference the reference, like {@code ${project_loc}}
+   * @param monitor the progress monitor of the launch job, might be
+   *          {@code null}
+   * @return the value
+   */
+  String resolveReference(String reference, IProgressMonitor monitor)
+  {
+    return this.timeBoxedVariableResolver.resolve(reference, monitor);
+  }
+
+  MessageDialogHelper getMessageDialogHelper()
+  {
+    return this.messageDialogHelper;
   }
 
-  private String replaceEclipseVariables(String command)
+  String replaceEclipseVariables(String command)
   {
     try
     {
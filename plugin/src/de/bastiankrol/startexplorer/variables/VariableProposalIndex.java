@@ -0,0 +1,350 @@
+package de.bastiankrol.startexplorer.variables;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import de.bastiankrol.startexplorer.util.ContentProposal;
+
+/**
+ * The variables that can be proposed in the command fields, prepared for fast
+ * lookup while the user is typing. The index is built once and kept until the
+ * Eclipse value variables change (see
+ * {@link VariableManager#getProposalIndex()}).
+ * 
+ * A query matches a variable if it is a prefix of the variable's name, a
+ * substring of it or, failing that, if its characters occur in the name in
+ * the same order (so "prl" finds ${project_loc}). Prefix matches are found by
+ * a binary search over the sorted names. While the user keeps typing, each
+ * query extends the previous one, so only the matches of the previous query
+ * need to be checked again. Matches are ranked by kind of match first, then by
+ * recent use, then by the order in which the variables were given (the
+ * StartExplorer variables first).
+ * 
+ * @author Bastian Krol
+ */
+public class VariableProposalIndex
+{
+  private static final int PREFIX = 0;
+  private static final int SUBSTRING = 1;
+  private static final int SUBSEQUENCE = 2;
+
+  private final VariableManager variableManager;
+
+  /** Entries in the order given, {@code null} if the index must be rebuilt. */
+  private volatile Entry[] entries;
+
+  /** The same entries sorted by name, for the prefix search. */
+  private Entry[] sortedEntries;
+  private String[] sortedNames;
+
+  private final Map<String, Long> lastUse = new HashMap<String, Long>();
+  private long useCounter;
+
+  private Entry[] lastEntries;
+  private String lastQuery;
+  private List<Match> lastMatches;
+
+  VariableProposalIndex(VariableManager variableManager)
+  {
+    this.variableManager = variableManager;
+  }
+
+  /**
+   * Finds the proposals for the query that has been typed up to the given
+   * position.
+   * 
+   * @param contents the contents of the text field
+   * @param position the cursor position
+   * @return the matching proposals, best match first
+   */
+  public synchronized ContentProposal[] getProposals(String contents,
+      int position)
+  {
+    int start = getStartOfQuery(contents, position);
+    String query = contents.substring(start, position);
+    if (query.startsWith("$"))
+    {
+      query = query.substring(1);
+    }
+    if (query.startsWith("{"))
+    {
+      query = query.substring(1);
+    }
+    List<Match> matches = this.find(query.toLowerCase(Locale.ENGLISH));
+    Collections.sort(matches, new MatchComparator(this.lastUse));
+    ContentProposal[] proposals = new ContentProposal[matches.size()];
+    for (int i = 0; i < proposals.length; i++)
+    {
+      proposals[i] = matches.get(i).entry.proposal;
+    }
+    return proposals;
+  }
+
+  /**
+   * Returns where the variable reference in front of the cursor begins, that
+   * is, the index of its dollar sign. If the cursor is not in a variable
+   * reference, the position itself is returned. The text between the returned
+   * index and the position is replaced when a proposal is accepted.
+   * 
+   * @param contents the contents of the text field
+   * @param position the cursor position
+   * @return the start of the variable reference in front of the cursor
+   */
+  public static int getStartOfQuery(String contents, int position)
+  {
+    for (int i = position - 1; i >= 0; i--)
+    {
+      char c = contents.charAt(i);
+      if (c == '$')
+      {
+        return i;
+      }
+      if (Character.isWhitespace(c) || c == '}')
+      {
+        break;
+      }
+    }
+    return position;
+  }
+
+  /**
+   * Remembers that the given proposal has been accepted, so it is ranked
+   * higher from now on.
+   * 
+   * @param content the content of the accepted proposal
+   */
+  public synchronized void recordUse(String content)
+  {
+    this.lastUse.put(content, Long.valueOf(++this.useCounter));
+  }
+
+  /**
+   * Discards the index, it is rebuilt on the next query.
+   */
+  void invalidate()
+  {
+    this.entries = null;
+  }
+
+  private List<Match> find(String query)
+  {
+    Entry[] currentEntries = this.getEntries();
+    List<Match> candidates = null;
+    if (this.lastEntries == currentEntries && this.lastQuery != null
+        && query.startsWith(this.lastQuery))
+    {
+      // everything that matches the longer query also matched the shorter one
+      candidates = this.lastMatches;
+    }
+    List<Match> matches = new ArrayList<Match>();
+    if (candidates == null)
+    {
+      boolean[] isPrefixMatch = this.addPrefixMatches(query, matches);
+      for (Entry entry : currentEntries)
+      {
+        if (!isPrefixMatch[entry.order])
+        {
+          addIfMatches(entry, query, matches);
+        }
+      }
+    }
+    else
+    {
+      for (Match candidate : candidates)
+      {
+        addIfMatches(candidate.entry, query, matches);
+      }
+    }
+    this.lastEntries = currentEntries;
+    this.lastQuery = query;
+    this.lastMatches = new ArrayList<Match>(matches);
+    return matches;
+  }
+
+  private boolean[] addPrefixMatches(String query, List<Match> matches)
+  {
+    boolean[] isPrefixMatch = new boolean[this.sortedEntries.length];
+    int index = Arrays.binarySearch(this.sortedNames, query);
+    if (index < 0)
+    {
+      index = -index - 1;
+    }
+    while (index < this.sortedNames.length
+        && this.sortedNames[index].startsWith(query))
+    {
+      Entry entry = this.sortedEntries[index];
+      matches.add(new Match(entry, PREFIX));
+      isPrefixMatch[entry.order] = true;
+      index++;
+    }
+    return isPrefixMatch;
+  }
+
+  private static void addIfMatches(Entry entry, String query,
+      List<Match> matches)
+  {
+    String name = entry.name;
+    if (name.startsWith(query))
+    {
+      matches.add(new Match(entry, PREFIX));
+    }
+    else if (name.indexOf(query) != -1)
+    {
+      matches.add(new Match(entry, SUBSTRING));
+    }
+    else if (isSubsequence(query, name))
+    {
+      matches.add(new Match(entry, SUBSEQUENCE));
+    }
+  }
+
+  private static boolean isSubsequence(String query, String name)
+  {
+    int index = 0;
+    for (int i = 0; i < query.length(); i++)
+    {
+      index = name.indexOf(query.charAt(i), index);
+      if (index == -1)
+      {
+        return false;
+      }
+      index++;
+    }
+    return true;
+  }
+
+  private Entry[] getEntries()
+  {
+    Entry[] currentEntries = this.entries;
+    if (currentEntries == null)
+    {
+      Map<String, String> namesWithDescriptions = new LinkedHashMap<String, String>(
+          getResourceVariablesWithDescriptions());
+      namesWithDescriptions.putAll(this.variableManager
+          .getNamesWithDescriptions());
+      currentEntries = new Entry[namesWithDescriptions.size()];
+      int i = 0;
+      for (Map.Entry<String, String> nameWithDescription : namesWithDescriptions
+          .entrySet())
+      {
+        currentEntries[i] = new Entry(nameWithDescription.getKey(),
+            nameWithDescription.getValue(), i);
+        i++;
+      }
+      Entry[] sorted = currentEntries.clone();
+      Arrays.sort(sorted, new Comparator<Entry>()
+      {
+        public int compare(Entry entry1, Entry entry2)
+        {
+          return entry1.name.compareTo(entry2.name);
+        }
+      });
+      String[] names = new String[sorted.length];
+      for (int j = 0; j < sorted.length; j++)
+      {
+        names[j] = sorted[j].name;
+      }
+      this.sortedEntries = sorted;
+      this.sortedNames = names;
+      this.entries = currentEntries;
+    }
+    return currentEntries;
+  }
+
+  private static Map<String, String> getResourceVariablesWithDescriptions()
+  {
+    Map<String, String> proposals = new LinkedHashMap<String, String>();
+    proposals
+        .put(
+            VariableManager.RESOURCE_PATH_VAR,
+            "Absolute path to selected resource. For \"C:\\path\\to\\resource.txt\" this would be \"C:\\path\\to\\resource.txt\".");
+    proposals
+        .put(
+            VariableManager.RESOURCE_NAME_VAR,
+            "File name or directory name of the resource, without path. For \"C:\\path\\to\\resource.txt\" this would be \"resource.txt\".");
+    proposals
+        .put(
+            VariableManager.RESOURCE_PARENT_VAR,
+            "Absolute path to parent of selected resource. For \"C:\\path\\to\\resource.txt\" this would be \"C:\\path\\to\".");
+    proposals
+        .put(
+            VariableManager.RESOURCE_NAME_WIHTOUT_EXTENSION_VAR,
+            "File name or directory name of the resource, without path and without extension. For \"C:\\path\\to\\resource.txt\" this would be \"resource\".");
+    proposals
+        .put(
+            VariableManager.RESOURCE_EXTENSION_VAR,
+            "Only the file's extension, without leading dot. For \"C:\\path\\to\\resource.txt\" this would be \"txt\".");
+    return proposals;
+  }
+
+  private static class Entry
+  {
+    private final String name;
+    private final ContentProposal proposal;
+    private final int order;
+
+    private Entry(String variable, String description, int order)
+    {
+      String name = variable;
+      if (name.startsWith(VariableManager.VAR_BEGIN)
+          && name.endsWith(VariableManager.VAR_END))
+      {
+        name = name.substring(VariableManager.VAR_BEGIN.length(),
+            name.length() - VariableManager.VAR_END.length());
+      }
+      this.name = name.toLowerCase(Locale.ENGLISH);
+      this.proposal = new ContentProposal(variable, description);
+      this.order = order;
+    }
+  }
+
+  private static class Match
+  {
+    private final Entry entry;
+    private final int kind;
+
+    private Match(Entry entry, int kind)
+    {
+      this.entry = entry;
+      this.kind = kind;
+    }
+  }
+
+  private static class MatchComparator implements Comparator<Match>
+  {
+    private final Map<String, Long> lastUse;
+
+    private MatchComparator(Map<String, Long> lastUse)
+    {
+      this.lastUse = lastUse;
+    }
+
+    public int compare(Match match1, Match match2)
+    {
+      if (match1.kind != match2.kind)
+      {
+        return match1.kind < match2.kind ? -1 : 1;
+      }
+      long lastUse1 = this.getLastUse(match1);
+      long lastUse2 = this.getLastUse(match2);
+      if (lastUse1 != lastUse2)
+      {
+        return lastUse1 > lastUse2 ? -1 : 1;
+      }
+      return match1.entry.order - match2.entry.order;
+    }
+
+    private long getLastUse(Match match)
+    {
+      Long use = this.lastUse.get(match.entry.proposal.getContent());
+      return use != null ? use.longValue() : 0;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+#!/usr/bin/env python3
+#
+# Stub for org.freedesktop.FileManager1, used by FreedesktopFileManagerTest.
+# Owns the bus name on the bus given as first argument and appends one line
+# per ShowItems/ShowFolders call to the file given as second argument: the
+# method name followed by the URIs, separated by tabs. Prints "ready" as soon
+# as the bus name has been acquired.
+
+import sys
+
+from gi.repository import Gio, GLib
+
+INTERFACE = """
+<node>
+  <interface name="org.freedesktop.FileManager1">
+    <method name="ShowFolders">
+      <arg type="as" name="URIs" direction="in"/>
+      <arg type="s" name="StartupId" direction="in"/>
+    </method>
+    <method name="ShowItems">
+      <arg type="as" name="URIs" direction="in"/>
+      <arg type="s" name="StartupId" direction="in"/>
+    </method>
+  </interface>
+</node>
+"""
+
+address, record = sys.argv[1], sys.argv[2]
+loop = GLib.MainLoop()
+
+
+def on_method_call(connection, sender, path, interface, method, parameters,
+                   invocation):
+    uris = parameters.unpack()[0]
+    with open(record, "a") as f:
+        f.write("\t".join([method] + list(uris)) + "\n")
+    invocation.return_value(None)
+
+
+def on_name_acquired(connection, name):
+    print("ready", flush=True)
+
+
+def on_name_lost(connection, name):
+    loop.quit()
+
+
+connection = Gio.DBusConnection.new_for_address_sync(
+    address,
+    Gio.DBusConnectionFlags.AUTHENTICATION_CLIENT
+    | Gio.DBusConnectionFlags.MESSAGE_BUS_CONNECTION,
+    None, None)
+connection.register_object(
+    "/org/freedesktop/FileManager1",
+    Gio.DBusNodeInfo.new_for_xml(INTERFACE).interfaces[0],
+    on_method_call, None, None)
+connection.connect("closed", lambda *args: loop.quit())
+Gio.bus_own_name_on_connection(
+    connection, "org.freedesktop.FileManager1",
+    Gio.BusNameOwnerFlags.DO_NOT_QUEUE, on_name_acquired, on_name_lost)
+loop.run()